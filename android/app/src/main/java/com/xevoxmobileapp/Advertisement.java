@@ -0,0 +1,146 @@
+package com.xevoxmobileapp;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One BLE advertisement as seen by a BleTransport
+ * Holds the raw advertising payload; local name, manufacturer IDs and service UUIDs are
+ * parsed from it only when first asked for, which for most sightings is never (the
+ * classifier caches its verdict per address).
+ */
+public final class Advertisement {
+    private static final int AD_UUID16_PARTIAL = 0x02;
+    private static final int AD_UUID16_COMPLETE = 0x03;
+    private static final int AD_UUID32_PARTIAL = 0x04;
+    private static final int AD_UUID32_COMPLETE = 0x05;
+    private static final int AD_UUID128_PARTIAL = 0x06;
+    private static final int AD_UUID128_COMPLETE = 0x07;
+    private static final int AD_NAME_SHORT = 0x08;
+    private static final int AD_NAME_COMPLETE = 0x09;
+    private static final int AD_MANUFACTURER_DATA = 0xFF;
+
+    private static final int[] NO_IDS = new int[0];
+
+    public final String address;
+    public final String name;
+    public final int rssi;
+    public final long timestampNanos;
+    private final byte[] record;
+
+    // Parsed on demand
+    private boolean parsed = false;
+    private String localName;
+    private int[] manufacturerIds = NO_IDS;
+    private List<UUID> serviceUuids = Collections.emptyList();
+
+    /**
+     * name is the name known to the stack (may be null); record is the raw AD payload (may be null)
+     */
+    public Advertisement(String address, String name, int rssi, long timestampNanos, byte[] record) {
+        this.address = address;
+        this.name = name;
+        this.rssi = rssi;
+        this.timestampNanos = timestampNanos;
+        this.record = record;
+    }
+
+    public byte[] getRecord() {
+        return record;
+    }
+
+    /**
+     * Name from the stack, else the local name carried in the advertisement
+     */
+    public String getDisplayName() {
+        if (name != null) return name;
+        parse();
+        return localName;
+    }
+
+    public int[] getManufacturerIds() {
+        parse();
+        return manufacturerIds;
+    }
+
+    public List<UUID> getServiceUuids() {
+        parse();
+        return serviceUuids;
+    }
+
+    private void parse() {
+        if (parsed) return;
+        parsed = true;
+        if (record == null) return;
+
+        List<UUID> uuids = null;
+        int[] ids = NO_IDS;
+        int position = 0;
+        while (position < record.length) {
+            int length = record[position] & 0xFF;
+            if (length == 0 || position + 1 + length > record.length) break;
+            int type = record[position + 1] & 0xFF;
+            int data = position + 2;
+            int dataLength = length - 1;
+            switch (type) {
+                case AD_UUID16_PARTIAL:
+                case AD_UUID16_COMPLETE:
+                    uuids = addUuids(uuids, data, dataLength, 2);
+                    break;
+                case AD_UUID32_PARTIAL:
+                case AD_UUID32_COMPLETE:
+                    uuids = addUuids(uuids, data, dataLength, 4);
+                    break;
+                case AD_UUID128_PARTIAL:
+                case AD_UUID128_COMPLETE:
+                    uuids = addUuids(uuids, data, dataLength, 16);
+                    break;
+                case AD_NAME_SHORT:
+                case AD_NAME_COMPLETE:
+                    if (localName == null || type == AD_NAME_COMPLETE) {
+                        localName = new String(record, data, dataLength, StandardCharsets.UTF_8);
+                    }
+                    break;
+                case AD_MANUFACTURER_DATA:
+                    if (dataLength >= 2) {
+                        int[] grown = new int[ids.length + 1];
+                        System.arraycopy(ids, 0, grown, 0, ids.length);
+                        grown[ids.length] = (record[data] & 0xFF) | (record[data + 1] & 0xFF) << 8;
+                        ids = grown;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            position += 1 + length;
+        }
+        manufacturerIds = ids;
+        if (uuids != null) {
+            serviceUuids = uuids;
+        }
+    }
+
+    private List<UUID> addUuids(List<UUID> uuids, int offset, int length, int width) {
+        if (uuids == null) {
+            uuids = new ArrayList<>(2);
+        }
+        for (int i = offset; i + width <= offset + length; i += width) {
+            if (width == 16) {
+                // 128-bit UUIDs are little-endian on air
+                long least = 0;
+                long most = 0;
+                for (int b = 7; b >= 0; b--) least = least << 8 | (record[i + b] & 0xFF);
+                for (int b = 15; b >= 8; b--) most = most << 8 | (record[i + b] & 0xFF);
+                uuids.add(new UUID(most, least));
+            } else {
+                long shortUuid = 0;
+                for (int b = width - 1; b >= 0; b--) shortUuid = shortUuid << 8 | (record[i + b] & 0xFF);
+                uuids.add(FitnessDeviceClassifier.sigUuid((int) shortUuid));
+            }
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,119 @@
+package com.xevoxmobileapp;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.PowerManager;
+import android.os.SystemClock;
+
+/**
+ * SamplingScheduler.Waker backed by AlarmManager and a partial wake lock
+ * Due polls are raised as ELAPSED_REALTIME_WAKEUP alarms that are allowed while idle
+ * (exact where the app may schedule exact alarms), and each alarm holds the CPU for a
+ * few seconds so the read request goes out and its answer is decoded. Only the earliest
+ * due time is armed; an alarm that fires early finds nothing due and the next one is
+ * armed from there, which keeps AlarmManager calls off the per-reading path.
+ */
+public class AlarmWaker implements SamplingScheduler.Waker {
+    private static final String TAG = "AlarmWaker";
+    private static final String ACTION = "com.xevoxmobileapp.SAMPLING_WAKE";
+
+    // Long enough for a read request to go out and the answer to come back
+    private static final long POLL_WAKE_LOCK_MS = 5000;
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+    private final PowerManager.WakeLock wakeLock;
+    private final PendingIntent alarmIntent;
+    private BroadcastReceiver receiver;
+    private Runnable onWake;
+    private long armedAt = Long.MAX_VALUE;
+
+    public AlarmWaker(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) this.context.getSystemService(Context.ALARM_SERVICE);
+        PowerManager powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        this.wakeLock = powerManager != null
+            ? powerManager.newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, "xevox:sampling") : null;
+        if (wakeLock != null) {
+            wakeLock.setReferenceCounted(false);
+        }
+        Intent intent = new Intent(ACTION).setPackage(this.context.getPackageName());
+        this.alarmIntent = PendingIntent.getBroadcast(this.context, 0, intent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    @Override
+    public long now() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public synchronized void wakeAt(long at, Runnable onWake) {
+        this.onWake = onWake;
+        register();
+        if (alarmManager == null || at >= armedAt) return;
+        armedAt = at;
+        try {
+            if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S || alarmManager.canScheduleExactAlarms()) {
+                alarmManager.setExactAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, at, alarmIntent);
+            } else {
+                alarmManager.setAndAllowWhileIdle(AlarmManager.ELAPSED_REALTIME_WAKEUP, at, alarmIntent);
+            }
+        } catch (SecurityException e) {
+            HLog.w(TAG, "⚠️ Could not set sampling alarm: " + e.getMessage());
+            armedAt = Long.MAX_VALUE;
+        }
+    }
+
+    @Override
+    public synchronized void cancel() {
+        onWake = null;
+        armedAt = Long.MAX_VALUE;
+        if (alarmManager != null) {
+            alarmManager.cancel(alarmIntent);
+        }
+        if (receiver != null) {
+            try {
+                context.unregisterReceiver(receiver);
+            } catch (IllegalArgumentException e) {
+                HLog.w(TAG, "⚠️ Alarm receiver was not registered");
+            }
+            receiver = null;
+        }
+    }
+
+    private void register() {
+        if (receiver != null) return;
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                onAlarm();
+            }
+        };
+        IntentFilter filter = new IntentFilter(ACTION);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            context.registerReceiver(receiver, filter, Context.RECEIVER_NOT_EXPORTED);
+        } else {
+            context.registerReceiver(receiver, filter);
+        }
+    }
+
+    private void onAlarm() {
+        Runnable task;
+        synchronized (this) {
+            armedAt = Long.MAX_VALUE;
+            task = onWake;
+        }
+        if (task == null) return;
+        if (wakeLock != null) {
+            wakeLock.acquire(POLL_WAKE_LOCK_MS);
+        }
+        HBandMetrics.SAMPLING_ALARMS.increment();
+        task.run();
+    }
+}
@@ -0,0 +1,218 @@
+package com.xevoxmobileapp;
+
+import android.Manifest;
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothManager;
+import android.bluetooth.le.BluetoothLeScanner;
+import android.bluetooth.le.ScanCallback;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanRecord;
+import android.bluetooth.le.ScanResult;
+import android.bluetooth.le.ScanSettings;
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageManager;
+import android.os.Build;
+import androidx.core.content.ContextCompat;
+
+import java.util.List;
+
+/**
+ * BleTransport backed by the platform BluetoothAdapter and BluetoothLeScanner
+ * Nothing touches the Bluetooth service until first use. The adapter's on/off state is
+ * then cached and kept current by an ACTION_STATE_CHANGED receiver, and the permission
+ * check is cached until invalidatePermissions() (called when the app resumes, since
+ * that is the only time the user can have changed a grant).
+ */
+public class AndroidBleTransport implements BleTransport {
+    private static final String TAG = "AndroidBleTransport";
+
+    private static final String[] REQUIRED_PERMISSIONS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+        // Android 12+
+        ? new String[] {
+            Manifest.permission.BLUETOOTH_SCAN,
+            Manifest.permission.BLUETOOTH_CONNECT,
+            Manifest.permission.ACCESS_FINE_LOCATION
+        }
+        // Android < 12
+        : new String[] {
+            Manifest.permission.BLUETOOTH,
+            Manifest.permission.BLUETOOTH_ADMIN,
+            Manifest.permission.ACCESS_FINE_LOCATION
+        };
+
+    private final Context context;
+    private volatile boolean adapterResolved = false;
+    private volatile BluetoothAdapter bluetoothAdapter;
+    private volatile boolean adapterEnabled = false;
+    private volatile Boolean permissionsGranted;
+    private volatile StateListener stateListener;
+    private BroadcastReceiver stateReceiver;
+    private volatile BluetoothLeScanner bluetoothScanner;
+    private volatile ScanListener scanListener;
+
+    public AndroidBleTransport(Context context) {
+        this.context = context.getApplicationContext() != null ? context.getApplicationContext() : context;
+    }
+
+    private BluetoothAdapter adapter() {
+        if (!adapterResolved) {
+            resolveAdapter();
+        }
+        return bluetoothAdapter;
+    }
+
+    private synchronized void resolveAdapter() {
+        if (adapterResolved) return;
+        BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
+        BluetoothAdapter adapter = bluetoothManager != null ? bluetoothManager.getAdapter() : null;
+        if (adapter != null) {
+            stateReceiver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context receiverContext, Intent intent) {
+                    onAdapterState(intent.getIntExtra(BluetoothAdapter.EXTRA_STATE, BluetoothAdapter.ERROR));
+                }
+            };
+            context.registerReceiver(stateReceiver, new IntentFilter(BluetoothAdapter.ACTION_STATE_CHANGED));
+            adapterEnabled = adapter.isEnabled();
+        }
+        bluetoothAdapter = adapter;
+        adapterResolved = true;
+        HLog.d(TAG, adapter != null ? "✅ Bluetooth adapter resolved (enabled: " + adapterEnabled + ")" : "❌ No Bluetooth adapter");
+    }
+
+    private void onAdapterState(int state) {
+        boolean enabled = state == BluetoothAdapter.STATE_ON;
+        if (enabled == adapterEnabled) return;
+        adapterEnabled = enabled;
+        if (!enabled) {
+            // The scanner instance is invalid once the adapter goes down
+            bluetoothScanner = null;
+        }
+        HLog.d(TAG, enabled ? "📶 Bluetooth turned on" : "📴 Bluetooth turned off");
+        StateListener listener = stateListener;
+        if (listener != null) {
+            listener.onAdapterStateChanged(enabled);
+        }
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return adapter() != null;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return adapter() != null && adapterEnabled;
+    }
+
+    @Override
+    public boolean hasPermissions() {
+        Boolean cached = permissionsGranted;
+        if (cached != null) return cached;
+
+        boolean granted = true;
+        for (String permission : REQUIRED_PERMISSIONS) {
+            if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
+                HLog.e(TAG, "❌ Missing permission: " + permission);
+                granted = false;
+                break;
+            }
+        }
+        permissionsGranted = granted;
+        return granted;
+    }
+
+    @Override
+    public void invalidatePermissions() {
+        permissionsGranted = null;
+    }
+
+    @Override
+    public void setStateListener(StateListener listener) {
+        this.stateListener = listener;
+    }
+
+    /**
+     * Unregisters the adapter state receiver
+     */
+    @Override
+    public synchronized void release() {
+        if (stateReceiver != null) {
+            context.unregisterReceiver(stateReceiver);
+            stateReceiver = null;
+        }
+        adapterResolved = false;
+    }
+
+    @Override
+    public boolean startScan(ScanProfile profile, ScanListener listener) {
+        if (!isEnabled()) return false;
+
+        // Get fresh scanner instance (it is invalidated when Bluetooth is toggled)
+        BluetoothAdapter adapter = adapter();
+        BluetoothLeScanner scanner = adapter.getBluetoothLeScanner();
+        if (scanner == null) {
+            HLog.e(TAG, "❌ Bluetooth LE scanner not available");
+            return false;
+        }
+        bluetoothScanner = scanner;
+        scanListener = listener;
+
+        ScanSettings settings = profile.buildSettings(adapter);
+        List<ScanFilter> filters = profile.buildFilters();
+        scanner.startScan(filters, settings, scanCallback);
+        HLog.d(TAG, filters == null
+            ? "📡 Scanning for ALL Bluetooth LE devices..."
+            : "📡 Scanning with " + filters.size() + " hardware filters...");
+        return true;
+    }
+
+    @Override
+    public void stopScan(boolean flushPending) {
+        BluetoothLeScanner scanner = bluetoothScanner;
+        if (scanner == null) return;
+        if (flushPending) {
+            scanner.flushPendingScanResults(scanCallback);
+        }
+        scanner.stopScan(scanCallback);
+    }
+
+    @Override
+    public DeviceLink createLink(String address, DeviceLink.Listener listener, GattArbiter arbiter) {
+        return new GattConnection(context, adapter().getRemoteDevice(address), listener, arbiter);
+    }
+
+    // Scan callback (single results and batched reports)
+    private final ScanCallback scanCallback = new ScanCallback() {
+        @Override
+        public void onScanResult(int callbackType, ScanResult result) {
+            deliver(result);
+        }
+
+        @Override
+        public void onBatchScanResults(List<ScanResult> results) {
+            for (ScanResult result : results) {
+                deliver(result);
+            }
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            ScanListener listener = scanListener;
+            if (listener != null) {
+                listener.onScanFailed(errorCode);
+            }
+        }
+    };
+
+    private void deliver(ScanResult result) {
+        ScanListener listener = scanListener;
+        if (listener == null || result.getDevice() == null) return;
+        ScanRecord record = result.getScanRecord();
+        listener.onAdvertisement(new Advertisement(result.getDevice().getAddress(), result.getDevice().getName(),
+            result.getRssi(), result.getTimestampNanos(), record != null ? record.getBytes() : null));
+    }
+}
@@ -0,0 +1,32 @@
+package com.xevoxmobileapp;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+/**
+ * MainScheduler on the app's main Looper and SystemClock.elapsedRealtime()
+ */
+public class AndroidMainScheduler implements MainScheduler {
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    @Override
+    public long elapsedRealtime() {
+        return SystemClock.elapsedRealtime();
+    }
+
+    @Override
+    public void post(Runnable task) {
+        handler.post(task);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        handler.postDelayed(task, delayMs);
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
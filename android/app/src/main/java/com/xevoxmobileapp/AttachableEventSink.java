@@ -0,0 +1,53 @@
+package com.xevoxmobileapp;
+
+import java.util.Map;
+
+/**
+ * EventSink shared by the collection service and whichever UI is currently alive
+ * The native observer sees every event; the UI sink is attached while a JS runtime
+ * exists and detached when it goes away, so the manager never holds a dead context.
+ */
+public class AttachableEventSink implements EventSink {
+    private final EventSink observer;
+    private volatile EventSink attached;
+
+    public AttachableEventSink(EventSink observer) {
+        this.observer = observer;
+    }
+
+    public synchronized void attach(EventSink sink) {
+        attached = sink;
+    }
+
+    /**
+     * Detaches sink if it is still the attached one (a newer UI may have replaced it)
+     */
+    public synchronized void detach(EventSink sink) {
+        if (attached == sink) {
+            attached = null;
+        }
+    }
+
+    public boolean isAttached() {
+        return attached != null;
+    }
+
+    @Override
+    public boolean isListening() {
+        EventSink sink = attached;
+        return sink != null && sink.isListening();
+    }
+
+    @Override
+    public void emit(String eventName, Map<String, Object> data) {
+        if (observer != null) {
+            observer.emit(eventName, data);
+        }
+        EventSink sink = attached;
+        if (sink != null) {
+            sink.emit(eventName, data);
+        } else {
+            HBandMetrics.EVENTS_DETACHED.increment();
+        }
+    }
+}
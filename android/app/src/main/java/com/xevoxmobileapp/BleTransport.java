@@ -0,0 +1,65 @@
+package com.xevoxmobileapp;
+
+/**
+ * The radio as seen by HBandAndroidManager: scanning and opening device links
+ * AndroidBleTransport talks to BluetoothAdapter/BluetoothLeScanner; TraceReplayTransport
+ * plays back a recorded trace, so the scan and notification paths can be driven (and
+ * timed) without Bluetooth hardware.
+ */
+public interface BleTransport {
+
+    /**
+     * Scan callbacks, delivered on the binder or replay thread
+     */
+    interface ScanListener {
+        void onAdvertisement(Advertisement advertisement);
+        void onScanFailed(int errorCode);
+    }
+
+    /**
+     * Adapter turned on or off
+     */
+    interface StateListener {
+        void onAdapterStateChanged(boolean enabled);
+    }
+
+    /**
+     * The adapter exists (false on devices without Bluetooth)
+     */
+    boolean isAvailable();
+
+    boolean isEnabled();
+
+    /**
+     * Runtime permissions needed to scan and connect are granted
+     */
+    boolean hasPermissions();
+
+    /**
+     * Forces the next hasPermissions() to re-check (grants may change while the app is paused)
+     */
+    void invalidatePermissions();
+
+    void setStateListener(StateListener listener);
+
+    /**
+     * Frees platform registrations; the transport re-acquires them on next use
+     */
+    void release();
+
+    /**
+     * Starts a scan with the profile's settings; false if the scanner is unavailable or
+     * the stack rejected the call synchronously
+     */
+    boolean startScan(ScanProfile profile, ScanListener listener);
+
+    /**
+     * Stops the current scan; flushPending first drains results batched in the controller
+     */
+    void stopScan(boolean flushPending);
+
+    /**
+     * Creates an unconnected link; arbiter shares the stack with other links (may be null)
+     */
+    DeviceLink createLink(String address, DeviceLink.Listener listener, GattArbiter arbiter);
+}
@@ -0,0 +1,424 @@
+package com.xevoxmobileapp;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Streams one large payload (firmware image, watch face) to a band
+ * Chunks are sized to the negotiated MTU and sent as write-without-response. Two windows
+ * bound what is outstanding: LOCAL_WINDOW writes not yet taken by the stack, and the band's
+ * own window of bytes beyond its last acknowledgement. A stalled acknowledgement rewinds to
+ * the acknowledged offset (go-back-N). The acknowledged offset is persisted every
+ * CHECKPOINT_BYTES, so after a link drop, or a new session for the same image, the upload
+ * continues where the band stopped instead of starting over.
+ * Work runs on one thread; callers may invoke it from any thread.
+ */
+public class BulkTransferSession {
+    public static final int MAX_PAYLOAD_BYTES = 32 * 1024 * 1024;
+    public static final int LOCAL_WINDOW = 8;
+    public static final int CHECKPOINT_BYTES = 64 * 1024;
+    public static final long ACK_TIMEOUT_MS = 3000;
+    public static final long RESPONSE_TIMEOUT_MS = 10000;
+    public static final long PAUSE_TIMEOUT_MS = 5 * 60 * 1000;
+    private static final int MAX_STALLS = 5;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+    private static final int ATT_HEADER_BYTES = 3;
+
+    public enum Kind {
+        FIRMWARE("firmware"),
+        WATCH_FACE("watchFace");
+
+        public final String jsName;
+
+        Kind(String jsName) {
+            this.jsName = jsName;
+        }
+
+        public static Kind fromName(String name) {
+            for (Kind kind : values()) {
+                if (kind.jsName.equalsIgnoreCase(name)) return kind;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Session events, delivered on the transfer thread
+     */
+    public interface Listener {
+        void onProgress(Progress progress);
+        // The link dropped; the session waits for resume() with the acknowledged offset kept
+        void onPaused(int acknowledgedBytes);
+        void onFinished(boolean completed, String error);
+    }
+
+    /**
+     * Throughput snapshot; bytesPerSecond counts acknowledged bytes while the link was up
+     */
+    public static final class Progress {
+        public final Kind kind;
+        public final int totalBytes;
+        public final int sentBytes;
+        public final int acknowledgedBytes;
+        public final double bytesPerSecond;
+        public final long etaMs;
+        public final int chunkSize;
+        public final int resumes;
+        public final long retransmittedBytes;
+
+        Progress(Kind kind, int totalBytes, int sentBytes, int acknowledgedBytes, double bytesPerSecond,
+                 long etaMs, int chunkSize, int resumes, long retransmittedBytes) {
+            this.kind = kind;
+            this.totalBytes = totalBytes;
+            this.sentBytes = sentBytes;
+            this.acknowledgedBytes = acknowledgedBytes;
+            this.bytesPerSecond = bytesPerSecond;
+            this.etaMs = etaMs;
+            this.chunkSize = chunkSize;
+            this.resumes = resumes;
+            this.retransmittedBytes = retransmittedBytes;
+        }
+    }
+
+    private enum State { IDLE, STARTING, STREAMING, FINISHING, PAUSED }
+
+    private final String address;
+    private final Kind kind;
+    private final byte[] payload;
+    private final long crc32;
+    private final TransferProtocol protocol;
+    private final DurableLongMap checkpoints;
+    private final Listener listener;
+    private final ScheduledExecutorService executor;
+
+    // Only touched on the transfer thread
+    private DeviceLink link;
+    private State state = State.IDLE;
+    // Bumped whenever outstanding writes are abandoned, so their late completions are ignored
+    private int generation;
+    private int chunkSize;
+    private int sentOffset;
+    private int ackedOffset;
+    private int checkpointedOffset;
+    private int peerWindow;
+    private int inFlight;
+    private int stalls;
+    private int resumes;
+    private long retransmittedBytes;
+    private int highestSent;
+    // Acknowledged bytes and time spent while streaming, for the rate
+    private long streamedBytes;
+    private long streamingNanos;
+    private long streamingSince;
+    private long lastProgressAt;
+    private ScheduledFuture<?> timeout;
+    private volatile boolean running = false;
+
+    private final TransferProtocol.Receiver receiver = new TransferProtocol.Receiver() {
+        @Override
+        public void onAccepted(int resumeOffset, int windowBytes) {
+            if (state != State.STARTING) return;
+            // The band may only go back from the offered offset, never skip ahead of it
+            int offset = Math.max(0, Math.min(resumeOffset, ackedOffset));
+            sentOffset = offset;
+            ackedOffset = offset;
+            highestSent = Math.max(highestSent, offset);
+            peerWindow = Math.max(0, windowBytes);
+            stalls = 0;
+            state = State.STREAMING;
+            streamingSince = System.nanoTime();
+            if (ackedOffset >= payload.length) {
+                // Dropped while finishing: every byte is already on the band
+                finish();
+                return;
+            }
+            pump();
+        }
+
+        @Override
+        public void onAcknowledged(int offset) {
+            if (state != State.STREAMING || offset <= ackedOffset || offset > sentOffset) return;
+            streamedBytes += offset - ackedOffset;
+            ackedOffset = offset;
+            stalls = 0;
+            if (ackedOffset - checkpointedOffset >= CHECKPOINT_BYTES) {
+                checkpoint();
+            }
+            if (ackedOffset >= payload.length) {
+                finish();
+                return;
+            }
+            armTimeout(ACK_TIMEOUT_MS);
+            pump();
+            reportProgress(false);
+        }
+
+        @Override
+        public void onCompleted() {
+            if (state != State.FINISHING) return;
+            clearCheckpoint();
+            end(true, null);
+        }
+
+        @Override
+        public void onRejected(String reason) {
+            if (state == State.FINISHING) {
+                // A corrupt image must not be resumed
+                clearCheckpoint();
+            }
+            end(false, "Band rejected transfer: " + reason);
+        }
+    };
+
+    public BulkTransferSession(String address, Kind kind, byte[] payload, TransferProtocol protocol,
+                               DurableLongMap checkpoints, Listener listener) {
+        this.address = address;
+        this.kind = kind;
+        this.payload = payload;
+        this.protocol = protocol;
+        this.checkpoints = checkpoints;
+        this.listener = listener;
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        this.crc32 = crc.getValue();
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandTransfer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Checkpoints are per band and per image, so a different image never resumes a stale offset
+     */
+    static String checkpointKey(String address, Kind kind, long crc32, int length) {
+        return address.toUpperCase(Locale.ROOT) + "/" + kind.jsName + "/"
+            + Long.toHexString(crc32) + "/" + length;
+    }
+
+    public void start(DeviceLink link) {
+        executor.execute(() -> {
+            if (running) return;
+            running = true;
+            long saved = checkpoints.get(checkpointKey(address, kind, crc32, payload.length), 0);
+            ackedOffset = (int) Math.max(0, Math.min(saved, payload.length));
+            checkpointedOffset = ackedOffset;
+            begin(link);
+        });
+    }
+
+    /**
+     * Continues a paused session on the re-established link from the acknowledged offset
+     */
+    public void resume(DeviceLink link) {
+        executor.execute(() -> {
+            if (state != State.PAUSED) return;
+            resumes++;
+            begin(link);
+        });
+    }
+
+    /**
+     * Feeds a notification from the band's notify characteristic
+     */
+    public void onNotification(byte[] value) {
+        executor.execute(() -> {
+            if (state == State.IDLE || state == State.PAUSED) return;
+            protocol.onNotification(value, receiver);
+        });
+    }
+
+    /**
+     * Link dropped: outstanding chunks are abandoned and the session waits for resume()
+     */
+    public void onLinkLost() {
+        executor.execute(() -> {
+            if (!running || state == State.PAUSED) return;
+            stopStreaming();
+            checkpoint();
+            state = State.PAUSED;
+            link = null;
+            listener.onPaused(ackedOffset);
+            int paused = generation;
+            timeout = executor.schedule(() -> {
+                if (state == State.PAUSED && generation == paused) {
+                    end(false, "Link lost");
+                }
+            }, PAUSE_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * Stops the upload; the acknowledged offset stays persisted for a later session
+     */
+    public void cancel() {
+        executor.execute(() -> {
+            if (!running) return;
+            checkpoint();
+            end(false, "Cancelled");
+        });
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void begin(DeviceLink next) {
+        cancelTimeout();
+        link = next;
+        generation++;
+        inFlight = 0;
+        // ATT payload minus the protocol's own framing; the controller packs it into LL packets
+        chunkSize = Math.max(1, next.getMtu() - ATT_HEADER_BYTES - protocol.chunkOverhead());
+        state = State.STARTING;
+        next.writeCommand(protocol.buildStart(kind, payload.length, crc32, ackedOffset), true, null);
+        armTimeout(RESPONSE_TIMEOUT_MS);
+    }
+
+    /**
+     * Sends chunks while both the local and the band's window have room
+     */
+    private void pump() {
+        DeviceLink current = link;
+        int limit = peerWindow > 0 ? (int) Math.min(payload.length, (long) ackedOffset + peerWindow) : payload.length;
+        while (state == State.STREAMING && inFlight < LOCAL_WINDOW && sentOffset < limit) {
+            int length = Math.min(chunkSize, limit - sentOffset);
+            if (sentOffset < highestSent) {
+                retransmittedBytes += Math.min(length, highestSent - sentOffset);
+            }
+            byte[] chunk = protocol.buildChunk(payload, sentOffset, length);
+            sentOffset += length;
+            highestSent = Math.max(highestSent, sentOffset);
+            inFlight++;
+            int sentIn = generation;
+            current.writeCommand(chunk, false,
+                (operation, status, value, intValue) -> executor.execute(() -> onWritten(sentIn, status)));
+        }
+        if (state == State.STREAMING && timeout == null && sentOffset > ackedOffset) {
+            armTimeout(ACK_TIMEOUT_MS);
+        }
+    }
+
+    private void onWritten(int sentIn, int status) {
+        if (sentIn != generation || state != State.STREAMING) return;
+        inFlight--;
+        if (status == GattOperationQueue.STATUS_SUCCESS) {
+            pump();
+        } else if (status != GattOperationQueue.STATUS_DISCONNECTED) {
+            // The stack refused a chunk; everything after it is out of order for the band
+            rewind();
+        }
+    }
+
+    private void rewind() {
+        generation++;
+        inFlight = 0;
+        sentOffset = ackedOffset;
+        cancelTimeout();
+        pump();
+    }
+
+    private void finish() {
+        stopStreaming();
+        checkpoint();
+        state = State.FINISHING;
+        reportProgress(true);
+        link.writeCommand(protocol.buildFinish(crc32), true, null);
+        armTimeout(RESPONSE_TIMEOUT_MS);
+    }
+
+    private void stopStreaming() {
+        if (state == State.STREAMING) {
+            streamingNanos += System.nanoTime() - streamingSince;
+        }
+        generation++;
+        inFlight = 0;
+        cancelTimeout();
+    }
+
+    private void checkpoint() {
+        if (ackedOffset == checkpointedOffset) return;
+        try {
+            checkpoints.put(checkpointKey(address, kind, crc32, payload.length), ackedOffset);
+            checkpointedOffset = ackedOffset;
+        } catch (IOException e) {
+            // Progress since the last checkpoint is sent again after a restart
+        }
+    }
+
+    private void clearCheckpoint() {
+        try {
+            checkpoints.remove(checkpointKey(address, kind, crc32, payload.length));
+        } catch (IOException e) {
+            // A leftover offset only makes the next upload of this image resume instead of restart
+        }
+    }
+
+    private void end(boolean completed, String error) {
+        if (!running) return;
+        stopStreaming();
+        state = State.IDLE;
+        link = null;
+        running = false;
+        listener.onFinished(completed, error);
+    }
+
+    private void armTimeout(long delayMs) {
+        cancelTimeout();
+        State armedIn = state;
+        int armedGeneration = generation;
+        timeout = executor.schedule(() -> {
+            if (state != armedIn || generation != armedGeneration) return;
+            timeout = null;
+            onTimeout();
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void onTimeout() {
+        if (state != State.STREAMING) {
+            end(false, state == State.STARTING ? "Band did not accept transfer" : "Band did not confirm transfer");
+            return;
+        }
+        if (++stalls > MAX_STALLS) {
+            checkpoint();
+            end(false, "Band stopped acknowledging at " + ackedOffset);
+            return;
+        }
+        rewind();
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+    }
+
+    private void reportProgress(boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastProgressAt < TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MS)) return;
+        lastProgressAt = now;
+        long activeNanos = streamingNanos + (state == State.STREAMING ? now - streamingSince : 0);
+        double rate = streamedBytes / Math.max(1e-3, activeNanos / 1e9);
+        long eta = rate > 0 ? (long) ((payload.length - ackedOffset) / rate * 1000) : -1;
+        listener.onProgress(new Progress(kind, payload.length, sentOffset, ackedOffset, rate, eta,
+            chunkSize, resumes, retransmittedBytes));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public int getTotalBytes() {
+        return payload.length;
+    }
+}
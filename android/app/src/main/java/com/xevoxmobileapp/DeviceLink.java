@@ -0,0 +1,58 @@
+package com.xevoxmobileapp;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One connection to a wearable as seen by the manager
+ * GattConnection implements it on top of BluetoothGatt; TraceReplayTransport implements
+ * it from a recorded notification stream so the session, history and storage paths run
+ * without a radio.
+ */
+public interface DeviceLink {
+
+    /**
+     * Link events, delivered on the binder, queue or replay thread
+     */
+    interface Listener {
+        void onConnectionStateChanged(DeviceLink link, boolean connected, int status);
+        void onReady(DeviceLink link, int mtu);
+        void onNotification(DeviceLink link, UUID characteristic, byte[] value);
+    }
+
+    void connect();
+    void disconnect();
+    void close();
+
+    /**
+     * Re-opens a dropped link in the background (autoConnect, no timeout); a service
+     * table still held from the last connection is reused if its layout is unchanged
+     */
+    void reconnect();
+
+    /**
+     * MTU a known band accepted last time; only a hint, PREFERRED_MTU is always requested
+     */
+    void setMtuHint(int mtu);
+
+    /**
+     * Sends a command to the band's write characteristic
+     */
+    void writeCommand(byte[] command, boolean withResponse, GattOperation.Callback callback);
+
+    /**
+     * Raise connection priority for a bulk transfer; pair with endBulkTransfer()
+     */
+    void beginBulkTransfer();
+    void endBulkTransfer();
+
+    String getAddress();
+    boolean isConnected();
+    int getMtu();
+    boolean isBonded();
+
+    /**
+     * Per-type operation counters (empty for links without a GATT queue)
+     */
+    Map<GattOperation.Type, GattOperationQueue.OperationStats> getOperationStats();
+}
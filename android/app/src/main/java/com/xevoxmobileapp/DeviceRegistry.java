@@ -0,0 +1,202 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Thread-safe registry of discovered BLE devices
+ * Keeps last and EWMA-smoothed RSSI per address, bounded by LRU eviction and
+ * expiry of devices not seen recently, so memory stays flat during long scans
+ */
+public class DeviceRegistry {
+    public static final int DEFAULT_MAX_DEVICES = 512;
+    public static final long DEFAULT_MAX_AGE_MS = 60000;
+    public static final float DEFAULT_RSSI_ALPHA = 0.25f;
+
+    /**
+     * Immutable view of one registry entry, safe to hand to other threads
+     */
+    public static class DeviceSnapshot {
+        public final String address;
+        public final String name;
+        public final int rssi;
+        public final float smoothedRssi;
+        public final long firstSeen;
+        public final long lastSeen;
+        public final int sightings;
+        public final boolean isFitnessDevice;
+
+        DeviceSnapshot(Entry entry) {
+            this.address = entry.address;
+            this.name = entry.name;
+            this.rssi = entry.rssi;
+            this.smoothedRssi = entry.smoothedRssi;
+            this.firstSeen = entry.firstSeen;
+            this.lastSeen = entry.lastSeen;
+            this.sightings = entry.sightings;
+            this.isFitnessDevice = entry.isFitnessDevice;
+        }
+
+        public boolean isNew() {
+            return sightings == 1;
+        }
+    }
+
+    private static class Entry {
+        final String address;
+        String name;
+        int rssi;
+        float smoothedRssi;
+        long firstSeen;
+        long lastSeen;
+        int sightings;
+        boolean isFitnessDevice;
+
+        Entry(String address) {
+            this.address = address;
+        }
+    }
+
+    private final Object lock = new Object();
+    private volatile int maxDevices;
+    private volatile long maxAgeMs;
+    private volatile float rssiAlpha;
+
+    // Ordered by last sighting: least recently seen entries sit at the head
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            if (size() > maxDevices) {
+                evictedCount++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private long evictedCount = 0;
+    private long expiredCount = 0;
+
+    public DeviceRegistry() {
+        this(DEFAULT_MAX_DEVICES, DEFAULT_MAX_AGE_MS, DEFAULT_RSSI_ALPHA);
+    }
+
+    public DeviceRegistry(int maxDevices, long maxAgeMs, float rssiAlpha) {
+        configure(maxDevices, maxAgeMs, rssiAlpha);
+    }
+
+    public void configure(int maxDevices, long maxAgeMs, float rssiAlpha) {
+        this.maxDevices = Math.max(1, maxDevices);
+        this.maxAgeMs = Math.max(0, maxAgeMs);
+        this.rssiAlpha = Math.min(1f, Math.max(0.01f, rssiAlpha));
+    }
+
+    /**
+     * Records one sighting and returns a snapshot of the updated entry
+     */
+    public DeviceSnapshot record(String address, String name, int rssi, boolean isFitnessDevice, long now) {
+        synchronized (lock) {
+            Entry entry = entries.remove(address);
+            if (entry == null) {
+                entry = new Entry(address);
+                entry.firstSeen = now;
+                entry.smoothedRssi = rssi;
+            } else {
+                entry.smoothedRssi += rssiAlpha * (rssi - entry.smoothedRssi);
+            }
+            // Re-inserting moves the entry to the tail (most recently seen)
+            entries.put(address, entry);
+            if (name != null) {
+                entry.name = name;
+            }
+            entry.rssi = rssi;
+            entry.lastSeen = now;
+            entry.sightings++;
+            entry.isFitnessDevice |= isFitnessDevice;
+            return new DeviceSnapshot(entry);
+        }
+    }
+
+    /**
+     * Drops devices not seen within maxAgeMs; walks from the least recently seen entry
+     */
+    public int evictStale(long now) {
+        if (maxAgeMs <= 0) return 0;
+        long cutoff = now - maxAgeMs;
+        int removed = 0;
+        synchronized (lock) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().lastSeen >= cutoff) break;
+                iterator.remove();
+                removed++;
+            }
+            expiredCount += removed;
+        }
+        return removed;
+    }
+
+    public DeviceSnapshot get(String address) {
+        synchronized (lock) {
+            Entry entry = entries.get(address);
+            return entry != null ? new DeviceSnapshot(entry) : null;
+        }
+    }
+
+    /**
+     * Top-k devices by smoothed RSSI, strongest first
+     */
+    public List<DeviceSnapshot> strongest(int k, boolean fitnessOnly) {
+        List<DeviceSnapshot> result;
+        synchronized (lock) {
+            // k comes from JS unchecked; more than the registry holds changes nothing
+            int limit = Math.min(k, entries.size());
+            if (limit <= 0) return Collections.emptyList();
+            PriorityQueue<Entry> heap = new PriorityQueue<>(limit + 1,
+                (a, b) -> Float.compare(a.smoothedRssi, b.smoothedRssi));
+            result = new ArrayList<>(limit);
+            for (Entry entry : entries.values()) {
+                if (fitnessOnly && !entry.isFitnessDevice) continue;
+                if (heap.size() < limit) {
+                    heap.add(entry);
+                } else if (entry.smoothedRssi > heap.peek().smoothedRssi) {
+                    heap.poll();
+                    heap.add(entry);
+                }
+            }
+            while (!heap.isEmpty()) {
+                result.add(new DeviceSnapshot(heap.poll()));
+            }
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    public int size() {
+        synchronized (lock) {
+            return entries.size();
+        }
+    }
+
+    public long getEvictedCount() {
+        synchronized (lock) {
+            return evictedCount;
+        }
+    }
+
+    public long getExpiredCount() {
+        synchronized (lock) {
+            return expiredCount;
+        }
+    }
+
+    public void clear() {
+        synchronized (lock) {
+            entries.clear();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Simultaneous links to several wearables (e.g. a watch plus a ring or a BP cuff)
+ * Each session owns its DeviceLink (a GattConnection with a serialized operation queue on
+ * its own thread); all queues share one GattArbiter so no device can monopolise the stack.
+ */
+public class DeviceSessionManager {
+    // Most Android stacks handle 4-7 concurrent LE links reliably
+    public static final int DEFAULT_MAX_SESSIONS = 4;
+
+    /**
+     * One device link and its counters
+     */
+    public static class Session {
+        public final String address;
+        public final DeviceLink connection;
+        public final long createdAt;
+        volatile boolean connected = false;
+        volatile boolean ready = false;
+        volatile long connectedAt = 0;
+        // elapsedRealtime when a known band started (re)connecting; 0 once ready
+        volatile long reconnectStartedAt = 0;
+        final AtomicLong notifications = new AtomicLong();
+        final AtomicLong bytesReceived = new AtomicLong();
+
+        Session(String address, DeviceLink connection) {
+            this.address = address;
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+        }
+
+        public boolean isConnected() { return connected; }
+        public boolean isReady() { return ready; }
+        public long getConnectedAt() { return connectedAt; }
+        public long getNotifications() { return notifications.get(); }
+        public long getBytesReceived() { return bytesReceived.get(); }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final GattArbiter arbiter;
+    private volatile int maxSessions = DEFAULT_MAX_SESSIONS;
+
+    public DeviceSessionManager() {
+        this(new GattArbiter());
+    }
+
+    public DeviceSessionManager(GattArbiter arbiter) {
+        this.arbiter = arbiter;
+    }
+
+    static String key(String address) {
+        return address.toUpperCase(Locale.ROOT);
+    }
+
+    public void setMaxSessions(int maxSessions) {
+        this.maxSessions = Math.max(1, maxSessions);
+    }
+
+    /**
+     * Opens a session; null if the device already has one or the session limit is reached
+     */
+    public synchronized Session open(BleTransport transport, String deviceAddress, DeviceLink.Listener listener) {
+        String address = key(deviceAddress);
+        if (sessions.containsKey(address) || sessions.size() >= maxSessions) {
+            return null;
+        }
+        Session session = new Session(address, transport.createLink(address, listener, arbiter));
+        sessions.put(address, session);
+        return session;
+    }
+
+    public Session get(String address) {
+        return address != null ? sessions.get(key(address)) : null;
+    }
+
+    /**
+     * The session for a connection, or null if it was replaced or closed
+     */
+    public Session find(DeviceLink connection) {
+        Session session = get(connection.getAddress());
+        return session != null && session.connection == connection ? session : null;
+    }
+
+    public synchronized Session remove(String address) {
+        return sessions.remove(key(address));
+    }
+
+    public List<Session> all() {
+        return new ArrayList<>(sessions.values());
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public boolean anyConnected() {
+        for (Session session : sessions.values()) {
+            if (session.connected) return true;
+        }
+        return false;
+    }
+
+    public GattArbiter getArbiter() {
+        return arbiter;
+    }
+}
@@ -0,0 +1,83 @@
+package com.xevoxmobileapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Small persisted String -> long map for checkpoints and watermarks
+ * Every change is saved with write-to-temp + fsync + rename, so a crash leaves either
+ * the old or the new file, never a torn one.
+ */
+public class DurableLongMap {
+    private final File file;
+    private final Map<String, Long> values = new HashMap<>();
+
+    public DurableLongMap(File file) {
+        this.file = file;
+        load();
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return;
+        }
+        for (String key : properties.stringPropertyNames()) {
+            try {
+                values.put(key, Long.parseLong(properties.getProperty(key)));
+            } catch (NumberFormatException e) {
+                // Ignore a bad entry; its owner starts over
+            }
+        }
+    }
+
+    /**
+     * Stored value, or fallback when the key was never written
+     */
+    public synchronized long get(String key, long fallback) {
+        Long value = values.get(key);
+        return value != null ? value : fallback;
+    }
+
+    public synchronized void put(String key, long value) throws IOException {
+        Long previous = values.put(key, value);
+        if (previous == null || previous != value) {
+            save();
+        }
+    }
+
+    public synchronized void remove(String key) throws IOException {
+        if (values.remove(key) != null) {
+            save();
+        }
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        for (Map.Entry<String, Long> entry : values.entrySet()) {
+            properties.setProperty(entry.getKey(), Long.toString(entry.getValue()));
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.xevoxmobileapp;
+
+import java.util.Map;
+
+/**
+ * Destination of the manager's JS events
+ * In the app this is the React Native device event emitter; a harness can count or
+ * capture events instead. Payloads are plain maps (values: null, Boolean, Number,
+ * String, Map or List), converted to WritableMap only by ReactEventSink.
+ */
+public interface EventSink {
+    void emit(String eventName, Map<String, Object> data);
+
+    /**
+     * False while nobody consumes high-rate events, so they need not be built at all
+     */
+    default boolean isListening() {
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MainScheduler on one scheduled executor thread and System.nanoTime()
+ * Stands in for the main Looper where there is none (JVM tests, benchmarks). Tasks
+ * run one at a time in posting order, like messages on a Looper.
+ */
+public class ExecutorMainScheduler implements MainScheduler {
+    private final ScheduledExecutorService executor;
+    // Pending runs per task, so cancel() can drop them like Handler.removeCallbacks
+    private final Map<Runnable, List<ScheduledFuture<?>>> pending = new HashMap<>();
+
+    public ExecutorMainScheduler() {
+        this(Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandMain");
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    public ExecutorMainScheduler(ScheduledExecutorService executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public long elapsedRealtime() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    @Override
+    public void post(Runnable task) {
+        postDelayed(task, 0);
+    }
+
+    @Override
+    public void postDelayed(Runnable task, long delayMs) {
+        synchronized (pending) {
+            // The wrapper needs the pending lock to unregister itself, so it sees its own future
+            List<ScheduledFuture<?>> runs = pending.computeIfAbsent(task, key -> new ArrayList<>());
+            ScheduledFuture<?>[] self = new ScheduledFuture<?>[1];
+            self[0] = executor.schedule(() -> {
+                synchronized (pending) {
+                    List<ScheduledFuture<?>> current = pending.get(task);
+                    if (current != null && current.remove(self[0]) && current.isEmpty()) {
+                        pending.remove(task);
+                    }
+                }
+                task.run();
+            }, Math.max(0, delayMs), TimeUnit.MILLISECONDS);
+            runs.add(self[0]);
+        }
+    }
+
+    @Override
+    public void cancel(Runnable task) {
+        synchronized (pending) {
+            List<ScheduledFuture<?>> runs = pending.remove(task);
+            if (runs != null) {
+                for (ScheduledFuture<?> run : runs) {
+                    run.cancel(false);
+                }
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,277 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Classifies BLE advertisers as potential fitness devices
+ * Name keywords are compiled once into a single Aho-Corasick automaton; manufacturer IDs
+ * and service UUIDs are O(1) table lookups. Verdicts are cached per address for the scan session.
+ */
+public class FitnessDeviceClassifier {
+    private static final String TAG = "FitnessDeviceClassifier";
+
+    private static final int ALPHABET = 128;
+
+    // As many addresses as DeviceRegistry tracks; a crowded scan cannot grow the cache past it
+    public static final int MAX_CACHED_VERDICTS = DeviceRegistry.DEFAULT_MAX_DEVICES;
+
+    public static final List<String> DEFAULT_KEYWORDS = Arrays.asList(
+        "veepoo", "hband", "watch", "fitness", "band", "smart", "tracker", "health",
+        "mi", "xiaomi", "amazfit", "huawei", "samsung", "garmin", "fitbit"
+    );
+
+    // Bluetooth SIG company identifiers of wearable vendors
+    public static final int[] DEFAULT_MANUFACTURER_IDS = {
+        0x0157, // Anhui Huami (Amazfit)
+        0x038F, // Xiaomi
+        0x027D, // Huawei
+        0x0075, // Samsung
+        0x0087, // Garmin
+        0x006B  // Polar
+    };
+
+    // Subset made only by wearable vendors; phone makers' IDs would pass every nearby phone in a hardware filter
+    public static final int[] WEARABLE_MANUFACTURER_IDS = {
+        0x0157, // Anhui Huami (Amazfit)
+        0x0087, // Garmin
+        0x006B  // Polar
+    };
+
+    // Veepoo/HBand private service plus standard SIG health services
+    public static final UUID VEEPOO_SERVICE_UUID = UUID.fromString("f0080001-0451-4000-b000-000000000000");
+    public static final UUID[] DEFAULT_SERVICE_UUIDS = {
+        VEEPOO_SERVICE_UUID,
+        sigUuid(0x180D), // Heart Rate
+        sigUuid(0x1810), // Blood Pressure
+        sigUuid(0x1822), // Pulse Oximeter
+        sigUuid(0x1809), // Health Thermometer
+        sigUuid(0x1814), // Running Speed and Cadence
+        sigUuid(0x1816), // Cycling Speed and Cadence
+        sigUuid(0x181D)  // Weight Scale
+    };
+
+    // Compiled automaton: goto table flattened as state * ALPHABET + char, plus accepting states
+    private volatile Automaton automaton;
+
+    private final boolean[] manufacturerIds = new boolean[0x10000];
+    private final Set<UUID> serviceUuids = new HashSet<>();
+
+    // Per-address verdicts for the current scan session, least recently used at the head
+    private final LinkedHashMap<String, Boolean> verdicts = new LinkedHashMap<String, Boolean>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_CACHED_VERDICTS;
+        }
+    };
+
+    public FitnessDeviceClassifier() {
+        setKeywords(DEFAULT_KEYWORDS);
+        for (int id : DEFAULT_MANUFACTURER_IDS) {
+            manufacturerIds[id] = true;
+        }
+        serviceUuids.addAll(Arrays.asList(DEFAULT_SERVICE_UUIDS));
+    }
+
+    /**
+     * Replaces the name keyword list; matching is ASCII case-insensitive
+     */
+    public void setKeywords(Collection<String> keywords) {
+        List<String> accepted = new ArrayList<>();
+        for (String keyword : keywords) {
+            if (keyword == null || keyword.isEmpty()) continue;
+            String lower = keyword.toLowerCase(Locale.ROOT);
+            if (!isAscii(lower)) {
+                HLog.w(TAG, "⚠️ Ignoring non-ASCII keyword: " + keyword);
+                continue;
+            }
+            accepted.add(lower);
+        }
+        automaton = Automaton.compile(accepted);
+        synchronized (verdicts) {
+            verdicts.clear();
+        }
+        HLog.d(TAG, "🔧 Compiled " + accepted.size() + " fitness keywords");
+    }
+
+    /**
+     * Forgets cached verdicts; called when a new scan session starts
+     */
+    public void resetSession() {
+        synchronized (verdicts) {
+            verdicts.clear();
+        }
+    }
+
+    /**
+     * Classifies one advertisement, using the cached verdict for known addresses
+     */
+    public boolean classify(Advertisement advertisement) {
+        Boolean cached;
+        synchronized (verdicts) {
+            cached = verdicts.get(advertisement.address);
+        }
+        if (cached != null) {
+            return cached;
+        }
+
+        String advertisedName = advertisement.getDisplayName();
+        boolean verdict = matchesName(advertisedName) || matchesRecord(advertisement);
+
+        // A nameless miss may still be resolved by a later scan response carrying the name
+        if (verdict || advertisedName != null) {
+            synchronized (verdicts) {
+                verdicts.put(advertisement.address, verdict);
+            }
+        }
+        return verdict;
+    }
+
+    public boolean matchesName(CharSequence name) {
+        return name != null && automaton.matches(name);
+    }
+
+    public boolean matchesManufacturerId(int manufacturerId) {
+        return manufacturerId >= 0 && manufacturerId < manufacturerIds.length && manufacturerIds[manufacturerId];
+    }
+
+    public boolean matchesServiceUuid(UUID uuid) {
+        return uuid != null && serviceUuids.contains(uuid);
+    }
+
+    private boolean matchesRecord(Advertisement advertisement) {
+        for (int manufacturerId : advertisement.getManufacturerIds()) {
+            if (matchesManufacturerId(manufacturerId)) {
+                return true;
+            }
+        }
+        for (UUID uuid : advertisement.getServiceUuids()) {
+            if (matchesServiceUuid(uuid)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int getCachedVerdictCount() {
+        synchronized (verdicts) {
+            return verdicts.size();
+        }
+    }
+
+    static UUID sigUuid(int shortUuid) {
+        return new UUID(((long) shortUuid << 32) | 0x1000L, 0x800000805F9B34FBL);
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= ALPHABET) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Aho-Corasick automaton compiled to a dense DFA over ASCII
+     */
+    private static final class Automaton {
+        private final int[] transitions;
+        private final boolean[] accepting;
+
+        private Automaton(int[] transitions, boolean[] accepting) {
+            this.transitions = transitions;
+            this.accepting = accepting;
+        }
+
+        boolean matches(CharSequence text) {
+            if (accepting[0]) return true;
+            int state = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c >= ALPHABET) {
+                    state = 0;
+                    continue;
+                }
+                if (c >= 'A' && c <= 'Z') {
+                    c += 'a' - 'A';
+                }
+                state = transitions[state * ALPHABET + c];
+                if (accepting[state]) return true;
+            }
+            return false;
+        }
+
+        static Automaton compile(List<String> keywords) {
+            // Build the keyword trie
+            List<int[]> trie = new ArrayList<>();
+            List<Boolean> terminal = new ArrayList<>();
+            trie.add(newNode());
+            terminal.add(false);
+            for (String keyword : keywords) {
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int c = keyword.charAt(i);
+                    if (trie.get(state)[c] < 0) {
+                        trie.get(state)[c] = trie.size();
+                        trie.add(newNode());
+                        terminal.add(false);
+                    }
+                    state = trie.get(state)[c];
+                }
+                terminal.set(state, true);
+            }
+
+            // Breadth-first pass resolves failure links into direct transitions
+            int size = trie.size();
+            int[] transitions = new int[size * ALPHABET];
+            boolean[] accepting = new boolean[size];
+            int[] failure = new int[size];
+            for (int s = 0; s < size; s++) {
+                accepting[s] = terminal.get(s);
+            }
+
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            int[] root = trie.get(0);
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = root[c];
+                if (next < 0) {
+                    transitions[c] = 0;
+                } else {
+                    transitions[c] = next;
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                accepting[state] |= accepting[failure[state]];
+                int[] node = trie.get(state);
+                for (int c = 0; c < ALPHABET; c++) {
+                    int next = node[c];
+                    if (next < 0) {
+                        transitions[state * ALPHABET + c] = transitions[failure[state] * ALPHABET + c];
+                    } else {
+                        transitions[state * ALPHABET + c] = next;
+                        failure[next] = transitions[failure[state] * ALPHABET + c];
+                        queue.add(next);
+                    }
+                }
+            }
+            return new Automaton(transitions, accepting);
+        }
+
+        private static int[] newNode() {
+            int[] node = new int[ALPHABET];
+            Arrays.fill(node, -1);
+            return node;
+        }
+    }
+}
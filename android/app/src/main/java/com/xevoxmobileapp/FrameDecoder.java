@@ -0,0 +1,270 @@
+package com.xevoxmobileapp;
+
+/**
+ * Streaming decoder for framed packets split across GATT notifications
+ * Frames are [sync][command][length (1 or 2 bytes, little-endian)][payload][checksum],
+ * where the checksum (none, 8-bit sum, XOR or CRC-16/CCITT) covers command, length and
+ * payload. Notifications may cut a frame anywhere; the decoder is a byte-level state
+ * machine that reassembles into one preallocated buffer and hands complete frames to a
+ * primitive sink, so steady-state decoding does not allocate. After a bad checksum it
+ * rescans the bytes following the false sync byte, so one corrupt packet costs at most
+ * the frames it overlaps.
+ */
+public class FrameDecoder {
+    public static final int DEFAULT_MAX_PAYLOAD = 4096;
+
+    public enum Checksum { NONE, SUM8, XOR8, CRC16_CCITT }
+
+    /**
+     * Receives complete frames; buffer is reused and only valid during the call
+     */
+    public interface FrameSink {
+        void onFrame(int command, byte[] buffer, int offset, int length);
+    }
+
+    private static final int STATE_SYNC = 0;
+    private static final int STATE_COMMAND = 1;
+    private static final int STATE_LENGTH = 2;
+    private static final int STATE_PAYLOAD = 3;
+    private static final int STATE_CHECKSUM = 4;
+
+    private static final char[] CRC16_TABLE = new char[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int crc = i << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+            }
+            CRC16_TABLE[i] = (char) (crc & 0xFFFF);
+        }
+    }
+
+    private final int syncByte;
+    private final int lengthBytes;
+    private final Checksum checksum;
+    private final int checksumBytes;
+    private final int maxPayload;
+    private final FrameSink sink;
+
+    // Raw bytes of the frame being assembled (sync included), kept for resync after a bad checksum
+    private final byte[] frame;
+    private int frameLength = 0;
+
+    // Bytes queued for rescanning after a false sync, consumed before new input
+    private final byte[] pushback;
+    private int pushStart;
+    private int pushEnd;
+
+    private int state = STATE_SYNC;
+    private int command;
+    private int payloadLength;
+    private int fieldIndex;
+    private int running;
+    private int received;
+
+    // Stats
+    private long framesDecoded = 0;
+    private long checksumErrors = 0;
+    private long oversizeFrames = 0;
+    private long bytesSkipped = 0;
+    private long bytesFed = 0;
+
+    public FrameDecoder(int syncByte, int lengthBytes, Checksum checksum, int maxPayload, FrameSink sink) {
+        if (lengthBytes != 1 && lengthBytes != 2) {
+            throw new IllegalArgumentException("lengthBytes must be 1 or 2");
+        }
+        this.syncByte = syncByte & 0xFF;
+        this.lengthBytes = lengthBytes;
+        this.checksum = checksum;
+        this.checksumBytes = checksum == Checksum.NONE ? 0 : checksum == Checksum.CRC16_CCITT ? 2 : 1;
+        this.maxPayload = Math.min(maxPayload, lengthBytes == 1 ? 0xFF : 0xFFFF);
+        this.sink = sink;
+        this.frame = new byte[2 + lengthBytes + this.maxPayload + checksumBytes];
+        this.pushback = new byte[frame.length * 2];
+        this.pushStart = pushback.length;
+        this.pushEnd = pushback.length;
+    }
+
+    /**
+     * Feeds one notification (or any slice of the byte stream)
+     */
+    public void feed(byte[] data, int offset, int length) {
+        bytesFed += length;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            consume(data[i]);
+            while (pushStart < pushEnd) {
+                consume(pushback[pushStart++]);
+            }
+        }
+    }
+
+    public void feed(byte[] data) {
+        feed(data, 0, data.length);
+    }
+
+    /**
+     * Drops a partially assembled frame (e.g. after the link dropped)
+     */
+    public void reset() {
+        state = STATE_SYNC;
+        frameLength = 0;
+        pushStart = pushback.length;
+        pushEnd = pushback.length;
+    }
+
+    private void consume(byte value) {
+        int b = value & 0xFF;
+        switch (state) {
+            case STATE_SYNC:
+                if (b == syncByte) {
+                    frameLength = 0;
+                    frame[frameLength++] = value;
+                    running = checksum == Checksum.CRC16_CCITT ? 0xFFFF : 0;
+                    state = STATE_COMMAND;
+                } else {
+                    bytesSkipped++;
+                }
+                return;
+            case STATE_COMMAND:
+                frame[frameLength++] = value;
+                command = b;
+                update(b);
+                payloadLength = 0;
+                fieldIndex = 0;
+                state = STATE_LENGTH;
+                return;
+            case STATE_LENGTH:
+                frame[frameLength++] = value;
+                update(b);
+                payloadLength |= b << (8 * fieldIndex);
+                if (++fieldIndex < lengthBytes) return;
+                if (payloadLength > maxPayload) {
+                    oversizeFrames++;
+                    resync();
+                    return;
+                }
+                received = 0;
+                fieldIndex = 0;
+                state = payloadLength > 0 ? STATE_PAYLOAD : afterPayload();
+                if (state == STATE_SYNC) deliver();
+                return;
+            case STATE_PAYLOAD:
+                frame[frameLength++] = value;
+                update(b);
+                if (++received == payloadLength) {
+                    state = afterPayload();
+                    if (state == STATE_SYNC) deliver();
+                }
+                return;
+            default:
+                frame[frameLength++] = value;
+                if (++fieldIndex < checksumBytes) return;
+                if (checksumMatches()) {
+                    state = STATE_SYNC;
+                    deliver();
+                } else {
+                    checksumErrors++;
+                    resync();
+                }
+        }
+    }
+
+    private int afterPayload() {
+        return checksumBytes > 0 ? STATE_CHECKSUM : STATE_SYNC;
+    }
+
+    private void update(int b) {
+        switch (checksum) {
+            case SUM8:
+                running = (running + b) & 0xFF;
+                break;
+            case XOR8:
+                running ^= b;
+                break;
+            case CRC16_CCITT:
+                running = ((running << 8) ^ CRC16_TABLE[((running >>> 8) ^ b) & 0xFF]) & 0xFFFF;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean checksumMatches() {
+        int trailer = frameLength - checksumBytes;
+        if (checksumBytes == 1) {
+            return (frame[trailer] & 0xFF) == running;
+        }
+        int stored = (frame[trailer] & 0xFF) | (frame[trailer + 1] & 0xFF) << 8;
+        return stored == running;
+    }
+
+    private void deliver() {
+        framesDecoded++;
+        int payloadOffset = 2 + lengthBytes;
+        sink.onFrame(command, frame, payloadOffset, payloadLength);
+    }
+
+    /**
+     * The sync byte was false: queue everything after it for rescanning, ahead of any
+     * bytes still waiting from an earlier resync
+     */
+    private void resync() {
+        int count = frameLength - 1;
+        state = STATE_SYNC;
+        frameLength = 0;
+        bytesSkipped++;
+        if (pushStart < count) {
+            int waiting = pushEnd - pushStart;
+            System.arraycopy(pushback, pushStart, pushback, pushback.length - waiting, waiting);
+            pushStart = pushback.length - waiting;
+            pushEnd = pushback.length;
+        }
+        pushStart -= count;
+        System.arraycopy(frame, 1, pushback, pushStart, count);
+    }
+
+    /**
+     * Encodes a frame in this decoder's format (for commands sent to the device and for tests)
+     */
+    public byte[] encode(int command, byte[] payload, int offset, int length) {
+        if (length > maxPayload) {
+            throw new IllegalArgumentException("Payload too large: " + length);
+        }
+        byte[] out = new byte[2 + lengthBytes + length + checksumBytes];
+        int position = 0;
+        out[position++] = (byte) syncByte;
+        out[position++] = (byte) command;
+        for (int i = 0; i < lengthBytes; i++) {
+            out[position++] = (byte) (length >>> (8 * i));
+        }
+        System.arraycopy(payload, offset, out, position, length);
+        position += length;
+
+        int sum = checksum == Checksum.CRC16_CCITT ? 0xFFFF : 0;
+        for (int i = 1; i < position; i++) {
+            int b = out[i] & 0xFF;
+            switch (checksum) {
+                case SUM8: sum = (sum + b) & 0xFF; break;
+                case XOR8: sum ^= b; break;
+                case CRC16_CCITT: sum = ((sum << 8) ^ CRC16_TABLE[((sum >>> 8) ^ b) & 0xFF]) & 0xFFFF; break;
+                default: break;
+            }
+        }
+        if (checksumBytes == 1) {
+            out[position] = (byte) sum;
+        } else if (checksumBytes == 2) {
+            out[position] = (byte) sum;
+            out[position + 1] = (byte) (sum >>> 8);
+        }
+        return out;
+    }
+
+    // Stats
+    public long getFramesDecoded() { return framesDecoded; }
+    public long getChecksumErrors() { return checksumErrors; }
+    public long getOversizeFrames() { return oversizeFrames; }
+    public long getBytesSkipped() { return bytesSkipped; }
+    public long getBytesFed() { return bytesFed; }
+}
@@ -0,0 +1,76 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayDeque;
+
+/**
+ * Fair share of the BLE stack between several GattOperationQueues
+ * Every operation handed to the stack holds a permit until it completes, and at most
+ * maxInFlight permits exist across all devices. Queues that find no permit wait in FIFO
+ * order and are granted one at a time as permits come back, so a device pushing a bulk
+ * transfer gets one slot per turn instead of filling the controller's buffers while
+ * another device waits to enable notifications or read a value.
+ */
+public class GattArbiter {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final int maxInFlight;
+    private final ArrayDeque<GattOperationQueue> waiting = new ArrayDeque<>();
+    private int inFlight = 0;
+
+    // Stats
+    private long grants = 0;
+    private long waits = 0;
+
+    public GattArbiter() {
+        this(DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    public GattArbiter(int maxInFlight) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+    }
+
+    /**
+     * Takes a permit if one is free and nobody is queued ahead; otherwise queues the caller,
+     * which later receives GattOperationQueue.grantPermit()
+     */
+    synchronized boolean tryAcquire(GattOperationQueue queue) {
+        if (inFlight < maxInFlight && waiting.isEmpty()) {
+            inFlight++;
+            grants++;
+            return true;
+        }
+        if (!waiting.contains(queue)) {
+            waiting.add(queue);
+            waits++;
+        }
+        return false;
+    }
+
+    /**
+     * Returns a permit; hands it straight to the next waiting queue if there is one
+     */
+    void release() {
+        GattOperationQueue next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+                return;
+            }
+            grants++;
+        }
+        next.grantPermit();
+    }
+
+    /**
+     * Forgets a closed queue so it is never granted a permit
+     */
+    synchronized void remove(GattOperationQueue queue) {
+        waiting.remove(queue);
+    }
+
+    public synchronized int getInFlight() { return inFlight; }
+    public synchronized int getWaitingQueues() { return waiting.size(); }
+    public synchronized long getGrants() { return grants; }
+    public synchronized long getWaits() { return waits; }
+}
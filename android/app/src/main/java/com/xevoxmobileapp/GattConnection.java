@@ -0,0 +1,331 @@
+package com.xevoxmobileapp;
+
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.content.Context;
+import android.os.Build;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * GATT connection to one HBand/Veepoo wearable
+ * Owns the BluetoothGatt client and its serialized GattOperationQueue. After connecting it
+ * discovers services, negotiates the MTU and enables notifications on the vendor
+ * notify characteristic before reporting the link as ready. A background reconnect
+ * keeps the client and its service table, and skips discovery while the layout is
+ * known to be stable (bonded, or no Service Changed characteristic).
+ */
+public class GattConnection implements GattLink, DeviceLink {
+    private static final String TAG = "GattConnection";
+
+    // Veepoo/HBand private service
+    public static final UUID SERVICE_UUID = FitnessDeviceClassifier.VEEPOO_SERVICE_UUID;
+    public static final UUID NOTIFY_CHARACTERISTIC_UUID = UUID.fromString("f0080002-0451-4000-b000-000000000000");
+    public static final UUID WRITE_CHARACTERISTIC_UUID = UUID.fromString("f0080003-0451-4000-b000-000000000000");
+    private static final UUID CLIENT_CONFIG_DESCRIPTOR_UUID = UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+    private static final UUID SERVICE_CHANGED_UUID = UUID.fromString("00002a05-0000-1000-8000-00805f9b34fb");
+
+    public static final int PREFERRED_MTU = 247;
+    private static final int DEFAULT_MTU = 23;
+
+    private final Context context;
+    private final BluetoothDevice device;
+    private final DeviceLink.Listener listener;
+    private final GattOperationQueue queue;
+    private volatile BluetoothGatt gatt;
+    private volatile boolean connected = false;
+    private volatile int mtu = DEFAULT_MTU;
+    private volatile int mtuHint = 0;
+    // Layout of the service table the client holds, and whether it may be reused
+    private volatile long layoutSignature = 0;
+    private volatile boolean layoutStatic = false;
+
+    public GattConnection(Context context, BluetoothDevice device, DeviceLink.Listener listener) {
+        this(context, device, listener, null);
+    }
+
+    /**
+     * arbiter shares the BLE stack fairly with other connections (may be null)
+     */
+    public GattConnection(Context context, BluetoothDevice device, DeviceLink.Listener listener, GattArbiter arbiter) {
+        this.context = context;
+        this.device = device;
+        this.listener = listener;
+        this.queue = new GattOperationQueue(this, "HBandGatt-" + device.getAddress(), arbiter);
+    }
+
+    @Override
+    public void connect() {
+        HLog.d(TAG, "🔗 Opening GATT to " + device.getAddress());
+        gatt = device.connectGatt(context, false, gattCallback, BluetoothDevice.TRANSPORT_LE);
+    }
+
+    @Override
+    public void reconnect() {
+        BluetoothGatt current = gatt;
+        if (current != null) {
+            // Same client: the stack reconnects when the band is back in range
+            HLog.d(TAG, "🔁 Background reconnect to " + device.getAddress());
+            current.connect();
+        } else {
+            gatt = device.connectGatt(context, true, gattCallback, BluetoothDevice.TRANSPORT_LE);
+        }
+    }
+
+    @Override
+    public void setMtuHint(int mtu) {
+        this.mtuHint = mtu;
+    }
+
+    @Override
+    public void disconnect() {
+        BluetoothGatt current = gatt;
+        if (current != null) {
+            current.disconnect();
+        }
+    }
+
+    @Override
+    public void close() {
+        queue.close();
+        BluetoothGatt current = gatt;
+        gatt = null;
+        if (current != null) {
+            current.close();
+        }
+        connected = false;
+    }
+
+    public void enqueue(GattOperation operation) {
+        queue.enqueue(operation);
+    }
+
+    @Override
+    public void beginBulkTransfer() {
+        queue.beginHighPriority(BluetoothGatt.CONNECTION_PRIORITY_HIGH);
+        // 2M PHY halves air time per packet; a controller without it stays on 1M (see onPhyUpdate)
+        BluetoothGatt current = gatt;
+        if (current != null && Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            current.setPreferredPhy(BluetoothDevice.PHY_LE_2M_MASK, BluetoothDevice.PHY_LE_2M_MASK,
+                BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+        }
+    }
+
+    @Override
+    public void endBulkTransfer() {
+        queue.endHighPriority(BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+    }
+
+    @Override
+    public void writeCommand(byte[] command, boolean withResponse, GattOperation.Callback callback) {
+        queue.enqueue(withResponse
+            ? GattOperation.write(SERVICE_UUID, WRITE_CHARACTERISTIC_UUID, command, callback)
+            : GattOperation.writeNoResponse(SERVICE_UUID, WRITE_CHARACTERISTIC_UUID, command, callback));
+    }
+
+    private void setUpLink() {
+        BluetoothGatt current = gatt;
+        long held = current != null ? signatureOf(current.getServices()) : 0;
+        if (held != 0 && held == layoutSignature && (layoutStatic || isBonded())) {
+            HLog.d(TAG, "⚡ Reusing service table of " + device.getAddress());
+            HBandMetrics.DISCOVERY_SKIPPED.increment();
+            negotiate();
+            return;
+        }
+        queue.enqueue(GattOperation.discoverServices((operation, status, value, intValue) -> {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                HLog.e(TAG, "❌ Service discovery failed: " + status);
+                disconnect();
+                return;
+            }
+            BluetoothGatt discovered = gatt;
+            if (discovered != null) {
+                layoutSignature = signatureOf(discovered.getServices());
+                layoutStatic = findCharacteristic(SERVICE_CHANGED_UUID) == null;
+            }
+            negotiate();
+        }));
+    }
+
+    private void negotiate() {
+        // The ATT MTU is per connection, and a firmware update can raise what the band accepts,
+        // so the full size is asked for every time; the last accepted value is only logged against
+        mtu = DEFAULT_MTU;
+        queue.enqueue(GattOperation.requestMtu(PREFERRED_MTU, (mtuOperation, mtuStatus, mtuValue, negotiated) -> {
+            if (mtuStatus == BluetoothGatt.GATT_SUCCESS && negotiated > 0) {
+                mtu = negotiated;
+            }
+            int hint = mtuHint;
+            HLog.d(TAG, "📏 MTU: " + mtu + (hint > 0 && hint != mtu ? " (was " + hint + ")" : ""));
+        }));
+        queue.enqueue(GattOperation.enableNotifications(SERVICE_UUID, NOTIFY_CHARACTERISTIC_UUID, true,
+            (notifyOperation, notifyStatus, notifyValue, notifyInt) -> {
+                if (notifyStatus != BluetoothGatt.GATT_SUCCESS) {
+                    HLog.w(TAG, "⚠️ Could not enable notifications: " + notifyStatus);
+                }
+                listener.onReady(this, mtu);
+            }));
+    }
+
+    // FNV-1a over service/characteristic UUIDs, instance IDs (handles) and properties
+    private static long signatureOf(List<BluetoothGattService> services) {
+        if (services == null || services.isEmpty()) return 0;
+        long hash = 0xcbf29ce484222325L;
+        for (BluetoothGattService service : services) {
+            hash = mix(hash, service.getUuid().getMostSignificantBits());
+            hash = mix(hash, service.getUuid().getLeastSignificantBits());
+            hash = mix(hash, service.getInstanceId());
+            for (BluetoothGattCharacteristic characteristic : service.getCharacteristics()) {
+                hash = mix(hash, characteristic.getUuid().getMostSignificantBits());
+                hash = mix(hash, characteristic.getUuid().getLeastSignificantBits());
+                hash = mix(hash, characteristic.getInstanceId());
+                hash = mix(hash, characteristic.getProperties());
+            }
+        }
+        return hash != 0 ? hash : 1;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private final BluetoothGattCallback gattCallback = new BluetoothGattCallback() {
+        @Override
+        public void onConnectionStateChange(BluetoothGatt g, int status, int newState) {
+            boolean nowConnected = status == BluetoothGatt.GATT_SUCCESS && newState == BluetoothProfile.STATE_CONNECTED;
+            HLog.d(TAG, (nowConnected ? "✅ Connected: " : "🔌 Disconnected: ") + device.getAddress() + " (status " + status + ")");
+            connected = nowConnected;
+            if (nowConnected) {
+                listener.onConnectionStateChanged(GattConnection.this, true, status);
+                setUpLink();
+            } else {
+                queue.failAll(GattOperationQueue.STATUS_DISCONNECTED);
+                listener.onConnectionStateChanged(GattConnection.this, false, status);
+            }
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt g, int status) {
+            queue.onCallback(GattOperation.Type.DISCOVER_SERVICES, status, null, 0);
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt g, int newMtu, int status) {
+            queue.onCallback(GattOperation.Type.REQUEST_MTU, status, null, newMtu);
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt g, int txPhy, int rxPhy, int status) {
+            HLog.d(TAG, "📶 PHY of " + device.getAddress() + ": tx " + txPhy + ", rx " + rxPhy + " (status " + status + ")");
+        }
+
+        @Override
+        public void onCharacteristicRead(BluetoothGatt g, BluetoothGattCharacteristic characteristic, int status) {
+            queue.onCallback(GattOperation.Type.READ, status, characteristic.getValue(), 0);
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt g, BluetoothGattCharacteristic characteristic, int status) {
+            queue.onCallback(GattOperation.Type.WRITE, status, null, 0);
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt g, BluetoothGattDescriptor descriptor, int status) {
+            queue.onCallback(GattOperation.Type.ENABLE_NOTIFICATIONS, status, null, 0);
+        }
+
+        @Override
+        public void onCharacteristicChanged(BluetoothGatt g, BluetoothGattCharacteristic characteristic) {
+            listener.onNotification(GattConnection.this, characteristic.getUuid(), characteristic.getValue());
+        }
+    };
+
+    // GattLink implementation (called on the queue thread)
+
+    @Override
+    public boolean discoverServices() {
+        BluetoothGatt current = gatt;
+        return current != null && current.discoverServices();
+    }
+
+    @Override
+    public boolean requestMtu(int requestedMtu) {
+        BluetoothGatt current = gatt;
+        return current != null && current.requestMtu(requestedMtu);
+    }
+
+    @Override
+    public boolean requestConnectionPriority(int priority) {
+        BluetoothGatt current = gatt;
+        return current != null && current.requestConnectionPriority(priority);
+    }
+
+    @Override
+    public boolean readCharacteristic(UUID service, UUID characteristic) {
+        BluetoothGattCharacteristic target = findCharacteristic(service, characteristic);
+        return target != null && gatt.readCharacteristic(target);
+    }
+
+    @Override
+    public boolean writeCharacteristic(UUID service, UUID characteristic, byte[] value, boolean withResponse) {
+        BluetoothGattCharacteristic target = findCharacteristic(service, characteristic);
+        if (target == null) return false;
+        target.setWriteType(withResponse
+            ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+            : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        target.setValue(value);
+        return gatt.writeCharacteristic(target);
+    }
+
+    @Override
+    public boolean setNotificationsEnabled(UUID service, UUID characteristic, boolean enabled) {
+        BluetoothGattCharacteristic target = findCharacteristic(service, characteristic);
+        if (target == null || !gatt.setCharacteristicNotification(target, enabled)) return false;
+        BluetoothGattDescriptor descriptor = target.getDescriptor(CLIENT_CONFIG_DESCRIPTOR_UUID);
+        if (descriptor == null) return false;
+        descriptor.setValue(enabled
+            ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE
+            : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
+        return gatt.writeDescriptor(descriptor);
+    }
+
+    private BluetoothGattCharacteristic findCharacteristic(UUID characteristic) {
+        BluetoothGatt current = gatt;
+        if (current == null || current.getServices() == null) return null;
+        for (BluetoothGattService gattService : current.getServices()) {
+            BluetoothGattCharacteristic target = gattService.getCharacteristic(characteristic);
+            if (target != null) return target;
+        }
+        return null;
+    }
+
+    private BluetoothGattCharacteristic findCharacteristic(UUID service, UUID characteristic) {
+        BluetoothGatt current = gatt;
+        if (current == null) return null;
+        BluetoothGattService gattService = current.getService(service);
+        return gattService != null ? gattService.getCharacteristic(characteristic) : null;
+    }
+
+    @Override
+    public Map<GattOperation.Type, GattOperationQueue.OperationStats> getOperationStats() {
+        return queue.getStats();
+    }
+
+    // Getters
+    @Override public String getAddress() { return device.getAddress(); }
+    @Override public boolean isConnected() { return connected; }
+    @Override public int getMtu() { return mtu; }
+    @Override public boolean isBonded() { return device.getBondState() == BluetoothDevice.BOND_BONDED; }
+    public GattOperationQueue getQueue() { return queue; }
+}
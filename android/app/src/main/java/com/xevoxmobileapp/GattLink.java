@@ -0,0 +1,17 @@
+package com.xevoxmobileapp;
+
+import java.util.UUID;
+
+/**
+ * Minimal view of a GATT client used by GattOperationQueue
+ * Implemented by GattConnection on top of BluetoothGatt; a fake implementation
+ * can stand in on the JVM. Each call returns false if the stack rejected it.
+ */
+public interface GattLink {
+    boolean discoverServices();
+    boolean requestMtu(int mtu);
+    boolean requestConnectionPriority(int priority);
+    boolean readCharacteristic(UUID service, UUID characteristic);
+    boolean writeCharacteristic(UUID service, UUID characteristic, byte[] value, boolean withResponse);
+    boolean setNotificationsEnabled(UUID service, UUID characteristic, boolean enabled);
+}
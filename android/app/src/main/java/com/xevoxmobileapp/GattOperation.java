@@ -0,0 +1,112 @@
+package com.xevoxmobileapp;
+
+import java.util.UUID;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * One queued GATT operation
+ * Operations are executed strictly one at a time by GattOperationQueue, except
+ * writes without response which may be pipelined up to the queue's window.
+ */
+public class GattOperation {
+    public static final long DEFAULT_TIMEOUT_MS = 5000;
+
+    public enum Type {
+        DISCOVER_SERVICES,
+        REQUEST_MTU,
+        REQUEST_PRIORITY,
+        READ,
+        WRITE,
+        WRITE_NO_RESPONSE,
+        ENABLE_NOTIFICATIONS
+    }
+
+    /**
+     * Completion callback, invoked on the queue thread
+     */
+    public interface Callback {
+        void onComplete(GattOperation operation, int status, byte[] value, int intValue);
+    }
+
+    public final Type type;
+    public final UUID service;
+    public final UUID characteristic;
+    public final byte[] value;
+    public final int intArg;
+    public final long timeoutMs;
+    final Callback callback;
+
+    // Filled in by the queue
+    long enqueuedAtNanos;
+    long startedAtNanos;
+    ScheduledFuture<?> timeoutFuture;
+    boolean permitHeld;
+
+    private GattOperation(Type type, UUID service, UUID characteristic, byte[] value,
+                          int intArg, long timeoutMs, Callback callback) {
+        this.type = type;
+        this.service = service;
+        this.characteristic = characteristic;
+        this.value = value;
+        this.intArg = intArg;
+        this.timeoutMs = timeoutMs;
+        this.callback = callback;
+    }
+
+    public static GattOperation discoverServices(Callback callback) {
+        return new GattOperation(Type.DISCOVER_SERVICES, null, null, null, 0, 10000, callback);
+    }
+
+    public static GattOperation requestMtu(int mtu, Callback callback) {
+        return new GattOperation(Type.REQUEST_MTU, null, null, null, mtu, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public static GattOperation requestPriority(int priority, Callback callback) {
+        return new GattOperation(Type.REQUEST_PRIORITY, null, null, null, priority, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public static GattOperation read(UUID service, UUID characteristic, Callback callback) {
+        return new GattOperation(Type.READ, service, characteristic, null, 0, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public static GattOperation write(UUID service, UUID characteristic, byte[] value, Callback callback) {
+        return new GattOperation(Type.WRITE, service, characteristic, value, 0, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public static GattOperation writeNoResponse(UUID service, UUID characteristic, byte[] value, Callback callback) {
+        return new GattOperation(Type.WRITE_NO_RESPONSE, service, characteristic, value, 0, DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    public static GattOperation enableNotifications(UUID service, UUID characteristic, boolean enabled, Callback callback) {
+        return new GattOperation(Type.ENABLE_NOTIFICATIONS, service, characteristic, null, enabled ? 1 : 0,
+            DEFAULT_TIMEOUT_MS, callback);
+    }
+
+    /**
+     * Priority requests have no completion callback on Android; they finish once accepted
+     */
+    boolean completesOnSubmit() {
+        return type == Type.REQUEST_PRIORITY;
+    }
+
+    boolean submit(GattLink link) {
+        switch (type) {
+            case DISCOVER_SERVICES:
+                return link.discoverServices();
+            case REQUEST_MTU:
+                return link.requestMtu(intArg);
+            case REQUEST_PRIORITY:
+                return link.requestConnectionPriority(intArg);
+            case READ:
+                return link.readCharacteristic(service, characteristic);
+            case WRITE:
+                return link.writeCharacteristic(service, characteristic, value, true);
+            case WRITE_NO_RESPONSE:
+                return link.writeCharacteristic(service, characteristic, value, false);
+            case ENABLE_NOTIFICATIONS:
+                return link.setNotificationsEnabled(service, characteristic, intArg != 0);
+            default:
+                return false;
+        }
+    }
+}
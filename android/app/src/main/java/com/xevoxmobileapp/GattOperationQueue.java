@@ -0,0 +1,373 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialized GATT operation queue
+ * Android's GATT client only accepts one outstanding operation, so every request goes
+ * through this queue on a single thread. Writes without response are pipelined up to a
+ * small window; everything else waits for its callback or its timeout. Per-type latency
+ * is recorded for every operation. With a shared GattArbiter, every operation handed to
+ * the stack also holds one of the arbiter's permits. Plain Java so it can run against a
+ * fake GattLink.
+ */
+public class GattOperationQueue {
+    public static final int STATUS_SUCCESS = 0;
+    public static final int STATUS_TIMEOUT = -1;
+    public static final int STATUS_REJECTED = -2;
+    public static final int STATUS_DISCONNECTED = -3;
+
+    public static final int DEFAULT_WRITE_WINDOW = 4;
+
+    /**
+     * Latency counters for one operation type
+     */
+    public static class OperationStats {
+        public long count;
+        public long failures;
+        public long totalLatencyNanos;
+        public long maxLatencyNanos;
+        public long totalQueueWaitNanos;
+
+        OperationStats copy() {
+            OperationStats copy = new OperationStats();
+            copy.count = count;
+            copy.failures = failures;
+            copy.totalLatencyNanos = totalLatencyNanos;
+            copy.maxLatencyNanos = maxLatencyNanos;
+            copy.totalQueueWaitNanos = totalQueueWaitNanos;
+            return copy;
+        }
+
+        public double averageLatencyMs() {
+            return count > 0 ? totalLatencyNanos / 1e6 / count : 0;
+        }
+    }
+
+    private final GattLink link;
+    private final GattArbiter arbiter;
+    private final ScheduledExecutorService executor;
+
+    // Only touched on the queue thread
+    private final ArrayDeque<GattOperation> pending = new ArrayDeque<>();
+    private final ArrayDeque<GattOperation> inFlightWrites = new ArrayDeque<>();
+    private GattOperation current;
+    private boolean closed = false;
+    private int writeWindow = DEFAULT_WRITE_WINDOW;
+    private int highPriorityHolders = 0;
+    private int grantedPermits = 0;
+    private long unexpectedCallbacks = 0;
+    private final Map<GattOperation.Type, OperationStats> stats = new EnumMap<>(GattOperation.Type.class);
+
+    public GattOperationQueue(GattLink link, String threadName) {
+        this(link, threadName, null);
+    }
+
+    public GattOperationQueue(GattLink link, String threadName, GattArbiter arbiter) {
+        this.link = link;
+        this.arbiter = arbiter;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Maximum number of writes without response handed to the stack before waiting for callbacks
+     */
+    public void setWriteWindow(int window) {
+        executor.execute(() -> writeWindow = Math.max(1, window));
+    }
+
+    public void enqueue(GattOperation operation) {
+        operation.enqueuedAtNanos = System.nanoTime();
+        HBandMetrics.GATT_QUEUE_DEPTH.add(1);
+        try {
+            executor.execute(() -> {
+                if (closed) {
+                    finish(operation, STATUS_DISCONNECTED, null, 0);
+                    return;
+                }
+                pending.add(operation);
+                pump();
+            });
+        } catch (RejectedExecutionException e) {
+            // Closed and its thread gone: fail on the caller's thread; stats belong to the queue thread
+            HBandMetrics.GATT_QUEUE_DEPTH.add(-1);
+            HBandMetrics.GATT_OPERATION_FAILURES.increment();
+            if (operation.callback != null) {
+                operation.callback.onComplete(operation, STATUS_DISCONNECTED, null, 0);
+            }
+        }
+    }
+
+    /**
+     * Raises the connection priority for a bulk transfer; balanced is restored when the last holder ends
+     */
+    public void beginHighPriority(int highPriority) {
+        executor.execute(() -> {
+            if (highPriorityHolders++ == 0) {
+                pending.add(stamp(GattOperation.requestPriority(highPriority, null)));
+                pump();
+            }
+        });
+    }
+
+    public void endHighPriority(int balancedPriority) {
+        executor.execute(() -> {
+            if (highPriorityHolders > 0 && --highPriorityHolders == 0) {
+                pending.add(stamp(GattOperation.requestPriority(balancedPriority, null)));
+                pump();
+            }
+        });
+    }
+
+    /**
+     * Delivers a GATT callback; call from any thread
+     */
+    public void onCallback(GattOperation.Type type, int status, byte[] value, int intValue) {
+        try {
+            executor.execute(() -> handleCallback(type, status, value, intValue));
+        } catch (RejectedExecutionException e) {
+            // A late callback for a closed link; close() already failed its operation
+        }
+    }
+
+    /**
+     * Fails every queued and in-flight operation (link lost); the queue keeps accepting work
+     */
+    public void failAll(int status) {
+        executor.execute(() -> drain(status));
+    }
+
+    /**
+     * Fails everything and stops the queue thread
+     */
+    public void close() {
+        try {
+            executor.execute(() -> {
+                closed = true;
+                drain(STATUS_DISCONNECTED);
+                if (arbiter != null) {
+                    arbiter.remove(this);
+                }
+                releaseGrantedPermits();
+                executor.shutdown();
+            });
+        } catch (RejectedExecutionException e) {
+            // Already closed
+        }
+    }
+
+    /**
+     * Called by the arbiter when a permit was handed to this queue
+     */
+    void grantPermit() {
+        try {
+            executor.execute(() -> {
+                grantedPermits++;
+                if (!closed) {
+                    pump();
+                }
+                releaseGrantedPermits();
+            });
+        } catch (RejectedExecutionException e) {
+            // Queue thread already gone
+            arbiter.release();
+        }
+    }
+
+    private boolean acquirePermit(GattOperation operation) {
+        if (arbiter == null) return true;
+        if (grantedPermits > 0) {
+            grantedPermits--;
+        } else if (!arbiter.tryAcquire(this)) {
+            return false;
+        }
+        operation.permitHeld = true;
+        return true;
+    }
+
+    private void releasePermit(GattOperation operation) {
+        if (operation.permitHeld) {
+            operation.permitHeld = false;
+            arbiter.release();
+        }
+    }
+
+    // A granted permit that pump() could not use goes back to the other queues
+    private void releaseGrantedPermits() {
+        while (grantedPermits > 0) {
+            grantedPermits--;
+            arbiter.release();
+        }
+    }
+
+    private GattOperation stamp(GattOperation operation) {
+        operation.enqueuedAtNanos = System.nanoTime();
+        HBandMetrics.GATT_QUEUE_DEPTH.add(1);
+        return operation;
+    }
+
+    private void pump() {
+        while (current == null && !pending.isEmpty()) {
+            GattOperation next = pending.peek();
+
+            if (next.type == GattOperation.Type.WRITE_NO_RESPONSE) {
+                if (inFlightWrites.size() >= writeWindow) return;
+                if (!acquirePermit(next)) return;
+                pending.poll();
+                next.startedAtNanos = System.nanoTime();
+                if (!next.submit(link)) {
+                    if (!inFlightWrites.isEmpty()) {
+                        // Stack buffer is full; retry once an in-flight write completes
+                        releasePermit(next);
+                        pending.addFirst(next);
+                        return;
+                    }
+                    finish(next, STATUS_REJECTED, null, 0);
+                    continue;
+                }
+                inFlightWrites.add(next);
+                scheduleTimeout(next);
+                continue;
+            }
+
+            // Blocking operations wait until pipelined writes have drained
+            if (!inFlightWrites.isEmpty()) return;
+            if (!acquirePermit(next)) return;
+
+            pending.poll();
+            next.startedAtNanos = System.nanoTime();
+            if (!next.submit(link)) {
+                finish(next, STATUS_REJECTED, null, 0);
+                continue;
+            }
+            if (next.completesOnSubmit()) {
+                finish(next, STATUS_SUCCESS, null, next.intArg);
+                continue;
+            }
+            current = next;
+            scheduleTimeout(next);
+        }
+    }
+
+    private void handleCallback(GattOperation.Type type, int status, byte[] value, int intValue) {
+        GattOperation operation = null;
+        if (current != null && matches(current.type, type)) {
+            operation = current;
+            current = null;
+        } else if (current == null && type == GattOperation.Type.WRITE && !inFlightWrites.isEmpty()) {
+            operation = inFlightWrites.poll();
+        }
+
+        if (operation == null) {
+            unexpectedCallbacks++;
+            return;
+        }
+        if (operation.timeoutFuture != null) {
+            operation.timeoutFuture.cancel(false);
+        }
+        finish(operation, status, value, intValue);
+        pump();
+    }
+
+    private static boolean matches(GattOperation.Type operationType, GattOperation.Type callbackType) {
+        if (operationType == callbackType) return true;
+        return operationType == GattOperation.Type.WRITE_NO_RESPONSE && callbackType == GattOperation.Type.WRITE;
+    }
+
+    private void scheduleTimeout(GattOperation operation) {
+        operation.timeoutFuture = executor.schedule(() -> {
+            if (current == operation) {
+                current = null;
+            } else if (!inFlightWrites.remove(operation)) {
+                return;
+            }
+            finish(operation, STATUS_TIMEOUT, null, 0);
+            pump();
+        }, operation.timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain(int status) {
+        if (current != null) {
+            cancelTimeout(current);
+            finish(current, status, null, 0);
+            current = null;
+        }
+        while (!inFlightWrites.isEmpty()) {
+            GattOperation operation = inFlightWrites.poll();
+            cancelTimeout(operation);
+            finish(operation, status, null, 0);
+        }
+        while (!pending.isEmpty()) {
+            finish(pending.poll(), status, null, 0);
+        }
+        highPriorityHolders = 0;
+    }
+
+    private void cancelTimeout(GattOperation operation) {
+        if (operation.timeoutFuture != null) {
+            operation.timeoutFuture.cancel(false);
+        }
+    }
+
+    private void finish(GattOperation operation, int status, byte[] value, int intValue) {
+        releasePermit(operation);
+        long now = System.nanoTime();
+        OperationStats typeStats = stats.get(operation.type);
+        if (typeStats == null) {
+            typeStats = new OperationStats();
+            stats.put(operation.type, typeStats);
+        }
+        typeStats.count++;
+        HBandMetrics.GATT_QUEUE_DEPTH.add(-1);
+        if (status != STATUS_SUCCESS) {
+            typeStats.failures++;
+            HBandMetrics.GATT_OPERATION_FAILURES.increment();
+        }
+        if (operation.startedAtNanos > 0) {
+            long latency = now - operation.startedAtNanos;
+            typeStats.totalLatencyNanos += latency;
+            typeStats.maxLatencyNanos = Math.max(typeStats.maxLatencyNanos, latency);
+            HBandMetrics.GATT_OPERATION_LATENCY.record(latency / 1000);
+            typeStats.totalQueueWaitNanos += operation.startedAtNanos - operation.enqueuedAtNanos;
+        }
+
+        if (operation.callback != null) {
+            operation.callback.onComplete(operation, status, value, intValue);
+        }
+    }
+
+    /**
+     * Snapshot of per-type latency counters (blocks briefly on the queue thread)
+     */
+    public Map<GattOperation.Type, OperationStats> getStats() {
+        try {
+            return executor.submit(() -> {
+                Map<GattOperation.Type, OperationStats> snapshot = new EnumMap<>(GattOperation.Type.class);
+                for (Map.Entry<GattOperation.Type, OperationStats> entry : stats.entrySet()) {
+                    snapshot.put(entry.getKey(), entry.getValue().copy());
+                }
+                return snapshot;
+            }).get(1, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return new EnumMap<>(GattOperation.Type.class);
+        }
+    }
+
+    public long getUnexpectedCallbacks() {
+        try {
+            return executor.submit(() -> unexpectedCallbacks).get(1, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
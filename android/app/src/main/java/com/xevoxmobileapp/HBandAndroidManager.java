@@ -1,444 +1,2135 @@
 package com.xevoxmobileapp;
 
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothManager;
-import android.bluetooth.le.BluetoothLeScanner;
 import android.bluetooth.le.ScanCallback;
-import android.bluetooth.le.ScanResult;
 import android.content.Context;
-import android.content.pm.PackageManager;
-import android.os.Handler;
-import android.os.Looper;
 import android.util.Log;
-import androidx.core.content.ContextCompat;
-import android.Manifest;
-import android.os.Build;
 
-import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
 import com.facebook.react.bridge.ReactApplicationContext;
-import com.facebook.react.bridge.WritableMap;
-import com.facebook.react.modules.core.DeviceEventManagerModule;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Set;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
 
 /**
  * HBand Android Manager integrated with React Native
- * Sends events to JavaScript layer via React Native bridge
+ * Sends events to JavaScript layer via React Native bridge. Events and results are
+ * plain maps and lists (numbers, strings, booleans, nested maps and lists); the React
+ * Native side converts them to WritableMap/WritableArray at the bridge, so the manager
+ * itself also runs on a plain JVM.
  */
 public class HBandAndroidManager {
     private static final String TAG = "HBandAndroidManager";
+    // Stored history records per store lock acquisition (live samples interleave between slices)
+    private static final int HISTORY_STORE_SLICE = 256;
     
-    private Context context;
-    private ReactApplicationContext reactContext;
-    private BluetoothAdapter bluetoothAdapter;
-    private BluetoothLeScanner bluetoothScanner;
-    private boolean isScanning = false;
-    private boolean isConnected = false;
-    private String connectedDeviceAddress = null;
-    private Handler mainHandler;
+    private final Context context;
+    // Where the stores keep their files (the app's files dir on a device)
+    private final File filesDir;
+    // Radio and JS event destination; Android/React Native in the app, replaceable for replay
+    private final BleTransport transport;
+    private final EventSink eventSink;
+    // Most recently connected device, the default target of single-device calls
+    private volatile String connectedDeviceAddress = null;
+    private final DeviceSessionManager sessions = new DeviceSessionManager();
+    // Main-thread work and the monotonic clock (main Looper and SystemClock on a device)
+    private MainScheduler mainScheduler;
     
-    // Track discovered devices to avoid duplicates
-    private Set<String> discoveredDevices = new HashSet<>();
+    // Scan lifecycle (idle/starting/scanning/stopping/cooling-down) with adaptive retry
+    private ScanStateMachine scanStateMachine;
+    
+    // Active scan profile and duration (0 = until stopScan)
+    private ScanProfile scanProfile = ScanProfile.LOW_LATENCY;
+    private long scanDurationMs = ScanProfile.LOW_LATENCY.defaultDurationMs;
+    private final Runnable autoStopRunnable = () -> {
+        if (scanStateMachine.isScanning()) {
+            HLog.d(TAG, "⏱️ Auto-stopping scan after " + scanDurationMs + " ms");
+            stopScan();
+        }
+    };
+    
+    // Concurrent registry of discovered devices (bounded, with stale-entry expiry)
+    private final DeviceRegistry deviceRegistry = new DeviceRegistry();
+    
+    // Precompiled name/manufacturer/service classifier
+    private final FitnessDeviceClassifier fitnessClassifier = new FitnessDeviceClassifier();
+    
+    // Coalesces scan results and delivers them to JS in batches
+    private final ScanResultBatcher scanBatcher = new ScanResultBatcher(this::emitDevicesFound);
+    
+    // Full-resolution sensor samples with rate-limited forwarding to JS
+    private final SensorSampleHub sampleHub = new SensorSampleHub();
+    
+    // Durable per-metric history (opened lazily) and its maintenance thread
+    private TimeSeriesStore timeSeriesStore;
+    private final ExecutorService storageExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "HBandStorage"));
+    
+    // Minute/hour/day dashboard aggregates, fed with every stored sample and rebuilt at init
+    private final HealthAggregator aggregator = new HealthAggregator(TimeZone.getDefault());
+    
+    // Batched backend upload of the stored history (created on first configureUpload)
+    private volatile HealthUploadPipeline uploadPipeline;
+    // Last upload configuration, persisted so a headless restart keeps uploading
+    private volatile UploadConfigStore.Config uploadConfig;
+    private volatile boolean uploadBinary;
+    private UploadConfigStore uploadConfigStore;
+    
+    // Incremental device history pull; the vendor's command set is plugged in via setHistoryProtocol.
+    // No default until its codes are verified against the band
+    private volatile HistoryProtocol historyProtocol;
+    private volatile HistorySyncSession historySession;
+    private volatile DeviceLink historyConnection;
+    private volatile long historyStartedAt;
+    private volatile long historyRecords;
+    private DurableLongMap historyWatermarks;
+    // Parallel decode of independently decodable history notifications (created on first sync)
+    private HistoryBacklogIngestor backlogIngestor;
+    
+    // Firmware/watch-face uploads; the vendor framing is plugged in via setTransferProtocol
+    private volatile TransferProtocol transferProtocol;
+    private volatile BulkTransferSession transferSession;
+    private volatile DeviceLink transferConnection;
+    private volatile BulkTransferSession.Progress transferProgress;
+    private volatile long transferStartedAt;
+    private DurableLongMap transferCheckpoints;
+    
+    // Bands connected before (bond state, MTU); dropped known links reconnect in the background
+    private KnownDeviceCache knownDevices;
+    private volatile boolean autoReconnect = true;
+    
+    // Live readings: subscribed where the band streams, adaptively polled otherwise. No
+    // default: commands written to a user's band must come from the verified vendor protocol
+    private volatile LiveProtocol liveProtocol;
+    private volatile SamplingScheduler samplingScheduler;
+    private volatile DeviceLink monitoringConnection;
+    private PowerStateMonitor powerMonitor;
+    
+    // Startup readiness: completed by the HBandInit thread; a failed attempt is replaced on retry
+    private final Object initLock = new Object();
+    private CompletableFuture<Boolean> readiness;
     
     // For React Native integration
     public HBandAndroidManager(ReactApplicationContext reactContext) {
-        this.context = reactContext;
-        this.reactContext = reactContext;
-        this.mainHandler = new Handler(Looper.getMainLooper());
-        initializeBluetooth();
+        this(reactContext, new AndroidBleTransport(reactContext), new ReactEventSink(reactContext));
+        reactContext.addLifecycleEventListener(lifecycleListener);
     }
     
     // For standalone usage (if needed)
     public HBandAndroidManager(Context context) {
+        this(context, new AndroidBleTransport(context), null);
+    }
+
+    /**
+     * Custom radio and event destination (e.g. TraceReplayTransport); eventSink may be null.
+     * Construction is cheap: Bluetooth is not touched until initializeAsync() or first use.
+     */
+    public HBandAndroidManager(Context context, BleTransport transport, EventSink eventSink) {
+        this(context, context.getFilesDir(), transport, eventSink, new AndroidMainScheduler());
+    }
+
+    /**
+     * Without Android (JVM tests and benchmarks): stores live under filesDir, main-thread
+     * work and timing go through scheduler, and power-state tracking is off
+     */
+    public HBandAndroidManager(File filesDir, BleTransport transport, EventSink eventSink, MainScheduler scheduler) {
+        this(null, filesDir, transport, eventSink, scheduler);
+    }
+
+    private HBandAndroidManager(Context context, File filesDir, BleTransport transport, EventSink eventSink,
+                                MainScheduler scheduler) {
         this.context = context;
-        this.mainHandler = new Handler(Looper.getMainLooper());
-        initializeBluetooth();
+        this.filesDir = filesDir;
+        this.transport = transport;
+        this.eventSink = eventSink;
+        this.mainScheduler = scheduler;
+        this.scanStateMachine = new ScanStateMachine(scheduler, scanActions);
+        this.scanBatcher.setFlushHook(this::evictStaleDevices);
+        this.sampleHub.setListener(this::emitHealthSample);
+        this.sampleHub.setFlushScheduler(scheduler);
+        this.transport.setStateListener(adapterStateListener);
+    }
+
+    // Grants can only change while the app is in the background (settings, permission dialog)
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            transport.invalidatePermissions();
+        }
+
+        @Override
+        public void onHostPause() {
+        }
+
+        @Override
+        public void onHostDestroy() {
+        }
+    };
+
+    /**
+     * Re-checks runtime permissions on next use (call when the host resumes)
+     */
+    public void refreshPermissions() {
+        transport.invalidatePermissions();
     }
 
+    private final BleTransport.StateListener adapterStateListener = enabled -> {
+        HLog.d(TAG, enabled ? "📶 Bluetooth enabled" : "📴 Bluetooth disabled");
+        if (!enabled && scanStateMachine.isScanning()) {
+            mainScheduler.post(this::stopScan);
+        }
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("enabled", enabled);
+        emitEvent("bluetoothStateChanged", state);
+    };
+
     private void initializeBluetooth() {
         try {
-            BluetoothManager bluetoothManager = (BluetoothManager) context.getSystemService(Context.BLUETOOTH_SERVICE);
-            if (bluetoothManager != null) {
-                bluetoothAdapter = bluetoothManager.getAdapter();
-                if (bluetoothAdapter != null && bluetoothAdapter.isEnabled()) {
-                    bluetoothScanner = bluetoothAdapter.getBluetoothLeScanner();
-                    Log.d(TAG, "✅ Bluetooth initialized successfully");
-                    emitEvent("bluetoothInitialized", null);
-                } else {
-                    Log.w(TAG, "⚠️ Bluetooth adapter not enabled");
-                    emitEvent("bluetoothError", createErrorMap("Bluetooth not enabled"));
-                }
-            } else {
-                Log.e(TAG, "❌ Bluetooth manager not available");
+            if (!transport.isAvailable()) {
+                HLog.e(TAG, "❌ Bluetooth manager not available");
                 emitEvent("bluetoothError", createErrorMap("Bluetooth not available"));
+            } else if (transport.isEnabled()) {
+                HLog.d(TAG, "✅ Bluetooth initialized successfully");
+                emitEvent("bluetoothInitialized", null);
+            } else {
+                HLog.w(TAG, "⚠️ Bluetooth adapter not enabled");
+                emitEvent("bluetoothError", createErrorMap("Bluetooth not enabled"));
             }
         } catch (Exception e) {
-            Log.e(TAG, "❌ Failed to initialize Bluetooth", e);
+            HLog.e(TAG, "❌ Failed to initialize Bluetooth", e);
             emitEvent("bluetoothError", createErrorMap("Failed to initialize: " + e.getMessage()));
         }
     }
 
+    /**
+     * Starts SDK initialization on a background thread; every caller gets the same future
+     * until an attempt fails (e.g. permissions missing), after which the next call retries
+     */
+    public CompletableFuture<Boolean> initializeAsync() {
+        synchronized (initLock) {
+            CompletableFuture<Boolean> current = readiness;
+            if (current != null && !(current.isDone() && !current.getNow(false))) {
+                return current;
+            }
+            CompletableFuture<Boolean> attempt = new CompletableFuture<>();
+            readiness = attempt;
+            Thread initThread = new Thread(() -> attempt.complete(initializeInternal()), "HBandInit");
+            initThread.start();
+            return attempt;
+        }
+    }
+
+    /**
+     * Blocking form of initializeAsync(); do not call on the main thread
+     */
     public boolean initialize() {
         try {
-            Log.d(TAG, "🔧 Initializing HBand SDK...");
+            return initializeAsync().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    public boolean isInitialized() {
+        synchronized (initLock) {
+            return readiness != null && readiness.getNow(false);
+        }
+    }
+
+    private boolean initializeInternal() {
+        try {
+            HLog.d(TAG, "🔧 Initializing HBand SDK...");
             
             // Log device info for debugging
-            Log.d(TAG, "📱 Device: " + android.os.Build.MANUFACTURER + " " + android.os.Build.MODEL);
-            Log.d(TAG, "📱 Android: " + android.os.Build.VERSION.RELEASE + " (API " + android.os.Build.VERSION.SDK_INT + ")");
+            HLog.d(TAG, "📱 Device: " + android.os.Build.MANUFACTURER + " " + android.os.Build.MODEL);
+            HLog.d(TAG, "📱 Android: " + android.os.Build.VERSION.RELEASE + " (API " + android.os.Build.VERSION.SDK_INT + ")");
             
-            // Verify permissions are granted
+            // Verify permissions are granted (re-checked: the user may just have granted them)
+            transport.invalidatePermissions();
             if (!hasRequiredPermissions()) {
-                Log.e(TAG, "❌ Required permissions not granted");
+                HLog.e(TAG, "❌ Required permissions not granted");
                 emitEvent("bluetoothError", createErrorMap("Bluetooth permissions not granted"));
                 return false;
             }
             
-            // Re-initialize Bluetooth if needed
+            // Resolves the adapter and starts tracking its state
             initializeBluetooth();
             
-            Log.d(TAG, "📝 HBand SDK initialized successfully");
+            // Retention and compaction of the local history run off the calling thread
+            storageExecutor.execute(this::runStorageMaintenance);
+            storageExecutor.execute(this::rebuildAggregates);
+            storageExecutor.execute(this::getKnownDeviceCache);
+            storageExecutor.execute(this::restoreUploadConfig);
+            
+            HLog.d(TAG, "📝 HBand SDK initialized successfully");
             emitEvent("sdkInitialized", null);
             return true;
             
         } catch (Exception e) {
-            Log.e(TAG, "❌ HBand SDK initialization failed", e);
+            HLog.e(TAG, "❌ HBand SDK initialization failed", e);
             emitEvent("bluetoothError", createErrorMap("SDK initialization failed: " + e.getMessage()));
             return false;
         }
     }
 
     private boolean hasRequiredPermissions() {
-        List<String> requiredPermissions = new ArrayList<>();
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            // Android 12+
-            requiredPermissions.add(Manifest.permission.BLUETOOTH_SCAN);
-            requiredPermissions.add(Manifest.permission.BLUETOOTH_CONNECT);
-        } else {
-            // Android < 12
-            requiredPermissions.add(Manifest.permission.BLUETOOTH);
-            requiredPermissions.add(Manifest.permission.BLUETOOTH_ADMIN);
-        }
-        
-        requiredPermissions.add(Manifest.permission.ACCESS_FINE_LOCATION);
-        
-        for (String permission : requiredPermissions) {
-            if (ContextCompat.checkSelfPermission(context, permission) != PackageManager.PERMISSION_GRANTED) {
-                Log.e(TAG, "❌ Missing permission: " + permission);
-                return false;
-            }
-        }
-        
-        return true;
+        return transport.hasPermissions();
     }
 
     public boolean startScan() {
+        return startScan(null);
+    }
+
+    /**
+     * Starts scanning immediately; targetAddress (optional) is used to measure time-to-target
+     */
+    public boolean startScan(String targetAddress) {
         try {
-            Log.d(TAG, "🔍 Starting device scan...");
+            HLog.d(TAG, "🔍 Starting device scan...");
             
             // Check permissions first
             if (!hasRequiredPermissions()) {
-                Log.e(TAG, "❌ Required permissions not granted for scanning");
+                HLog.e(TAG, "❌ Required permissions not granted for scanning");
                 emitEvent("scanError", createErrorMap("Bluetooth permissions not granted"));
                 return false;
             }
             
             // Check Bluetooth adapter
-            if (bluetoothAdapter == null) {
-                Log.e(TAG, "❌ Bluetooth adapter not available");
+            if (!transport.isAvailable()) {
+                HLog.e(TAG, "❌ Bluetooth adapter not available");
                 emitEvent("scanError", createErrorMap("Bluetooth adapter not available"));
                 return false;
             }
             
-            if (!bluetoothAdapter.isEnabled()) {
-                Log.e(TAG, "❌ Bluetooth not enabled");
+            if (!transport.isEnabled()) {
+                HLog.e(TAG, "❌ Bluetooth not enabled");
                 emitEvent("scanError", createErrorMap("Bluetooth not enabled"));
                 return false;
             }
-            
-            // Get fresh scanner instance
-            bluetoothScanner = bluetoothAdapter.getBluetoothLeScanner();
-            if (bluetoothScanner == null) {
-                Log.e(TAG, "❌ Bluetooth LE scanner not available");
-                emitEvent("scanError", createErrorMap("BLE scanner not available"));
-                return false;
-            }
-
-            if (isScanning) {
-                Log.w(TAG, "⚠️ Already scanning - stopping first");
-                stopScan();
-                // Wait before restarting
-                mainHandler.postDelayed(() -> startScanInternal(), 2000);
-                return true;
-            }
 
-            // Add delay to avoid registration conflicts (common on Motorola devices)
-            Log.d(TAG, "⏳ Starting scan with 1 second delay...");
-            mainHandler.postDelayed(() -> startScanInternal(), 1000);
+            // No fixed delay: the state machine backs off only when the stack reports a failure
+            mainScheduler.cancel(autoStopRunnable);
+            scanStateMachine.requestStart(targetAddress);
             return true;
             
         } catch (Exception e) {
-            Log.e(TAG, "❌ Failed to start scan", e);
+            HLog.e(TAG, "❌ Failed to start scan", e);
             emitEvent("scanError", createErrorMap("Failed to start scan: " + e.getMessage()));
-            isScanning = false;
             return false;
         }
     }
     
-    private void startScanInternal() {
-        try {
-            // Clear previous discoveries
-            discoveredDevices.clear();
-            isScanning = true;
-            
-            Log.d(TAG, "🔧 Starting simple BLE scan...");
+    private final ScanStateMachine.Actions scanActions = new ScanStateMachine.Actions() {
+        @Override
+        public boolean startHardwareScan() {
+            return startScanInternal();
+        }
+
+        @Override
+        public void stopHardwareScan() {
+            stopScanInternal();
+        }
+
+        @Override
+        public void onScanStarted(int retries) {
+            Map<String, Object> scanInfo = new LinkedHashMap<>();
+            scanInfo.put("profile", scanProfile.jsName());
+            scanInfo.put("durationMs", scanDurationMs);
+            scanInfo.put("retries", retries);
+            emitEvent("scanStarted", scanInfo);
             
-            // Use the most basic scan possible to avoid Motorola registration issues
-            bluetoothScanner.startScan(scanCallback);
+            // Auto-stop scan after the configured duration
+            mainScheduler.cancel(autoStopRunnable);
+            if (scanDurationMs > 0) {
+                mainScheduler.postDelayed(autoStopRunnable, scanDurationMs);
+            }
+        }
+
+        @Override
+        public void onScanGaveUp(String reason) {
+            emitEvent("scanError", createErrorMap(reason));
+        }
+    };
+    
+    private boolean startScanInternal() {
+        try {
+            // Start a new batching/classification session; the registry keeps
+            // recently seen devices and expires stale ones on its own
+            scanBatcher.reset();
+            fitnessClassifier.resetSession();
             
-            Log.d(TAG, "✅ Simple Bluetooth LE scan started");
-            Log.d(TAG, "📡 Scanning for ALL Bluetooth LE devices...");
+            HLog.d(TAG, "🔧 Starting BLE scan with profile " + scanProfile.jsName() + "...");
             
-            emitEvent("scanStarted", null);
+            if (!transport.startScan(scanProfile, scanListener)) {
+                HLog.e(TAG, "❌ BLE scanner not available");
+                return false;
+            }
             
-            // Auto-stop scan after 30 seconds
-            mainHandler.postDelayed(() -> {
-                if (isScanning) {
-                    Log.d(TAG, "⏱️ Auto-stopping scan after 30 seconds");
-                    stopScan();
-                }
-            }, 30000);
+            HLog.d(TAG, "✅ Bluetooth LE scan started");
+            return true;
             
         } catch (Exception e) {
-            Log.e(TAG, "❌ Simple scan failed", e);
-            isScanning = false;
-            emitEvent("scanError", createErrorMap("Scan failed: " + e.getMessage()));
+            HLog.e(TAG, "❌ Scan failed", e);
             
-            Log.e(TAG, "💡 Scan failed suggestions:");
-            Log.e(TAG, "   1. Restart Bluetooth in device settings");
-            Log.e(TAG, "   2. Reboot device");
-            Log.e(TAG, "   3. Try on different Android device");
+            HLog.e(TAG, "💡 Scan failed suggestions:");
+            HLog.e(TAG, "   1. Restart Bluetooth in device settings");
+            HLog.e(TAG, "   2. Reboot device");
+            HLog.e(TAG, "   3. Try on different Android device");
+            return false;
         }
     }
 
-    public void stopScan() {
+    private void stopScanInternal() {
         try {
-            if (bluetoothScanner != null && isScanning) {
-                bluetoothScanner.stopScan(scanCallback);
-                isScanning = false;
-                Log.d(TAG, "⏹️ Scan stopped");
-                Log.d(TAG, "📊 Total unique devices discovered: " + discoveredDevices.size());
-                emitEvent("scanStopped", null);
-            }
-            
+            // Drain results still batched in the controller before stopping
+            transport.stopScan(scanProfile.reportDelayMs > 0);
         } catch (Exception e) {
-            Log.e(TAG, "❌ Error stopping scan", e);
-            isScanning = false;
+            HLog.e(TAG, "❌ Error stopping scan", e);
+        }
+    }
+
+    public void stopScan() {
+        mainScheduler.cancel(autoStopRunnable);
+        boolean wasScanning = scanStateMachine.isScanning();
+        scanStateMachine.requestStop();
+        if (wasScanning) {
+            // scanStopped follows the final devicesFound, with the counts after that flush
+            scanBatcher.flush(() -> {
+                HLog.d(TAG, "⏹️ Scan stopped");
+                HLog.d(TAG, "📊 Devices in registry: " + deviceRegistry.size());
+                emitEvent("scanStopped", getScanStats());
+            });
         }
     }
 
+    /**
+     * Opens a link to one more device; existing links stay up
+     */
     public boolean connectDevice(String deviceAddress) {
         try {
-            Log.d(TAG, "🔗 Connecting to device: " + deviceAddress);
+            HLog.d(TAG, "🔗 Connecting to device: " + deviceAddress);
             
             if (!hasRequiredPermissions()) {
-                Log.e(TAG, "❌ Missing permissions for connection");
+                HLog.e(TAG, "❌ Missing permissions for connection");
                 emitEvent("connectionError", createErrorMap("Missing Bluetooth permissions"));
                 return false;
             }
             
-            // Stop scanning before connecting
-            if (isScanning) {
-                stopScan();
+            if (!transport.isAvailable()) {
+                HLog.e(TAG, "❌ Bluetooth adapter not available");
+                emitEvent("connectionError", createErrorMap("Bluetooth adapter not available"));
+                return false;
+            }
+            
+            if (sessions.get(deviceAddress) != null) {
+                HLog.w(TAG, "⚠️ Already connected or connecting: " + deviceAddress);
+                return true;
             }
             
-            // For now, simulate connection (replace with actual HBand SDK connection)
-            connectedDeviceAddress = deviceAddress;
-            isConnected = true;
+            // Stop scanning for the first link; while adding more devices the scan keeps running
+            if (sessions.size() == 0 && scanStateMachine.isScanning()) {
+                stopScan();
+            }
             
-            WritableMap deviceInfo = Arguments.createMap();
-            deviceInfo.putString("address", deviceAddress);
-            deviceInfo.putBoolean("connected", true);
-            emitEvent("connectionStatusChanged", deviceInfo);
+            DeviceSessionManager.Session session = sessions.open(transport, deviceAddress, gattListener);
+            if (session == null) {
+                HLog.e(TAG, "❌ Session limit reached");
+                Map<String, Object> error = createErrorMap("Too many connected devices");
+                error.put("address", deviceAddress);
+                emitEvent("connectionError", error);
+                return false;
+            }
+            KnownDeviceCache.Entry known = getKnownDeviceCache().get(deviceAddress);
+            if (known != null) {
+                // Straight to the address, no scan
+                session.connection.setMtuHint(known.mtu);
+                session.reconnectStartedAt = mainScheduler.elapsedRealtime();
+                HLog.d(TAG, "⚡ Known device " + session.address + " (MTU " + known.mtu + (known.bonded ? ", bonded)" : ")"));
+            }
+            session.connection.connect();
             
+            // connectionStatusChanged is emitted from the GATT callback once the link is up
             return true;
             
         } catch (Exception e) {
-            Log.e(TAG, "❌ Connection error", e);
+            HLog.e(TAG, "❌ Connection error", e);
             emitEvent("connectionError", createErrorMap("Connection failed: " + e.getMessage()));
             return false;
         }
     }
 
+    /**
+     * Disconnects every device
+     */
     public void disconnect() {
+        for (DeviceSessionManager.Session session : sessions.all()) {
+            disconnectDevice(session.address);
+        }
+    }
+
+    public void disconnectDevice(String deviceAddress) {
         try {
-            isConnected = false;
-            String disconnectedAddress = connectedDeviceAddress;
-            connectedDeviceAddress = null;
+            DeviceSessionManager.Session session = sessions.remove(deviceAddress);
+            if (session == null) return;
+            
+            // Close immediately; no further callbacks will arrive after close()
+            session.connection.disconnect();
+            session.connection.close();
+            onSessionEnded(session);
             
-            WritableMap deviceInfo = Arguments.createMap();
-            deviceInfo.putString("address", disconnectedAddress);
-            deviceInfo.putBoolean("connected", false);
+            Map<String, Object> deviceInfo = new LinkedHashMap<>();
+            deviceInfo.put("address", session.address);
+            deviceInfo.put("connected", false);
             emitEvent("connectionStatusChanged", deviceInfo);
             
-            Log.d(TAG, "🔌 Disconnected");
+            HLog.d(TAG, "🔌 Disconnected " + session.address);
             
         } catch (Exception e) {
-            Log.e(TAG, "❌ Disconnect error", e);
+            HLog.e(TAG, "❌ Disconnect error", e);
+        }
+    }
+
+    private void onSessionEnded(DeviceSessionManager.Session session) {
+        session.connected = false;
+        if (session.address.equalsIgnoreCase(connectedDeviceAddress)) {
+            // Fall back to another live device, if any
+            String fallback = null;
+            for (DeviceSessionManager.Session other : sessions.all()) {
+                if (other.connected) {
+                    fallback = other.address;
+                }
+            }
+            connectedDeviceAddress = fallback;
+        }
+        HistorySyncSession history = historySession;
+        if (history != null && session.connection == historyConnection) {
+            history.onLinkLost();
+        }
+        BulkTransferSession transfer = transferSession;
+        if (transfer != null && session.connection == transferConnection) {
+            transfer.onLinkLost();
+        }
+        SamplingScheduler scheduler = samplingScheduler;
+        if (scheduler != null && session.connection == monitoringConnection) {
+            scheduler.onLinkLost();
+            stopPowerMonitor();
         }
+        storageExecutor.execute(this::flushStorage);
     }
 
-    public boolean getHealthData() {
+    private synchronized KnownDeviceCache getKnownDeviceCache() {
+        if (knownDevices == null) {
+            knownDevices = new KnownDeviceCache(new File(filesDir, "known-devices.properties"));
+        }
+        return knownDevices;
+    }
+
+    // Runs on the storage thread (the cache fsyncs when something changed)
+    private void rememberDevice(DeviceLink connection) {
         try {
-            Log.d(TAG, "📊 Getting health data...");
-            
-            if (!isConnected) {
-                Log.w(TAG, "⚠️ Not connected to any device");
-                emitEvent("healthDataError", createErrorMap("No device connected"));
-                return false;
+            getKnownDeviceCache().put(new KnownDeviceCache.Entry(connection.getAddress(), connection.isBonded(),
+                connection.getMtu(), System.currentTimeMillis()));
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Failed to save known device", e);
+        }
+    }
+
+    /**
+     * Keep dropped known bands' sessions and reconnect them in the background (default on)
+     */
+    public void setAutoReconnect(boolean enabled) {
+        this.autoReconnect = enabled;
+    }
+
+    /**
+     * Connects the most recently used known bands directly by address; returns how many were started
+     */
+    public int connectKnownDevices(int maxDevices) {
+        int started = 0;
+        for (KnownDeviceCache.Entry entry : getKnownDeviceCache().all()) {
+            if (started >= maxDevices) break;
+            if (sessions.get(entry.address) != null) continue;
+            if (!connectDevice(entry.address)) break;
+            started++;
+        }
+        return started;
+    }
+
+    /**
+     * Disconnects a band and drops what was cached about it
+     */
+    public void forgetDevice(String deviceAddress) {
+        disconnectDevice(deviceAddress);
+        storageExecutor.execute(() -> {
+            try {
+                getKnownDeviceCache().remove(deviceAddress);
+            } catch (IOException e) {
+                HLog.e(TAG, "❌ Failed to forget device", e);
             }
+        });
+    }
+
+    public List<Object> getKnownDevices() {
+        List<Object> devices = new ArrayList<>();
+        for (KnownDeviceCache.Entry entry : getKnownDeviceCache().all()) {
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("address", entry.address);
+            device.put("bonded", entry.bonded);
+            device.put("mtu", entry.mtu);
+            device.put("lastConnectedAt", entry.lastConnectedAt);
+            device.put("connected", isDeviceConnected(entry.address));
+            devices.add(device);
+        }
+        return devices;
+    }
+
+    /**
+     * Reconnect-to-ready time percentiles (bucket upper bounds) and discoveries skipped
+     */
+    public Map<String, Object> getReconnectStats() {
+        MetricsRegistry.Histogram reconnects = HBandMetrics.RECONNECT_TIME;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("count", reconnects.getCount());
+        stats.put("p50", reconnects.quantile(0.50));
+        stats.put("p90", reconnects.quantile(0.90));
+        stats.put("p99", reconnects.quantile(0.99));
+        stats.put("max", reconnects.getMax());
+        stats.put("meanMs", reconnects.getCount() > 0 ? (double) reconnects.getSum() / reconnects.getCount() : 0);
+        stats.put("discoverySkipped", HBandMetrics.DISCOVERY_SKIPPED.get());
+        return stats;
+    }
+
+    public void setMaxConnectedDevices(int maxDevices) {
+        sessions.setMaxSessions(maxDevices);
+    }
+
+    /**
+     * All open device sessions with their link state and traffic counters
+     */
+    public List<Object> getConnectedDevices() {
+        List<Object> devices = new ArrayList<>();
+        for (DeviceSessionManager.Session session : sessions.all()) {
+            Map<String, Object> device = new LinkedHashMap<>();
+            device.put("address", session.address);
+            device.put("connected", session.isConnected());
+            device.put("ready", session.isReady());
+            device.put("mtu", session.connection.getMtu());
+            device.put("connectedAt", session.getConnectedAt());
+            device.put("notifications", session.getNotifications());
+            device.put("bytesReceived", session.getBytesReceived());
+            device.put("primary", session.address.equalsIgnoreCase(connectedDeviceAddress));
+            devices.add(device);
+        }
+        return devices;
+    }
+
+    private final DeviceLink.Listener gattListener = new DeviceLink.Listener() {
+        @Override
+        public void onConnectionStateChanged(DeviceLink connection, boolean connected, int status) {
+            DeviceSessionManager.Session session = sessions.find(connection);
+            if (session == null) return;
             
-            // Return mock data (simulate async operation)
-            mainHandler.postDelayed(() -> {
-                WritableMap healthData = Arguments.createMap();
-                healthData.putInt("steps", 8543);
-                healthData.putInt("heartRate", 78);
-                healthData.putInt("calories", 324);
-                healthData.putDouble("distance", 6.2);
-                healthData.putString("timestamp", java.time.Instant.now().toString());
-                
-                emitEvent("healthDataReceived", healthData);
-            }, 1000);
-            
-            return true;
+            Map<String, Object> deviceInfo = new LinkedHashMap<>();
+            deviceInfo.put("address", session.address);
+            deviceInfo.put("connected", connected);
+            deviceInfo.put("status", status);
             
-        } catch (Exception e) {
-            Log.e(TAG, "❌ Health data error", e);
-            emitEvent("healthDataError", createErrorMap("Health data error: " + e.getMessage()));
-            return false;
+            if (connected) {
+                session.connected = true;
+                session.connectedAt = System.currentTimeMillis();
+                connectedDeviceAddress = session.address;
+            } else if (autoReconnect && session.ready && getKnownDeviceCache().get(session.address) != null) {
+                // A known band dropped: keep the session and client, the stack reconnects in range
+                session.ready = false;
+                session.reconnectStartedAt = mainScheduler.elapsedRealtime();
+                onSessionEnded(session);
+                connection.reconnect();
+                deviceInfo.put("reconnecting", true);
+            } else {
+                sessions.remove(session.address);
+                connection.close();
+                onSessionEnded(session);
+            }
+            emitEvent("connectionStatusChanged", deviceInfo);
         }
-    }
 
-    // Simple scan callback
-    private final ScanCallback scanCallback = new ScanCallback() {
         @Override
-        public void onScanResult(int callbackType, ScanResult result) {
-            try {
-                BluetoothDevice device = result.getDevice();
-                if (device == null) return;
-                
-                String deviceName = device.getName();
-                String deviceAddress = device.getAddress();
-                int rssi = result.getRssi();
-
-                // Avoid duplicate discoveries
-                if (discoveredDevices.contains(deviceAddress)) {
-                    return;
+        public void onReady(DeviceLink connection, int mtu) {
+            DeviceSessionManager.Session session = sessions.find(connection);
+            long reconnectMs = -1;
+            if (session != null) {
+                session.ready = true;
+                long startedAt = session.reconnectStartedAt;
+                if (startedAt > 0) {
+                    session.reconnectStartedAt = 0;
+                    reconnectMs = mainScheduler.elapsedRealtime() - startedAt;
+                    HBandMetrics.RECONNECT_TIME.record(reconnectMs);
                 }
-                discoveredDevices.add(deviceAddress);
-
-                // Show ALL devices (no filtering)
-                String displayName = deviceName != null ? deviceName : "Unknown Device";
-                
-                Log.d(TAG, "📱 DISCOVERED: " + displayName + " (" + deviceAddress + ") RSSI: " + rssi + " dBm");
-                
-                // Check if this looks like a fitness device
-                boolean isPotentialFitnessDevice = false;
-                if (deviceName != null) {
-                    String lowerName = deviceName.toLowerCase();
-                    isPotentialFitnessDevice = lowerName.contains("veepoo") ||
-                                             lowerName.contains("hband") ||
-                                             lowerName.contains("watch") ||
-                                             lowerName.contains("fitness") ||
-                                             lowerName.contains("band") ||
-                                             lowerName.contains("smart") ||
-                                             lowerName.contains("tracker") ||
-                                             lowerName.contains("health") ||
-                                             lowerName.contains("mi") ||
-                                             lowerName.contains("xiaomi") ||
-                                             lowerName.contains("amazfit") ||
-                                             lowerName.contains("huawei") ||
-                                             lowerName.contains("samsung") ||
-                                             lowerName.contains("garmin") ||
-                                             lowerName.contains("fitbit");
-                }
-                
-                if (isPotentialFitnessDevice) {
-                    Log.d(TAG, "🎯 POTENTIAL FITNESS DEVICE: " + displayName);
-                }
-                
-                // Send device info to React Native
-                WritableMap deviceInfo = Arguments.createMap();
-                deviceInfo.putString("name", displayName);
-                deviceInfo.putString("address", deviceAddress);
-                deviceInfo.putInt("rssi", rssi);
-                deviceInfo.putBoolean("isFitnessDevice", isPotentialFitnessDevice);
-                
-                emitEvent("deviceFound", deviceInfo);
-                
-            } catch (Exception e) {
-                Log.e(TAG, "❌ Error processing scan result", e);
+                storageExecutor.execute(() -> rememberDevice(connection));
             }
+            HLog.d(TAG, "✅ Link ready: " + connection.getAddress() + " (MTU " + mtu + ")"
+                + (reconnectMs >= 0 ? " in " + reconnectMs + " ms" : ""));
+            Map<String, Object> readyInfo = new LinkedHashMap<>();
+            readyInfo.put("address", connection.getAddress());
+            readyInfo.put("mtu", mtu);
+            if (reconnectMs >= 0) {
+                readyInfo.put("reconnectMs", reconnectMs);
+            }
+            emitEvent("connectionReady", readyInfo);
+            resumeTransfer(connection);
         }
 
         @Override
-        public void onScanFailed(int errorCode) {
-            Log.e(TAG, "❌ Bluetooth scan failed with error code: " + errorCode);
+        public void onNotification(DeviceLink connection, UUID characteristic, byte[] value) {
+            DeviceSessionManager.Session session = sessions.find(connection);
+            if (session == null) return;
+            session.notifications.incrementAndGet();
+            session.bytesReceived.addAndGet(value.length);
+            HBandMetrics.NOTIFICATIONS.increment();
+            HBandMetrics.BYTES_RECEIVED.add(value.length);
             
-            String errorMessage;
-            switch (errorCode) {
-                case SCAN_FAILED_ALREADY_STARTED:
-                    errorMessage = "Scan already started";
-                    break;
-                case SCAN_FAILED_APPLICATION_REGISTRATION_FAILED:
-                    errorMessage = "Application registration failed - try restarting Bluetooth";
-                    break;
-                case SCAN_FAILED_FEATURE_UNSUPPORTED:
-                    errorMessage = "BLE feature unsupported";
-                    break;
-                case SCAN_FAILED_INTERNAL_ERROR:
-                    errorMessage = "Internal Bluetooth error";
-                    break;
-                case SCAN_FAILED_OUT_OF_HARDWARE_RESOURCES:
-                    errorMessage = "Out of hardware resources";
-                    break;
-                default:
-                    errorMessage = "Unknown error: " + errorCode;
-                    break;
+            BulkTransferSession transfer = transferSession;
+            if (transfer != null && transfer.isRunning() && connection == transferConnection
+                    && GattConnection.NOTIFY_CHARACTERISTIC_UUID.equals(characteristic)) {
+                transfer.onNotification(value);
+                return;
+            }
+            HistorySyncSession history = historySession;
+            if (history != null && history.isRunning() && connection == historyConnection
+                    && GattConnection.NOTIFY_CHARACTERISTIC_UUID.equals(characteristic)) {
+                history.onNotification(value);
+                return;
+            }
+            LiveProtocol protocol = liveProtocol;
+            if (protocol != null && samplingScheduler != null && connection == monitoringConnection
+                    && GattConnection.NOTIFY_CHARACTERISTIC_UUID.equals(characteristic)) {
+                protocol.onNotification(value, liveReceiver);
             }
-            
-            Log.e(TAG, "❌ Scan failure details: " + errorMessage);
-            Log.e(TAG, "💡 Try: Restart Bluetooth, reboot device, or test on different phone");
-            isScanning = false;
-            
-            emitEvent("scanError", createErrorMap(errorMessage));
         }
     };
 
-    // Helper methods for React Native bridge
-    private void emitEvent(String eventName, WritableMap data) {
-        if (reactContext != null) {
-            reactContext
-                .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
-                .emit(eventName, data);
+    private final LiveProtocol.Receiver liveReceiver = (metric, timestamp, values) -> {
+        recordSample(metric, timestamp, values);
+        SamplingScheduler scheduler = samplingScheduler;
+        if (scheduler != null) {
+            scheduler.onReading(metric, timestamp, values);
         }
+    };
+
+    // Runs on the notification thread at most maxUpdatesPerSecond times per metric
+    private void emitHealthSample(HealthMetric metric, long timestamp, int[] values, int samplesInWindow) {
+        // Headless collection: samples are stored either way, only the event is skipped
+        if (eventSink == null || !eventSink.isListening()) return;
+        Map<String, Object> sample = new LinkedHashMap<>();
+        sample.put("metric", metric.jsName);
+        sample.put("timestamp", timestamp);
+        if (metric.channels == 1) {
+            sample.put("value", values[0]);
+        } else {
+            List<Object> valueArray = new ArrayList<>();
+            for (int c = 0; c < metric.channels; c++) {
+                valueArray.add(values[c]);
+            }
+            sample.put("values", valueArray);
+        }
+        sample.put("samples", samplesInWindow);
+        emitEvent("healthSample", sample);
     }
 
-    private WritableMap createErrorMap(String message) {
-        WritableMap errorMap = Arguments.createMap();
-        errorMap.putString("message", message);
-        return errorMap;
+    /**
+     * Limits healthSample events for one metric; mode is "latest" or "mean"
+     */
+    public boolean configureSampleRate(String metricName, int maxUpdatesPerSecond, String mode) {
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null) {
+            HLog.w(TAG, "⚠️ Unknown metric: " + metricName);
+            return false;
+        }
+        SensorSampleHub.DecimationMode decimationMode = "mean".equalsIgnoreCase(mode)
+            ? SensorSampleHub.DecimationMode.MEAN
+            : SensorSampleHub.DecimationMode.LATEST;
+        sampleHub.configure(metric, maxUpdatesPerSecond, decimationMode);
+        return true;
     }
 
-    // Getters
-    public boolean isScanning() { return isScanning; }
-    public boolean isConnected() { return isConnected; }
+    /**
+     * healthSample events for one metric only when a channel moves by threshold, or
+     * after maxSilenceMs without one (0 = never forced); threshold 0 forwards every update
+     */
+    public boolean configureChangeThreshold(String metricName, int threshold, long maxSilenceMs) {
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null) {
+            HLog.w(TAG, "⚠️ Unknown metric: " + metricName);
+            return false;
+        }
+        sampleHub.setChangeThreshold(metric, threshold, maxSilenceMs);
+        return true;
+    }
+
+    /**
+     * Newest full-resolution samples for one metric, oldest first
+     */
+    public Map<String, Object> getRecentSamples(String metricName, int maxCount) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null || maxCount <= 0) return result;
+        
+        SampleRingBuffer buffer = sampleHub.getBuffer(metric);
+        int max = Math.min(maxCount, buffer.getCapacity());
+        long[] timestamps = new long[max];
+        int[] values = new int[max * metric.channels];
+        int count = buffer.copyLatest(max, timestamps, values);
+        
+        List<Object> timestampArray = new ArrayList<>();
+        List<Object> valueArray = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            timestampArray.add(timestamps[i]);
+        }
+        for (int i = 0; i < count * metric.channels; i++) {
+            valueArray.add(values[i]);
+        }
+        result.put("metric", metric.jsName);
+        result.put("channels", metric.channels);
+        result.put("timestamps", timestampArray);
+        result.put("values", valueArray);
+        return result;
+    }
+
+    private synchronized TimeSeriesStore getTimeSeriesStore() {
+        if (timeSeriesStore == null) {
+            timeSeriesStore = new TimeSeriesStore(new File(filesDir, "timeseries"));
+        }
+        return timeSeriesStore;
+    }
+
+    /**
+     * Entry point for decoded device samples: live buffer plus durable history
+     */
+    void recordSample(HealthMetric metric, long timestamp, int[] values) {
+        switch (metric.channels) {
+            case 1:
+                sampleHub.append(metric, timestamp, values[0]);
+                break;
+            case 2:
+                sampleHub.append(metric, timestamp, values[0], values[1]);
+                break;
+            default:
+                sampleHub.append(metric, timestamp, values[0], values[1], values[2]);
+                break;
+        }
+        // Raw accelerometer data is too dense to keep on disk
+        if (metric == HealthMetric.ACCELEROMETER) return;
+        // Disk appends run on the storage thread, never on the GATT callback thread;
+        // protocols reuse their values arrays, so the reading is copied first
+        int[] stored = values.clone();
+        try {
+            storageExecutor.execute(() -> storeSample(metric, timestamp, stored));
+        } catch (RejectedExecutionException e) {
+            HLog.w(TAG, "⚠️ Storage shut down, dropping " + metric.jsName + " sample");
+        }
+    }
+
+    private void storeSample(HealthMetric metric, long timestamp, int[] values) {
+        // Only stored samples are aggregated, so a rebuild from the store matches exactly
+        Lock storeLock = aggregator.storeLock(metric);
+        storeLock.lock();
+        try {
+            getTimeSeriesStore().append(metric, timestamp, values);
+            HBandMetrics.SAMPLES_STORED.increment();
+            aggregator.record(metric, timestamp, values);
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Failed to store sample", e);
+            return;
+        } finally {
+            storeLock.unlock();
+        }
+        HealthUploadPipeline pipeline = uploadPipeline;
+        if (pipeline != null) {
+            pipeline.onSamplesStored(1);
+        }
+    }
+
+    /**
+     * Stored samples with fromMs <= t < toMs (newest maxSamples if more), as parallel arrays
+     */
+    public Map<String, Object> queryHealthHistory(String metricName, double fromMs, double toMs, int maxSamples) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null) {
+            result.put("error", "Unknown metric: " + metricName);
+            return result;
+        }
+        if (maxSamples <= 0) {
+            result.put("error", "maxSamples must be positive: " + maxSamples);
+            return result;
+        }
+        try {
+            TimeSeriesStore.SampleBatch batch = getTimeSeriesStore().query(metric, (long) fromMs, (long) toMs, maxSamples);
+            List<Object> timestampArray = new ArrayList<>();
+            List<Object> valueArray = new ArrayList<>();
+            for (int i = 0; i < batch.count; i++) {
+                timestampArray.add(batch.timestamps[i]);
+            }
+            for (int i = 0; i < batch.count * metric.channels; i++) {
+                valueArray.add(batch.values[i]);
+            }
+            result.put("metric", metric.jsName);
+            result.put("channels", metric.channels);
+            result.put("count", batch.count);
+            result.put("timestamps", timestampArray);
+            result.put("values", valueArray);
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ History query failed", e);
+            result.put("error", "History query failed: " + e.getMessage());
+        }
+        return result;
+    }
+
+    public Map<String, Object> getStorageStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        try {
+            TimeSeriesStore store = getTimeSeriesStore();
+            for (HealthMetric metric : HealthMetric.values()) {
+                long[] metricStats = store.getStats(metric);
+                Map<String, Object> metricMap = new LinkedHashMap<>();
+                metricMap.put("samples", metricStats[0]);
+                metricMap.put("segments", metricStats[1]);
+                metricMap.put("bytes", metricStats[2]);
+                stats.put(metric.jsName, metricMap);
+            }
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Storage stats failed", e);
+        }
+        return stats;
+    }
+
+    /**
+     * Waits until every sample handed to the storage thread so far is written and flushed;
+     * false on timeout or after shutdown
+     */
+    public boolean syncStorage(long timeoutMs) throws InterruptedException {
+        try {
+            storageExecutor.submit(this::flushStorage).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (RejectedExecutionException | ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    private void flushStorage() {
+        try {
+            getTimeSeriesStore().flush();
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Failed to flush storage", e);
+        }
+    }
+
+    private void runStorageMaintenance() {
+        try {
+            TimeSeriesStore store = getTimeSeriesStore();
+            int expired = store.applyRetention(System.currentTimeMillis());
+            int merged = store.compact();
+            HLog.d(TAG, "🧹 Storage maintenance: " + expired + " segments expired, " + merged + " merged");
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Storage maintenance failed", e);
+        }
+    }
+
+    private void rebuildAggregates() {
+        try {
+            long start = mainScheduler.elapsedRealtime();
+            aggregator.rebuild(getTimeSeriesStore(), System.currentTimeMillis());
+            HLog.d(TAG, "📊 Aggregates rebuilt in " + (mainScheduler.elapsedRealtime() - start) + " ms");
+        } catch (IOException e) {
+            HLog.e(TAG, "❌ Aggregate rebuild failed", e);
+        }
+    }
+
+    /**
+     * Minute/hour/day buckets overlapping fromMs <= t < toMs, as parallel arrays.
+     * min/max/mean hold metric.channels values per bucket; steps (STEPS) and
+     * restingHeartRate (HEART_RATE by day, -1 if unknown) are added where they apply.
+     */
+    public Map<String, Object> getAggregates(String metricName, String resolutionName, double fromMs, double toMs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        HealthAggregator.Resolution resolution = HealthAggregator.Resolution.fromName(resolutionName);
+        if (metric == null || resolution == null) {
+            result.put("error", "Unknown metric or resolution: " + metricName + "/" + resolutionName);
+            return result;
+        }
+        HealthAggregator.Series series = aggregator.query(metric, resolution, (long) fromMs, (long) toMs);
+        int channels = metric.channels;
+        List<Object> starts = new ArrayList<>();
+        List<Object> counts = new ArrayList<>();
+        List<Object> min = new ArrayList<>();
+        List<Object> max = new ArrayList<>();
+        List<Object> mean = new ArrayList<>();
+        for (int i = 0; i < series.count; i++) {
+            starts.add(series.starts[i]);
+            counts.add(series.counts[i]);
+        }
+        for (int i = 0; i < series.count * channels; i++) {
+            min.add(series.min[i]);
+            max.add(series.max[i]);
+            mean.add(series.mean[i]);
+        }
+        result.put("metric", metric.jsName);
+        result.put("resolution", resolution.jsName);
+        result.put("channels", channels);
+        result.put("count", series.count);
+        result.put("starts", starts);
+        result.put("counts", counts);
+        result.put("min", min);
+        result.put("max", max);
+        result.put("mean", mean);
+        if (series.steps != null) {
+            List<Object> steps = new ArrayList<>();
+            for (int i = 0; i < series.count; i++) {
+                steps.add(series.steps[i]);
+            }
+            result.put("steps", steps);
+        }
+        if (series.restingHeartRate != null) {
+            List<Object> resting = new ArrayList<>();
+            for (int i = 0; i < series.count; i++) {
+                resting.add(series.restingHeartRate[i]);
+            }
+            result.put("restingHeartRate", resting);
+        }
+        return result;
+    }
+
+    /**
+     * Newest samples as one PackedColumns buffer (timestamps, values); null for an unknown metric
+     */
+    public byte[] packRecentSamples(String metricName, int maxCount) {
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null || maxCount <= 0) return null;
+        SampleRingBuffer buffer = sampleHub.getBuffer(metric);
+        int max = Math.min(maxCount, buffer.getCapacity());
+        long[] timestamps = new long[max];
+        int[] values = new int[max * metric.channels];
+        int count = buffer.copyLatest(max, timestamps, values);
+        return PackedColumns.samples(timestamps, values, count, metric.channels);
+    }
+
+    /**
+     * Stored history as one PackedColumns buffer (timestamps, values)
+     */
+    public byte[] packHealthHistory(String metricName, double fromMs, double toMs, int maxSamples) throws IOException {
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null) {
+            throw new IllegalArgumentException("Unknown metric: " + metricName);
+        }
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("maxSamples must be positive: " + maxSamples);
+        }
+        TimeSeriesStore.SampleBatch batch = getTimeSeriesStore().query(metric, (long) fromMs, (long) toMs, maxSamples);
+        return PackedColumns.samples(batch.timestamps, batch.values, batch.count, metric.channels);
+    }
+
+    /**
+     * Aggregates as one PackedColumns buffer (column order in PackedColumns.series)
+     */
+    public byte[] packAggregates(String metricName, String resolutionName, double fromMs, double toMs) {
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        HealthAggregator.Resolution resolution = HealthAggregator.Resolution.fromName(resolutionName);
+        if (metric == null || resolution == null) {
+            throw new IllegalArgumentException("Unknown metric or resolution: " + metricName + "/" + resolutionName);
+        }
+        return PackedColumns.series(aggregator.query(metric, resolution, (long) fromMs, (long) toMs));
+    }
+
+    /**
+     * Sliding-window totals for the last windowMs (e.g. 3600000 for the past hour)
+     */
+    public Map<String, Object> getWindowSummary(String metricName, double windowMs) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        HealthMetric metric = HealthMetric.fromName(metricName);
+        if (metric == null) {
+            result.put("error", "Unknown metric: " + metricName);
+            return result;
+        }
+        if (windowMs <= 0) {
+            result.put("error", "windowMs must be positive: " + windowMs);
+            return result;
+        }
+        long now = System.currentTimeMillis();
+        HealthAggregator.Summary summary = aggregator.summarize(metric, now - (long) windowMs, now + 1);
+        List<Object> min = new ArrayList<>();
+        List<Object> max = new ArrayList<>();
+        List<Object> mean = new ArrayList<>();
+        for (int c = 0; c < metric.channels; c++) {
+            min.add(summary.min[c]);
+            max.add(summary.max[c]);
+            mean.add(summary.mean[c]);
+        }
+        result.put("metric", metric.jsName);
+        result.put("resolution", summary.resolution.jsName);
+        result.put("from", summary.fromMs);
+        result.put("to", now);
+        result.put("count", summary.count);
+        result.put("min", min);
+        result.put("max", max);
+        result.put("mean", mean);
+        if (metric == HealthMetric.STEPS) {
+            result.put("steps", summary.steps);
+        }
+        return result;
+    }
+
+    private synchronized HealthUploadPipeline getUploadPipeline() {
+        if (uploadPipeline == null) {
+            HealthUploadPipeline pipeline = new HealthUploadPipeline(getTimeSeriesStore(),
+                new File(filesDir, "upload-checkpoints.properties"));
+            pipeline.setListener(uploadListener);
+            uploadPipeline = pipeline;
+        }
+        return uploadPipeline;
+    }
+
+    private final HealthUploadPipeline.Listener uploadListener = new HealthUploadPipeline.Listener() {
+        @Override
+        public void onUploaded(int samples, int rawBytes, int sentBytes) {
+            HLog.d(TAG, "☁️ Uploaded " + samples + " samples (" + sentBytes + " of " + rawBytes + " bytes after gzip)");
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("samples", samples);
+            result.put("rawBytes", rawBytes);
+            result.put("sentBytes", sentBytes);
+            emitEvent("uploadCompleted", result);
+        }
+
+        @Override
+        public void onUploadFailed(int httpStatus, String error, long retryInMs) {
+            HLog.w(TAG, "⚠️ Upload failed (" + error + "), retry in " + retryInMs + " ms");
+            Map<String, Object> result = createErrorMap(error);
+            result.put("httpStatus", httpStatus);
+            result.put("retryInMs", retryInMs);
+            emitEvent("uploadFailed", result);
+        }
+    };
+
+    /**
+     * Enables batched upload of stored samples; batchSize/maxAgeMs <= 0 keep the defaults
+     */
+    public void configureUpload(String baseUrl, String authToken, String userId, String deviceType,
+                                String deviceId, int batchSize, double maxAgeMs) {
+        UploadConfigStore.Config config = new UploadConfigStore.Config(baseUrl, authToken, userId, deviceType,
+            deviceId, batchSize, (long) maxAgeMs, uploadBinary);
+        applyUploadConfig(config);
+        saveUploadConfig(config);
+        HLog.d(TAG, "☁️ Upload configured for " + baseUrl);
+    }
+
+    /**
+     * "binary" sends the compact columnar payload (falls back to JSON if the backend rejects it)
+     */
+    public void setUploadFormat(String format) {
+        uploadBinary = "binary".equalsIgnoreCase(format);
+        getUploadPipeline().setBinaryPayload(uploadBinary);
+        UploadConfigStore.Config config = uploadConfig;
+        if (config != null) {
+            saveUploadConfig(config.withBinary(uploadBinary));
+        }
+    }
+
+    private synchronized void applyUploadConfig(UploadConfigStore.Config config) {
+        HealthUploadPipeline pipeline = getUploadPipeline();
+        pipeline.setBatching(config.batchSize > 0 ? config.batchSize : HealthUploadPipeline.DEFAULT_BATCH_SIZE,
+            config.maxAgeMs > 0 ? config.maxAgeMs : HealthUploadPipeline.DEFAULT_MAX_AGE_MS);
+        pipeline.setBinaryPayload(config.binary);
+        pipeline.configure(config.baseUrl, config.authToken, config.userId, config.deviceType, config.deviceId);
+        uploadConfig = config;
+    }
+
+    private synchronized UploadConfigStore getUploadConfigStore() {
+        if (uploadConfigStore == null) {
+            uploadConfigStore = new UploadConfigStore(new File(filesDir, "upload-config.properties"));
+        }
+        return uploadConfigStore;
+    }
+
+    private void saveUploadConfig(UploadConfigStore.Config config) {
+        uploadConfig = config;
+        storageExecutor.execute(() -> {
+            try {
+                getUploadConfigStore().save(config);
+            } catch (IOException e) {
+                HLog.w(TAG, "⚠️ Could not persist the upload configuration: " + e.getMessage());
+            }
+        });
+    }
+
+    // Runs on the storage thread at init: the service may start headless, before (or without) JS
+    private void restoreUploadConfig() {
+        if (uploadConfig != null) return;
+        UploadConfigStore.Config config = getUploadConfigStore().load();
+        if (config == null) return;
+        synchronized (this) {
+            // configureUpload from JS wins over the saved copy
+            if (uploadConfig != null) return;
+            uploadBinary = config.binary;
+            applyUploadConfig(config);
+        }
+        HLog.d(TAG, "☁️ Upload restored for " + config.baseUrl);
+    }
+
+    /**
+     * Uploads pending samples immediately (e.g. when connectivity returns)
+     */
+    public void uploadNow() {
+        HealthUploadPipeline pipeline = uploadPipeline;
+        if (pipeline != null) {
+            pipeline.uploadNow();
+        }
+    }
+
+    public Map<String, Object> getUploadStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HealthUploadPipeline pipeline = uploadPipeline;
+        stats.put("configured", pipeline != null && pipeline.isConfigured());
+        if (pipeline == null) return stats;
+        stats.put("format", pipeline.isSendingBinary() ? "binary" : "json");
+        stats.put("batchesSent", pipeline.getBatchesSent());
+        stats.put("samplesSent", pipeline.getSamplesSent());
+        stats.put("rawBytes", pipeline.getRawBytes());
+        stats.put("sentBytes", pipeline.getSentBytes());
+        stats.put("failures", pipeline.getFailures());
+        stats.put("pendingSamples", pipeline.getPendingSamples());
+        stats.put("lastSuccessAt", pipeline.getLastSuccessAt());
+        if (pipeline.getLastError() != null) {
+            stats.put("lastError", pipeline.getLastError());
+        }
+        Map<String, Object> checkpoints = new LinkedHashMap<>();
+        for (HealthMetric metric : HealthMetric.values()) {
+            long checkpoint = pipeline.getCheckpoint(metric);
+            if (checkpoint != Long.MIN_VALUE) {
+                checkpoints.put(metric.jsName, checkpoint);
+            }
+        }
+        stats.put("checkpoints", checkpoints);
+        return stats;
+    }
+
+    public void setHistoryProtocol(HistoryProtocol protocol) {
+        this.historyProtocol = protocol;
+    }
+
+    /**
+     * syncHistory can run
+     */
+    public boolean hasHistoryProtocol() {
+        return historyProtocol != null;
+    }
+
+    private synchronized DurableLongMap getHistoryWatermarks() {
+        if (historyWatermarks == null) {
+            historyWatermarks = new DurableLongMap(new File(filesDir, "history-watermarks.properties"));
+        }
+        return historyWatermarks;
+    }
+
+    private synchronized HistoryBacklogIngestor getBacklogIngestor() {
+        if (backlogIngestor == null) {
+            backlogIngestor = new HistoryBacklogIngestor(HistoryBacklogIngestor.DEFAULT_WORKERS);
+        }
+        return backlogIngestor;
+    }
+
+    /**
+     * Pulls only device records newer than the stored high-water marks; null/empty means all metrics
+     */
+    public boolean syncHistory(List<String> metricNames) {
+        return syncHistory(connectedDeviceAddress, metricNames);
+    }
+
+    public boolean syncHistory(String deviceAddress, List<String> metricNames) {
+        DeviceSessionManager.Session device = sessions.get(deviceAddress);
+        DeviceLink connection = device != null ? device.connection : null;
+        HistoryProtocol protocol = historyProtocol;
+        if (connection == null || !device.isConnected()) {
+            emitEvent("historySyncError", createErrorMap("Not connected to any device"));
+            return false;
+        }
+        if (protocol == null) {
+            emitEvent("historySyncError", createErrorMap("No history protocol available"));
+            return false;
+        }
+        HistorySyncSession running = historySession;
+        if (running != null && running.isRunning()) {
+            HLog.w(TAG, "⚠️ History sync already running");
+            return false;
+        }
+
+        List<HealthMetric> metrics = new ArrayList<>();
+        if (metricNames == null || metricNames.isEmpty()) {
+            metrics.add(HealthMetric.STEPS);
+            metrics.add(HealthMetric.HEART_RATE);
+            metrics.add(HealthMetric.SLEEP);
+            metrics.add(HealthMetric.SPO2);
+            metrics.add(HealthMetric.BLOOD_PRESSURE);
+        } else {
+            for (String name : metricNames) {
+                HealthMetric metric = HealthMetric.fromName(name);
+                if (metric != null) {
+                    metrics.add(metric);
+                }
+            }
+        }
+
+        if (running != null) {
+            running.shutdown();
+        }
+        HistorySyncSession session = new HistorySyncSession(connection.getAddress(), protocol,
+            command -> {
+                connection.writeCommand(command, true, null);
+                return true;
+            },
+            historySink, getHistoryWatermarks(), historyListener, getBacklogIngestor());
+        historySession = session;
+        historyConnection = connection;
+        historyStartedAt = mainScheduler.elapsedRealtime();
+        historyRecords = 0;
+        connection.beginBulkTransfer();
+        HLog.d(TAG, "📥 Syncing history from " + connection.getAddress() + ": " + metrics.size() + " metrics");
+        session.start(metrics);
+        return true;
+    }
+
+    // History goes straight to the store; live decimation and healthSample events are for fresh data
+    private final HistorySyncSession.RecordSink historySink = new HistorySyncSession.RecordSink() {
+        @Override
+        public void onRecord(HealthMetric metric, long timestamp, int[] values) {
+            Lock storeLock = aggregator.storeLock(metric);
+            storeLock.lock();
+            try {
+                getTimeSeriesStore().append(metric, timestamp, values);
+                HBandMetrics.SAMPLES_STORED.increment();
+                aggregator.record(metric, timestamp, values);
+            } catch (IOException e) {
+                HLog.e(TAG, "❌ Failed to store history record", e);
+            } finally {
+                storeLock.unlock();
+            }
+        }
+
+        // Backlog runs go in short slices so live samples of the same metric get the store in between
+        @Override
+        public void onRecords(HealthMetric metric, long[] timestamps, int[] values, int count) throws IOException {
+            TimeSeriesStore store = getTimeSeriesStore();
+            int channels = metric.channels;
+            int[] record = new int[channels];
+            Lock storeLock = aggregator.storeLock(metric);
+            for (int from = 0; from < count; from += HISTORY_STORE_SLICE) {
+                int slice = Math.min(HISTORY_STORE_SLICE, count - from);
+                storeLock.lock();
+                try {
+                    store.append(metric, timestamps, values, from, slice);
+                    for (int i = from; i < from + slice; i++) {
+                        System.arraycopy(values, i * channels, record, 0, channels);
+                        aggregator.record(metric, timestamps[i], record);
+                    }
+                } finally {
+                    storeLock.unlock();
+                }
+                HBandMetrics.SAMPLES_STORED.add(slice);
+                Thread.yield();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            getTimeSeriesStore().flush();
+        }
+    };
+
+    /**
+     * No vendor protocol ships yet, so transfers are not exposed to JS; the band's OTA
+     * commands plug in here
+     */
+    public void setTransferProtocol(TransferProtocol protocol) {
+        this.transferProtocol = protocol;
+    }
+
+    private synchronized DurableLongMap getTransferCheckpoints() {
+        if (transferCheckpoints == null) {
+            transferCheckpoints = new DurableLongMap(new File(filesDir, "transfer-offsets.properties"));
+        }
+        return transferCheckpoints;
+    }
+
+    /**
+     * Uploads a firmware image or watch face ("firmware", "watchFace") from a local file.
+     * An interrupted upload of the same file to the same band continues from the offset the
+     * band last acknowledged, after a reconnect or in a later call.
+     */
+    public boolean startTransfer(String kindName, String filePath) {
+        return startTransfer(connectedDeviceAddress, kindName, filePath);
+    }
+
+    public boolean startTransfer(String deviceAddress, String kindName, String filePath) {
+        DeviceSessionManager.Session device = sessions.get(deviceAddress);
+        DeviceLink connection = device != null ? device.connection : null;
+        TransferProtocol protocol = transferProtocol;
+        BulkTransferSession.Kind kind = BulkTransferSession.Kind.fromName(kindName);
+        if (connection == null || !device.isConnected()) {
+            emitEvent("transferError", createErrorMap("Not connected to any device"));
+            return false;
+        }
+        if (protocol == null) {
+            emitEvent("transferError", createErrorMap("No transfer protocol available"));
+            return false;
+        }
+        if (kind == null) {
+            emitEvent("transferError", createErrorMap("Unknown transfer kind: " + kindName));
+            return false;
+        }
+        BulkTransferSession running = transferSession;
+        if (running != null && running.isRunning()) {
+            HLog.w(TAG, "⚠️ Transfer already running");
+            return false;
+        }
+        storageExecutor.execute(() -> {
+            File file = new File(filePath);
+            if (file.length() > BulkTransferSession.MAX_PAYLOAD_BYTES) {
+                emitEvent("transferError", createErrorMap("Payload too large: " + file.length() + " bytes"));
+                return;
+            }
+            byte[] payload;
+            // java.nio.file needs API 26
+            try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+                payload = new byte[(int) in.length()];
+                in.readFully(payload);
+            } catch (IOException e) {
+                HLog.e(TAG, "❌ Cannot read transfer payload " + filePath, e);
+                emitEvent("transferError", createErrorMap("Cannot read " + filePath + ": " + e.getMessage()));
+                return;
+            }
+            launchTransfer(connection, kind, payload, protocol);
+        });
+        return true;
+    }
+
+    private synchronized void launchTransfer(DeviceLink connection, BulkTransferSession.Kind kind, byte[] payload,
+                                             TransferProtocol protocol) {
+        BulkTransferSession previous = transferSession;
+        if (previous != null) {
+            if (previous.isRunning()) {
+                // Another startTransfer read its payload first; this one must not fail silently
+                HLog.w(TAG, "⚠️ Transfer already running");
+                Map<String, Object> error = createErrorMap("Transfer already running");
+                error.put("address", connection.getAddress());
+                error.put("kind", kind.jsName);
+                emitEvent("transferError", error);
+                return;
+            }
+            previous.shutdown();
+        }
+        BulkTransferSession session = new BulkTransferSession(connection.getAddress(), kind, payload, protocol,
+            getTransferCheckpoints(), transferListener);
+        transferSession = session;
+        transferConnection = connection;
+        transferProgress = null;
+        transferStartedAt = mainScheduler.elapsedRealtime();
+        connection.beginBulkTransfer();
+        HLog.d(TAG, "📤 Uploading " + kind.jsName + " (" + payload.length + " bytes) to " + connection.getAddress());
+        session.start(connection);
+    }
+
+    // A paused upload continues on the band's next ready link, whichever client carries it
+    private void resumeTransfer(DeviceLink connection) {
+        BulkTransferSession transfer = transferSession;
+        DeviceLink previous = transferConnection;
+        if (transfer == null || !transfer.isRunning() || previous == null
+                || !previous.getAddress().equalsIgnoreCase(connection.getAddress())) {
+            return;
+        }
+        transferConnection = connection;
+        connection.beginBulkTransfer();
+        transfer.resume(connection);
+    }
+
+    public void cancelTransfer() {
+        BulkTransferSession transfer = transferSession;
+        if (transfer != null) {
+            transfer.cancel();
+        }
+    }
+
+    public boolean isTransferring() {
+        BulkTransferSession transfer = transferSession;
+        return transfer != null && transfer.isRunning();
+    }
+
+    /**
+     * Latest progress of the current or last upload
+     */
+    public Map<String, Object> getTransferStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        BulkTransferSession transfer = transferSession;
+        DeviceLink connection = transferConnection;
+        stats.put("running", transfer != null && transfer.isRunning());
+        if (transfer == null) return stats;
+        stats.put("kind", transfer.getKind().jsName);
+        stats.put("totalBytes", transfer.getTotalBytes());
+        if (connection != null) {
+            stats.put("address", connection.getAddress());
+        }
+        BulkTransferSession.Progress progress = transferProgress;
+        if (progress != null) {
+            putTransferProgress(stats, progress);
+        }
+        return stats;
+    }
+
+    private static void putTransferProgress(Map<String, Object> map, BulkTransferSession.Progress progress) {
+        map.put("sentBytes", progress.sentBytes);
+        map.put("acknowledgedBytes", progress.acknowledgedBytes);
+        map.put("percent", progress.totalBytes > 0 ? 100.0 * progress.acknowledgedBytes / progress.totalBytes : 100);
+        map.put("kbPerSec", progress.bytesPerSecond / 1024);
+        map.put("etaMs", progress.etaMs);
+        map.put("chunkSize", progress.chunkSize);
+        map.put("resumes", progress.resumes);
+        map.put("retransmittedBytes", progress.retransmittedBytes);
+    }
+
+    private final BulkTransferSession.Listener transferListener = new BulkTransferSession.Listener() {
+        @Override
+        public void onProgress(BulkTransferSession.Progress progress) {
+            transferProgress = progress;
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("kind", progress.kind.jsName);
+            result.put("totalBytes", progress.totalBytes);
+            putTransferProgress(result, progress);
+            DeviceLink connection = transferConnection;
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            emitEvent("transferProgress", result);
+        }
+
+        @Override
+        public void onPaused(int acknowledgedBytes) {
+            DeviceLink connection = transferConnection;
+            if (connection != null) {
+                connection.endBulkTransfer();
+            }
+            HLog.d(TAG, "⏸️ Transfer paused at " + acknowledgedBytes + " bytes, waiting for the link");
+        }
+
+        @Override
+        public void onFinished(boolean completed, String error) {
+            DeviceLink connection = transferConnection;
+            if (connection != null && connection.isConnected()) {
+                connection.endBulkTransfer();
+            }
+            long durationMs = mainScheduler.elapsedRealtime() - transferStartedAt;
+            HBandMetrics.TRANSFER_DURATION.record(durationMs);
+            HLog.d(TAG, completed ? "✅ Transfer complete in " + durationMs + " ms" : "⚠️ Transfer stopped: " + error);
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            result.put("completed", completed);
+            result.put("durationMs", durationMs);
+            BulkTransferSession.Progress progress = transferProgress;
+            if (progress != null) {
+                result.put("kbPerSec", progress.bytesPerSecond / 1024);
+                result.put("acknowledgedBytes", progress.acknowledgedBytes);
+            }
+            if (error != null) {
+                result.put("error", error);
+            }
+            emitEvent("transferFinished", result);
+        }
+    };
+
+    public void setLiveProtocol(LiveProtocol protocol) {
+        this.liveProtocol = protocol;
+    }
+
+    /**
+     * startMonitoring can run (JS keeps its own polling otherwise)
+     */
+    public boolean hasLiveProtocol() {
+        return liveProtocol != null;
+    }
+
+    /**
+     * Replaces JS-side polling: subscribes to or adaptively polls the given metrics on
+     * one device; null/empty means heart rate, SpO2, steps and blood pressure
+     */
+    public boolean startMonitoring(List<String> metricNames) {
+        return startMonitoring(connectedDeviceAddress, metricNames);
+    }
+
+    public boolean startMonitoring(String deviceAddress, List<String> metricNames) {
+        DeviceSessionManager.Session device = sessions.get(deviceAddress);
+        DeviceLink connection = device != null ? device.connection : null;
+        LiveProtocol protocol = liveProtocol;
+        if (connection == null || !device.isConnected()) {
+            emitEvent("monitoringError", createErrorMap("Not connected to any device"));
+            return false;
+        }
+        if (protocol == null) {
+            emitEvent("monitoringError", createErrorMap("No live protocol available"));
+            return false;
+        }
+
+        List<HealthMetric> metrics = new ArrayList<>();
+        if (metricNames == null || metricNames.isEmpty()) {
+            metrics.add(HealthMetric.HEART_RATE);
+            metrics.add(HealthMetric.SPO2);
+            metrics.add(HealthMetric.STEPS);
+            metrics.add(HealthMetric.BLOOD_PRESSURE);
+        } else {
+            for (String name : metricNames) {
+                HealthMetric metric = HealthMetric.fromName(name);
+                if (metric != null) {
+                    metrics.add(metric);
+                }
+            }
+        }
+
+        stopMonitoring();
+        protocol.reset();
+        // Off-device there is no AlarmManager; the executor's clock does not sleep there
+        SamplingScheduler scheduler = new SamplingScheduler(protocol,
+            command -> {
+                connection.writeCommand(command, true, null);
+                return true;
+            },
+            samplingListener, context != null ? new AlarmWaker(context) : null);
+        samplingScheduler = scheduler;
+        monitoringConnection = connection;
+        HLog.d(TAG, "📡 Monitoring " + metrics.size() + " metrics on " + connection.getAddress());
+        scheduler.start(metrics);
+        startPowerMonitor();
+        return true;
+    }
+
+    public void stopMonitoring() {
+        SamplingScheduler scheduler = samplingScheduler;
+        samplingScheduler = null;
+        monitoringConnection = null;
+        stopPowerMonitor();
+        if (scheduler != null) {
+            scheduler.stop();
+        }
+    }
+
+    public boolean isMonitoring() {
+        SamplingScheduler scheduler = samplingScheduler;
+        return scheduler != null && scheduler.isRunning();
+    }
+
+    /**
+     * Per-metric polls, readings, current interval and whether it is subscribed
+     */
+    public Map<String, Object> getMonitoringStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        SamplingScheduler scheduler = samplingScheduler;
+        DeviceLink connection = monitoringConnection;
+        stats.put("running", scheduler != null && scheduler.isRunning());
+        if (connection != null) {
+            stats.put("address", connection.getAddress());
+        }
+        if (scheduler == null) return stats;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        for (Map.Entry<HealthMetric, long[]> entry : scheduler.getStats().entrySet()) {
+            long[] values = entry.getValue();
+            Map<String, Object> metric = new LinkedHashMap<>();
+            metric.put("polls", values[0]);
+            metric.put("readings", values[1]);
+            metric.put("intervalMs", values[2]);
+            metric.put("subscribed", values[3] != 0);
+            metric.put("suppressed", sampleHub.getSuppressed(entry.getKey()));
+            metrics.put(entry.getKey().jsName, metric);
+        }
+        stats.put("metrics", metrics);
+        return stats;
+    }
+
+    private synchronized void startPowerMonitor() {
+        // No screen or battery broadcasts off-device; sampling keeps its screen-on cadence
+        if (context == null) return;
+        if (powerMonitor == null) {
+            powerMonitor = new PowerStateMonitor(context, (screenOn, batteryLow) -> {
+                SamplingScheduler scheduler = samplingScheduler;
+                if (scheduler != null) {
+                    scheduler.setPowerState(screenOn, batteryLow);
+                }
+            });
+        }
+        powerMonitor.start();
+    }
+
+    private synchronized void stopPowerMonitor() {
+        if (powerMonitor != null) {
+            powerMonitor.stop();
+        }
+    }
+
+    private final SamplingScheduler.Listener samplingListener = (active, abnormal, reason) -> {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("active", active);
+        result.put("abnormal", abnormal);
+        result.put("reason", reason);
+        emitEvent("samplingModeChanged", result);
+    };
+
+    private final HistorySyncSession.Listener historyListener = new HistorySyncSession.Listener() {
+        @Override
+        public void onProgress(HistorySyncSession.Progress progress) {
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("metric", progress.metric.jsName);
+            result.put("records", progress.records);
+            result.put("expectedRecords", progress.expectedRecords);
+            result.put("bytes", progress.bytes);
+            result.put("recordsPerSec", progress.recordsPerSecond);
+            result.put("bytesPerSec", progress.bytesPerSecond);
+            result.put("etaMs", progress.etaMs);
+            DeviceLink connection = historyConnection;
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            emitEvent("historySyncProgress", result);
+        }
+
+        @Override
+        public void onMetricComplete(HealthMetric metric, int records, long oldestTimestamp, long newestTimestamp) {
+            historyRecords += records;
+            HLog.d(TAG, "📥 " + metric.jsName + ": " + records + " new records");
+            HealthUploadPipeline pipeline = uploadPipeline;
+            if (pipeline != null && records > 0) {
+                // Backfilled records older than the upload checkpoint still need uploading, and only those
+                long checkpoint = pipeline.getCheckpoint(metric);
+                if (oldestTimestamp < checkpoint) {
+                    pipeline.backfill(metric, oldestTimestamp, Math.min(newestTimestamp + 1, checkpoint));
+                }
+                pipeline.onSamplesStored(records);
+            }
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("metric", metric.jsName);
+            result.put("records", records);
+            result.put("newestTimestamp", newestTimestamp);
+            DeviceLink connection = historyConnection;
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            emitEvent("historySyncMetricComplete", result);
+        }
+
+        @Override
+        public void onMetricFailed(HealthMetric metric, String error) {
+            Map<String, Object> result = createErrorMap(error);
+            result.put("metric", metric.jsName);
+            DeviceLink connection = historyConnection;
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            emitEvent("historySyncMetricFailed", result);
+        }
+
+        @Override
+        public void onFinished(boolean completed, String error) {
+            DeviceLink connection = historyConnection;
+            if (connection != null) {
+                connection.endBulkTransfer();
+            }
+            long durationMs = mainScheduler.elapsedRealtime() - historyStartedAt;
+            long records = historyRecords;
+            HBandMetrics.HISTORY_SYNC_DURATION.record(durationMs);
+            HLog.d(TAG, completed ? "✅ History sync complete: " + records + " records in " + durationMs + " ms"
+                : "⚠️ History sync stopped: " + error);
+            Map<String, Object> result = new LinkedHashMap<>();
+            if (connection != null) {
+                result.put("address", connection.getAddress());
+            }
+            result.put("completed", completed);
+            result.put("records", records);
+            result.put("durationMs", durationMs);
+            result.put("recordsPerSec", durationMs > 0 ? records * 1000.0 / durationMs : 0);
+            result.put("decodeWorkers", getBacklogIngestor().getWorkers());
+            if (error != null) {
+                result.put("error", error);
+            }
+            emitEvent("historySyncFinished", result);
+        }
+    };
+
+    /**
+     * Per-operation GATT latency keyed by device address, plus the shared arbiter's counters
+     */
+    public Map<String, Object> getGattStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (DeviceSessionManager.Session session : sessions.all()) {
+            Map<String, Object> deviceStats = new LinkedHashMap<>();
+            for (Map.Entry<GattOperation.Type, GattOperationQueue.OperationStats> entry
+                    : session.connection.getOperationStats().entrySet()) {
+                GattOperationQueue.OperationStats typeStats = entry.getValue();
+                Map<String, Object> typeMap = new LinkedHashMap<>();
+                typeMap.put("count", typeStats.count);
+                typeMap.put("failures", typeStats.failures);
+                typeMap.put("avgLatencyMs", typeStats.averageLatencyMs());
+                typeMap.put("maxLatencyMs", typeStats.maxLatencyNanos / 1e6);
+                typeMap.put("avgQueueWaitMs", typeStats.count > 0 ? typeStats.totalQueueWaitNanos / 1e6 / typeStats.count : 0);
+                deviceStats.put(entry.getKey().name(), typeMap);
+            }
+            deviceStats.put("mtu", session.connection.getMtu());
+            stats.put(session.address, deviceStats);
+        }
+        GattArbiter arbiter = sessions.getArbiter();
+        Map<String, Object> arbiterStats = new LinkedHashMap<>();
+        arbiterStats.put("inFlight", arbiter.getInFlight());
+        arbiterStats.put("waitingDevices", arbiter.getWaitingQueues());
+        arbiterStats.put("grants", arbiter.getGrants());
+        arbiterStats.put("waits", arbiter.getWaits());
+        stats.put("arbiter", arbiterStats);
+        return stats;
+    }
+
+    /**
+     * Snapshot of every native counter, gauge and histogram (quantiles are bucket upper bounds)
+     */
+    public Map<String, Object> getMetrics() {
+        MetricsRegistry registry = HBandMetrics.REGISTRY;
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("timestamp", System.currentTimeMillis());
+        metrics.put("uptimeMs", System.currentTimeMillis() - registry.getCreatedAt());
+
+        Map<String, Object> counters = new LinkedHashMap<>();
+        for (MetricsRegistry.Counter counter : registry.getCounters()) {
+            counters.put(counter.name, counter.get());
+        }
+        metrics.put("counters", counters);
+
+        Map<String, Object> gauges = new LinkedHashMap<>();
+        for (MetricsRegistry.Gauge gauge : registry.getGauges()) {
+            gauges.put(gauge.name, gauge.get());
+        }
+        metrics.put("gauges", gauges);
+
+        Map<String, Object> histograms = new LinkedHashMap<>();
+        for (MetricsRegistry.Histogram histogram : registry.getHistograms()) {
+            Map<String, Object> histogramMap = new LinkedHashMap<>();
+            histogramMap.put("unit", histogram.unit);
+            histogramMap.put("count", histogram.getCount());
+            histogramMap.put("sum", histogram.getSum());
+            histogramMap.put("max", histogram.getMax());
+            histogramMap.put("p50", histogram.quantile(0.50));
+            histogramMap.put("p95", histogram.quantile(0.95));
+            histogramMap.put("p99", histogram.quantile(0.99));
+            List<Object> bounds = new ArrayList<>();
+            for (long bound : histogram.getBounds()) {
+                bounds.add(bound);
+            }
+            List<Object> buckets = new ArrayList<>();
+            for (long bucket : histogram.getBuckets()) {
+                buckets.add(bucket);
+            }
+            histogramMap.put("bounds", bounds);
+            histogramMap.put("buckets", buckets);
+            histograms.put(histogram.name, histogramMap);
+        }
+        metrics.put("histograms", histograms);
+        return metrics;
+    }
+
+    /**
+     * Runtime log level for the native layer: "debug", "info", "warn", "error" or "none".
+     * Hot-path logs stay compiled out of release builds regardless.
+     */
+    public void setLogLevel(String level) {
+        int priority;
+        switch (level == null ? "" : level.toLowerCase()) {
+            case "debug": priority = Log.DEBUG; break;
+            case "info": priority = Log.INFO; break;
+            case "warn": priority = Log.WARN; break;
+            case "error": priority = Log.ERROR; break;
+            case "none": priority = Log.ASSERT + 1; break;
+            default:
+                HLog.w(TAG, "⚠️ Unknown log level: " + level);
+                return;
+        }
+        HLog.setLevel(priority);
+    }
+
+    // ScanCallback.SCAN_FAILED_SCANNING_TOO_FREQUENTLY is only public from API 33
+    private static final int SCAN_FAILED_SCANNING_TOO_FREQUENTLY = 6;
+
+    // Scan callbacks from the transport (batched reports arrive one advertisement at a time)
+    private final BleTransport.ScanListener scanListener = new BleTransport.ScanListener() {
+        @Override
+        public void onAdvertisement(Advertisement advertisement) {
+            handleScanResult(advertisement);
+        }
+
+        @Override
+        public void onScanFailed(int errorCode) {
+            HLog.e(TAG, "❌ Bluetooth scan failed with error code: " + errorCode);
+            
+            String errorMessage;
+            switch (errorCode) {
+                case ScanCallback.SCAN_FAILED_ALREADY_STARTED:
+                    errorMessage = "Scan already started";
+                    break;
+                case ScanCallback.SCAN_FAILED_APPLICATION_REGISTRATION_FAILED:
+                    errorMessage = "Application registration failed - try restarting Bluetooth";
+                    break;
+                case ScanCallback.SCAN_FAILED_FEATURE_UNSUPPORTED:
+                    errorMessage = "BLE feature unsupported";
+                    break;
+                case ScanCallback.SCAN_FAILED_INTERNAL_ERROR:
+                    errorMessage = "Internal Bluetooth error";
+                    break;
+                case ScanCallback.SCAN_FAILED_OUT_OF_HARDWARE_RESOURCES:
+                    errorMessage = "Out of hardware resources";
+                    break;
+                case SCAN_FAILED_SCANNING_TOO_FREQUENTLY:
+                    errorMessage = "Scanning too frequently";
+                    break;
+                default:
+                    errorMessage = "Unknown error: " + errorCode;
+                    break;
+            }
+            
+            // Registration races and start throttling are transient; everything else is reported
+            boolean retryable = errorCode == ScanCallback.SCAN_FAILED_ALREADY_STARTED
+                || errorCode == ScanCallback.SCAN_FAILED_APPLICATION_REGISTRATION_FAILED
+                || errorCode == SCAN_FAILED_SCANNING_TOO_FREQUENTLY;
+            if (scanStateMachine.onScanFailed(errorCode, retryable)) {
+                HLog.w(TAG, "⚠️ Scan failure is transient, retrying: " + errorMessage);
+                return;
+            }
+            
+            HLog.e(TAG, "❌ Scan failure details: " + errorMessage);
+            HLog.e(TAG, "💡 Try: Restart Bluetooth, reboot device, or test on different phone");
+            
+            emitEvent("scanError", createErrorMap(errorMessage));
+        }
+    };
+
+    private void handleScanResult(Advertisement advertisement) {
+        try {
+            HBandMetrics.SCAN_CALLBACKS.increment();
+            String deviceName = advertisement.name;
+            String deviceAddress = advertisement.address;
+            int rssi = advertisement.rssi;
+            long now = mainScheduler.elapsedRealtime();
+            scanStateMachine.onResult(deviceAddress, now);
+
+            // Check if this looks like a fitness device (cached per address)
+            boolean isPotentialFitnessDevice = fitnessClassifier.classify(advertisement);
+            
+            DeviceRegistry.DeviceSnapshot snapshot = deviceRegistry.record(
+                deviceAddress, deviceName, rssi, isPotentialFitnessDevice, now);
+            
+            // Log first sighting only (debug builds); repeat sightings are coalesced by the batcher
+            if (snapshot.isNew()) {
+                HBandMetrics.SCAN_NEW_DEVICES.increment();
+                if (HLog.HOT) {
+                    String displayName = deviceName != null ? deviceName : "Unknown Device";
+                    HLog.d(TAG, "📱 DISCOVERED: " + displayName + " (" + deviceAddress + ") RSSI: " + rssi + " dBm"
+                        + (isPotentialFitnessDevice ? " 🎯 fitness" : ""));
+                }
+            }
+            
+            // Hand off to the batcher thread; JS gets one devicesFound event per flush
+            scanBatcher.offer(snapshot);
+            
+        } catch (Exception e) {
+            HLog.e(TAG, "❌ Error processing scan result", e);
+        }
+    }
+
+    /**
+     * Selects the scan profile for the next scan; durationMs <= 0 uses the profile default
+     */
+    public boolean setScanProfile(String profileName, long durationMs) {
+        ScanProfile profile = ScanProfile.fromName(profileName);
+        if (profile == null) {
+            HLog.w(TAG, "⚠️ Unknown scan profile: " + profileName);
+            emitEvent("scanError", createErrorMap("Unknown scan profile: " + profileName));
+            return false;
+        }
+        scanProfile = profile;
+        scanDurationMs = durationMs > 0 ? durationMs : profile.defaultDurationMs;
+        HLog.d(TAG, "⚙️ Scan profile set to " + profile.jsName() + " (" + scanDurationMs + " ms)");
+        return true;
+    }
+
+    // Runs on the batcher thread with one coalesced batch of sightings
+    private void emitDevicesFound(List<ScanResultBatcher.DeviceSighting> devices) {
+        List<Object> deviceArray = new ArrayList<>();
+        for (ScanResultBatcher.DeviceSighting sighting : devices) {
+            Map<String, Object> deviceInfo = createDeviceMap(sighting.device);
+            deviceInfo.put("isNew", sighting.isNew);
+            deviceArray.add(deviceInfo);
+        }
+        
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("devices", deviceArray);
+        batch.put("count", devices.size());
+        emitEvent("devicesFound", batch);
+    }
+
+    private Map<String, Object> createDeviceMap(DeviceRegistry.DeviceSnapshot device) {
+        Map<String, Object> deviceInfo = new LinkedHashMap<>();
+        deviceInfo.put("name", device.name != null ? device.name : "Unknown Device");
+        deviceInfo.put("address", device.address);
+        deviceInfo.put("rssi", device.rssi);
+        deviceInfo.put("smoothedRssi", device.smoothedRssi);
+        deviceInfo.put("isFitnessDevice", device.isFitnessDevice);
+        deviceInfo.put("sightings", device.sightings);
+        // The registry runs on elapsedRealtime, which is meaningless in JS; report epoch millis
+        long wallClockOffset = System.currentTimeMillis() - mainScheduler.elapsedRealtime();
+        deviceInfo.put("firstSeen", device.firstSeen + wallClockOffset);
+        deviceInfo.put("lastSeen", device.lastSeen + wallClockOffset);
+        return deviceInfo;
+    }
+
+    private void evictStaleDevices() {
+        int expired = deviceRegistry.evictStale(mainScheduler.elapsedRealtime());
+        if (expired > 0) {
+            HLog.d(TAG, "🧹 Expired " + expired + " stale devices");
+        }
+    }
+
+    /**
+     * Strongest k devices by smoothed RSSI, optionally only potential fitness devices
+     */
+    public List<Object> getNearestDevices(int count, boolean fitnessOnly) {
+        evictStaleDevices();
+        List<Object> devices = new ArrayList<>();
+        for (DeviceRegistry.DeviceSnapshot device : deviceRegistry.strongest(count, fitnessOnly)) {
+            devices.add(createDeviceMap(device));
+        }
+        return devices;
+    }
+
+    public void configureDeviceRegistry(int maxDevices, long maxAgeMs, float rssiAlpha) {
+        deviceRegistry.configure(maxDevices, maxAgeMs, rssiAlpha);
+    }
+
+    public void configureScanBatching(long flushIntervalMs, int maxBatchSize) {
+        scanBatcher.configure(flushIntervalMs, maxBatchSize);
+    }
+
+    public void setFitnessKeywords(List<String> keywords) {
+        fitnessClassifier.setKeywords(keywords);
+    }
+
+    public Map<String, Object> getScanStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("resultsReceived", scanBatcher.getResultsReceived());
+        stats.put("devicesEmitted", scanBatcher.getDevicesEmitted());
+        stats.put("eventsEmitted", scanBatcher.getEventsEmitted());
+        stats.put("uniqueDevices", deviceRegistry.size());
+        stats.put("devicesEvicted", deviceRegistry.getEvictedCount());
+        stats.put("devicesExpired", deviceRegistry.getExpiredCount());
+        stats.put("timeToFirstResultMs", scanStateMachine.getLastTimeToFirstResultMs());
+        stats.put("timeToTargetMs", scanStateMachine.getLastTimeToTargetMs());
+        stats.put("avgTimeToFirstResultMs", scanStateMachine.getAverageTimeToFirstResultMs());
+        stats.put("avgTimeToTargetMs", scanStateMachine.getAverageTimeToTargetMs());
+        stats.put("completedScans", scanStateMachine.getCompletedScans());
+        stats.put("scanRetries", scanStateMachine.getTotalRetries());
+        stats.put("throttleDeferrals", scanStateMachine.getThrottleDeferrals());
+        return stats;
+    }
+
+    /**
+     * Stops scanning, monitoring and every link, then the worker threads, and closes the store
+     * (waits up to 5 s for it). The process-wide manager lives as long as the app; a harness
+     * creating one per run calls this.
+     */
+    public void shutdown() {
+        stopScan();
+        stopMonitoring();
+        disconnect();
+        scanBatcher.shutdown();
+        HistorySyncSession history = historySession;
+        if (history != null) {
+            history.shutdown();
+        }
+        BulkTransferSession transfer = transferSession;
+        if (transfer != null) {
+            transfer.shutdown();
+        }
+        HealthUploadPipeline pipeline = uploadPipeline;
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+        synchronized (this) {
+            if (backlogIngestor != null) {
+                backlogIngestor.shutdown();
+            }
+        }
+        storageExecutor.execute(() -> {
+            try {
+                TimeSeriesStore store;
+                synchronized (this) {
+                    store = timeSeriesStore;
+                }
+                if (store != null) {
+                    store.close();
+                }
+            } catch (IOException e) {
+                HLog.e(TAG, "❌ Failed to close storage", e);
+            }
+        });
+        storageExecutor.shutdown();
+        try {
+            storageExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Event helpers; payloads become WritableMaps only inside ReactEventSink
+    private void emitEvent(String eventName, Map<String, Object> data) {
+        if (eventSink == null) return;
+        long start = System.nanoTime();
+        eventSink.emit(eventName, data);
+        HBandMetrics.EVENTS_EMITTED.increment();
+        HBandMetrics.EMIT_LATENCY.record((System.nanoTime() - start) / 1000);
+    }
+
+    private Map<String, Object> createErrorMap(String message) {
+        Map<String, Object> errorMap = new LinkedHashMap<>();
+        errorMap.put("message", message);
+        return errorMap;
+    }
+
+    // Getters
+    public boolean isScanning() { return scanStateMachine.isScanning(); }
+    public String getScanState() { return scanStateMachine.getState().name(); }
+    public String getScanProfile() { return scanProfile.jsName(); }
+    public boolean isConnected() { return sessions.anyConnected(); }
+    public boolean isDeviceConnected(String address) {
+        DeviceSessionManager.Session session = sessions.get(address);
+        return session != null && session.isConnected() && session.isReady();
+    }
     public String getConnectedDeviceAddress() { return connectedDeviceAddress; }
     public boolean isBluetoothAvailable() { 
-        return bluetoothAdapter != null && bluetoothAdapter.isEnabled(); 
+        return transport.isEnabled(); 
     }
 }
\ No newline at end of file
@@ -0,0 +1,340 @@
+package com.xevoxmobileapp;
+
+import android.app.Notification;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.Manifest;
+import android.app.Service;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.os.Build;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Foreground service that collects from one band without a JS runtime
+ * Owns the process-wide HBandAndroidManager: connects, keeps the link (reconnecting
+ * with backoff), runs adaptive monitoring and history sync, and leaves storage and
+ * upload to the manager. The UI attaches its event sink while it is alive and
+ * detaches on destroy; collection does not notice either. Monitoring and history sync
+ * run only once a vendor protocol has been installed on the manager; it restores the
+ * last upload configuration when it initializes, so a restart by the system resumes
+ * collection and upload without JS.
+ */
+public class HBandCollectionService extends Service {
+    private static final String TAG = "HBandCollectionService";
+
+    public static final String ACTION_START = "com.xevoxmobileapp.action.START_COLLECTION";
+    public static final String ACTION_STOP = "com.xevoxmobileapp.action.STOP_COLLECTION";
+    public static final String EXTRA_ADDRESS = "address";
+    public static final String EXTRA_METRICS = "metrics";
+
+    private static final String CHANNEL_ID = "hband_collection";
+    private static final int NOTIFICATION_ID = 4101;
+    private static final String PREFERENCES = "hband-collection";
+
+    // Reconnect backoff after an unexpected disconnect
+    private static final long RECONNECT_INITIAL_DELAY_MS = 5_000;
+    private static final long RECONNECT_MAX_DELAY_MS = 5 * 60_000;
+
+    // One manager per process, shared by the service and the React Native module
+    private static final Object managerLock = new Object();
+    private static HBandAndroidManager manager;
+    private static final AttachableEventSink eventSink = new AttachableEventSink(HBandCollectionService::observe);
+    private static volatile HBandCollectionService running;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private SharedPreferences preferences;
+    private volatile String targetAddress;
+    private volatile List<String> targetMetrics = new ArrayList<>();
+    private volatile boolean stopping = false;
+    private long reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+    private String statusText = "Starting";
+
+    // Measurement baseline for overnight comparisons against the JS-driven path
+    private long startedAt;
+    private long startedCpuMs;
+
+    /**
+     * The process-wide manager (created on first use with the application context)
+     */
+    public static HBandAndroidManager getManager(Context context) {
+        synchronized (managerLock) {
+            if (manager == null) {
+                Context appContext = context.getApplicationContext();
+                manager = new HBandAndroidManager(appContext, new AndroidBleTransport(appContext), eventSink);
+            }
+            return manager;
+        }
+    }
+
+    /**
+     * Routes manager events to a live UI until detachEvents(sink)
+     */
+    public static void attachEvents(EventSink sink) {
+        eventSink.attach(sink);
+    }
+
+    public static void detachEvents(EventSink sink) {
+        eventSink.detach(sink);
+    }
+
+    public static void start(Context context, String address, List<String> metrics) {
+        Intent intent = new Intent(context, HBandCollectionService.class);
+        intent.setAction(ACTION_START);
+        intent.putExtra(EXTRA_ADDRESS, address);
+        if (metrics != null) {
+            intent.putExtra(EXTRA_METRICS, metrics.toArray(new String[0]));
+        }
+        ContextCompat.startForegroundService(context, intent);
+    }
+
+    public static void stop(Context context) {
+        HBandCollectionService service = running;
+        if (service != null) {
+            service.stopCollection();
+        }
+    }
+
+    public static boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * Running state, target, and CPU time / sampling wakeups since the service started
+     */
+    public static Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        HBandCollectionService service = running;
+        stats.put("running", service != null);
+        stats.put("uiAttached", eventSink.isAttached());
+        stats.put("eventsWhileDetached", HBandMetrics.EVENTS_DETACHED.get());
+        stats.put("samplingWakeups", HBandMetrics.SAMPLING_WAKEUPS.get());
+        stats.put("samplingPolls", HBandMetrics.SAMPLING_POLLS.get());
+        stats.put("samplingAlarms", HBandMetrics.SAMPLING_ALARMS.get());
+        stats.put("notifications", HBandMetrics.NOTIFICATIONS.get());
+        stats.put("reconnects", HBandMetrics.COLLECTION_RECONNECTS.get());
+        if (service != null) {
+            stats.put("address", service.targetAddress);
+            stats.put("status", service.statusText);
+            stats.put("uptimeMs", SystemClock.elapsedRealtime() - service.startedAt);
+            stats.put("cpuMs", Process.getElapsedCpuTime() - service.startedCpuMs);
+        }
+        return stats;
+    }
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        preferences = getSharedPreferences(PREFERENCES, Context.MODE_PRIVATE);
+        startedAt = SystemClock.elapsedRealtime();
+        startedCpuMs = Process.getElapsedCpuTime();
+        createChannel();
+        // A connectedDevice foreground service needs the Bluetooth grant (revocable while we were dead)
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S
+            && ContextCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT)
+                != PackageManager.PERMISSION_GRANTED) {
+            HLog.w(TAG, "⚠️ BLUETOOTH_CONNECT not granted, not collecting");
+            stopSelf();
+            return;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            startForeground(NOTIFICATION_ID, buildNotification(), ServiceInfo.FOREGROUND_SERVICE_TYPE_CONNECTED_DEVICE);
+        } else {
+            startForeground(NOTIFICATION_ID, buildNotification());
+        }
+        running = this;
+        HLog.d(TAG, "🟢 Collection service created");
+    }
+
+    @Override
+    public int onStartCommand(Intent intent, int flags, int startId) {
+        if (running != this) {
+            // onCreate gave up (no Bluetooth permission) and is already stopping
+            return START_NOT_STICKY;
+        }
+        if (intent != null && ACTION_STOP.equals(intent.getAction())) {
+            stopCollection();
+            return START_NOT_STICKY;
+        }
+        if (intent != null && intent.getStringExtra(EXTRA_ADDRESS) != null) {
+            targetAddress = intent.getStringExtra(EXTRA_ADDRESS);
+            String[] metrics = intent.getStringArrayExtra(EXTRA_METRICS);
+            targetMetrics = metrics != null ? Arrays.asList(metrics) : new ArrayList<>();
+            preferences.edit()
+                .putString(EXTRA_ADDRESS, targetAddress)
+                .putString(EXTRA_METRICS, TextUtils.join(",", targetMetrics))
+                .apply();
+        } else {
+            // Restarted by the system after being killed: resume the last target
+            targetAddress = preferences.getString(EXTRA_ADDRESS, null);
+            String metrics = preferences.getString(EXTRA_METRICS, "");
+            targetMetrics = metrics.isEmpty() ? new ArrayList<>() : Arrays.asList(metrics.split(","));
+        }
+        if (targetAddress == null) {
+            HLog.w(TAG, "⚠️ No device to collect from");
+            stopCollection();
+            return START_NOT_STICKY;
+        }
+        stopping = false;
+        reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+        HBandAndroidManager hband = getManager(this);
+        hband.initializeAsync().thenAccept(ready -> handler.post(() -> {
+            if (!ready) {
+                updateStatus("Bluetooth unavailable");
+                scheduleReconnect();
+                return;
+            }
+            connect();
+        }));
+        return START_STICKY;
+    }
+
+    @Override
+    public void onDestroy() {
+        stopping = true;
+        handler.removeCallbacks(reconnectRunnable);
+        running = null;
+        HLog.d(TAG, "🔴 Collection service destroyed");
+        super.onDestroy();
+    }
+
+    @Override
+    public IBinder onBind(Intent intent) {
+        return null;
+    }
+
+    private void stopCollection() {
+        stopping = true;
+        handler.removeCallbacks(reconnectRunnable);
+        preferences.edit().remove(EXTRA_ADDRESS).remove(EXTRA_METRICS).apply();
+        HBandAndroidManager hband = getManager(this);
+        hband.stopMonitoring();
+        String address = targetAddress;
+        if (address != null) {
+            hband.disconnectDevice(address);
+        }
+        ServiceCompat.stopForeground(this, ServiceCompat.STOP_FOREGROUND_REMOVE);
+        stopSelf();
+    }
+
+    private void connect() {
+        if (stopping) return;
+        HBandAndroidManager hband = getManager(this);
+        if (hband.isDeviceConnected(targetAddress)) {
+            onLinkReady();
+            return;
+        }
+        updateStatus("Connecting");
+        if (!hband.connectDevice(targetAddress)) {
+            scheduleReconnect();
+        }
+    }
+
+    private final Runnable reconnectRunnable = () -> {
+        HBandMetrics.COLLECTION_RECONNECTS.increment();
+        connect();
+    };
+
+    private void scheduleReconnect() {
+        if (stopping) return;
+        handler.removeCallbacks(reconnectRunnable);
+        HLog.d(TAG, "🔁 Reconnecting in " + reconnectDelayMs + " ms");
+        handler.postDelayed(reconnectRunnable, reconnectDelayMs);
+        reconnectDelayMs = Math.min(reconnectDelayMs * 2, RECONNECT_MAX_DELAY_MS);
+    }
+
+    private void onLinkReady() {
+        reconnectDelayMs = RECONNECT_INITIAL_DELAY_MS;
+        HBandAndroidManager hband = getManager(this);
+        // No protocol ships by default: nothing is written to the band until one is installed
+        if (hband.hasHistoryProtocol()) {
+            hband.syncHistory(targetAddress, null);
+        }
+        if (hband.hasLiveProtocol()) {
+            hband.startMonitoring(targetAddress, targetMetrics);
+        }
+        updateStatus("Collecting");
+    }
+
+    private void onLinkLost() {
+        updateStatus("Reconnecting");
+        scheduleReconnect();
+    }
+
+    // Connection events for the target device drive the service; runs on the emitting thread
+    private static void observe(String eventName, Map<String, Object> data) {
+        HBandCollectionService service = running;
+        if (service == null || data == null || !(data.get("address") instanceof String)) return;
+        if (!((String) data.get("address")).equalsIgnoreCase(service.targetAddress)) return;
+        if ("connectionReady".equals(eventName)) {
+            service.handler.post(service::onLinkReady);
+        } else if ("connectionStatusChanged".equals(eventName) && !Boolean.TRUE.equals(data.get("connected"))) {
+            // A known band the manager is already reconnecting in the background needs no retry
+            boolean reconnecting = Boolean.TRUE.equals(data.get("reconnecting"));
+            service.handler.post(reconnecting ? () -> service.updateStatus("Reconnecting") : service::onLinkLost);
+        }
+    }
+
+    private void createChannel() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID, "Health data collection",
+            NotificationManager.IMPORTANCE_LOW);
+        channel.setDescription("Keeps collecting from your band while the app is closed");
+        channel.setShowBadge(false);
+        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager != null) {
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    private Notification buildNotification() {
+        Intent stopIntent = new Intent(this, HBandCollectionService.class);
+        stopIntent.setAction(ACTION_STOP);
+        PendingIntent stop = PendingIntent.getService(this, 1, stopIntent,
+            PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
+            .setContentTitle("XEVOX Health")
+            .setContentText(statusText)
+            .setSmallIcon(android.R.drawable.stat_sys_data_bluetooth)
+            .setOngoing(true)
+            .setOnlyAlertOnce(true)
+            .setShowWhen(false)
+            .setPriority(NotificationCompat.PRIORITY_LOW)
+            .addAction(0, "Stop", stop);
+        Intent launch = getPackageManager().getLaunchIntentForPackage(getPackageName());
+        if (launch != null) {
+            builder.setContentIntent(PendingIntent.getActivity(this, 0, launch,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT));
+        }
+        return builder.build();
+    }
+
+    private void updateStatus(String status) {
+        if (status.equals(statusText)) return;
+        statusText = status;
+        HLog.d(TAG, "📡 " + status + " (" + targetAddress + ")");
+        NotificationManager notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
+        if (notificationManager != null) {
+            notificationManager.notify(NOTIFICATION_ID, buildNotification());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.xevoxmobileapp;
+
+/**
+ * Process-wide metric handles for the BLE, bridge, storage and sync paths
+ * Resolved once here so hot paths record through a static final field.
+ */
+public final class HBandMetrics {
+    public static final MetricsRegistry REGISTRY = new MetricsRegistry();
+
+    // Scanning
+    public static final MetricsRegistry.Counter SCAN_CALLBACKS = REGISTRY.counter("scan.callbacks");
+    public static final MetricsRegistry.Counter SCAN_NEW_DEVICES = REGISTRY.counter("scan.newDevices");
+    public static final MetricsRegistry.Gauge SCAN_QUEUE_DEPTH = REGISTRY.gauge("scan.queueDepth");
+    public static final MetricsRegistry.Gauge SCAN_PENDING_DEVICES = REGISTRY.gauge("scan.pendingDevices");
+
+    // JS bridge
+    public static final MetricsRegistry.Counter EVENTS_EMITTED = REGISTRY.counter("bridge.eventsEmitted");
+    public static final MetricsRegistry.Histogram EMIT_LATENCY = REGISTRY.histogram(
+        "bridge.emitLatency", "us", MetricsRegistry.LATENCY_US_BOUNDS);
+    public static final MetricsRegistry.Counter EVENTS_DETACHED = REGISTRY.counter("bridge.eventsDetached");
+
+    // GATT
+    public static final MetricsRegistry.Histogram GATT_OPERATION_LATENCY = REGISTRY.histogram(
+        "gatt.operationLatency", "us", MetricsRegistry.LATENCY_US_BOUNDS);
+    public static final MetricsRegistry.Counter GATT_OPERATION_FAILURES = REGISTRY.counter("gatt.operationFailures");
+    public static final MetricsRegistry.Gauge GATT_QUEUE_DEPTH = REGISTRY.gauge("gatt.queueDepth");
+    public static final MetricsRegistry.Counter NOTIFICATIONS = REGISTRY.counter("ble.notifications");
+    public static final MetricsRegistry.Counter BYTES_RECEIVED = REGISTRY.counter("ble.bytesReceived");
+    public static final MetricsRegistry.Counter DISCOVERY_SKIPPED = REGISTRY.counter("gatt.discoverySkipped");
+    public static final MetricsRegistry.Histogram RECONNECT_TIME = REGISTRY.histogram(
+        "ble.reconnectTime", "ms", new long[] {
+            100, 200, 300, 500, 750, 1000, 1500, 2000, 3000, 5000, 10000, 30000, 60000, 300000
+        });
+
+    // Storage and sync
+    public static final MetricsRegistry.Counter SAMPLES_STORED = REGISTRY.counter("storage.samplesStored");
+    public static final MetricsRegistry.Histogram HISTORY_SYNC_DURATION = REGISTRY.histogram(
+        "sync.historyDuration", "ms", MetricsRegistry.DURATION_MS_BOUNDS);
+    public static final MetricsRegistry.Histogram UPLOAD_DURATION = REGISTRY.histogram(
+        "sync.uploadDuration", "ms", MetricsRegistry.DURATION_MS_BOUNDS);
+    public static final MetricsRegistry.Counter UPLOAD_BYTES = REGISTRY.counter("sync.uploadBytes");
+    public static final MetricsRegistry.Histogram TRANSFER_DURATION = REGISTRY.histogram(
+        "transfer.duration", "ms", MetricsRegistry.DURATION_MS_BOUNDS);
+
+    // Live sampling and background collection
+    public static final MetricsRegistry.Counter SAMPLING_WAKEUPS = REGISTRY.counter("sampling.wakeups");
+    public static final MetricsRegistry.Counter SAMPLING_POLLS = REGISTRY.counter("sampling.polls");
+    public static final MetricsRegistry.Counter SAMPLING_ALARMS = REGISTRY.counter("sampling.alarms");
+    public static final MetricsRegistry.Counter COLLECTION_RECONNECTS = REGISTRY.counter("collection.reconnects");
+
+    private HBandMetrics() {}
+}
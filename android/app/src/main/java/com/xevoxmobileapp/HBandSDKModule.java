@@ -1,38 +1,402 @@
 package com.xevoxmobileapp;
 
-import android.util.Log;
+import android.util.Base64;
 
-// TODO: Uncomment these when React Native dependencies are properly configured
-// import com.facebook.react.bridge.Arguments;
-// import com.facebook.react.bridge.Promise;
-// import com.facebook.react.bridge.ReactApplicationContext;
-// import com.facebook.react.bridge.ReactContextBaseJavaModule;
-// import com.facebook.react.bridge.ReactMethod;
-// import com.facebook.react.bridge.WritableMap;
-// import com.facebook.react.modules.core.DeviceEventManagerModule;
+import androidx.annotation.Nullable;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.LifecycleEventListener;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
- * HBand SDK Module for React Native Bridge
- * Currently disabled until React Native dependencies are properly configured
+ * HBand SDK TurboModule ("HBandSDK", spec in src/specs/NativeHBandSDK.ts)
+ * A thin adapter over the process-wide HBandAndroidManager shared with the collection
+ * service. Getters that only read native state are synchronous; radio and disk work
+ * resolves a Promise. The manager returns plain maps and lists, converted here. Bulk
+ * reads have *Packed variants that return one base64 PackedColumns buffer instead of
+ * arrays of maps.
  */
-public class HBandSDKModule {
+public class HBandSDKModule extends NativeHBandSDKSpec {
     private static final String TAG = "HBandSDKModule";
-    
-    public HBandSDKModule() {
-        Log.d(TAG, "📝 HBandSDKModule created (React Native bridge disabled)");
-        Log.d(TAG, "💡 Use MainActivity.kt for direct HBand SDK testing");
-    }
-    
-    // TODO: Restore React Native bridge methods when RN dependencies are working
-    /*
-    @ReactMethod
-    public void initialize(Promise promise) {
-        // React Native bridge implementation
-    }
-    
-    @ReactMethod
-    public void startScanDevice(Promise promise) {
-        // React Native bridge implementation
-    }
-    */
-}
\ No newline at end of file
+
+    private final HBandAndroidManager manager;
+    private final ReactEventSink eventSink;
+
+    public HBandSDKModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+        this.manager = HBandCollectionService.getManager(reactContext);
+        this.eventSink = new ReactEventSink(reactContext);
+        HLog.d(TAG, "📝 HBandSDKModule created");
+    }
+
+    @Override
+    public void initialize() {
+        super.initialize();
+        HBandCollectionService.attachEvents(eventSink);
+        getReactApplicationContext().addLifecycleEventListener(lifecycleListener);
+    }
+
+    @Override
+    public void invalidate() {
+        // The JS runtime is going away; collection carries on without it
+        getReactApplicationContext().removeLifecycleEventListener(lifecycleListener);
+        HBandCollectionService.detachEvents(eventSink);
+        super.invalidate();
+    }
+
+    // Grants can only change while the app is in the background (settings, permission dialog)
+    private final LifecycleEventListener lifecycleListener = new LifecycleEventListener() {
+        @Override
+        public void onHostResume() {
+            manager.refreshPermissions();
+        }
+
+        @Override
+        public void onHostPause() {
+        }
+
+        @Override
+        public void onHostDestroy() {
+        }
+    };
+
+    private static List<String> toList(@Nullable ReadableArray array) {
+        List<String> list = new ArrayList<>();
+        if (array == null) return list;
+        for (int i = 0; i < array.size(); i++) {
+            list.add(array.getString(i));
+        }
+        return list;
+    }
+
+    private static String encode(byte[] packed) {
+        return Base64.encodeToString(packed, Base64.NO_WRAP);
+    }
+
+    // Startup
+
+    @Override
+    public void initializeSdk(Promise promise) {
+        manager.initializeAsync().whenComplete((ready, error) -> {
+            if (error != null) {
+                promise.reject("E_INIT", error);
+            } else {
+                promise.resolve(ready);
+            }
+        });
+    }
+
+    @Override
+    public boolean isInitialized() {
+        return manager.isInitialized();
+    }
+
+    @Override
+    public void setLogLevel(String level) {
+        manager.setLogLevel(level);
+    }
+
+    // Scanning
+
+    @Override
+    public void startScan(@Nullable String targetAddress, Promise promise) {
+        promise.resolve(manager.startScan(targetAddress));
+    }
+
+    @Override
+    public void stopScan() {
+        manager.stopScan();
+    }
+
+    @Override
+    public boolean setScanProfile(String profile, double durationMs) {
+        return manager.setScanProfile(profile, (long) durationMs);
+    }
+
+    @Override
+    public void configureDeviceRegistry(double maxDevices, double maxAgeMs, double rssiAlpha) {
+        manager.configureDeviceRegistry((int) maxDevices, (long) maxAgeMs, (float) rssiAlpha);
+    }
+
+    @Override
+    public void configureScanBatching(double flushIntervalMs, double maxBatchSize) {
+        manager.configureScanBatching((long) flushIntervalMs, (int) maxBatchSize);
+    }
+
+    @Override
+    public void setFitnessKeywords(ReadableArray keywords) {
+        manager.setFitnessKeywords(toList(keywords));
+    }
+
+    @Override
+    public boolean isScanning() {
+        return manager.isScanning();
+    }
+
+    @Override
+    public String getScanState() {
+        return manager.getScanState();
+    }
+
+    @Override
+    public String getScanProfile() {
+        return manager.getScanProfile();
+    }
+
+    @Override
+    public WritableArray getNearestDevices(double count, boolean fitnessOnly) {
+        return Arguments.makeNativeArray(manager.getNearestDevices((int) count, fitnessOnly));
+    }
+
+    @Override
+    public WritableMap getScanStats() {
+        return Arguments.makeNativeMap(manager.getScanStats());
+    }
+
+    // Connections
+
+    @Override
+    public void connectDevice(String address, Promise promise) {
+        promise.resolve(manager.connectDevice(address));
+    }
+
+    @Override
+    public void disconnect() {
+        manager.disconnect();
+    }
+
+    @Override
+    public void disconnectDevice(String address) {
+        manager.disconnectDevice(address);
+    }
+
+    @Override
+    public void setMaxConnectedDevices(double maxDevices) {
+        manager.setMaxConnectedDevices((int) maxDevices);
+    }
+
+    @Override
+    public void setAutoReconnect(boolean enabled) {
+        manager.setAutoReconnect(enabled);
+    }
+
+    @Override
+    public void connectKnownDevices(double maxDevices, Promise promise) {
+        promise.resolve(manager.connectKnownDevices((int) maxDevices));
+    }
+
+    @Override
+    public void forgetDevice(String address) {
+        manager.forgetDevice(address);
+    }
+
+    @Override
+    public boolean isBluetoothAvailable() {
+        return manager.isBluetoothAvailable();
+    }
+
+    @Override
+    public boolean isConnected() {
+        return manager.isConnected();
+    }
+
+    @Override
+    public boolean isDeviceConnected(String address) {
+        return manager.isDeviceConnected(address);
+    }
+
+    @Override
+    @Nullable
+    public String getConnectedDeviceAddress() {
+        return manager.getConnectedDeviceAddress();
+    }
+
+    @Override
+    public WritableArray getConnectedDevices() {
+        return Arguments.makeNativeArray(manager.getConnectedDevices());
+    }
+
+    @Override
+    public WritableArray getKnownDevices() {
+        return Arguments.makeNativeArray(manager.getKnownDevices());
+    }
+
+    @Override
+    public WritableMap getReconnectStats() {
+        return Arguments.makeNativeMap(manager.getReconnectStats());
+    }
+
+    // Live samples
+
+    @Override
+    public boolean configureSampleRate(String metric, double maxUpdatesPerSecond, String mode) {
+        return manager.configureSampleRate(metric, (int) maxUpdatesPerSecond, mode);
+    }
+
+    @Override
+    public boolean configureChangeThreshold(String metric, double threshold, double maxSilenceMs) {
+        return manager.configureChangeThreshold(metric, (int) threshold, (long) maxSilenceMs);
+    }
+
+    @Override
+    public boolean hasLiveProtocol() {
+        return manager.hasLiveProtocol();
+    }
+
+    @Override
+    public void startMonitoring(@Nullable String address, @Nullable ReadableArray metrics, Promise promise) {
+        promise.resolve(address != null
+            ? manager.startMonitoring(address, toList(metrics))
+            : manager.startMonitoring(toList(metrics)));
+    }
+
+    @Override
+    public void stopMonitoring() {
+        manager.stopMonitoring();
+    }
+
+    @Override
+    public boolean isMonitoring() {
+        return manager.isMonitoring();
+    }
+
+    @Override
+    public void getMonitoringStats(Promise promise) {
+        promise.resolve(Arguments.makeNativeMap(manager.getMonitoringStats()));
+    }
+
+    @Override
+    public WritableMap getRecentSamples(String metric, double maxCount) {
+        return Arguments.makeNativeMap(manager.getRecentSamples(metric, (int) maxCount));
+    }
+
+    @Override
+    @Nullable
+    public String getRecentSamplesPacked(String metric, double maxCount) {
+        byte[] packed = manager.packRecentSamples(metric, (int) maxCount);
+        return packed != null ? encode(packed) : null;
+    }
+
+    // Stored history and aggregates
+
+    @Override
+    public void queryHealthHistory(String metric, double fromMs, double toMs, double maxSamples, Promise promise) {
+        promise.resolve(Arguments.makeNativeMap(manager.queryHealthHistory(metric, fromMs, toMs, (int) maxSamples)));
+    }
+
+    @Override
+    public void queryHealthHistoryPacked(String metric, double fromMs, double toMs, double maxSamples, Promise promise) {
+        try {
+            promise.resolve(encode(manager.packHealthHistory(metric, fromMs, toMs, (int) maxSamples)));
+        } catch (Exception e) {
+            HLog.e(TAG, "❌ Packed history query failed", e);
+            promise.reject("E_HISTORY", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void getAggregates(String metric, String resolution, double fromMs, double toMs, Promise promise) {
+        promise.resolve(Arguments.makeNativeMap(manager.getAggregates(metric, resolution, fromMs, toMs)));
+    }
+
+    @Override
+    public void getAggregatesPacked(String metric, String resolution, double fromMs, double toMs, Promise promise) {
+        try {
+            promise.resolve(encode(manager.packAggregates(metric, resolution, fromMs, toMs)));
+        } catch (IllegalArgumentException e) {
+            promise.reject("E_ARGUMENT", e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public WritableMap getWindowSummary(String metric, double windowMs) {
+        return Arguments.makeNativeMap(manager.getWindowSummary(metric, windowMs));
+    }
+
+    @Override
+    public void getStorageStats(Promise promise) {
+        promise.resolve(Arguments.makeNativeMap(manager.getStorageStats()));
+    }
+
+    @Override
+    public void syncHistory(@Nullable String address, @Nullable ReadableArray metrics, Promise promise) {
+        List<String> names = metrics != null ? toList(metrics) : null;
+        promise.resolve(address != null ? manager.syncHistory(address, names) : manager.syncHistory(names));
+    }
+
+    // Upload
+
+    @Override
+    public void configureUpload(String baseUrl, String authToken, String userId, String deviceType,
+                                String deviceId, double batchSize, double maxAgeMs) {
+        manager.configureUpload(baseUrl, authToken, userId, deviceType, deviceId, (int) batchSize, maxAgeMs);
+    }
+
+    @Override
+    public void setUploadFormat(String format) {
+        manager.setUploadFormat(format);
+    }
+
+    @Override
+    public void uploadNow() {
+        manager.uploadNow();
+    }
+
+    @Override
+    public WritableMap getUploadStats() {
+        return Arguments.makeNativeMap(manager.getUploadStats());
+    }
+
+    // Background collection
+
+    @Override
+    public void startCollection(String address, @Nullable ReadableArray metrics) {
+        HBandCollectionService.start(getReactApplicationContext(), address, metrics != null ? toList(metrics) : null);
+    }
+
+    @Override
+    public void stopCollection() {
+        HBandCollectionService.stop(getReactApplicationContext());
+    }
+
+    @Override
+    public boolean isCollectionRunning() {
+        return HBandCollectionService.isRunning();
+    }
+
+    @Override
+    public WritableMap getCollectionStats() {
+        return Arguments.makeNativeMap(HBandCollectionService.getStats());
+    }
+
+    // Diagnostics
+
+    @Override
+    public WritableMap getGattStats() {
+        return Arguments.makeNativeMap(manager.getGattStats());
+    }
+
+    @Override
+    public WritableMap getMetrics() {
+        return Arguments.makeNativeMap(manager.getMetrics());
+    }
+
+    // NativeEventEmitter bookkeeping: events are skipped while JS has no listeners
+
+    @Override
+    public void addListener(String eventName) {
+        eventSink.addListeners(1);
+    }
+
+    @Override
+    public void removeListeners(double count) {
+        eventSink.removeListeners((int) count);
+    }
+}
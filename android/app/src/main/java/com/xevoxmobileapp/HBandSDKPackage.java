@@ -1,40 +1,44 @@
 package com.xevoxmobileapp;
 
-import android.util.Log;
+import androidx.annotation.Nullable;
 
-// TODO: Uncomment when React Native dependencies are working
-// import com.facebook.react.ReactPackage;
-// import com.facebook.react.bridge.NativeModule;
-// import com.facebook.react.bridge.ReactApplicationContext;
-// import com.facebook.react.uimanager.ViewManager;
-// import java.util.ArrayList;
-// import java.util.Collections;
-// import java.util.List;
+import com.facebook.react.BaseReactPackage;
+import com.facebook.react.bridge.NativeModule;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.module.model.ReactModuleInfo;
+import com.facebook.react.module.model.ReactModuleInfoProvider;
+
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * HBand SDK Package for React Native
- * Currently disabled until React Native dependencies are properly configured
+ * Registers HBandSDKModule as a TurboModule (created lazily on first JS access)
  */
-public class HBandSDKPackage {
-    private static final String TAG = "HBandSDKPackage";
-    
-    public HBandSDKPackage() {
-        Log.d(TAG, "📝 HBandSDKPackage created (React Native bridge disabled)");
-        Log.d(TAG, "💡 HBand SDK functionality available through HBandAndroidManager");
-    }
-    
-    // TODO: Restore React Native package methods when RN dependencies are working
-    /*
+public class HBandSDKPackage extends BaseReactPackage {
+
+    @Nullable
     @Override
-    public List<NativeModule> createNativeModules(ReactApplicationContext reactContext) {
-        List<NativeModule> modules = new ArrayList<>();
-        modules.add(new HBandSDKModule(reactContext));
-        return modules;
+    public NativeModule getModule(String name, ReactApplicationContext reactContext) {
+        if (HBandSDKModule.NAME.equals(name)) {
+            return new HBandSDKModule(reactContext);
+        }
+        return null;
     }
 
     @Override
-    public List<ViewManager> createViewManagers(ReactApplicationContext reactContext) {
-        return Collections.emptyList();
+    public ReactModuleInfoProvider getReactModuleInfoProvider() {
+        return () -> {
+            Map<String, ReactModuleInfo> modules = new HashMap<>();
+            modules.put(HBandSDKModule.NAME, new ReactModuleInfo(
+                HBandSDKModule.NAME,
+                HBandSDKModule.class.getName(),
+                false, // canOverrideExistingModule
+                false, // needsEagerInit
+                false, // isCxxModule
+                true   // isTurboModule
+            ));
+            return modules;
+        };
     }
-    */
-}
\ No newline at end of file
+}
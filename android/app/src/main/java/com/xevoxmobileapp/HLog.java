@@ -0,0 +1,85 @@
+package com.xevoxmobileapp;
+
+import android.util.Log;
+
+/**
+ * Level-gated logging facade for the native BLE layer
+ * Hot paths wrap their logs in if (HLog.HOT) { ... }. HOT is a build-time literal, so
+ * javac drops the whole block, string concatenation included, from release builds.
+ * Everything else is filtered by a runtime level that JS can raise or lower. Lines go
+ * to android.util.Log unless a Printer is installed (JVM tests and benchmarks).
+ */
+public final class HLog {
+    // Compile-time constant from build.gradle (true in debug, false in release)
+    public static final boolean HOT = BuildConfig.HOT_PATH_LOGS;
+
+    private static volatile int level = BuildConfig.HOT_PATH_LOGS ? Log.DEBUG : Log.INFO;
+
+    /**
+     * Destination of enabled log lines in place of android.util.Log
+     */
+    public interface Printer {
+        void println(int priority, String tag, String message, Throwable error);
+    }
+
+    private static volatile Printer printer;
+
+    private HLog() {}
+
+    /**
+     * Sends log lines to printer instead of android.util.Log (null restores Log)
+     */
+    public static void setPrinter(Printer printer) {
+        HLog.printer = printer;
+    }
+
+    /**
+     * Minimum android.util.Log priority that is written
+     */
+    public static void setLevel(int minimumLevel) {
+        level = minimumLevel;
+    }
+
+    public static int getLevel() {
+        return level;
+    }
+
+    public static boolean isEnabled(int priority) {
+        return priority >= level;
+    }
+
+    public static void d(String tag, String message) {
+        if (Log.DEBUG >= level) println(Log.DEBUG, tag, message, null);
+    }
+
+    public static void i(String tag, String message) {
+        if (Log.INFO >= level) println(Log.INFO, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        if (Log.WARN >= level) println(Log.WARN, tag, message, null);
+    }
+
+    public static void w(String tag, String message, Throwable error) {
+        if (Log.WARN >= level) println(Log.WARN, tag, message, error);
+    }
+
+    public static void e(String tag, String message) {
+        if (Log.ERROR >= level) println(Log.ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        if (Log.ERROR >= level) println(Log.ERROR, tag, message, error);
+    }
+
+    private static void println(int priority, String tag, String message, Throwable error) {
+        Printer current = printer;
+        if (current != null) {
+            current.println(priority, tag, message, error);
+        } else if (error != null) {
+            Log.println(priority, tag, message + '\n' + Log.getStackTraceString(error));
+        } else {
+            Log.println(priority, tag, message);
+        }
+    }
+}
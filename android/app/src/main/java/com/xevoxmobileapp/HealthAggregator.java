@@ -0,0 +1,407 @@
+package com.xevoxmobileapp;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Incremental minute/hour/day aggregates of the device sample stream for dashboards.
+ * Each metric keeps one ring of buckets per resolution (count, sum, min, max per channel,
+ * in flat arrays); a sample updates one bucket per resolution in O(1). Buckets hold only
+ * commutative aggregates, so the result does not depend on arrival order and rebuild()
+ * from the store after a restart reproduces it exactly. Derived values are computed at
+ * query time: step deltas from the device's cumulative daily step counter (bucket max
+ * minus the running max earlier that day) and resting heart rate as the lowest hourly
+ * mean of a day with at least MIN_RESTING_SAMPLES readings. Heart rate keeps hourly
+ * buckets for as many days as the day ring holds, so resting heart rate is known for
+ * every day a DAY series returns, not just the hour ring's last 14.
+ * Buckets follow local time in the zone given at construction, using the offset in force
+ * at each sample's timestamp, so days still start at midnight across DST changes. Rebuilds
+ * are exact for the days the store still retains (90 by default); writers hold
+ * storeLock() across their store append and record() so a rebuild never counts a sample twice.
+ */
+public class HealthAggregator {
+    public static final int MIN_RESTING_SAMPLES = 10;
+
+    private static final long TIME_LIMIT_MS = Long.MAX_VALUE / 4;
+
+    // Handed out for metrics that are not aggregated; nothing ever takes the write side
+    private static final Lock UNTRACKED = new ReentrantReadWriteLock().readLock();
+
+    public enum Resolution {
+        MINUTE("minute", 60_000L, 24 * 60),
+        HOUR("hour", 3_600_000L, 24 * 14),
+        DAY("day", 86_400_000L, 100);
+
+        public final String jsName;
+        public final long widthMs;
+        public final int capacity;
+
+        Resolution(String jsName, long widthMs, int capacity) {
+            this.jsName = jsName;
+            this.widthMs = widthMs;
+            this.capacity = capacity;
+        }
+
+        public static Resolution fromName(String name) {
+            if (name == null) return null;
+            for (Resolution resolution : values()) {
+                if (resolution.jsName.equals(name) || resolution.name().equals(name.toUpperCase(Locale.ROOT))) {
+                    return resolution;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Non-empty buckets of one range, oldest first; per-channel values are interleaved
+     */
+    public static class Series {
+        public final HealthMetric metric;
+        public final Resolution resolution;
+        public final long[] starts;
+        public final long[] counts;
+        public final int[] min;
+        public final int[] max;
+        public final double[] mean;
+        // STEPS only: steps taken within each bucket
+        public final long[] steps;
+        // HEART_RATE at DAY resolution only: resting heart rate, -1 if unknown
+        public final int[] restingHeartRate;
+        public int count;
+
+        Series(HealthMetric metric, Resolution resolution, int capacity) {
+            this.metric = metric;
+            this.resolution = resolution;
+            this.starts = new long[capacity];
+            this.counts = new long[capacity];
+            this.min = new int[capacity * metric.channels];
+            this.max = new int[capacity * metric.channels];
+            this.mean = new double[capacity * metric.channels];
+            this.steps = metric == HealthMetric.STEPS ? new long[capacity] : null;
+            this.restingHeartRate = metric == HealthMetric.HEART_RATE && resolution == Resolution.DAY
+                ? new int[capacity] : null;
+        }
+    }
+
+    /**
+     * Totals over a span (combined from the finest buckets that cover it)
+     */
+    public static class Summary {
+        public final long fromMs;
+        public final long toMs;
+        public final Resolution resolution;
+        public long count;
+        public final int[] min;
+        public final int[] max;
+        public final double[] mean;
+        public long steps;
+
+        Summary(HealthMetric metric, long fromMs, long toMs, Resolution resolution) {
+            this.fromMs = fromMs;
+            this.toMs = toMs;
+            this.resolution = resolution;
+            this.min = new int[metric.channels];
+            this.max = new int[metric.channels];
+            this.mean = new double[metric.channels];
+        }
+    }
+
+    // One ring of buckets; slot = bucket index mod capacity
+    private static final class Ring {
+        final int channels;
+        final int capacity;
+        final long[] index;
+        final long[] count;
+        final long[] sum;
+        final int[] min;
+        final int[] max;
+        long newest = Long.MIN_VALUE;
+
+        Ring(int capacity, int channels) {
+            this.channels = channels;
+            this.capacity = capacity;
+            this.index = new long[capacity];
+            this.count = new long[capacity];
+            this.sum = new long[capacity * channels];
+            this.min = new int[capacity * channels];
+            this.max = new int[capacity * channels];
+            Arrays.fill(index, Long.MIN_VALUE);
+        }
+
+        void add(long bucket, int[] values) {
+            int slot = (int) Math.floorMod(bucket, (long) capacity);
+            long held = index[slot];
+            if (held > bucket) return; // older than the ring reaches
+            int base = slot * channels;
+            if (held != bucket) {
+                index[slot] = bucket;
+                if (bucket > newest) newest = bucket;
+                count[slot] = 0;
+                for (int c = 0; c < channels; c++) {
+                    sum[base + c] = 0;
+                    min[base + c] = Integer.MAX_VALUE;
+                    max[base + c] = Integer.MIN_VALUE;
+                }
+            }
+            count[slot]++;
+            for (int c = 0; c < channels; c++) {
+                int value = values[c];
+                sum[base + c] += value;
+                if (value < min[base + c]) min[base + c] = value;
+                if (value > max[base + c]) max[base + c] = value;
+            }
+        }
+
+        // Slot holding the bucket with samples, or -1
+        int find(long bucket) {
+            int slot = (int) Math.floorMod(bucket, (long) capacity);
+            return index[slot] == bucket && count[slot] > 0 ? slot : -1;
+        }
+
+        void clear() {
+            Arrays.fill(index, Long.MIN_VALUE);
+            newest = Long.MIN_VALUE;
+        }
+    }
+
+    private static final class MetricRings {
+        final Ring[] rings = new Ring[Resolution.values().length];
+        // HEART_RATE only: hourly buckets over the day ring's span, for resting heart rate
+        final Ring restingHours;
+        // Shared by writers across a store append and its record(); exclusive for rebuild()
+        final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+        MetricRings(HealthMetric metric) {
+            for (Resolution resolution : Resolution.values()) {
+                rings[resolution.ordinal()] = new Ring(resolution.capacity, metric.channels);
+            }
+            restingHours = metric == HealthMetric.HEART_RATE
+                ? new Ring(Resolution.DAY.capacity * 24, metric.channels) : null;
+        }
+    }
+
+    private final TimeZone zone;
+    private final Map<HealthMetric, MetricRings> metrics = new EnumMap<>(HealthMetric.class);
+
+    /**
+     * Bucket boundaries are local times in zone
+     */
+    public HealthAggregator(TimeZone zone) {
+        this.zone = (TimeZone) zone.clone();
+        for (HealthMetric metric : HealthMetric.values()) {
+            // Raw accelerometer data is neither stored nor charted
+            if (metric != HealthMetric.ACCELEROMETER) {
+                metrics.put(metric, new MetricRings(metric));
+            }
+        }
+    }
+
+    private long localOf(long timestamp) {
+        return timestamp + zone.getOffset(timestamp);
+    }
+
+    // Inverse of localOf; a local time skipped by a DST jump maps to the instant after the gap
+    private long utcOf(long local) {
+        long guess = local - zone.getOffset(local);
+        return local - zone.getOffset(guess);
+    }
+
+    private long bucketOf(long timestamp, Resolution resolution) {
+        return Math.floorDiv(localOf(timestamp), resolution.widthMs);
+    }
+
+    private long startOf(long bucket, Resolution resolution) {
+        return utcOf(bucket * resolution.widthMs);
+    }
+
+    private static void add(MetricRings target, long local, int[] values) {
+        for (Resolution resolution : Resolution.values()) {
+            target.rings[resolution.ordinal()].add(Math.floorDiv(local, resolution.widthMs), values);
+        }
+        if (target.restingHours != null) {
+            target.restingHours.add(Math.floorDiv(local, Resolution.HOUR.widthMs), values);
+        }
+    }
+
+    /**
+     * Lock to hold around a store append and the record() of the same samples; rebuild()
+     * re-reads the store under the exclusive side, so a sample is counted either by the
+     * rebuild or by its record(), never both
+     */
+    public Lock storeLock(HealthMetric metric) {
+        MetricRings target = metrics.get(metric);
+        return target != null ? target.gate.readLock() : UNTRACKED;
+    }
+
+    /**
+     * Adds one sample to its minute, hour and day buckets
+     */
+    public void record(HealthMetric metric, long timestamp, int[] values) {
+        MetricRings target = metrics.get(metric);
+        if (target == null) return;
+        long local = localOf(timestamp);
+        synchronized (target) {
+            add(target, local, values);
+        }
+    }
+
+    /**
+     * Replaces all aggregates with those of the stored samples the day ring can hold
+     */
+    public void rebuild(TimeSeriesStore store, long now) throws IOException {
+        long from = startOf(bucketOf(now, Resolution.DAY) - Resolution.DAY.capacity + 1, Resolution.DAY);
+        for (Map.Entry<HealthMetric, MetricRings> entry : metrics.entrySet()) {
+            MetricRings target = entry.getValue();
+            // Writers of this metric wait until its rings match the store again
+            target.gate.writeLock().lock();
+            try {
+                synchronized (target) {
+                    for (Ring ring : target.rings) {
+                        ring.clear();
+                    }
+                    if (target.restingHours != null) {
+                        target.restingHours.clear();
+                    }
+                    store.query(entry.getKey(), from, Long.MAX_VALUE,
+                        (timestamp, values) -> add(target, localOf(timestamp), values));
+                }
+            } finally {
+                target.gate.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Non-empty buckets overlapping fromMs <= t < toMs that are still held, at most capacity of them
+     */
+    public Series query(HealthMetric metric, Resolution resolution, long fromMs, long toMs) {
+        MetricRings target = metrics.get(metric);
+        int channels = metric.channels;
+        // Keeps bucket arithmetic clear of overflow for open-ended ranges
+        fromMs = Math.max(fromMs, -TIME_LIMIT_MS);
+        toMs = Math.min(toMs, TIME_LIMIT_MS);
+        if (target == null || toMs <= fromMs) {
+            return new Series(metric, resolution, 0);
+        }
+        synchronized (target) {
+            Ring ring = target.rings[resolution.ordinal()];
+            // Open-ended ranges stop at the newest bucket, and no range reaches past the ring
+            long first = bucketOf(fromMs, resolution);
+            long last = Math.min(bucketOf(toMs - 1, resolution), ring.newest);
+            first = Math.max(first, last - resolution.capacity + 1);
+            if (ring.newest == Long.MIN_VALUE || last < first) {
+                return new Series(metric, resolution, 0);
+            }
+            Series series = new Series(metric, resolution, (int) (last - first + 1));
+            for (long bucket = first; bucket <= last; bucket++) {
+                int slot = ring.find(bucket);
+                if (slot < 0) continue;
+                int out = series.count;
+                series.starts[out] = startOf(bucket, resolution);
+                series.counts[out] = ring.count[slot];
+                for (int c = 0; c < channels; c++) {
+                    series.min[out * channels + c] = ring.min[slot * channels + c];
+                    series.max[out * channels + c] = ring.max[slot * channels + c];
+                    series.mean[out * channels + c] = (double) ring.sum[slot * channels + c] / ring.count[slot];
+                }
+                if (series.steps != null) {
+                    long before = stepsBefore(target, bucket, resolution);
+                    series.steps[out] = Math.max(0, ring.max[slot * channels] - before);
+                }
+                if (series.restingHeartRate != null) {
+                    series.restingHeartRate[out] = restingHeartRate(target, bucket);
+                }
+                series.count++;
+            }
+            return series;
+        }
+    }
+
+    /**
+     * Combined aggregates over fromMs <= t < toMs using the finest resolution whose ring
+     * covers the span; edges are rounded out to whole buckets
+     */
+    public Summary summarize(HealthMetric metric, long fromMs, long toMs) {
+        long span = toMs - fromMs;
+        Resolution resolution = span <= 2 * Resolution.HOUR.widthMs ? Resolution.MINUTE
+            : span <= 3 * Resolution.DAY.widthMs ? Resolution.HOUR
+            : Resolution.DAY;
+        Series series = query(metric, resolution, fromMs, toMs);
+        int channels = metric.channels;
+        Summary summary = new Summary(metric, fromMs, toMs, resolution);
+        double[] sums = new double[channels];
+        for (int c = 0; c < channels; c++) {
+            summary.min[c] = Integer.MAX_VALUE;
+            summary.max[c] = Integer.MIN_VALUE;
+        }
+        for (int i = 0; i < series.count; i++) {
+            summary.count += series.counts[i];
+            for (int c = 0; c < channels; c++) {
+                int at = i * channels + c;
+                summary.min[c] = Math.min(summary.min[c], series.min[at]);
+                summary.max[c] = Math.max(summary.max[c], series.max[at]);
+                sums[c] += series.mean[at] * series.counts[i];
+            }
+            if (series.steps != null) {
+                summary.steps += series.steps[i];
+            }
+        }
+        for (int c = 0; c < channels; c++) {
+            if (summary.count == 0) {
+                summary.min[c] = 0;
+                summary.max[c] = 0;
+            } else {
+                summary.mean[c] = sums[c] / summary.count;
+            }
+        }
+        return summary;
+    }
+
+    // Highest cumulative step count seen earlier on the same day (0 at midnight)
+    private long stepsBefore(MetricRings target, long bucket, Resolution resolution) {
+        if (resolution == Resolution.DAY) return 0;
+        long start = startOf(bucket, resolution);
+        long dayStart = startOf(bucketOf(start, Resolution.DAY), Resolution.DAY);
+        long hour = bucketOf(start, Resolution.HOUR);
+        long best = 0;
+
+        Ring hours = target.rings[Resolution.HOUR.ordinal()];
+        for (long h = bucketOf(dayStart, Resolution.HOUR); h < hour; h++) {
+            int slot = hours.find(h);
+            if (slot >= 0) best = Math.max(best, hours.max[slot]);
+        }
+        if (resolution == Resolution.MINUTE) {
+            Ring minutes = target.rings[Resolution.MINUTE.ordinal()];
+            for (long m = bucketOf(startOf(hour, Resolution.HOUR), Resolution.MINUTE); m < bucket; m++) {
+                int slot = minutes.find(m);
+                if (slot >= 0) best = Math.max(best, minutes.max[slot]);
+            }
+        }
+        return best;
+    }
+
+    // Lowest hourly mean of the day among hours with enough readings, -1 if none
+    private int restingHeartRate(MetricRings target, long day) {
+        Ring hours = target.restingHours;
+        long firstHour = bucketOf(startOf(day, Resolution.DAY), Resolution.HOUR);
+        double lowest = Double.MAX_VALUE;
+        for (long h = firstHour; h < firstHour + 24; h++) {
+            int slot = hours.find(h);
+            if (slot >= 0 && hours.count[slot] >= MIN_RESTING_SAMPLES) {
+                lowest = Math.min(lowest, (double) hours.sum[slot] / hours.count[slot]);
+            }
+        }
+        return lowest == Double.MAX_VALUE ? -1 : (int) Math.round(lowest);
+    }
+
+    public TimeZone getTimeZone() {
+        return (TimeZone) zone.clone();
+    }
+}
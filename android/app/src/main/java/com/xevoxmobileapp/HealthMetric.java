@@ -0,0 +1,40 @@
+package com.xevoxmobileapp;
+
+import java.util.Locale;
+
+/**
+ * Health metrics produced by the wearable
+ * channels is the number of values per sample (e.g. systolic/diastolic, x/y/z);
+ * compact metrics fit in 16 bits per value.
+ */
+public enum HealthMetric {
+    HEART_RATE("heartRate", 1, false),
+    SPO2("spo2", 1, false),
+    STEPS("steps", 1, false),
+    BLOOD_PRESSURE("bloodPressure", 2, false),
+    SLEEP("sleep", 1, false),
+    ACCELEROMETER("accelerometer", 3, true);
+
+    public final String jsName;
+    public final int channels;
+    public final boolean compact;
+
+    HealthMetric(String jsName, int channels, boolean compact) {
+        this.jsName = jsName;
+        this.channels = channels;
+        this.compact = compact;
+    }
+
+    /**
+     * Accepts the JS name ("heartRate") or the enum name ("HEART_RATE"); null if unknown
+     */
+    public static HealthMetric fromName(String name) {
+        if (name == null) return null;
+        for (HealthMetric metric : values()) {
+            if (metric.jsName.equals(name) || metric.name().equals(name.toUpperCase(Locale.ROOT))) {
+                return metric;
+            }
+        }
+        return null;
+    }
+}
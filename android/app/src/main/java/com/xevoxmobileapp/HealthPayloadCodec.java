@@ -0,0 +1,231 @@
+package com.xevoxmobileapp;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoders for the batch upload payloads HealthUploadPipeline posts, gzipped, to
+ * /api/sync-health-data/batch. This is a new backend contract: the JS client's
+ * /api/sync-health-data takes one reading in a data{...} envelope and is not used here.
+ * JSON keeps that envelope's user_id, device_type, device_id, timestamp and isRealData
+ * fields but carries samples as metrics{name: {channels, timestamps[], values[]}}, values
+ * row-major by channel. The binary format is columnar per metric:
+ *
+ *   "HBC1" | header: user_id, device_type, device_id (varint length + UTF-8), createdAt
+ *   varint metricCount, then per metric:
+ *     metric name | varint channels | varint count
+ *     timestamps: first absolute, then deltas (zigzag varints)
+ *     one column per channel: first absolute, then deltas (zigzag varints)
+ *
+ * Minute-level samples cost about 4 bytes each before gzip, against ~18 in JSON.
+ */
+public final class HealthPayloadCodec {
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String BINARY_CONTENT_TYPE = "application/x-hband-columnar";
+
+    private static final int MAGIC = 0x48424331; // "HBC1"
+
+    /**
+     * Fields shared by every metric in one payload
+     */
+    public static final class Header {
+        public final String userId;
+        public final String deviceType;
+        public final String deviceId;
+        public final long createdAt;
+
+        public Header(String userId, String deviceType, String deviceId, long createdAt) {
+            this.userId = userId;
+            this.deviceType = deviceType;
+            this.deviceId = deviceId;
+            this.createdAt = createdAt;
+        }
+    }
+
+    /**
+     * A decoded binary payload
+     */
+    public static final class Payload {
+        public final Header header;
+        public final List<TimeSeriesStore.SampleBatch> batches;
+
+        Payload(Header header, List<TimeSeriesStore.SampleBatch> batches) {
+            this.header = header;
+            this.batches = batches;
+        }
+    }
+
+    private HealthPayloadCodec() {}
+
+    public static byte[] encodeJson(Header header, List<TimeSeriesStore.SampleBatch> batches) {
+        StringBuilder json = new StringBuilder(64 + sampleCount(batches) * 24);
+        json.append("{\"user_id\":");
+        appendString(json, header.userId);
+        json.append(",\"device_type\":");
+        appendString(json, header.deviceType);
+        json.append(",\"device_id\":");
+        appendString(json, header.deviceId);
+        json.append(",\"timestamp\":").append(header.createdAt);
+        json.append(",\"isRealData\":true,\"metrics\":{");
+        for (int b = 0; b < batches.size(); b++) {
+            TimeSeriesStore.SampleBatch batch = batches.get(b);
+            if (b > 0) json.append(',');
+            appendString(json, batch.metric.jsName);
+            json.append(":{\"channels\":").append(batch.metric.channels).append(",\"timestamps\":[");
+            for (int i = 0; i < batch.count; i++) {
+                if (i > 0) json.append(',');
+                json.append(batch.timestamps[i]);
+            }
+            json.append("],\"values\":[");
+            int valueCount = batch.count * batch.metric.channels;
+            for (int i = 0; i < valueCount; i++) {
+                if (i > 0) json.append(',');
+                json.append(batch.values[i]);
+            }
+            json.append("]}");
+        }
+        json.append("}}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    public static byte[] encodeBinary(Header header, List<TimeSeriesStore.SampleBatch> batches) {
+        // Worst case per sample is one varint per column
+        int capacity = 64 + stringBound(header.userId) + stringBound(header.deviceType) + stringBound(header.deviceId);
+        for (TimeSeriesStore.SampleBatch batch : batches) {
+            capacity += 32 + batch.count * (batch.metric.channels + 1) * VarintCodec.MAX_VARLONG_BYTES;
+        }
+        byte[] out = new byte[capacity];
+
+        ByteBuffer.wrap(out).putInt(MAGIC);
+        int offset = 4;
+        offset = writeString(out, offset, header.userId);
+        offset = writeString(out, offset, header.deviceType);
+        offset = writeString(out, offset, header.deviceId);
+        offset = VarintCodec.writeSignedVarLong(out, offset, header.createdAt);
+        offset = VarintCodec.writeVarLong(out, offset, batches.size());
+
+        for (TimeSeriesStore.SampleBatch batch : batches) {
+            int channels = batch.metric.channels;
+            offset = writeString(out, offset, batch.metric.jsName);
+            offset = VarintCodec.writeVarLong(out, offset, channels);
+            offset = VarintCodec.writeVarLong(out, offset, batch.count);
+
+            long previous = 0;
+            for (int i = 0; i < batch.count; i++) {
+                offset = VarintCodec.writeSignedVarLong(out, offset, batch.timestamps[i] - previous);
+                previous = batch.timestamps[i];
+            }
+            for (int c = 0; c < channels; c++) {
+                long previousValue = 0;
+                for (int i = 0; i < batch.count; i++) {
+                    int value = batch.values[i * channels + c];
+                    offset = VarintCodec.writeSignedVarLong(out, offset, value - previousValue);
+                    previousValue = value;
+                }
+            }
+        }
+        return Arrays.copyOf(out, offset);
+    }
+
+    /**
+     * Decodes a binary payload; throws IllegalArgumentException if it is malformed
+     */
+    public static Payload decodeBinary(byte[] bytes) {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        try {
+            if (in.getInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a columnar health payload");
+            }
+            Header header = new Header(readString(in), readString(in), readString(in), VarintCodec.readSignedVarLong(in));
+            int metricCount = readLength(in);
+            List<TimeSeriesStore.SampleBatch> batches = new ArrayList<>(metricCount);
+            for (int m = 0; m < metricCount; m++) {
+                String name = readString(in);
+                HealthMetric metric = HealthMetric.fromName(name);
+                int channels = readLength(in);
+                if (metric == null || channels != metric.channels) {
+                    throw new IllegalArgumentException("Unknown metric " + name + "/" + channels);
+                }
+                int count = readLength(in);
+                TimeSeriesStore.SampleBatch batch = new TimeSeriesStore.SampleBatch(metric, count);
+                long timestamp = 0;
+                for (int i = 0; i < count; i++) {
+                    timestamp += VarintCodec.readSignedVarLong(in);
+                    batch.timestamps[i] = timestamp;
+                }
+                for (int c = 0; c < channels; c++) {
+                    long value = 0;
+                    for (int i = 0; i < count; i++) {
+                        value += VarintCodec.readSignedVarLong(in);
+                        batch.values[i * channels + c] = (int) value;
+                    }
+                }
+                batch.count = count;
+                batches.add(batch);
+            }
+            return new Payload(header, batches);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated payload", e);
+        }
+    }
+
+    // Strings are varint(length + 1) + UTF-8, with 0 meaning null
+    private static int writeString(byte[] out, int offset, String value) {
+        if (value == null) {
+            return VarintCodec.writeVarLong(out, offset, 0);
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        offset = VarintCodec.writeVarLong(out, offset, utf8.length + 1);
+        System.arraycopy(utf8, 0, out, offset, utf8.length);
+        return offset + utf8.length;
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readLength(in);
+        if (length == 0) return null;
+        byte[] utf8 = new byte[length - 1];
+        in.get(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static int readLength(ByteBuffer in) {
+        long length = VarintCodec.readVarLong(in);
+        if (length < 0 || length > in.capacity()) {
+            throw new IllegalArgumentException("Bad length " + length);
+        }
+        return (int) length;
+    }
+
+    private static int stringBound(String value) {
+        return value == null ? 1 : VarintCodec.MAX_VARLONG_BYTES + value.length() * 3;
+    }
+
+    static int sampleCount(List<TimeSeriesStore.SampleBatch> batches) {
+        int total = 0;
+        for (TimeSeriesStore.SampleBatch batch : batches) total += batch.count;
+        return total;
+    }
+}
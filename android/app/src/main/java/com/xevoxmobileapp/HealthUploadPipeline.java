@@ -0,0 +1,414 @@
+package com.xevoxmobileapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Batched upload of stored health samples to the backend
+ * Drains the TimeSeriesStore from each metric's durable checkpoint, coalescing up to
+ * batchSize samples (or whatever accumulated within maxAgeMs) into one gzipped POST,
+ * either JSON or the columnar binary format of HealthPayloadCodec.
+ * Checkpoints only move after a 2xx, and every batch carries an idempotency key derived
+ * from its sample ranges, so a retried batch is recognisable server-side. Backfilled history
+ * is sent as its own gap range rather than by rewinding the checkpoint. Failures back
+ * off exponentially with jitter. Plain Java so it can run against a local HTTP server.
+ */
+public class HealthUploadPipeline {
+    public static final String DEFAULT_ENDPOINT = "/api/sync-health-data/batch";
+    public static final int DEFAULT_BATCH_SIZE = 2000;
+    public static final long DEFAULT_MAX_AGE_MS = TimeUnit.MINUTES.toMillis(15);
+
+    static final long BACKOFF_BASE_MS = 5000;
+    static final long BACKOFF_MAX_MS = TimeUnit.MINUTES.toMillis(15);
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    // Metrics drained by the pipeline; raw accelerometer data is not persisted
+    private static final HealthMetric[] UPLOADED_METRICS = {
+        HealthMetric.HEART_RATE, HealthMetric.SPO2, HealthMetric.STEPS,
+        HealthMetric.BLOOD_PRESSURE, HealthMetric.SLEEP
+    };
+
+    /**
+     * Upload outcomes, delivered on the upload thread
+     */
+    public interface Listener {
+        void onUploaded(int samples, int rawBytes, int sentBytes);
+        void onUploadFailed(int httpStatus, String error, long retryInMs);
+    }
+
+    private final TimeSeriesStore store;
+    private final UploadCheckpointStore checkpoints;
+    private final ScheduledExecutorService executor;
+    private final Random random = new Random();
+    private volatile Listener listener;
+
+    // Configuration
+    private volatile String baseUrl;
+    private volatile String endpoint = DEFAULT_ENDPOINT;
+    private volatile String authToken;
+    private volatile String userId;
+    private volatile String deviceType;
+    private volatile String deviceId;
+    private volatile int batchSize = DEFAULT_BATCH_SIZE;
+    private volatile long maxAgeMs = DEFAULT_MAX_AGE_MS;
+    private volatile boolean useBinary = false;
+    private volatile boolean binaryRejected = false;
+
+    // Scheduling state, only touched on the upload thread
+    private ScheduledFuture<?> scheduled;
+    private long scheduledAt = Long.MAX_VALUE;
+    private long backoffUntil = 0;
+    private int consecutiveFailures = 0;
+    private boolean authRejected = false;
+
+    private final AtomicLong pendingSamples = new AtomicLong();
+
+    // Stats
+    private final AtomicLong batchesSent = new AtomicLong();
+    private final AtomicLong samplesSent = new AtomicLong();
+    private final AtomicLong rawBytes = new AtomicLong();
+    private final AtomicLong sentBytes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile long lastSuccessAt = 0;
+    private volatile String lastError;
+
+    public HealthUploadPipeline(TimeSeriesStore store, File checkpointFile) {
+        this.store = store;
+        this.checkpoints = new UploadCheckpointStore(checkpointFile);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandUpload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Sets the backend and identity; starts draining any backlog right away
+     */
+    public void configure(String baseUrl, String authToken, String userId, String deviceType, String deviceId) {
+        this.baseUrl = baseUrl;
+        this.authToken = authToken;
+        this.userId = userId;
+        this.deviceType = deviceType;
+        this.deviceId = deviceId;
+        executor.execute(() -> {
+            authRejected = false;
+            backoffUntil = 0;
+            consecutiveFailures = 0;
+            schedule(0);
+        });
+    }
+
+    public void setEndpoint(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    /**
+     * Upload once batchSize samples are pending, or maxAgeMs after the first pending sample
+     */
+    public void setBatching(int batchSize, long maxAgeMs) {
+        this.batchSize = Math.max(1, batchSize);
+        this.maxAgeMs = Math.max(0, maxAgeMs);
+    }
+
+    /**
+     * Sends the columnar binary format instead of JSON; a 415 reply falls back to JSON
+     */
+    public void setBinaryPayload(boolean useBinary) {
+        this.useBinary = useBinary;
+        this.binaryRejected = false;
+    }
+
+    public boolean isSendingBinary() {
+        return useBinary && !binaryRejected;
+    }
+
+    public boolean isConfigured() {
+        return baseUrl != null && authToken != null;
+    }
+
+    /**
+     * Called after samples were persisted; arms the size or age trigger
+     */
+    public void onSamplesStored(int count) {
+        long pending = pendingSamples.addAndGet(count);
+        if (!isConfigured()) return;
+        long delay = pending >= batchSize ? 0 : maxAgeMs;
+        executor.execute(() -> schedule(delay));
+    }
+
+    /**
+     * Uploads whatever is pending now, skipping any backoff (e.g. connectivity came back)
+     */
+    public void uploadNow() {
+        executor.execute(() -> {
+            backoffUntil = 0;
+            schedule(0);
+        });
+    }
+
+    /**
+     * Uploads history backfilled into [fromTimestamp, toTimestamp) below the checkpoint;
+     * samples already acknowledged outside that range are not sent again
+     */
+    public void backfill(HealthMetric metric, long fromTimestamp, long toTimestamp) {
+        executor.execute(() -> {
+            try {
+                checkpoints.addGap(metric, fromTimestamp, toTimestamp);
+                schedule(0);
+            } catch (IOException e) {
+                lastError = e.getMessage();
+            }
+        });
+    }
+
+    public long getCheckpoint(HealthMetric metric) {
+        return checkpoints.get(metric);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Keeps the earliest requested run, never earlier than the current backoff
+    private void schedule(long delayMs) {
+        if (authRejected) return;
+        long now = System.currentTimeMillis();
+        long at = Math.max(now + delayMs, backoffUntil);
+        if (scheduled != null && scheduledAt <= at) return;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+        scheduledAt = at;
+        scheduled = executor.schedule(this::drain, at - now, TimeUnit.MILLISECONDS);
+    }
+
+    private void drain() {
+        scheduled = null;
+        scheduledAt = Long.MAX_VALUE;
+        if (!isConfigured()) return;
+
+        List<TimeSeriesStore.SampleBatch> batches = new ArrayList<>();
+        long[] nextCheckpoints = new long[UPLOADED_METRICS.length];
+        boolean[] fromGap = new boolean[UPLOADED_METRICS.length];
+        int total = 0;
+        boolean more = false;
+        try {
+            store.flush();
+            int limit = batchSize;
+            for (int i = 0; i < UPLOADED_METRICS.length && total < limit; i++) {
+                HealthMetric metric = UPLOADED_METRICS[i];
+                int wanted = limit - total;
+                // A backfilled gap goes first; the samples after the checkpoint follow in a later batch
+                long gapStart = checkpoints.getGapStart(metric);
+                boolean gap = gapStart < Long.MAX_VALUE;
+                long from = gap ? gapStart : checkpoints.get(metric);
+                long to = gap ? checkpoints.getGapEnd(metric) : Long.MAX_VALUE;
+                // One extra sample tells whether the cut falls inside a run of equal timestamps
+                TimeSeriesStore.SampleBatch batch = store.queryOldest(metric, from, to, wanted + 1);
+                if (batch.count > wanted) {
+                    more = true;
+                    trimToLimit(batch, wanted);
+                }
+                if (gap) {
+                    more = true;
+                    if (batch.count == 0) {
+                        checkpoints.advanceGap(metric, to);
+                        continue;
+                    }
+                }
+                if (batch.count == 0) continue;
+                fromGap[batches.size()] = gap;
+                nextCheckpoints[batches.size()] = batch.timestamps[batch.count - 1] + 1;
+                batches.add(batch);
+                total += batch.count;
+            }
+        } catch (IOException e) {
+            fail(0, "Store read failed: " + e.getMessage());
+            return;
+        }
+
+        if (total == 0) {
+            pendingSamples.set(0);
+            if (more) {
+                schedule(0);
+            }
+            return;
+        }
+
+        boolean binary = useBinary && !binaryRejected;
+        HealthPayloadCodec.Header header = new HealthPayloadCodec.Header(userId, deviceType, deviceId, System.currentTimeMillis());
+        byte[] body = binary
+            ? HealthPayloadCodec.encodeBinary(header, batches)
+            : HealthPayloadCodec.encodeJson(header, batches);
+        int status;
+        byte[] compressed;
+        try {
+            compressed = gzip(body);
+            long postStart = System.nanoTime();
+            status = post(compressed, binary ? HealthPayloadCodec.BINARY_CONTENT_TYPE : HealthPayloadCodec.JSON_CONTENT_TYPE,
+                idempotencyKey(batches));
+            HBandMetrics.UPLOAD_DURATION.record((System.nanoTime() - postStart) / 1000000);
+            HBandMetrics.UPLOAD_BYTES.add(compressed.length);
+        } catch (IOException e) {
+            fail(0, e.getMessage());
+            return;
+        }
+
+        if (status >= 200 && status < 300) {
+            try {
+                for (int i = 0; i < batches.size(); i++) {
+                    if (fromGap[i]) {
+                        checkpoints.advanceGap(batches.get(i).metric, nextCheckpoints[i]);
+                    } else {
+                        checkpoints.advance(batches.get(i).metric, nextCheckpoints[i]);
+                    }
+                }
+            } catch (IOException e) {
+                // The server has the batch; the retry is deduplicated by its idempotency key
+                fail(status, "Checkpoint write failed: " + e.getMessage());
+                return;
+            }
+            consecutiveFailures = 0;
+            backoffUntil = 0;
+            batchesSent.incrementAndGet();
+            samplesSent.addAndGet(total);
+            rawBytes.addAndGet(body.length);
+            sentBytes.addAndGet(compressed.length);
+            lastSuccessAt = System.currentTimeMillis();
+            pendingSamples.updateAndGet(pending -> Math.max(0, pending - HealthPayloadCodec.sampleCount(batches)));
+            Listener current = listener;
+            if (current != null) {
+                current.onUploaded(total, body.length, compressed.length);
+            }
+            if (more) {
+                schedule(0);
+            }
+        } else if (status == 401 || status == 403) {
+            // Retrying cannot help until JS supplies a fresh token
+            authRejected = true;
+            fail(status, "Authentication rejected");
+        } else if (status == 415 && binary) {
+            // Backend does not speak the columnar format; fall back to JSON for this session
+            binaryRejected = true;
+            schedule(0);
+        } else if (status == 413 && batchSize > 1) {
+            batchSize = Math.max(1, batchSize / 2);
+            schedule(0);
+        } else {
+            fail(status, "HTTP " + status);
+        }
+    }
+
+    /**
+     * Cuts a batch to limit samples without splitting samples that share a timestamp,
+     * so the checkpoint never lands between them
+     */
+    private static void trimToLimit(TimeSeriesStore.SampleBatch batch, int limit) {
+        int end = limit;
+        long boundary = batch.timestamps[limit];
+        while (end > 0 && batch.timestamps[end - 1] == boundary) end--;
+        // A run longer than the whole batch is sent in one go rather than never
+        batch.count = end > 0 ? end : limit;
+    }
+
+    private void fail(int httpStatus, String error) {
+        failures.incrementAndGet();
+        lastError = error;
+        long retryIn = -1;
+        if (!authRejected) {
+            // Equal jitter: half the exponential step plus a random half
+            long step = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << Math.min(consecutiveFailures, 16));
+            retryIn = step / 2 + (long) (random.nextDouble() * (step / 2));
+            consecutiveFailures++;
+            backoffUntil = System.currentTimeMillis() + retryIn;
+            schedule(retryIn);
+        }
+        Listener current = listener;
+        if (current != null) {
+            current.onUploadFailed(httpStatus, error, retryIn);
+        }
+    }
+
+    private String idempotencyKey(List<TimeSeriesStore.SampleBatch> batches) {
+        StringBuilder key = new StringBuilder(deviceId != null ? deviceId : "");
+        for (TimeSeriesStore.SampleBatch batch : batches) {
+            key.append('|').append(batch.metric.jsName)
+                .append('@').append(batch.timestamps[0])
+                .append('-').append(batch.timestamps[batch.count - 1])
+                .append('#').append(batch.count);
+        }
+        return UUID.nameUUIDFromBytes(key.toString().getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    private int post(byte[] body, String contentType, String idempotencyKey) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(baseUrl + endpoint).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            connection.setRequestProperty("Content-Type", contentType);
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            connection.setRequestProperty("Authorization", "Bearer " + authToken);
+            connection.setRequestProperty("Idempotency-Key", idempotencyKey);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            // Drain the response so the connection can be reused
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                try (InputStream response = in) {
+                    byte[] discard = new byte[1024];
+                    while (response.read(discard) != -1) { }
+                }
+            }
+            return status;
+        } catch (IOException e) {
+            // Only a broken connection is torn down; a drained one goes back to the keep-alive pool
+            connection.disconnect();
+            throw e;
+        }
+    }
+
+    // Stats
+    public long getBatchesSent() { return batchesSent.get(); }
+    public long getSamplesSent() { return samplesSent.get(); }
+    public long getRawBytes() { return rawBytes.get(); }
+    public long getSentBytes() { return sentBytes.get(); }
+    public long getFailures() { return failures.get(); }
+    public long getPendingSamples() { return pendingSamples.get(); }
+    public long getLastSuccessAt() { return lastSuccessAt; }
+    public String getLastError() { return lastError; }
+}
@@ -0,0 +1,198 @@
+package com.xevoxmobileapp;
+
+import android.os.Process;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Parallel decode stage for large history backlogs
+ * Raw history notifications are decoded on a small background-priority pool as soon as
+ * they arrive, and the decoded blocks are handed back strictly in arrival order, so the
+ * sync session sees the same sequence as if it had decoded them itself. Only protocols
+ * whose notifications decode on their own (HistoryProtocol.decodesIndependently) go
+ * through here. The pool leaves a core free and runs below the live path, and a full
+ * queue makes the submitting thread decode the block itself.
+ */
+public class HistoryBacklogIngestor {
+    public static final int DEFAULT_WORKERS =
+        Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    private static final int QUEUED_BLOCKS_PER_WORKER = 64;
+
+    /**
+     * Records decoded from one notification, plus the control signals it carried
+     */
+    public static final class Block {
+        public final HealthMetric metric;
+        public final long sequence;
+        public long[] timestamps = new long[16];
+        public int[] values;
+        public int count;
+        public int expectedRecords = -1;
+        public boolean complete;
+        // The notification could not be decoded; count is 0
+        public boolean failed;
+
+        Block(HealthMetric metric, long sequence) {
+            this.metric = metric;
+            this.sequence = sequence;
+            this.values = new int[16 * metric.channels];
+        }
+
+        void add(long timestamp, int[] record) {
+            int channels = metric.channels;
+            if (count == timestamps.length) {
+                timestamps = Arrays.copyOf(timestamps, count * 2);
+                values = Arrays.copyOf(values, count * 2 * channels);
+            }
+            timestamps[count] = timestamp;
+            System.arraycopy(record, 0, values, count * channels, channels);
+            count++;
+        }
+    }
+
+    /**
+     * Receives decoded blocks in submission order, one at a time
+     */
+    public interface Output {
+        void onBlock(Block block);
+    }
+
+    private final int workers;
+    private final ThreadPoolExecutor pool;
+
+    public HistoryBacklogIngestor(int workers) {
+        this.workers = Math.max(1, workers);
+        AtomicInteger threadCount = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(this.workers, this.workers, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(this.workers * QUEUED_BLOCKS_PER_WORKER),
+            runnable -> {
+                Thread thread = new Thread(() -> {
+                    // Backlog decoding must never compete with live samples and the UI
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runnable.run();
+                }, "HBandBacklog-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+        this.pool.allowCoreThreadTimeOut(true);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * One ordered stream of blocks; output runs on deliverTo (a single-thread executor)
+     */
+    public Stream open(HistoryProtocol protocol, Executor deliverTo, Output output) {
+        return new Stream(protocol, deliverTo, output);
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public final class Stream {
+        private final HistoryProtocol protocol;
+        private final Executor deliverTo;
+        private final Output output;
+        // Blocks decoded ahead of an earlier one still in a worker
+        private final Map<Long, Block> reorder = new HashMap<>();
+        private long nextSequence = 0;
+        private long nextRelease = 0;
+
+        Stream(HistoryProtocol protocol, Executor deliverTo, Output output) {
+            this.protocol = protocol;
+            this.deliverTo = deliverTo;
+            this.output = output;
+        }
+
+        /**
+         * Queues one raw notification of metric; call from a single thread
+         */
+        public void submit(HealthMetric metric, byte[] value) {
+            Block block = new Block(metric, nextSequence++);
+            pool.execute(() -> {
+                decode(block, value);
+                release(block);
+            });
+        }
+
+        private void decode(Block block, byte[] value) {
+            try {
+                protocol.onNotification(block.metric, value, new HistoryProtocol.Receiver() {
+                    @Override
+                    public void onExpectedRecords(int count) {
+                        block.expectedRecords = count;
+                    }
+
+                    @Override
+                    public void onRecord(long timestamp, int[] values) {
+                        block.add(timestamp, values);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        block.complete = true;
+                    }
+                });
+            } catch (RuntimeException e) {
+                // The session fails the metric, so the watermark stays below the lost records
+                block.count = 0;
+                block.failed = true;
+            }
+        }
+
+        // Hands blocks on in sequence; holding the lock keeps the executor's order too
+        private synchronized void release(Block block) {
+            reorder.put(block.sequence, block);
+            Block next;
+            while ((next = reorder.remove(nextRelease)) != null) {
+                nextRelease++;
+                Block ready = next;
+                try {
+                    deliverTo.execute(() -> output.onBlock(ready));
+                } catch (RejectedExecutionException e) {
+                    // The session was shut down; its remaining blocks have nowhere to go
+                    reorder.clear();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sorts count records (values row-major by channel) by timestamp, stably; blocks are
+     * usually already in order, which is checked first
+     */
+    public static void sortByTimestamp(long[] timestamps, int[] values, int count, int channels) {
+        boolean sorted = true;
+        for (int i = 1; i < count && sorted; i++) {
+            sorted = timestamps[i - 1] <= timestamps[i];
+        }
+        if (sorted) return;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+        long[] sortedTimestamps = new long[count];
+        int[] sortedValues = new int[count * channels];
+        for (int i = 0; i < count; i++) {
+            int from = order[i];
+            sortedTimestamps[i] = timestamps[from];
+            System.arraycopy(values, from * channels, sortedValues, i * channels, channels);
+        }
+        System.arraycopy(sortedTimestamps, 0, timestamps, 0, count);
+        System.arraycopy(sortedValues, 0, values, 0, count * channels);
+    }
+}
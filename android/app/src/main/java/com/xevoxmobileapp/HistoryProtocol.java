@@ -0,0 +1,38 @@
+package com.xevoxmobileapp;
+
+/**
+ * Device-side history commands for one wearable protocol
+ * Adapts the vendor's "read history" commands (vpprotocol for HBand/Veepoo bands) to
+ * HistorySyncSession: it builds the request for records newer than a watermark and
+ * decodes the notifications that carry the answer.
+ */
+public interface HistoryProtocol {
+
+    /**
+     * Receives what the protocol decoded from one notification
+     */
+    interface Receiver {
+        // Total records the device announced for the current request, if it does
+        void onExpectedRecords(int count);
+        void onRecord(long timestamp, int[] values);
+        void onComplete();
+    }
+
+    boolean supports(HealthMetric metric);
+
+    /**
+     * Command asking the device for records of metric with timestamp > afterTimestamp
+     * (Long.MIN_VALUE means everything the device holds)
+     */
+    byte[] buildReadRequest(HealthMetric metric, long afterTimestamp);
+
+    void onNotification(HealthMetric metric, byte[] value, Receiver receiver);
+
+    /**
+     * Each notification of metric decodes on its own (no state carried between them), so
+     * notifications may be decoded concurrently on HistoryBacklogIngestor's pool
+     */
+    default boolean decodesIndependently(HealthMetric metric) {
+        return false;
+    }
+}
@@ -0,0 +1,452 @@
+package com.xevoxmobileapp;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Incremental pull of device-side history, one metric at a time
+ * Each (device, metric) pair has a persisted watermark: every record up to it is stored
+ * locally. A sync asks the device only for newer records and commits every few hundred
+ * records, so a link drop mid-transfer resumes close to where it stopped instead of
+ * re-reading days of data. Devices do not always send in timestamp order, so records are
+ * held in a pending buffer and a commit only stores (in order) and marks the contiguous
+ * prefix below the lowest timestamp of the latest run; the rest waits for later runs, and
+ * is pulled again if the link drops first. With a HistoryBacklogIngestor, notifications of
+ * independently decodable metrics are decoded in parallel. A notification that cannot be
+ * decoded fails its metric: nothing more is stored or marked for it until the next sync.
+ * A device that goes silent mid-answer fails its metric the same way, after storing the
+ * contiguous prefix as a dropped link does. Work runs on one thread; callers may invoke it from any thread.
+ */
+public class HistorySyncSession {
+    private static final String TAG = "HistorySyncSession";
+
+    public static final int COMMIT_EVERY_RECORDS = 256;
+    public static final long FRAME_TIMEOUT_MS = 10000;
+    private static final long PROGRESS_INTERVAL_MS = 250;
+
+    /**
+     * Sends a command to the device's write characteristic
+     */
+    public interface CommandSender {
+        boolean send(byte[] command);
+    }
+
+    /**
+     * Destination of pulled records; flush() must make them durable
+     */
+    public interface RecordSink {
+        void onRecord(HealthMetric metric, long timestamp, int[] values);
+        void flush() throws IOException;
+
+        /**
+         * A run of records in timestamp order (values row-major by channel)
+         */
+        default void onRecords(HealthMetric metric, long[] timestamps, int[] values, int count) throws IOException {
+            int channels = metric.channels;
+            int[] record = new int[channels];
+            for (int i = 0; i < count; i++) {
+                System.arraycopy(values, i * channels, record, 0, channels);
+                onRecord(metric, timestamps[i], record);
+            }
+        }
+    }
+
+    /**
+     * Session events, delivered on the sync thread
+     */
+    public interface Listener {
+        void onProgress(Progress progress);
+        void onMetricComplete(HealthMetric metric, int records, long oldestTimestamp, long newestTimestamp);
+
+        /**
+         * metric ended without completing; its watermark stays where the last commit left it
+         */
+        default void onMetricFailed(HealthMetric metric, String error) {}
+
+        void onFinished(boolean completed, String error);
+    }
+
+    /**
+     * Throughput snapshot; etaMs is -1 while the device has not announced a total
+     */
+    public static final class Progress {
+        public final HealthMetric metric;
+        public final int records;
+        public final int expectedRecords;
+        public final long bytes;
+        public final double recordsPerSecond;
+        public final double bytesPerSecond;
+        public final long etaMs;
+
+        Progress(HealthMetric metric, int records, int expectedRecords, long bytes,
+                 double recordsPerSecond, double bytesPerSecond, long etaMs) {
+            this.metric = metric;
+            this.records = records;
+            this.expectedRecords = expectedRecords;
+            this.bytes = bytes;
+            this.recordsPerSecond = recordsPerSecond;
+            this.bytesPerSecond = bytesPerSecond;
+            this.etaMs = etaMs;
+        }
+    }
+
+    private final String address;
+    private final HistoryProtocol protocol;
+    private final CommandSender sender;
+    private final RecordSink sink;
+    private final DurableLongMap watermarks;
+    private final Listener listener;
+    private final ScheduledExecutorService executor;
+    private final HistoryBacklogIngestor.Stream decodeStream;
+
+    // Only touched on the sync thread
+    private final ArrayDeque<HealthMetric> remaining = new ArrayDeque<>();
+    private HealthMetric current;
+    // Watermark when the metric started: records up to it were stored by an earlier sync
+    private long baseline;
+    private long watermark;
+    private long newest;
+    private long oldest;
+    // Lowest timestamp received since the last commit
+    private long runMin;
+    private int records;
+    private int uncommitted;
+    private int expected;
+    private boolean failed;
+    // Last failed metric of this run, reported when the session finishes
+    private String failure;
+    // Received records not stored yet, in arrival order
+    private long[] pendingTimestamps = new long[2 * COMMIT_EVERY_RECORDS];
+    private int[] pendingValues = new int[2 * COMMIT_EVERY_RECORDS];
+    private int pendingCount;
+    private long bytes;
+    private long metricStartNanos;
+    private long lastProgressAt;
+    private ScheduledFuture<?> timeout;
+    private long frameTimeoutMs = FRAME_TIMEOUT_MS;
+    private volatile boolean running = false;
+
+    private final HistoryProtocol.Receiver receiver = new HistoryProtocol.Receiver() {
+        @Override
+        public void onExpectedRecords(int count) {
+            expected = count;
+        }
+
+        @Override
+        public void onRecord(long timestamp, int[] values) {
+            if (current == null) return;
+            accept(timestamp, values, 0);
+            if (uncommitted >= COMMIT_EVERY_RECORDS) {
+                commit(false);
+            }
+        }
+
+        @Override
+        public void onComplete() {
+            finishMetric();
+        }
+    };
+
+    public HistorySyncSession(String address, HistoryProtocol protocol, CommandSender sender,
+                              RecordSink sink, DurableLongMap watermarks, Listener listener) {
+        this(address, protocol, sender, sink, watermarks, listener, null);
+    }
+
+    /**
+     * ingestor (may be null) decodes notifications of independently decodable metrics in parallel
+     */
+    public HistorySyncSession(String address, HistoryProtocol protocol, CommandSender sender,
+                              RecordSink sink, DurableLongMap watermarks, Listener listener,
+                              HistoryBacklogIngestor ingestor) {
+        this.address = address;
+        this.protocol = protocol;
+        this.sender = sender;
+        this.sink = sink;
+        this.watermarks = watermarks;
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandHistorySync");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.decodeStream = ingestor != null ? ingestor.open(protocol, executor, this::onBlock) : null;
+    }
+
+    static String watermarkKey(String address, HealthMetric metric) {
+        return address.toUpperCase(Locale.ROOT) + "/" + metric.jsName;
+    }
+
+    public long getWatermark(HealthMetric metric) {
+        return watermarks.get(watermarkKey(address, metric), Long.MIN_VALUE);
+    }
+
+    /**
+     * Pulls the given metrics in order; unsupported metrics are skipped
+     */
+    public void start(List<HealthMetric> metrics) {
+        executor.execute(() -> {
+            if (running) return;
+            running = true;
+            remaining.clear();
+            failure = null;
+            for (HealthMetric metric : metrics) {
+                if (protocol.supports(metric)) {
+                    remaining.add(metric);
+                }
+            }
+            nextMetric();
+        });
+    }
+
+    /**
+     * Feeds a notification from the device's notify characteristic
+     */
+    public void onNotification(byte[] value) {
+        executor.execute(() -> {
+            if (current == null) return;
+            bytes += value.length;
+            armTimeout();
+            if (decodeStream != null && protocol.decodesIndependently(current)) {
+                decodeStream.submit(current, value);
+                return;
+            }
+            try {
+                protocol.onNotification(current, value, receiver);
+            } catch (RuntimeException e) {
+                failMetric("Could not decode " + current.jsName + " history: " + e.getMessage());
+            }
+            if (current != null) {
+                reportProgress(false);
+            }
+        });
+    }
+
+    /**
+     * Link dropped: keeps what was received and ends the session; the next sync resumes
+     */
+    public void onLinkLost() {
+        executor.execute(() -> abort("Link lost"));
+    }
+
+    public void cancel() {
+        executor.execute(() -> abort("Cancelled"));
+    }
+
+    /**
+     * Silence after which the current metric ends unfinished
+     */
+    void setFrameTimeoutMs(long frameTimeoutMs) {
+        this.frameTimeoutMs = frameTimeoutMs;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    // A decoded block, in arrival order; blocks of a metric that already ended are dropped
+    private void onBlock(HistoryBacklogIngestor.Block block) {
+        if (block.metric != current) return;
+        if (block.expectedRecords >= 0) {
+            expected = block.expectedRecords;
+        }
+        if (block.failed && !failed) {
+            failMetric("Could not decode " + current.jsName + " history block " + block.sequence);
+        }
+        int channels = current.channels;
+        for (int i = 0; i < block.count; i++) {
+            accept(block.timestamps[i], block.values, i * channels);
+        }
+        if (block.complete) {
+            finishMetric();
+            return;
+        }
+        if (uncommitted >= COMMIT_EVERY_RECORDS && !commit(false)) return;
+        reportProgress(false);
+    }
+
+    /**
+     * Drops what is pending for the current metric; the rest of its answer is ignored until
+     * it ends, and the next sync asks again from the last committed watermark
+     */
+    private void failMetric(String error) {
+        HLog.w(TAG, "⚠️ " + error);
+        failed = true;
+        failure = error;
+        pendingCount = 0;
+        uncommitted = 0;
+        runMin = Long.MAX_VALUE;
+    }
+
+    // values[offset, offset + channels) is copied; the caller may reuse it
+    private void accept(long timestamp, int[] values, int offset) {
+        // The device may resend the record at the watermark; it is already stored
+        if (failed || timestamp <= baseline) return;
+        int channels = current.channels;
+        if (pendingCount == pendingTimestamps.length) {
+            pendingTimestamps = Arrays.copyOf(pendingTimestamps, pendingCount * 2);
+        }
+        if ((pendingCount + 1) * channels > pendingValues.length) {
+            pendingValues = Arrays.copyOf(pendingValues, Math.max(pendingValues.length * 2, (pendingCount + 1) * channels));
+        }
+        pendingTimestamps[pendingCount] = timestamp;
+        System.arraycopy(values, offset, pendingValues, pendingCount * channels, channels);
+        pendingCount++;
+        records++;
+        uncommitted++;
+        if (timestamp > newest) newest = timestamp;
+        if (timestamp < oldest) oldest = timestamp;
+        if (timestamp < runMin) runMin = timestamp;
+    }
+
+    private void nextMetric() {
+        current = remaining.poll();
+        if (current == null) {
+            running = false;
+            cancelTimeout();
+            listener.onFinished(failure == null, failure);
+            return;
+        }
+        failed = false;
+        watermark = getWatermark(current);
+        baseline = watermark;
+        newest = watermark;
+        oldest = Long.MAX_VALUE;
+        runMin = Long.MAX_VALUE;
+        pendingCount = 0;
+        records = 0;
+        uncommitted = 0;
+        expected = -1;
+        bytes = 0;
+        metricStartNanos = System.nanoTime();
+        lastProgressAt = 0;
+        if (!sender.send(protocol.buildReadRequest(current, watermark))) {
+            abort("Could not send history request for " + current.jsName);
+            return;
+        }
+        armTimeout();
+    }
+
+    private void finishMetric() {
+        cancelTimeout();
+        if (failed) {
+            listener.onMetricFailed(current, failure);
+            nextMetric();
+            return;
+        }
+        if (!commit(true)) return;
+        reportProgress(true);
+        listener.onMetricComplete(current, records, records > 0 ? oldest : 0, newest);
+        nextMetric();
+    }
+
+    /**
+     * Stores the pending records below the latest run's lowest timestamp (all of them once
+     * the metric is complete), flushes the sink, then persists the watermark; false (and the
+     * session ends) on failure
+     */
+    private boolean commit(boolean complete) {
+        try {
+            release(complete ? Long.MAX_VALUE : runMin);
+            uncommitted = 0;
+            runMin = Long.MAX_VALUE;
+            return true;
+        } catch (IOException e) {
+            abort("Could not persist history: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void release(long below) throws IOException {
+        if (pendingCount == 0) return;
+        int channels = current.channels;
+        HistoryBacklogIngestor.sortByTimestamp(pendingTimestamps, pendingValues, pendingCount, channels);
+        int count = 0;
+        while (count < pendingCount && pendingTimestamps[count] < below) {
+            count++;
+        }
+        if (count == 0) return;
+        sink.onRecords(current, pendingTimestamps, pendingValues, count);
+        sink.flush();
+        // A late record below the watermark is stored all the same; the mark only moves up
+        watermark = Math.max(watermark, pendingTimestamps[count - 1]);
+        watermarks.put(watermarkKey(address, current), watermark);
+        pendingCount -= count;
+        System.arraycopy(pendingTimestamps, count, pendingTimestamps, 0, pendingCount);
+        System.arraycopy(pendingValues, count * channels, pendingValues, 0, pendingCount * channels);
+    }
+
+    /**
+     * Stores what is known to be contiguous and drops the held-back tail; the next sync
+     * pulls it again from the watermark
+     */
+    private void releaseContiguous() {
+        // Without new records since the last commit nothing pending is known to be contiguous
+        if (current != null && uncommitted > 0) {
+            try {
+                release(runMin);
+            } catch (IOException e) {
+                // Nothing past the persisted watermark counts as stored; it is pulled again
+            }
+        }
+        pendingCount = 0;
+        uncommitted = 0;
+        runMin = Long.MAX_VALUE;
+    }
+
+    private void abort(String error) {
+        if (!running) return;
+        cancelTimeout();
+        releaseContiguous();
+        current = null;
+        pendingCount = 0;
+        remaining.clear();
+        running = false;
+        listener.onFinished(false, error);
+    }
+
+    private void armTimeout() {
+        cancelTimeout();
+        HealthMetric metric = current;
+        timeout = executor.schedule(() -> {
+            if (current != metric) return;
+            // Silence does not mean the answer was complete: records still owed below the
+            // newest one received must not be passed by the watermark
+            if (!failed) {
+                releaseContiguous();
+                failMetric(metric.jsName + " history timed out after " + records + " records");
+            }
+            finishMetric();
+        }, frameTimeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+    }
+
+    private void reportProgress(boolean force) {
+        long now = System.nanoTime();
+        if (!force && now - lastProgressAt < TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MS)) return;
+        lastProgressAt = now;
+        double seconds = Math.max(1e-3, (now - metricStartNanos) / 1e9);
+        double recordRate = records / seconds;
+        long eta = -1;
+        if (expected >= 0) {
+            eta = recordRate > 0 ? (long) (Math.max(0, expected - records) / recordRate * 1000) : -1;
+        }
+        listener.onProgress(new Progress(current, records, expected, bytes, recordRate, bytes / seconds, eta));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,151 @@
+package com.xevoxmobileapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Bands this phone has connected to, kept across sessions for fast reconnect
+ * Remembers bonding state and the last negotiated MTU, so a reconnect goes straight to
+ * the address (no scan). The service table is not cached here: the stack keeps it for
+ * bonded bands, and GattConnection reuses the one its client still holds.
+ * Saved like DurableLongMap: write-to-temp + fsync + rename.
+ */
+public class KnownDeviceCache {
+    public static final int DEFAULT_MAX_DEVICES = 16;
+
+    /**
+     * What was learned about one band on its last successful connection
+     */
+    public static final class Entry {
+        public final String address;
+        public final boolean bonded;
+        public final int mtu;
+        public final long lastConnectedAt;
+
+        public Entry(String address, boolean bonded, int mtu, long lastConnectedAt) {
+            this.address = address.toUpperCase(Locale.ROOT);
+            this.bonded = bonded;
+            this.mtu = mtu;
+            this.lastConnectedAt = lastConnectedAt;
+        }
+
+        String encode() {
+            return (bonded ? 1 : 0) + "," + mtu + "," + lastConnectedAt;
+        }
+
+        static Entry decode(String address, String encoded) {
+            String[] fields = encoded.split(",");
+            if (fields.length < 3) return null;
+            try {
+                // Older files carry a layout signature before the timestamp; it is ignored
+                return new Entry(address, "1".equals(fields[0]), Integer.parseInt(fields[1]),
+                    Long.parseLong(fields[fields.length - 1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    private final File file;
+    private final int maxDevices;
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    public KnownDeviceCache(File file) {
+        this(file, DEFAULT_MAX_DEVICES);
+    }
+
+    public KnownDeviceCache(File file, int maxDevices) {
+        this.file = file;
+        this.maxDevices = Math.max(1, maxDevices);
+        load();
+    }
+
+    private void load() {
+        if (!file.isFile()) return;
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return;
+        }
+        for (String address : properties.stringPropertyNames()) {
+            Entry entry = Entry.decode(address, properties.getProperty(address));
+            // A bad entry is dropped; the band is simply treated as new
+            if (entry != null) {
+                entries.put(entry.address, entry);
+            }
+        }
+    }
+
+    public synchronized Entry get(String address) {
+        return address != null ? entries.get(address.toUpperCase(Locale.ROOT)) : null;
+    }
+
+    /**
+     * Known bands, most recently connected first
+     */
+    public synchronized List<Entry> all() {
+        List<Entry> result = new ArrayList<>(entries.values());
+        Collections.sort(result, (a, b) -> Long.compare(b.lastConnectedAt, a.lastConnectedAt));
+        return result;
+    }
+
+    /**
+     * Records a successful connection; the least recently seen band is evicted past maxDevices
+     */
+    public synchronized void put(Entry entry) throws IOException {
+        Entry previous = entries.get(entry.address);
+        if (previous != null && previous.bonded == entry.bonded && previous.mtu == entry.mtu
+                && entry.lastConnectedAt - previous.lastConnectedAt < 60_000) {
+            // Nothing learned; skip the fsync for rapid reconnects
+            return;
+        }
+        entries.put(entry.address, entry);
+        while (entries.size() > maxDevices) {
+            Entry oldest = null;
+            for (Entry candidate : entries.values()) {
+                if (oldest == null || candidate.lastConnectedAt < oldest.lastConnectedAt) {
+                    oldest = candidate;
+                }
+            }
+            entries.remove(oldest.address);
+        }
+        save();
+    }
+
+    public synchronized void remove(String address) throws IOException {
+        if (address != null && entries.remove(address.toUpperCase(Locale.ROOT)) != null) {
+            save();
+        }
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        for (Entry entry : entries.values()) {
+            properties.setProperty(entry.address, entry.encode());
+        }
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.xevoxmobileapp;
+
+/**
+ * Device-side commands for live readings of one wearable protocol
+ * Adapts the vendor's realtime commands (vpprotocol for HBand/Veepoo bands) to
+ * SamplingScheduler: metrics the band pushes on its own are subscribed once, the rest
+ * are read on demand. Both answers arrive as notifications decoded by onNotification.
+ */
+public interface LiveProtocol {
+
+    /**
+     * Receives readings decoded from one notification
+     */
+    interface Receiver {
+        void onReading(HealthMetric metric, long timestamp, int[] values);
+    }
+
+    boolean supports(HealthMetric metric);
+
+    /**
+     * The band can stream metric by itself once subscribed
+     */
+    boolean supportsNotifications(HealthMetric metric);
+
+    /**
+     * Command turning the band's own updates for metric on or off (supportsNotifications only)
+     */
+    byte[] buildSubscribeRequest(HealthMetric metric, boolean enabled);
+
+    /**
+     * Command asking for one current reading of metric
+     */
+    byte[] buildReadRequest(HealthMetric metric);
+
+    void onNotification(byte[] value, Receiver receiver);
+
+    /**
+     * Drops decoding state left from an earlier monitoring run
+     */
+    default void reset() {}
+}
@@ -1,22 +1,64 @@
 package com.xevoxmobileapp
 
 import android.app.Application
+import android.content.res.Configuration
 import android.util.Log
 
-class MainApplication : Application() {
+import com.facebook.react.PackageList
+import com.facebook.react.ReactApplication
+import com.facebook.react.ReactHost
+import com.facebook.react.ReactNativeHost
+import com.facebook.react.ReactPackage
+import com.facebook.react.defaults.DefaultNewArchitectureEntryPoint.load
+import com.facebook.react.defaults.DefaultReactNativeHost
+import com.facebook.react.soloader.OpenSourceMergedSoMapping
+import com.facebook.soloader.SoLoader
+
+import expo.modules.ApplicationLifecycleDispatcher
+import expo.modules.ReactNativeHostWrapper
+
+class MainApplication : Application(), ReactApplication {
 
     companion object {
         private const val TAG = "XEVOXMainApplication"
     }
 
+    override val reactNativeHost: ReactNativeHost = ReactNativeHostWrapper(
+        this,
+        object : DefaultReactNativeHost(this) {
+            override fun getPackages(): List<ReactPackage> {
+                val packages = PackageList(this).packages
+                // In-app native code is not autolinked: the HBandSDK TurboModule
+                packages.add(HBandSDKPackage())
+                return packages
+            }
+
+            override fun getJSMainModuleName(): String = ".expo/.virtual-metro-entry"
+
+            override fun getUseDeveloperSupport(): Boolean = BuildConfig.DEBUG
+
+            override val isNewArchEnabled: Boolean = BuildConfig.IS_NEW_ARCHITECTURE_ENABLED
+            override val isHermesEnabled: Boolean = BuildConfig.IS_HERMES_ENABLED
+        }
+    )
+
+    override val reactHost: ReactHost
+        get() = ReactNativeHostWrapper.createReactHost(applicationContext, reactNativeHost)
+
     override fun onCreate() {
-        try {
-            super.onCreate()
-            Log.d(TAG, "✅ XEVOX Mobile App MainApplication started")
-            Log.d(TAG, "🔵 Pure Android mode - HBand SDK ready")
-        } catch (e: Exception) {
-            Log.e(TAG, "❌ Error in MainApplication: ${e.message}", e)
-            // Don't crash, just log the error
+        super.onCreate()
+        SoLoader.init(this, OpenSourceMergedSoMapping)
+        if (BuildConfig.IS_NEW_ARCHITECTURE_ENABLED) {
+            // Loads the New Architecture entry point (TurboModules, Fabric)
+            load()
         }
+        ApplicationLifecycleDispatcher.onApplicationCreate(this)
+        Log.d(TAG, "✅ XEVOX Mobile App MainApplication started")
+        Log.d(TAG, "🔵 React host ready - HBandSDK TurboModule registered")
+    }
+
+    override fun onConfigurationChanged(newConfig: Configuration) {
+        super.onConfigurationChanged(newConfig)
+        ApplicationLifecycleDispatcher.onConfigurationChanged(this, newConfig)
     }
-}
\ No newline at end of file
+}
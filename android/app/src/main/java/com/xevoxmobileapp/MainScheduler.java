@@ -0,0 +1,23 @@
+package com.xevoxmobileapp;
+
+/**
+ * Clock and main-thread scheduling as seen by HBandAndroidManager and ScanStateMachine
+ * AndroidMainScheduler posts to the main Looper and reads SystemClock; a JVM harness
+ * uses ExecutorMainScheduler, so scan timing and auto-stop work without a Looper.
+ */
+public interface MainScheduler {
+
+    /**
+     * Monotonic milliseconds (SystemClock.elapsedRealtime() on a device)
+     */
+    long elapsedRealtime();
+
+    void post(Runnable task);
+
+    void postDelayed(Runnable task, long delayMs);
+
+    /**
+     * Drops every pending run of task (posted or delayed) that has not started yet
+     */
+    void cancel(Runnable task);
+}
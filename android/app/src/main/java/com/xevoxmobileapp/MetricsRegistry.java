@@ -0,0 +1,162 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Native counters, gauges and fixed-bucket histograms
+ * Metrics are created once (see HBandMetrics) and recorded through their handles, so the
+ * recording path is a few atomic adds with no locks, no map lookups and no allocation.
+ * Snapshots are taken on demand for getMetrics().
+ */
+public class MetricsRegistry {
+
+    public static final class Counter {
+        public final String name;
+        private final LongAdder value = new LongAdder();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    public static final class Gauge {
+        public final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        public void set(long newValue) {
+            value.set(newValue);
+        }
+
+        public void add(long delta) {
+            value.addAndGet(delta);
+        }
+
+        public long get() {
+            return value.get();
+        }
+    }
+
+    /**
+     * Counts values into buckets with fixed upper bounds (the last bucket is unbounded)
+     */
+    public static final class Histogram {
+        public final String name;
+        public final String unit;
+        private final long[] bounds;
+        private final AtomicLongArray buckets;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+        Histogram(String name, String unit, long[] bounds) {
+            this.name = name;
+            this.unit = unit;
+            this.bounds = bounds.clone();
+            Arrays.sort(this.bounds);
+            this.buckets = new AtomicLongArray(this.bounds.length + 1);
+        }
+
+        public void record(long value) {
+            // Bucket counts are small, a linear scan beats binary search here
+            int index = 0;
+            while (index < bounds.length && value > bounds[index]) index++;
+            buckets.incrementAndGet(index);
+            count.increment();
+            sum.add(value);
+            long currentMax = max.get();
+            while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+                currentMax = max.get();
+            }
+        }
+
+        public long getCount() { return count.sum(); }
+        public long getSum() { return sum.sum(); }
+        public long getMax() { return getCount() > 0 ? max.get() : 0; }
+
+        public long[] getBounds() {
+            return bounds.clone();
+        }
+
+        public long[] getBuckets() {
+            long[] copy = new long[buckets.length()];
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] = buckets.get(i);
+            }
+            return copy;
+        }
+
+        /**
+         * Upper bound of the bucket holding the given quantile (max for the open bucket)
+         */
+        public long quantile(double q) {
+            long[] counts = getBuckets();
+            long total = 0;
+            for (long c : counts) total += c;
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return i < bounds.length ? bounds[i] : getMax();
+                }
+            }
+            return getMax();
+        }
+    }
+
+    // Bucket bounds for latencies in microseconds (50 us .. 5 s)
+    public static final long[] LATENCY_US_BOUNDS = {
+        50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000, 250000, 500000, 1000000, 5000000
+    };
+
+    // Bucket bounds for durations in milliseconds (100 ms .. 10 min)
+    public static final long[] DURATION_MS_BOUNDS = {
+        100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000, 600000
+    };
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private final long createdAt = System.currentTimeMillis();
+
+    public Counter counter(String name) {
+        return counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Gauge gauge(String name) {
+        return gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public Histogram histogram(String name, String unit, long[] bounds) {
+        return histograms.computeIfAbsent(name, key -> new Histogram(key, unit, bounds));
+    }
+
+    public List<Counter> getCounters() { return new ArrayList<>(counters.values()); }
+    public List<Gauge> getGauges() { return new ArrayList<>(gauges.values()); }
+    public List<Histogram> getHistograms() { return new ArrayList<>(histograms.values()); }
+    public long getCreatedAt() { return createdAt; }
+}
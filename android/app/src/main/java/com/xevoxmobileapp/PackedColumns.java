@@ -0,0 +1,133 @@
+package com.xevoxmobileapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Packed columnar buffers for bulk reads crossing to JS in one call
+ * Little-endian, laid out so every column can be viewed in place as a typed array:
+ *
+ *   "HBP1" | uint32 rows | uint32 columnCount | uint32 0
+ *   columnCount x (uint32 type, uint32 byteOffset, uint32 length, uint32 0)
+ *                                                      type 1 = Float64, 2 = Int32
+ *   columns, each starting on an 8-byte boundary; a multi-channel column holds
+ *   rows * channels values, row-major
+ *
+ * Timestamps travel as Float64 (exact up to 2^53 ms), so JS needs no parsing at all:
+ * new Float64Array(buffer, byteOffset, length). The column order of each call is
+ * fixed and documented with the call.
+ */
+public final class PackedColumns {
+    public static final int TYPE_FLOAT64 = 1;
+    public static final int TYPE_INT32 = 2;
+
+    private static final int MAGIC = 0x31504248; // "HBP1" read as little-endian
+    private static final int HEADER_BYTES = 16;
+    private static final int DESCRIPTOR_BYTES = 16;
+
+    /**
+     * Collects columns, then writes the buffer in one pass
+     */
+    public static final class Builder {
+        private final int rows;
+        private final int[] types;
+        private final Object[] columns;
+        private final int[] lengths;
+        private int columnCount = 0;
+
+        public Builder(int rows, int maxColumns) {
+            this.rows = rows;
+            this.types = new int[maxColumns];
+            this.columns = new Object[maxColumns];
+            this.lengths = new int[maxColumns];
+        }
+
+        public Builder float64(long[] values, int length) {
+            return add(TYPE_FLOAT64, values, length);
+        }
+
+        public Builder float64(double[] values, int length) {
+            return add(TYPE_FLOAT64, values, length);
+        }
+
+        public Builder int32(int[] values, int length) {
+            return add(TYPE_INT32, values, length);
+        }
+
+        private Builder add(int type, Object values, int length) {
+            types[columnCount] = type;
+            columns[columnCount] = values;
+            lengths[columnCount] = length;
+            columnCount++;
+            return this;
+        }
+
+        public byte[] build() {
+            int offset = HEADER_BYTES + columnCount * DESCRIPTOR_BYTES;
+            int[] offsets = new int[columnCount];
+            for (int c = 0; c < columnCount; c++) {
+                offsets[c] = offset;
+                offset = align(offset + lengths[c] * (types[c] == TYPE_FLOAT64 ? 8 : 4));
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(offset).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(rows).putInt(columnCount).putInt(0);
+            for (int c = 0; c < columnCount; c++) {
+                buffer.putInt(types[c]).putInt(offsets[c]).putInt(lengths[c]).putInt(0);
+            }
+            for (int c = 0; c < columnCount; c++) {
+                buffer.position(offsets[c]);
+                int length = lengths[c];
+                Object column = columns[c];
+                if (column instanceof long[]) {
+                    long[] values = (long[]) column;
+                    for (int i = 0; i < length; i++) {
+                        buffer.putDouble(values[i]);
+                    }
+                } else if (column instanceof double[]) {
+                    buffer.asDoubleBuffer().put((double[]) column, 0, length);
+                } else {
+                    buffer.asIntBuffer().put((int[]) column, 0, length);
+                }
+            }
+            return buffer.array();
+        }
+    }
+
+    private PackedColumns() {}
+
+    private static int align(int offset) {
+        return (offset + 7) & ~7;
+    }
+
+    /**
+     * timestamps (Float64, rows), values (Int32, rows * channels)
+     */
+    public static byte[] samples(long[] timestamps, int[] values, int count, int channels) {
+        return new Builder(count, 2)
+            .float64(timestamps, count)
+            .int32(values, count * channels)
+            .build();
+    }
+
+    /**
+     * starts, counts (Float64), min, max (Int32, rows * channels), mean (Float64, rows * channels),
+     * then steps (Float64) for STEPS and restingHeartRate (Int32) for daily heart rate
+     */
+    public static byte[] series(HealthAggregator.Series series) {
+        int count = series.count;
+        int channels = series.metric.channels;
+        Builder builder = new Builder(count, 7)
+            .float64(series.starts, count)
+            .float64(series.counts, count)
+            .int32(series.min, count * channels)
+            .int32(series.max, count * channels)
+            .float64(series.mean, count * channels);
+        if (series.steps != null) {
+            builder.float64(series.steps, count);
+        }
+        if (series.restingHeartRate != null) {
+            builder.int32(series.restingHeartRate, count);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,97 @@
+package com.xevoxmobileapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.PowerManager;
+
+/**
+ * Screen and battery state for SamplingScheduler
+ * Both come from broadcasts, so nothing is polled; ACTION_BATTERY_CHANGED is sticky and
+ * gives the current level as soon as the receiver is registered.
+ */
+public class PowerStateMonitor {
+    private static final String TAG = "PowerStateMonitor";
+
+    public static final int LOW_BATTERY_PERCENT = 15;
+
+    /**
+     * Screen or low-battery state changed (main thread)
+     */
+    public interface Listener {
+        void onPowerStateChanged(boolean screenOn, boolean batteryLow);
+    }
+
+    private final Context context;
+    private final Listener listener;
+    private BroadcastReceiver receiver;
+    private boolean screenOn = true;
+    private boolean batteryLow = false;
+
+    public PowerStateMonitor(Context context, Listener listener) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+    }
+
+    public synchronized void start() {
+        if (receiver != null) return;
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        screenOn = powerManager == null || powerManager.isInteractive();
+        receiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context receiverContext, Intent intent) {
+                onBroadcast(intent);
+            }
+        };
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_SCREEN_ON);
+        filter.addAction(Intent.ACTION_SCREEN_OFF);
+        filter.addAction(Intent.ACTION_BATTERY_CHANGED);
+        Intent battery = context.registerReceiver(receiver, filter);
+        if (battery != null) {
+            batteryLow = isLow(battery);
+        }
+        listener.onPowerStateChanged(screenOn, batteryLow);
+    }
+
+    public synchronized void stop() {
+        if (receiver == null) return;
+        try {
+            context.unregisterReceiver(receiver);
+        } catch (IllegalArgumentException e) {
+            HLog.w(TAG, "⚠️ Power receiver was not registered");
+        }
+        receiver = null;
+    }
+
+    private synchronized void onBroadcast(Intent intent) {
+        if (receiver == null) return;
+        boolean screen = screenOn;
+        boolean low = batteryLow;
+        String action = intent.getAction();
+        if (Intent.ACTION_SCREEN_ON.equals(action)) {
+            screen = true;
+        } else if (Intent.ACTION_SCREEN_OFF.equals(action)) {
+            screen = false;
+        } else if (Intent.ACTION_BATTERY_CHANGED.equals(action)) {
+            low = isLow(intent);
+        }
+        // Battery broadcasts arrive on every percent change; only state flips matter
+        if (screen == screenOn && low == batteryLow) return;
+        screenOn = screen;
+        batteryLow = low;
+        listener.onPowerStateChanged(screenOn, batteryLow);
+    }
+
+    private static boolean isLow(Intent battery) {
+        int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+        if (level < 0 || scale <= 0) return false;
+        return level * 100 / scale <= LOW_BATTERY_PERCENT;
+    }
+
+    public synchronized boolean isScreenOn() { return screenOn; }
+    public synchronized boolean isBatteryLow() { return batteryLow; }
+}
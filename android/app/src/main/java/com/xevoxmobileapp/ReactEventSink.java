@@ -0,0 +1,51 @@
+package com.xevoxmobileapp;
+
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+
+import java.util.Map;
+
+/**
+ * React Native device event emitter, resolved on first use
+ * Tracks how many JS listeners are subscribed (NativeEventEmitter reports them through
+ * the module's addListener/removeListeners), so high-rate events are skipped while
+ * nobody listens. Plain payloads are converted with Arguments.makeNativeMap on emit.
+ */
+public class ReactEventSink implements EventSink {
+    private final ReactApplicationContext reactContext;
+    private DeviceEventManagerModule.RCTDeviceEventEmitter emitter;
+    private volatile int listenerCount = -1;
+
+    public ReactEventSink(ReactApplicationContext reactContext) {
+        this.reactContext = reactContext;
+    }
+
+    /**
+     * Starts listener tracking; until first called every event is treated as listened to
+     */
+    public synchronized void addListeners(int count) {
+        listenerCount = Math.max(0, listenerCount) + count;
+    }
+
+    public synchronized void removeListeners(int count) {
+        listenerCount = Math.max(0, listenerCount - count);
+    }
+
+    @Override
+    public boolean isListening() {
+        return listenerCount != 0 && reactContext.hasActiveReactInstance();
+    }
+
+    @Override
+    public void emit(String eventName, Map<String, Object> data) {
+        if (!reactContext.hasActiveReactInstance()) return;
+        DeviceEventManagerModule.RCTDeviceEventEmitter current = emitter;
+        if (current == null) {
+            current = reactContext.getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class);
+            emitter = current;
+        }
+        // The only place a payload becomes native-backed
+        current.emit(eventName, data != null ? Arguments.makeNativeMap(data) : null);
+    }
+}
@@ -0,0 +1,127 @@
+package com.xevoxmobileapp;
+
+/**
+ * Fixed-capacity ring of primitive samples for one metric
+ * Timestamps are kept in a long[] and values in an int[] or short[] (compact metrics),
+ * so appending never allocates. Single writer (the notification thread); readers
+ * copy out and retry if the writer lapped them during the copy. One slot is kept spare:
+ * it is the one the writer may be filling, so only capacity = slots - 1 samples are readable.
+ */
+public class SampleRingBuffer {
+    private final int capacity;
+    private final int slots;
+    private final int mask;
+    private final int channels;
+    private final long[] timestamps;
+    private final int[] intValues;
+    private final short[] shortValues;
+
+    // Total samples ever written; slot = written & mask
+    private volatile long written = 0;
+
+    public SampleRingBuffer(int requestedCapacity, int channels, boolean compact) {
+        int size = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = size;
+        this.capacity = size - 1;
+        this.mask = size - 1;
+        this.channels = channels;
+        this.timestamps = new long[size];
+        this.intValues = compact ? null : new int[size * channels];
+        this.shortValues = compact ? new short[size * channels] : null;
+    }
+
+    public void append(long timestamp, int value) {
+        long index = written;
+        int slot = (int) (index & mask);
+        timestamps[slot] = timestamp;
+        put(slot * channels, value);
+        written = index + 1;
+    }
+
+    public void append(long timestamp, int first, int second) {
+        long index = written;
+        int slot = (int) (index & mask);
+        timestamps[slot] = timestamp;
+        int base = slot * channels;
+        put(base, first);
+        put(base + 1, second);
+        written = index + 1;
+    }
+
+    public void append(long timestamp, int x, int y, int z) {
+        long index = written;
+        int slot = (int) (index & mask);
+        timestamps[slot] = timestamp;
+        int base = slot * channels;
+        put(base, x);
+        put(base + 1, y);
+        put(base + 2, z);
+        written = index + 1;
+    }
+
+    private void put(int offset, int value) {
+        if (shortValues != null) {
+            shortValues[offset] = (short) value;
+        } else {
+            intValues[offset] = value;
+        }
+    }
+
+    /**
+     * Copies up to maxSamples of the newest samples, oldest first.
+     * values must hold maxSamples * channels entries. Returns the number copied.
+     */
+    public int copyLatest(int maxSamples, long[] timestampsOut, int[] valuesOut) {
+        while (true) {
+            long end = written;
+            int count = (int) Math.min(Math.min(end, capacity), maxSamples);
+            long start = end - count;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((start + i) & mask);
+                timestampsOut[i] = timestamps[slot];
+                for (int c = 0; c < channels; c++) {
+                    int offset = slot * channels + c;
+                    valuesOut[i * channels + c] = shortValues != null ? shortValues[offset] : intValues[offset];
+                }
+            }
+            // The writer may have overwritten our oldest slots (or be writing the oldest) while we copied
+            if (written - start < slots) {
+                return count;
+            }
+        }
+    }
+
+    /**
+     * Copies samples with fromTimestamp <= t < toTimestamp (oldest first), up to the output size
+     */
+    public int copyRange(long fromTimestamp, long toTimestamp, long[] timestampsOut, int[] valuesOut) {
+        int max = timestampsOut.length;
+        while (true) {
+            long end = written;
+            long start = Math.max(0, end - capacity);
+            int count = 0;
+            for (long index = start; index < end && count < max; index++) {
+                int slot = (int) (index & mask);
+                long timestamp = timestamps[slot];
+                if (timestamp < fromTimestamp || timestamp >= toTimestamp) continue;
+                timestampsOut[count] = timestamp;
+                for (int c = 0; c < channels; c++) {
+                    int offset = slot * channels + c;
+                    valuesOut[count * channels + c] = shortValues != null ? shortValues[offset] : intValues[offset];
+                }
+                count++;
+            }
+            if (written - start < slots) {
+                return count;
+            }
+        }
+    }
+
+    public int size() {
+        return (int) Math.min(written, capacity);
+    }
+
+    public long getTotalWritten() { return written; }
+    public int getCapacity() { return capacity; }
+    public int getChannels() { return channels; }
+}
@@ -0,0 +1,399 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when live readings are taken from one connected band
+ * Metrics the band can push are subscribed once; every other metric is polled at an
+ * adaptive interval: fast while a reading is out of its normal range, quicker while
+ * the step rate shows activity, slow at rest, and slower still with the screen off or
+ * the battery low. Any reading, pushed or polled, postpones that metric's next poll,
+ * so a streaming metric is only polled if its notifications stop. All state lives on
+ * one scheduler thread; nothing runs between due times. The executor's timer stops while
+ * the CPU sleeps, so on a device a Waker (AlarmWaker) also raises an alarm for each due
+ * time and holds the CPU awake for the poll.
+ */
+public class SamplingScheduler {
+    private static final String TAG = "SamplingScheduler";
+
+    public static final long DEFAULT_REST_INTERVAL_MS = TimeUnit.MINUTES.toMillis(5);
+    public static final long DEFAULT_ACTIVE_INTERVAL_MS = TimeUnit.SECONDS.toMillis(30);
+    public static final long DEFAULT_ABNORMAL_INTERVAL_MS = TimeUnit.SECONDS.toMillis(15);
+    public static final long MAX_INTERVAL_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final int SCREEN_OFF_FACTOR = 2;
+    private static final int BATTERY_LOW_FACTOR = 4;
+
+    // Subscribed metrics are polled only after this many intervals without a notification
+    private static final int SUBSCRIBED_GRACE_FACTOR = 2;
+
+    // Step rate that counts as activity, and how long one such reading keeps it
+    public static final int ACTIVE_STEPS_PER_MINUTE = 40;
+    private static final long ACTIVE_HOLD_MS = TimeUnit.MINUTES.toMillis(3);
+
+    /**
+     * Sends one command to the band; false if it could not be queued
+     */
+    public interface CommandSender {
+        boolean send(byte[] command);
+    }
+
+    /**
+     * Wakes the device for due polls; now() must keep counting while the device sleeps
+     */
+    public interface Waker {
+        long now();
+
+        /**
+         * Runs onWake at the given now() time, in doze too; replaces any pending wake-up
+         */
+        void wakeAt(long at, Runnable onWake);
+
+        void cancel();
+    }
+
+    /**
+     * Activity or abnormal-reading state changed (on the scheduler thread)
+     */
+    public interface Listener {
+        void onModeChanged(boolean active, boolean abnormal, String reason);
+    }
+
+    private static class MetricState {
+        final HealthMetric metric;
+        final boolean subscribed;
+        int low = Integer.MIN_VALUE;
+        int high = Integer.MAX_VALUE;
+        boolean abnormal = false;
+        long lastActivityAt;
+        long nextPollAt;
+        long polls = 0;
+        long readings = 0;
+
+        MetricState(HealthMetric metric, boolean subscribed, long now) {
+            this.metric = metric;
+            this.subscribed = subscribed;
+            this.lastActivityAt = now;
+        }
+    }
+
+    private final LiveProtocol protocol;
+    private final CommandSender sender;
+    private final Listener listener;
+    private final Waker waker;
+    private final ScheduledExecutorService executor;
+    private final Map<HealthMetric, MetricState> states = new EnumMap<>(HealthMetric.class);
+    private ScheduledFuture<?> tick;
+
+    // Confined to the scheduler thread
+    private long restIntervalMs = DEFAULT_REST_INTERVAL_MS;
+    private long activeIntervalMs = DEFAULT_ACTIVE_INTERVAL_MS;
+    private long abnormalIntervalMs = DEFAULT_ABNORMAL_INTERVAL_MS;
+    private boolean screenOn = true;
+    private boolean batteryLow = false;
+    private long activeUntil = 0;
+    private long lastStepCount = -1;
+    private long lastStepAt = 0;
+    private boolean reportedActive = false;
+    private boolean reportedAbnormal = false;
+    private volatile boolean running = false;
+
+    public SamplingScheduler(LiveProtocol protocol, CommandSender sender, Listener listener) {
+        this(protocol, sender, listener, null);
+    }
+
+    /**
+     * waker (may be null) keeps polls on time while the device sleeps
+     */
+    public SamplingScheduler(LiveProtocol protocol, CommandSender sender, Listener listener, Waker waker) {
+        this.protocol = protocol;
+        this.sender = sender;
+        this.listener = listener;
+        this.waker = waker;
+        this.executor = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "HBandSampling"));
+    }
+
+    /**
+     * Subscribes or schedules the given metrics (those the protocol supports)
+     */
+    public void start(List<HealthMetric> metrics) {
+        running = true;
+        List<HealthMetric> requested = new ArrayList<>(metrics);
+        execute(() -> {
+            long now = now();
+            for (HealthMetric metric : requested) {
+                if (!protocol.supports(metric) || states.containsKey(metric)) continue;
+                boolean subscribed = protocol.supportsNotifications(metric)
+                    && sender.send(protocol.buildSubscribeRequest(metric, true));
+                MetricState state = new MetricState(metric, subscribed, now);
+                applyDefaultRange(state);
+                // Polled metrics take a first reading right away
+                state.nextPollAt = subscribed ? now + intervalFor(state) : now;
+                states.put(metric, state);
+                HLog.d(TAG, (subscribed ? "🔔 Subscribed to " : "⏲️ Polling ") + metric.jsName);
+            }
+            reschedule();
+        });
+    }
+
+    public void stop() {
+        running = false;
+        execute(() -> {
+            for (MetricState state : states.values()) {
+                if (state.subscribed) {
+                    sender.send(protocol.buildSubscribeRequest(state.metric, false));
+                }
+            }
+            states.clear();
+            if (tick != null) {
+                tick.cancel(false);
+                tick = null;
+            }
+            if (waker != null) {
+                waker.cancel();
+            }
+        });
+        executor.shutdown();
+    }
+
+    /**
+     * The link is gone; stops without sending anything
+     */
+    public void onLinkLost() {
+        running = false;
+        executor.shutdownNow();
+        if (waker != null) {
+            waker.cancel();
+        }
+    }
+
+    /**
+     * Every decoded live reading, pushed or polled (any thread)
+     */
+    public void onReading(HealthMetric metric, long timestamp, int[] values) {
+        if (!running) return;
+        int first = values[0];
+        execute(() -> handleReading(metric, first));
+    }
+
+    public void setPowerState(boolean screenOn, boolean batteryLow) {
+        execute(() -> {
+            if (this.screenOn == screenOn && this.batteryLow == batteryLow) return;
+            this.screenOn = screenOn;
+            this.batteryLow = batteryLow;
+            HLog.d(TAG, "🔋 Power state: screen " + (screenOn ? "on" : "off") + (batteryLow ? ", battery low" : ""));
+            retime();
+        });
+    }
+
+    /**
+     * Poll intervals for rest, activity and abnormal readings; values <= 0 keep the current one
+     */
+    public void setIntervals(long restMs, long activeMs, long abnormalMs) {
+        execute(() -> {
+            if (restMs > 0) restIntervalMs = restMs;
+            if (activeMs > 0) activeIntervalMs = activeMs;
+            if (abnormalMs > 0) abnormalIntervalMs = abnormalMs;
+            retime();
+        });
+    }
+
+    /**
+     * Normal range for the first channel of metric; readings outside it speed up polling
+     */
+    public void setNormalRange(HealthMetric metric, int low, int high) {
+        execute(() -> {
+            MetricState state = states.get(metric);
+            if (state != null) {
+                state.low = low;
+                state.high = high;
+            }
+        });
+    }
+
+    private void execute(Runnable task) {
+        if (!executor.isShutdown()) {
+            executor.execute(task);
+        }
+    }
+
+    private static void applyDefaultRange(MetricState state) {
+        switch (state.metric) {
+            case HEART_RATE:
+                state.low = 45;
+                state.high = 120;
+                break;
+            case SPO2:
+                state.low = 92;
+                break;
+            case BLOOD_PRESSURE:
+                // Systolic
+                state.low = 90;
+                state.high = 139;
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void handleReading(HealthMetric metric, int value) {
+        long now = now();
+        MetricState state = states.get(metric);
+        if (metric == HealthMetric.STEPS) {
+            updateActivity(value, now);
+        }
+        if (state == null) return;
+        state.readings++;
+        boolean abnormal = value < state.low || value > state.high;
+        if (abnormal != state.abnormal) {
+            state.abnormal = abnormal;
+            HLog.d(TAG, (abnormal ? "⚠️ Out-of-range " : "✅ Back in range: ") + metric.jsName + " " + value);
+        }
+        state.lastActivityAt = now;
+        state.nextPollAt = now + intervalFor(state) * (state.subscribed ? SUBSCRIBED_GRACE_FACTOR : 1);
+        reportMode(metric.jsName);
+        reschedule();
+    }
+
+    private void updateActivity(int steps, long now) {
+        // Cumulative daily counter: a drop means it was reset at midnight
+        if (lastStepCount >= 0 && steps >= lastStepCount && now > lastStepAt) {
+            double perMinute = (steps - lastStepCount) * 60_000.0 / (now - lastStepAt);
+            if (perMinute >= ACTIVE_STEPS_PER_MINUTE) {
+                boolean wasActive = isActive(now);
+                activeUntil = now + ACTIVE_HOLD_MS;
+                if (!wasActive) retime();
+            }
+        }
+        lastStepCount = steps;
+        lastStepAt = now;
+    }
+
+    private boolean isActive(long now) {
+        return now < activeUntil;
+    }
+
+    private long intervalFor(MetricState state) {
+        if (state.abnormal) {
+            return Math.min(abnormalIntervalMs, MAX_INTERVAL_MS);
+        }
+        long interval = isActive(now()) ? activeIntervalMs : restIntervalMs;
+        if (!screenOn) interval *= SCREEN_OFF_FACTOR;
+        if (batteryLow) interval *= BATTERY_LOW_FACTOR;
+        return Math.min(interval, MAX_INTERVAL_MS);
+    }
+
+    // Mode changed: every metric's next poll follows the new interval from its last reading
+    private void retime() {
+        for (MetricState state : states.values()) {
+            long interval = intervalFor(state) * (state.subscribed ? SUBSCRIBED_GRACE_FACTOR : 1);
+            state.nextPollAt = Math.max(state.lastActivityAt, 0) + interval;
+        }
+        reportMode("power/activity");
+        reschedule();
+    }
+
+    private void reportMode(String reason) {
+        boolean active = isActive(now());
+        boolean abnormal = false;
+        for (MetricState state : states.values()) {
+            abnormal |= state.abnormal;
+        }
+        if (active == reportedActive && abnormal == reportedAbnormal) return;
+        reportedActive = active;
+        reportedAbnormal = abnormal;
+        if (listener != null) {
+            listener.onModeChanged(active, abnormal, reason);
+        }
+    }
+
+    private void reschedule() {
+        if (!running) return;
+        long earliest = Long.MAX_VALUE;
+        for (MetricState state : states.values()) {
+            earliest = Math.min(earliest, state.nextPollAt);
+        }
+        // Activity expiry also changes intervals, so wake for it too
+        if (isActive(now())) {
+            earliest = Math.min(earliest, activeUntil);
+        }
+        if (tick != null) {
+            tick.cancel(false);
+            tick = null;
+        }
+        if (earliest == Long.MAX_VALUE) {
+            if (waker != null) waker.cancel();
+            return;
+        }
+        long delay = Math.max(0, earliest - now());
+        tick = executor.schedule(this::onTick, delay, TimeUnit.MILLISECONDS);
+        if (waker != null) {
+            waker.wakeAt(earliest, this::onWake);
+        }
+    }
+
+    // Alarm thread: the executor's timer may have slept through the due time
+    private void onWake() {
+        execute(() -> {
+            if (running && tick != null) {
+                onTick();
+            }
+        });
+    }
+
+    private void onTick() {
+        tick = null;
+        HBandMetrics.SAMPLING_WAKEUPS.increment();
+        long now = now();
+        if (activeUntil != 0 && !isActive(now) && reportedActive) {
+            retime();
+            return;
+        }
+        for (MetricState state : states.values()) {
+            if (state.nextPollAt > now) continue;
+            state.polls++;
+            HBandMetrics.SAMPLING_POLLS.increment();
+            state.lastActivityAt = now;
+            state.nextPollAt = now + intervalFor(state);
+            if (!sender.send(protocol.buildReadRequest(state.metric))) {
+                HLog.w(TAG, "⚠️ Could not request " + state.metric.jsName);
+            }
+        }
+        reschedule();
+    }
+
+    private long now() {
+        return waker != null ? waker.now() : System.nanoTime() / 1_000_000L;
+    }
+
+    /**
+     * Per-metric polls, readings and current interval; runs on the scheduler thread
+     */
+    public Map<HealthMetric, long[]> getStats() {
+        Map<HealthMetric, long[]> stats = new EnumMap<>(HealthMetric.class);
+        if (executor.isShutdown()) return stats;
+        try {
+            return executor.submit(() -> {
+                for (MetricState state : states.values()) {
+                    stats.put(state.metric, new long[] {
+                        state.polls, state.readings, intervalFor(state), state.subscribed ? 1 : 0
+                    });
+                }
+                return stats;
+            }).get(1, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            return stats;
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
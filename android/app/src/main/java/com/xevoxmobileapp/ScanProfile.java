@@ -0,0 +1,124 @@
+package com.xevoxmobileapp;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.le.ScanFilter;
+import android.bluetooth.le.ScanSettings;
+import android.os.ParcelUuid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Scan profiles for HBandAndroidManager
+ * Each profile maps to ScanSettings (scan mode, match mode, callback type, batch report delay)
+ * and decides whether hardware ScanFilters restrict results to HBand/Veepoo devices
+ */
+public enum ScanProfile {
+    // Foreground pairing screen: fastest discovery, every advertiser reported
+    LOW_LATENCY(ScanSettings.SCAN_MODE_LOW_LATENCY,
+                ScanSettings.MATCH_MODE_AGGRESSIVE,
+                ScanSettings.CALLBACK_TYPE_ALL_MATCHES,
+                0, 30000, false),
+
+    // App open, looking for known band types
+    BALANCED(ScanSettings.SCAN_MODE_BALANCED,
+             ScanSettings.MATCH_MODE_STICKY,
+             ScanSettings.CALLBACK_TYPE_ALL_MATCHES,
+             1000, 60000, true),
+
+    // Background: controller filters and batches, app processor wakes rarely
+    LOW_POWER(ScanSettings.SCAN_MODE_LOW_POWER,
+              ScanSettings.MATCH_MODE_STICKY,
+              ScanSettings.CALLBACK_TYPE_ALL_MATCHES,
+              10000, 0, true);
+
+    public final int scanMode;
+    public final int matchMode;
+    public final int callbackType;
+    public final long reportDelayMs;
+    public final long defaultDurationMs;
+    public final boolean useHardwareFilters;
+
+    ScanProfile(int scanMode, int matchMode, int callbackType, long reportDelayMs,
+                long defaultDurationMs, boolean useHardwareFilters) {
+        this.scanMode = scanMode;
+        this.matchMode = matchMode;
+        this.callbackType = callbackType;
+        this.reportDelayMs = reportDelayMs;
+        this.defaultDurationMs = defaultDurationMs;
+        this.useHardwareFilters = useHardwareFilters;
+    }
+
+    /**
+     * Parses a profile name from JS ("lowLatency", "balanced", "lowPower"); null if unknown
+     */
+    public static ScanProfile fromName(String name) {
+        if (name == null) return null;
+        switch (name.replace("_", "").toLowerCase(Locale.ROOT)) {
+            case "lowlatency":
+            case "discovery":
+                return LOW_LATENCY;
+            case "balanced":
+                return BALANCED;
+            case "lowpower":
+            case "background":
+                return LOW_POWER;
+            default:
+                return null;
+        }
+    }
+
+    public ScanSettings buildSettings(BluetoothAdapter adapter) {
+        ScanSettings.Builder builder = new ScanSettings.Builder()
+            .setScanMode(scanMode)
+            .setCallbackType(callbackType)
+            .setMatchMode(matchMode)
+            .setNumOfMatches(ScanSettings.MATCH_NUM_MAX_ADVERTISEMENT);
+
+        // Batch reports only when the controller can hold them, otherwise results arrive immediately
+        if (reportDelayMs > 0 && adapter != null && adapter.isOffloadedScanBatchingSupported()) {
+            builder.setReportDelay(reportDelayMs);
+        }
+        return builder.build();
+    }
+
+    // Services a band advertises: the Veepoo/HBand private service and the SIG vital-sign services
+    private static final UUID[] FILTER_SERVICE_UUIDS = {
+        FitnessDeviceClassifier.VEEPOO_SERVICE_UUID,
+        FitnessDeviceClassifier.sigUuid(0x180D), // Heart Rate
+        FitnessDeviceClassifier.sigUuid(0x1810), // Blood Pressure
+        FitnessDeviceClassifier.sigUuid(0x1822)  // Pulse Oximeter
+    };
+
+    /**
+     * Hardware filters for band services and wearable-only vendor IDs; null means unfiltered
+     * Phone makers' IDs (Samsung, Xiaomi, Huawei) are left out: they would wake the app for every
+     * phone and TV nearby. Name matching stays with the classifier, since ScanFilter names are exact.
+     */
+    public List<ScanFilter> buildFilters() {
+        if (!useHardwareFilters) return null;
+
+        List<ScanFilter> filters = new ArrayList<>();
+        for (UUID uuid : FILTER_SERVICE_UUIDS) {
+            filters.add(new ScanFilter.Builder()
+                .setServiceUuid(new ParcelUuid(uuid))
+                .build());
+        }
+        for (int manufacturerId : FitnessDeviceClassifier.WEARABLE_MANUFACTURER_IDS) {
+            filters.add(new ScanFilter.Builder()
+                .setManufacturerData(manufacturerId, new byte[0])
+                .build());
+        }
+        return filters;
+    }
+
+    public String jsName() {
+        switch (this) {
+            case LOW_LATENCY: return "lowLatency";
+            case BALANCED: return "balanced";
+            default: return "lowPower";
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scan result pipeline for HBandAndroidManager
+ * Scan callbacks drop results into a lock-free queue; a single drain task on the
+ * batcher thread coalesces repeat sightings of the same address and flushes them
+ * to the listener as one batch
+ */
+public class ScanResultBatcher {
+    private static final String TAG = "ScanResultBatcher";
+
+    public static final long DEFAULT_FLUSH_INTERVAL_MS = 500;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50;
+
+    /**
+     * Receives coalesced sightings on the batcher thread
+     */
+    public interface Listener {
+        void onDevicesFound(List<DeviceSighting> devices);
+    }
+
+    /**
+     * Latest registry snapshot of one advertiser within the flush window
+     */
+    public static class DeviceSighting {
+        public DeviceRegistry.DeviceSnapshot device;
+        public boolean isNew;
+
+        DeviceSighting(DeviceRegistry.DeviceSnapshot device) {
+            this.device = device;
+            this.isNew = device.isNew();
+        }
+    }
+
+    private final Listener listener;
+    private final ScheduledExecutorService executor;
+
+    // Filled by scan callbacks; drained only on the batcher thread
+    private final ConcurrentLinkedQueue<DeviceRegistry.DeviceSnapshot> incoming = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final AtomicBoolean resetRequested = new AtomicBoolean();
+
+    // Only touched on the batcher thread
+    private final LinkedHashMap<String, DeviceSighting> pending = new LinkedHashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private Runnable flushHook;
+
+    private volatile long flushIntervalMs = DEFAULT_FLUSH_INTERVAL_MS;
+    private volatile int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    // Counters
+    private final AtomicLong resultsReceived = new AtomicLong();
+    private final AtomicLong devicesEmitted = new AtomicLong();
+    private final AtomicLong eventsEmitted = new AtomicLong();
+
+    // Posted at most once per burst of results, however many arrive before it runs
+    private final Runnable drainRunnable = this::drain;
+
+    private final Runnable flushRunnable = () -> {
+        scheduledFlush = null;
+        drainIncoming();
+        flushPending();
+    };
+
+    public ScanResultBatcher(Listener listener) {
+        this.listener = listener;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandScanBatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void configure(long flushIntervalMs, int maxBatchSize) {
+        this.flushIntervalMs = Math.max(0, flushIntervalMs);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        HLog.d(TAG, "⚙️ Batching configured: " + this.flushIntervalMs + " ms / " + this.maxBatchSize + " devices");
+    }
+
+    /**
+     * Runs on the batcher thread after every flush (used for housekeeping such as registry expiry)
+     */
+    public void setFlushHook(Runnable flushHook) {
+        this.flushHook = flushHook;
+    }
+
+    /**
+     * Called from the scan callback thread; queues the result and wakes the batcher thread
+     * only if no drain is pending yet
+     */
+    public void offer(DeviceRegistry.DeviceSnapshot device) {
+        resultsReceived.incrementAndGet();
+        HBandMetrics.SCAN_QUEUE_DEPTH.add(1);
+        incoming.offer(device);
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(drainRunnable);
+        }
+    }
+
+    private void drain() {
+        // Cleared before polling: a result queued from here on schedules another drain
+        drainScheduled.set(false);
+        drainIncoming();
+    }
+
+    private void drainIncoming() {
+        applyReset();
+        DeviceRegistry.DeviceSnapshot device;
+        while ((device = incoming.poll()) != null) {
+            HBandMetrics.SCAN_QUEUE_DEPTH.add(-1);
+            applyReset();
+            coalesce(device);
+        }
+    }
+
+    private void coalesce(DeviceRegistry.DeviceSnapshot device) {
+        DeviceSighting sighting = pending.get(device.address);
+        if (sighting == null) {
+            pending.put(device.address, new DeviceSighting(device));
+        } else {
+            // Repeat sighting within the window: keep the latest state, remember if it was new
+            sighting.device = device;
+            sighting.isNew |= device.isNew();
+        }
+
+        HBandMetrics.SCAN_PENDING_DEVICES.set(pending.size());
+        if (pending.size() >= maxBatchSize) {
+            cancelScheduledFlush();
+            flushPending();
+        } else if (scheduledFlush == null) {
+            scheduledFlush = executor.schedule(flushRunnable, flushIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flushPending() {
+        if (!pending.isEmpty()) {
+            List<DeviceSighting> batch = new ArrayList<>(pending.values());
+            pending.clear();
+            HBandMetrics.SCAN_PENDING_DEVICES.set(0);
+
+            try {
+                listener.onDevicesFound(batch);
+                devicesEmitted.addAndGet(batch.size());
+                eventsEmitted.incrementAndGet();
+            } catch (Exception e) {
+                HLog.e(TAG, "❌ Error delivering scan batch", e);
+            }
+        }
+
+        Runnable hook = flushHook;
+        if (hook != null) {
+            hook.run();
+        }
+    }
+
+    private void cancelScheduledFlush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+    }
+
+    // Sightings buffered before reset() belong to the previous scan session
+    private void applyReset() {
+        if (resetRequested.getAndSet(false)) {
+            cancelScheduledFlush();
+            pending.clear();
+            HBandMetrics.SCAN_PENDING_DEVICES.set(0);
+        }
+    }
+
+    /**
+     * Flushes whatever is buffered right now (e.g. when the scan stops); onFlushed (may be
+     * null) then runs on the batcher thread, after the final batch was delivered
+     */
+    public void flush(Runnable onFlushed) {
+        executor.execute(() -> {
+            drainIncoming();
+            cancelScheduledFlush();
+            flushPending();
+            if (onFlushed != null) {
+                onFlushed.run();
+            }
+        });
+    }
+
+    public void flush() {
+        flush(null);
+    }
+
+    /**
+     * Starts a new scan session: drops buffered sightings and resets counters
+     */
+    public void reset() {
+        resultsReceived.set(0);
+        devicesEmitted.set(0);
+        eventsEmitted.set(0);
+        while (incoming.poll() != null) {
+            HBandMetrics.SCAN_QUEUE_DEPTH.add(-1);
+        }
+        resetRequested.set(true);
+        executor.execute(this::applyReset);
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Getters
+    public long getResultsReceived() { return resultsReceived.get(); }
+    public long getDevicesEmitted() { return devicesEmitted.get(); }
+    public long getEventsEmitted() { return eventsEmitted.get(); }
+    public long getFlushIntervalMs() { return flushIntervalMs; }
+    public int getMaxBatchSize() { return maxBatchSize; }
+}
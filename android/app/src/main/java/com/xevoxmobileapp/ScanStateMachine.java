@@ -0,0 +1,227 @@
+package com.xevoxmobileapp;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Scan lifecycle state machine for HBandAndroidManager
+ * Starts scans immediately and only backs off when the stack reports a registration
+ * failure or an already-started scan. Start attempts are paced so Android's
+ * 5-starts-per-30-seconds limit is never tripped.
+ */
+public class ScanStateMachine {
+    private static final String TAG = "ScanStateMachine";
+
+    public enum State { IDLE, STARTING, SCANNING, STOPPING, COOLING_DOWN }
+
+    // Android silently ignores (or fails) the 6th start within 30 s
+    private static final int THROTTLE_MAX_STARTS = 5;
+    private static final long THROTTLE_WINDOW_MS = 30000;
+    private static final long THROTTLE_MARGIN_MS = 250;
+
+    private static final long BACKOFF_BASE_MS = 250;
+    private static final long BACKOFF_MAX_MS = 4000;
+    private static final int MAX_RETRIES = 4;
+
+    /**
+     * Hardware operations performed by the manager
+     */
+    public interface Actions {
+        boolean startHardwareScan();
+        void stopHardwareScan();
+        void onScanStarted(int retries);
+        void onScanGaveUp(String reason);
+    }
+
+    private final MainScheduler scheduler;
+    private final Actions actions;
+
+    private State state = State.IDLE;
+    private final long[] recentStarts = new long[THROTTLE_MAX_STARTS];
+    private int recentStartIndex = 0;
+    private int retries = 0;
+
+    private final Runnable startRunnable = this::attemptStart;
+
+    // Per-scan timing (written from the scan callback thread)
+    private volatile long startRequestedAt = 0;
+    private volatile String targetAddress = null;
+    private final AtomicLong firstResultAt = new AtomicLong();
+    private final AtomicLong targetFoundAt = new AtomicLong();
+
+    // Aggregates over completed scans
+    private int completedScans = 0;
+    private long totalTimeToFirstResultMs = 0;
+    private int scansWithResult = 0;
+    private long totalTimeToTargetMs = 0;
+    private int scansWithTarget = 0;
+    private long lastTimeToFirstResultMs = -1;
+    private long lastTimeToTargetMs = -1;
+    private int totalRetries = 0;
+    private int throttleDeferrals = 0;
+
+    public ScanStateMachine(MainScheduler scheduler, Actions actions) {
+        this.scheduler = scheduler;
+        this.actions = actions;
+    }
+
+    /**
+     * Requests a scan; restarts if already scanning. targetAddress may be null.
+     */
+    public synchronized void requestStart(String targetAddress) {
+        if (state == State.SCANNING || state == State.STARTING) {
+            HLog.d(TAG, "🔄 Restarting scan");
+            stopInternal();
+            recordCompletedScan();
+        }
+        scheduler.cancel(startRunnable);
+
+        this.targetAddress = targetAddress;
+        this.startRequestedAt = scheduler.elapsedRealtime();
+        this.firstResultAt.set(0);
+        this.targetFoundAt.set(0);
+        this.retries = 0;
+
+        // Fresh starts only wait for the throttle window; backoff is for retries of a failed start
+        scheduleStart(0);
+    }
+
+    public synchronized void requestStop() {
+        scheduler.cancel(startRunnable);
+        if (state == State.SCANNING || state == State.STARTING) {
+            stopInternal();
+            recordCompletedScan();
+        } else if (state == State.COOLING_DOWN) {
+            setState(State.IDLE);
+        }
+    }
+
+    private void stopInternal() {
+        setState(State.STOPPING);
+        actions.stopHardwareScan();
+        setState(State.IDLE);
+    }
+
+    private void scheduleStart(long minimumDelayMs) {
+        long now = scheduler.elapsedRealtime();
+        long delay = Math.max(minimumDelayMs, throttleDelay(now));
+        if (delay <= 0) {
+            attemptStart();
+            return;
+        }
+        if (delay > minimumDelayMs) {
+            throttleDeferrals++;
+            HLog.w(TAG, "⏳ Deferring scan start " + delay + " ms to stay under the start limit");
+        }
+        setState(State.COOLING_DOWN);
+        scheduler.postDelayed(startRunnable, delay);
+    }
+
+    /**
+     * How long to wait so this start would not be the 6th within the throttle window
+     */
+    private long throttleDelay(long now) {
+        long oldest = recentStarts[recentStartIndex];
+        if (oldest == 0) return 0;
+        long readyAt = oldest + THROTTLE_WINDOW_MS + THROTTLE_MARGIN_MS;
+        return Math.max(0, readyAt - now);
+    }
+
+    private synchronized void attemptStart() {
+        long now = scheduler.elapsedRealtime();
+        long throttle = throttleDelay(now);
+        if (throttle > 0) {
+            scheduleStart(throttle);
+            return;
+        }
+
+        recentStarts[recentStartIndex] = now;
+        recentStartIndex = (recentStartIndex + 1) % THROTTLE_MAX_STARTS;
+
+        setState(State.STARTING);
+        if (!actions.startHardwareScan()) {
+            setState(State.IDLE);
+            actions.onScanGaveUp("Scan could not be started");
+            return;
+        }
+        // startScan is asynchronous; a failure arrives through onScanFailed
+        setState(State.SCANNING);
+        actions.onScanStarted(retries);
+    }
+
+    /**
+     * Handles ScanCallback.onScanFailed; returns true if a retry was scheduled
+     */
+    public synchronized boolean onScanFailed(int errorCode, boolean retryable) {
+        if (state != State.SCANNING && state != State.STARTING) {
+            return false;
+        }
+        actions.stopHardwareScan();
+
+        if (!retryable || retries >= MAX_RETRIES) {
+            setState(State.IDLE);
+            recordCompletedScan();
+            return false;
+        }
+
+        long backoff = Math.min(BACKOFF_MAX_MS, BACKOFF_BASE_MS << retries);
+        retries++;
+        totalRetries++;
+        HLog.w(TAG, "🔁 Scan failed (" + errorCode + "), retry " + retries + " in " + backoff + " ms");
+        scheduleStart(backoff);
+        return true;
+    }
+
+    /**
+     * Called for each scan result; records time-to-first-result and time-to-target
+     */
+    public void onResult(String address, long now) {
+        long requestedAt = startRequestedAt;
+        if (firstResultAt.get() == 0) {
+            firstResultAt.compareAndSet(0, now);
+        }
+        String target = targetAddress;
+        if (target != null && targetFoundAt.get() == 0 && target.equalsIgnoreCase(address)) {
+            if (targetFoundAt.compareAndSet(0, now)) {
+                HLog.d(TAG, "🎯 Target device found after " + (now - requestedAt) + " ms");
+            }
+        }
+    }
+
+    private void recordCompletedScan() {
+        completedScans++;
+        long first = firstResultAt.get();
+        lastTimeToFirstResultMs = first > 0 ? first - startRequestedAt : -1;
+        if (first > 0) {
+            scansWithResult++;
+            totalTimeToFirstResultMs += lastTimeToFirstResultMs;
+        }
+        long target = targetFoundAt.get();
+        lastTimeToTargetMs = target > 0 ? target - startRequestedAt : -1;
+        if (target > 0) {
+            scansWithTarget++;
+            totalTimeToTargetMs += lastTimeToTargetMs;
+        }
+    }
+
+    private void setState(State newState) {
+        if (state != newState) {
+            HLog.d(TAG, "🔀 " + state + " → " + newState);
+            state = newState;
+        }
+    }
+
+    // Getters
+    public synchronized State getState() { return state; }
+    public synchronized boolean isScanning() { return state == State.SCANNING; }
+    public synchronized int getCompletedScans() { return completedScans; }
+    public synchronized long getLastTimeToFirstResultMs() { return lastTimeToFirstResultMs; }
+    public synchronized long getLastTimeToTargetMs() { return lastTimeToTargetMs; }
+    public synchronized long getAverageTimeToFirstResultMs() {
+        return scansWithResult > 0 ? totalTimeToFirstResultMs / scansWithResult : -1;
+    }
+    public synchronized long getAverageTimeToTargetMs() {
+        return scansWithTarget > 0 ? totalTimeToTargetMs / scansWithTarget : -1;
+    }
+    public synchronized int getTotalRetries() { return totalRetries; }
+    public synchronized int getThrottleDeferrals() { return throttleDeferrals; }
+}
@@ -0,0 +1,291 @@
+package com.xevoxmobileapp;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Native sample buffer for high-rate sensor notifications
+ * Every sample lands in a per-metric SampleRingBuffer at full resolution. A decimation
+ * stage forwards at most maxUpdatesPerSecond samples per metric to the listener, either
+ * the latest sample or the mean of the samples since the last update. An optional change
+ * threshold further drops updates that differ from the last forwarded one by less than
+ * the threshold on every channel, until maxSilenceMs has passed. With a scheduler set,
+ * samples held back in a window are flushed when the window ends even if nothing more
+ * arrives. The listener runs outside the metric's lock; only forwarded updates allocate.
+ */
+public class SensorSampleHub {
+    public static final int DEFAULT_CAPACITY = 4096;
+    public static final int DEFAULT_MAX_UPDATES_PER_SECOND = 1;
+
+    public enum DecimationMode { LATEST, MEAN }
+
+    /**
+     * Receives decimated samples on the appending thread
+     */
+    public interface Listener {
+        void onDecimatedSample(HealthMetric metric, long timestamp, int[] values, int samplesInWindow);
+    }
+
+    // One forwarded update, handed to the listener after the lock is released
+    private static final class Update {
+        final HealthMetric metric;
+        final long timestamp;
+        final int[] values;
+        final int samplesInWindow;
+
+        Update(HealthMetric metric, long timestamp, int[] values, int samplesInWindow) {
+            this.metric = metric;
+            this.timestamp = timestamp;
+            this.values = values;
+            this.samplesInWindow = samplesInWindow;
+        }
+    }
+
+    private class Channel {
+        final HealthMetric metric;
+        final SampleRingBuffer ring;
+        final long[] sums;
+        final int[] scratch;
+        final int[] latest;
+        final int[] lastEmitted;
+        final Runnable trailingFlush = () -> deliver(flush(this));
+        long intervalMs;
+        DecimationMode mode = DecimationMode.LATEST;
+        int changeThreshold = 0;
+        long maxSilenceMs = Long.MAX_VALUE;
+        long windowStartedAt = Long.MIN_VALUE;
+        long lastEmitAt = Long.MIN_VALUE;
+        long latestAt = Long.MIN_VALUE;
+        int windowCount = 0;
+        boolean flushScheduled = false;
+        long received = 0;
+        long emitted = 0;
+        long suppressed = 0;
+
+        Channel(HealthMetric metric, int capacity, int maxUpdatesPerSecond) {
+            this.metric = metric;
+            this.ring = new SampleRingBuffer(capacity, metric.channels, metric.compact);
+            this.sums = new long[metric.channels];
+            this.scratch = new int[metric.channels];
+            this.latest = new int[metric.channels];
+            this.lastEmitted = new int[metric.channels];
+            setRate(maxUpdatesPerSecond);
+        }
+
+        void setRate(int maxUpdatesPerSecond) {
+            intervalMs = maxUpdatesPerSecond > 0 ? 1000L / maxUpdatesPerSecond : Long.MAX_VALUE;
+        }
+    }
+
+    private final Map<HealthMetric, Channel> channels = new EnumMap<>(HealthMetric.class);
+    private volatile Listener listener;
+    private volatile MainScheduler scheduler;
+
+    public SensorSampleHub() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_UPDATES_PER_SECOND);
+    }
+
+    public SensorSampleHub(int capacity, int maxUpdatesPerSecond) {
+        for (HealthMetric metric : HealthMetric.values()) {
+            channels.put(metric, new Channel(metric, capacity, maxUpdatesPerSecond));
+        }
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Runs trailing flushes; without one a window's held-back samples wait for the next sample
+     */
+    public void setFlushScheduler(MainScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * maxUpdatesPerSecond <= 0 stops forwarding the metric to the listener (it is still buffered)
+     */
+    public void configure(HealthMetric metric, int maxUpdatesPerSecond, DecimationMode mode) {
+        Channel channel = channels.get(metric);
+        synchronized (channel) {
+            channel.setRate(maxUpdatesPerSecond);
+            channel.mode = mode;
+            channel.windowCount = 0;
+            for (int c = 0; c < channel.sums.length; c++) {
+                channel.sums[c] = 0;
+            }
+        }
+    }
+
+    /**
+     * Forward an update only if some channel moved by at least threshold since the last
+     * forwarded value, or maxSilenceMs passed (threshold <= 0 forwards every update)
+     */
+    public void setChangeThreshold(HealthMetric metric, int threshold, long maxSilenceMs) {
+        Channel channel = channels.get(metric);
+        synchronized (channel) {
+            channel.changeThreshold = Math.max(0, threshold);
+            channel.maxSilenceMs = maxSilenceMs > 0 ? maxSilenceMs : Long.MAX_VALUE;
+        }
+    }
+
+    public void append(HealthMetric metric, long timestamp, int value) {
+        Channel channel = channels.get(metric);
+        Update update;
+        synchronized (channel) {
+            channel.ring.append(timestamp, value);
+            channel.scratch[0] = value;
+            update = decimate(channel, timestamp);
+        }
+        deliver(update);
+    }
+
+    public void append(HealthMetric metric, long timestamp, int first, int second) {
+        Channel channel = channels.get(metric);
+        Update update;
+        synchronized (channel) {
+            channel.ring.append(timestamp, first, second);
+            channel.scratch[0] = first;
+            channel.scratch[1] = second;
+            update = decimate(channel, timestamp);
+        }
+        deliver(update);
+    }
+
+    public void append(HealthMetric metric, long timestamp, int x, int y, int z) {
+        Channel channel = channels.get(metric);
+        Update update;
+        synchronized (channel) {
+            channel.ring.append(timestamp, x, y, z);
+            channel.scratch[0] = x;
+            channel.scratch[1] = y;
+            channel.scratch[2] = z;
+            update = decimate(channel, timestamp);
+        }
+        deliver(update);
+    }
+
+    // Called with the channel locked; scratch holds the values just appended
+    private Update decimate(Channel channel, long timestamp) {
+        channel.received++;
+        int width = channel.metric.channels;
+        for (int c = 0; c < width; c++) {
+            channel.sums[c] += channel.scratch[c];
+        }
+        System.arraycopy(channel.scratch, 0, channel.latest, 0, width);
+        channel.latestAt = timestamp;
+        channel.windowCount++;
+
+        if (channel.intervalMs == Long.MAX_VALUE) {
+            resetWindow(channel);
+            return null;
+        }
+        if (channel.windowStartedAt != Long.MIN_VALUE && timestamp - channel.windowStartedAt < channel.intervalMs) {
+            scheduleTrailingFlush(channel, channel.windowStartedAt + channel.intervalMs - timestamp);
+            return null;
+        }
+        return closeWindow(channel);
+    }
+
+    private void scheduleTrailingFlush(Channel channel, long delayMs) {
+        MainScheduler current = scheduler;
+        if (current == null || channel.flushScheduled) return;
+        channel.flushScheduled = true;
+        current.postDelayed(channel.trailingFlush, Math.max(0, delayMs));
+    }
+
+    // The window ended without a sample past it: forward what it held
+    private Update flush(Channel channel) {
+        synchronized (channel) {
+            channel.flushScheduled = false;
+            if (channel.windowCount == 0 || channel.intervalMs == Long.MAX_VALUE) return null;
+            System.arraycopy(channel.latest, 0, channel.scratch, 0, channel.metric.channels);
+            return closeWindow(channel);
+        }
+    }
+
+    // Called with the channel locked; scratch holds the window's latest values
+    private Update closeWindow(Channel channel) {
+        if (channel.flushScheduled) {
+            // A sample past the window closed it first; the flush would cut the next one short
+            channel.flushScheduled = false;
+            MainScheduler current = scheduler;
+            if (current != null) {
+                current.cancel(channel.trailingFlush);
+            }
+        }
+        int width = channel.metric.channels;
+        long timestamp = channel.latestAt;
+        if (channel.mode == DecimationMode.MEAN) {
+            for (int c = 0; c < width; c++) {
+                channel.scratch[c] = (int) (channel.sums[c] / channel.windowCount);
+            }
+        }
+        int samplesInWindow = channel.windowCount;
+        resetWindow(channel);
+        channel.windowStartedAt = timestamp;
+
+        if (channel.changeThreshold > 0 && channel.lastEmitAt != Long.MIN_VALUE
+                && timestamp - channel.lastEmitAt < channel.maxSilenceMs
+                && !changedBeyondThreshold(channel)) {
+            channel.suppressed++;
+            return null;
+        }
+        System.arraycopy(channel.scratch, 0, channel.lastEmitted, 0, width);
+        channel.lastEmitAt = timestamp;
+        channel.emitted++;
+        return new Update(channel.metric, timestamp, channel.scratch.clone(), samplesInWindow);
+    }
+
+    private void deliver(Update update) {
+        if (update == null) return;
+        Listener current = listener;
+        if (current != null) {
+            current.onDecimatedSample(update.metric, update.timestamp, update.values, update.samplesInWindow);
+        }
+    }
+
+    private boolean changedBeyondThreshold(Channel channel) {
+        for (int c = 0; c < channel.scratch.length; c++) {
+            if (Math.abs(channel.scratch[c] - channel.lastEmitted[c]) >= channel.changeThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void resetWindow(Channel channel) {
+        channel.windowCount = 0;
+        for (int c = 0; c < channel.sums.length; c++) {
+            channel.sums[c] = 0;
+        }
+    }
+
+    /**
+     * Full-resolution access to the buffered samples
+     */
+    public SampleRingBuffer getBuffer(HealthMetric metric) {
+        return channels.get(metric).ring;
+    }
+
+    public long getReceived(HealthMetric metric) {
+        Channel channel = channels.get(metric);
+        synchronized (channel) {
+            return channel.received;
+        }
+    }
+
+    public long getEmitted(HealthMetric metric) {
+        Channel channel = channels.get(metric);
+        synchronized (channel) {
+            return channel.emitted;
+        }
+    }
+
+    public long getSuppressed(HealthMetric metric) {
+        Channel channel = channels.get(metric);
+        synchronized (channel) {
+            return channel.suppressed;
+        }
+    }
+}
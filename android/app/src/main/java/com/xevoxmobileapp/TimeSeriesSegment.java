@@ -0,0 +1,193 @@
+package com.xevoxmobileapp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One append-only segment file of a TimeSeriesStore series
+ * Records are [zigzag varint timestamp delta][zigzag varint value delta per channel],
+ * with deltas taken against the previous record of the segment. Sealed segments end
+ * with a fixed footer holding the count and min/max time/value index.
+ */
+final class TimeSeriesSegment {
+    static final String SEALED_SUFFIX = ".seg";
+    static final String ACTIVE_SUFFIX = ".active";
+
+    private static final int FOOTER_MAGIC = 0x54535331; // "TSS1"
+    static final int FOOTER_SIZE = 32;
+
+    /**
+     * Receives decoded samples; values is reused between calls
+     */
+    interface SampleSink {
+        void onSample(long timestamp, int[] values);
+    }
+
+    final int channels;
+    File file;
+    boolean sealed;
+
+    // Index
+    int count = 0;
+    long minTimestamp = Long.MAX_VALUE;
+    long maxTimestamp = Long.MIN_VALUE;
+    int minValue = Integer.MAX_VALUE;
+    int maxValue = Integer.MIN_VALUE;
+    long dataLength = 0;
+
+    // Delta state of the last record (active segments only)
+    private long previousTimestamp = 0;
+    private final int[] previousValues;
+
+    private MappedByteBuffer mapped;
+
+    TimeSeriesSegment(File file, int channels, boolean sealed) {
+        this.file = file;
+        this.channels = channels;
+        this.sealed = sealed;
+        this.previousValues = new int[channels];
+    }
+
+    /**
+     * Encodes one record into scratch and returns its length; updates delta state and index
+     */
+    int encode(long timestamp, int[] values, byte[] scratch) {
+        int offset = VarintCodec.writeSignedVarLong(scratch, 0, timestamp - previousTimestamp);
+        for (int c = 0; c < channels; c++) {
+            offset = VarintCodec.writeSignedVarLong(scratch, offset, (long) values[c] - previousValues[c]);
+            previousValues[c] = values[c];
+        }
+        previousTimestamp = timestamp;
+        index(timestamp, values[0]);
+        dataLength += offset;
+        return offset;
+    }
+
+    private void index(long timestamp, int value) {
+        count++;
+        if (timestamp < minTimestamp) minTimestamp = timestamp;
+        if (timestamp > maxTimestamp) maxTimestamp = timestamp;
+        if (value < minValue) minValue = value;
+        if (value > maxValue) maxValue = value;
+    }
+
+    boolean overlaps(long fromTimestamp, long toTimestamp) {
+        return count > 0 && maxTimestamp >= fromTimestamp && minTimestamp < toTimestamp;
+    }
+
+    /**
+     * Decodes records with fromTimestamp <= t < toTimestamp; returns the number delivered
+     */
+    int scan(long fromTimestamp, long toTimestamp, SampleSink sink, int[] values) throws IOException {
+        ByteBuffer buffer = map();
+        long timestamp = 0;
+        for (int c = 0; c < channels; c++) values[c] = 0;
+        int delivered = 0;
+        while (buffer.position() < dataLength) {
+            timestamp += VarintCodec.readSignedVarLong(buffer);
+            for (int c = 0; c < channels; c++) {
+                values[c] += (int) VarintCodec.readSignedVarLong(buffer);
+            }
+            if (timestamp >= fromTimestamp && timestamp < toTimestamp) {
+                sink.onSample(timestamp, values);
+                delivered++;
+            }
+        }
+        return delivered;
+    }
+
+    private ByteBuffer map() throws IOException {
+        if (sealed && mapped != null) {
+            return mapped.duplicate();
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataLength);
+            // Active segments grow, so only sealed mappings are worth keeping
+            if (sealed) {
+                mapped = buffer;
+            }
+            return buffer.duplicate();
+        }
+    }
+
+    /**
+     * Appends the index footer and marks the segment sealed
+     */
+    void writeFooter(RandomAccessFile raf) throws IOException {
+        ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+        footer.putInt(FOOTER_MAGIC);
+        footer.putInt(count);
+        footer.putLong(minTimestamp);
+        footer.putLong(maxTimestamp);
+        footer.putInt(minValue);
+        footer.putInt(maxValue);
+        raf.seek(dataLength);
+        raf.write(footer.array());
+        raf.setLength(dataLength + FOOTER_SIZE);
+        sealed = true;
+    }
+
+    /**
+     * Loads a sealed segment's index from its footer; false if the footer is missing or corrupt
+     */
+    boolean readFooter() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < FOOTER_SIZE) return false;
+            byte[] bytes = new byte[FOOTER_SIZE];
+            raf.seek(length - FOOTER_SIZE);
+            raf.readFully(bytes);
+            ByteBuffer footer = ByteBuffer.wrap(bytes);
+            if (footer.getInt() != FOOTER_MAGIC) return false;
+            count = footer.getInt();
+            minTimestamp = footer.getLong();
+            maxTimestamp = footer.getLong();
+            minValue = footer.getInt();
+            maxValue = footer.getInt();
+            dataLength = length - FOOTER_SIZE;
+            return true;
+        }
+    }
+
+    /**
+     * Rebuilds index and delta state of an active segment, truncating a torn last record
+     */
+    void recover() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            long length = raf.length();
+            ByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+            long timestamp = 0;
+            int[] values = new int[channels];
+            long good = 0;
+            count = 0;
+            try {
+                while (buffer.position() < length) {
+                    timestamp += VarintCodec.readSignedVarLong(buffer);
+                    for (int c = 0; c < channels; c++) {
+                        values[c] += (int) VarintCodec.readSignedVarLong(buffer);
+                    }
+                    index(timestamp, values[0]);
+                    good = buffer.position();
+                    previousTimestamp = timestamp;
+                    System.arraycopy(values, 0, previousValues, 0, channels);
+                }
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                // Torn write at the tail: keep everything up to the last complete record
+            }
+            dataLength = good;
+            if (good < length) {
+                raf.setLength(good);
+            }
+        }
+    }
+
+    long sizeOnDisk() {
+        return dataLength + (sealed ? FOOTER_SIZE : 0);
+    }
+}
@@ -0,0 +1,495 @@
+package com.xevoxmobileapp;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device append-only time-series store for health samples
+ * Each metric is a directory of segment files (see TimeSeriesSegment). Sealed segments
+ * are memory-mapped for reads and skipped via their min/max time index, so range
+ * queries only decode the segments they overlap. Old segments are dropped by the
+ * retention policy and small ones are merged by compaction.
+ */
+public class TimeSeriesStore {
+    public static final long DEFAULT_RETENTION_MS = TimeUnit.DAYS.toMillis(90);
+    public static final long SEGMENT_TARGET_BYTES = 256 * 1024;
+    public static final int SEGMENT_MAX_SAMPLES = 65536;
+    private static final int INITIAL_QUERY_CAPACITY = 1024;
+
+    /**
+     * Query result as parallel primitive arrays (values are interleaved per channel)
+     */
+    public static class SampleBatch {
+        public final HealthMetric metric;
+        public final long[] timestamps;
+        public final int[] values;
+        public int count;
+
+        SampleBatch(HealthMetric metric, int capacity) {
+            this.metric = metric;
+            this.timestamps = new long[capacity];
+            this.values = new int[capacity * metric.channels];
+        }
+    }
+
+    private final File root;
+    private final Map<HealthMetric, Series> series = new EnumMap<>(HealthMetric.class);
+    private volatile long retentionMs = DEFAULT_RETENTION_MS;
+
+    public TimeSeriesStore(File root) {
+        this.root = root;
+    }
+
+    public void setRetention(long retentionMs) {
+        this.retentionMs = retentionMs;
+    }
+
+    private synchronized Series series(HealthMetric metric) throws IOException {
+        Series existing = series.get(metric);
+        if (existing == null) {
+            existing = new Series(metric, new File(root, metric.jsName));
+            existing.open();
+            series.put(metric, existing);
+        }
+        return existing;
+    }
+
+    public void append(HealthMetric metric, long timestamp, int value) throws IOException {
+        Series target = series(metric);
+        synchronized (target) {
+            target.single[0] = value;
+            target.append(timestamp, target.single);
+        }
+    }
+
+    /**
+     * values must hold metric.channels entries
+     */
+    public void append(HealthMetric metric, long timestamp, int[] values) throws IOException {
+        Series target = series(metric);
+        synchronized (target) {
+            target.append(timestamp, values);
+        }
+    }
+
+    /**
+     * Appends timestamps[from, from + count) (values row-major by channel) under one lock
+     * acquisition; keep count small so live appends to the same metric are not held up
+     */
+    public void append(HealthMetric metric, long[] timestamps, int[] values, int from, int count) throws IOException {
+        Series target = series(metric);
+        int channels = metric.channels;
+        synchronized (target) {
+            for (int i = from; i < from + count; i++) {
+                System.arraycopy(values, i * channels, target.row, 0, channels);
+                target.append(timestamps[i], target.row);
+            }
+        }
+    }
+
+    public void flush() throws IOException {
+        for (Series target : openSeries()) {
+            synchronized (target) {
+                target.flush();
+            }
+        }
+    }
+
+    /**
+     * Streams samples with fromTimestamp <= t < toTimestamp in storage order; returns the count
+     */
+    public int query(HealthMetric metric, long fromTimestamp, long toTimestamp,
+                     TimeSeriesSegment.SampleSink sink) throws IOException {
+        Series target = series(metric);
+        synchronized (target) {
+            return target.scan(fromTimestamp, toTimestamp, sink);
+        }
+    }
+
+    /**
+     * Collects the maxSamples newest samples in the range, sorted by timestamp
+     */
+    public SampleBatch query(HealthMetric metric, long fromTimestamp, long toTimestamp, int maxSamples) throws IOException {
+        return collect(metric, fromTimestamp, toTimestamp, maxSamples, true);
+    }
+
+    /**
+     * Collects the maxSamples oldest samples in the range, sorted by timestamp
+     */
+    public SampleBatch queryOldest(HealthMetric metric, long fromTimestamp, long toTimestamp, int maxSamples) throws IOException {
+        return collect(metric, fromTimestamp, toTimestamp, maxSamples, false);
+    }
+
+    /**
+     * The maxSamples newest (or oldest) samples in the range, by timestamp
+     * Storage order is append order and history sync appends late records, so the cut is
+     * made on timestamps. The work buffer grows with the samples the range actually holds,
+     * up to 2 * maxSamples, so a huge maxSamples from JS costs nothing up front.
+     */
+    private SampleBatch collect(HealthMetric metric, long fromTimestamp, long toTimestamp, int maxSamples,
+                                boolean newest) throws IOException {
+        checkMaxSamples(maxSamples);
+        int channels = metric.channels;
+        long limit = 2L * maxSamples;
+        SampleBatch[] work = {new SampleBatch(metric, (int) Math.min(limit, INITIAL_QUERY_CAPACITY))};
+        // Samples beyond this edge can no longer make the cut
+        long[] edge = {newest ? Long.MIN_VALUE : Long.MAX_VALUE};
+        query(metric, fromTimestamp, toTimestamp, (timestamp, values) -> {
+            if (newest ? timestamp < edge[0] : timestamp > edge[0]) return;
+            SampleBatch buffer = work[0];
+            if (buffer.count == buffer.timestamps.length) {
+                if (buffer.count < limit) {
+                    buffer = work[0] = grow(buffer, (int) Math.min(limit, 2L * buffer.count));
+                } else {
+                    // Keep the half that can still make the cut
+                    sortByTimestamp(buffer);
+                    if (newest) {
+                        System.arraycopy(buffer.timestamps, buffer.count - maxSamples, buffer.timestamps, 0, maxSamples);
+                        System.arraycopy(buffer.values, (buffer.count - maxSamples) * channels, buffer.values, 0,
+                            maxSamples * channels);
+                    }
+                    buffer.count = maxSamples;
+                    edge[0] = newest ? buffer.timestamps[0] : buffer.timestamps[maxSamples - 1];
+                    if (newest ? timestamp < edge[0] : timestamp > edge[0]) return;
+                }
+            }
+            buffer.timestamps[buffer.count] = timestamp;
+            System.arraycopy(values, 0, buffer.values, buffer.count * channels, channels);
+            buffer.count++;
+        });
+        SampleBatch buffer = work[0];
+        sortByTimestamp(buffer);
+
+        int count = Math.min(maxSamples, buffer.count);
+        int first = newest ? buffer.count - count : 0;
+        SampleBatch batch = new SampleBatch(metric, count);
+        System.arraycopy(buffer.timestamps, first, batch.timestamps, 0, count);
+        System.arraycopy(buffer.values, first * channels, batch.values, 0, count * channels);
+        batch.count = count;
+        return batch;
+    }
+
+    private static SampleBatch grow(SampleBatch batch, int capacity) {
+        SampleBatch grown = new SampleBatch(batch.metric, capacity);
+        System.arraycopy(batch.timestamps, 0, grown.timestamps, 0, batch.count);
+        System.arraycopy(batch.values, 0, grown.values, 0, batch.count * batch.metric.channels);
+        grown.count = batch.count;
+        return grown;
+    }
+
+    private static void checkMaxSamples(int maxSamples) {
+        if (maxSamples <= 0) {
+            throw new IllegalArgumentException("maxSamples must be positive: " + maxSamples);
+        }
+    }
+
+    private static void sortByTimestamp(SampleBatch batch) {
+        int channels = batch.metric.channels;
+        int count = batch.count;
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(batch.timestamps[a], batch.timestamps[b]));
+        long[] timestamps = new long[count];
+        int[] values = new int[count * channels];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = batch.timestamps[order[i]];
+            System.arraycopy(batch.values, order[i] * channels, values, i * channels, channels);
+        }
+        System.arraycopy(timestamps, 0, batch.timestamps, 0, count);
+        System.arraycopy(values, 0, batch.values, 0, count * channels);
+    }
+
+    /**
+     * Drops sealed segments entirely older than the retention window; returns segments removed
+     */
+    public int applyRetention(long now) throws IOException {
+        int removed = 0;
+        for (HealthMetric metric : HealthMetric.values()) {
+            Series target = series(metric);
+            synchronized (target) {
+                removed += target.applyRetention(now - retentionMs);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Merges runs of small sealed segments into full ones, sorted by timestamp; returns segments merged
+     */
+    public int compact() throws IOException {
+        int merged = 0;
+        for (HealthMetric metric : HealthMetric.values()) {
+            Series target = series(metric);
+            synchronized (target) {
+                merged += target.compact();
+            }
+        }
+        return merged;
+    }
+
+    public synchronized void close() throws IOException {
+        for (Series target : series.values()) {
+            synchronized (target) {
+                target.close();
+            }
+        }
+        series.clear();
+    }
+
+    private synchronized List<Series> openSeries() {
+        return new ArrayList<>(series.values());
+    }
+
+    /**
+     * Sample count, segment count and bytes on disk for one metric
+     */
+    public long[] getStats(HealthMetric metric) throws IOException {
+        Series target = series(metric);
+        synchronized (target) {
+            long samples = 0;
+            long bytes = 0;
+            for (TimeSeriesSegment segment : target.allSegments()) {
+                samples += segment.count;
+                bytes += segment.sizeOnDisk();
+            }
+            return new long[] { samples, target.allSegments().size(), bytes };
+        }
+    }
+
+    /**
+     * Segments of one metric; the active segment is always last
+     */
+    private static final class Series {
+        final HealthMetric metric;
+        final File directory;
+        final List<TimeSeriesSegment> sealed = new ArrayList<>();
+        final byte[] scratch;
+        final int[] single = new int[1];
+        final int[] row;
+        TimeSeriesSegment active;
+        BufferedOutputStream activeOut;
+        long nextSequence = 0;
+
+        Series(HealthMetric metric, File directory) {
+            this.metric = metric;
+            this.directory = directory;
+            this.scratch = new byte[VarintCodec.MAX_VARLONG_BYTES * (metric.channels + 1)];
+            this.row = new int[metric.channels];
+        }
+
+        void open() throws IOException {
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                throw new IOException("Cannot create " + directory);
+            }
+            File[] files = directory.listFiles();
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    String name = file.getName();
+                    if (name.endsWith(".tmp")) {
+                        // Leftover from an interrupted compaction
+                        file.delete();
+                        continue;
+                    }
+                    nextSequence = Math.max(nextSequence, sequenceOf(name) + 1);
+                    TimeSeriesSegment segment = new TimeSeriesSegment(file, metric.channels, true);
+                    if (name.endsWith(TimeSeriesSegment.SEALED_SUFFIX) && segment.readFooter()) {
+                        sealed.add(segment);
+                    } else if (name.endsWith(TimeSeriesSegment.ACTIVE_SUFFIX)
+                            || name.endsWith(TimeSeriesSegment.SEALED_SUFFIX)) {
+                        // Previous session's active segment (or a torn seal): recover and seal it
+                        segment.sealed = false;
+                        segment.recover();
+                        if (segment.count > 0) {
+                            seal(segment);
+                        } else {
+                            file.delete();
+                        }
+                    }
+                }
+            }
+            startActive();
+        }
+
+        private static long sequenceOf(String name) {
+            int dot = name.indexOf('.');
+            try {
+                return Long.parseLong(dot > 0 ? name.substring(0, dot) : name);
+            } catch (NumberFormatException e) {
+                return -1;
+            }
+        }
+
+        private File segmentFile(long sequence, String suffix) {
+            return new File(directory, String.format(Locale.ROOT, "%016d%s", sequence, suffix));
+        }
+
+        private void startActive() throws IOException {
+            File file = segmentFile(nextSequence++, TimeSeriesSegment.ACTIVE_SUFFIX);
+            active = new TimeSeriesSegment(file, metric.channels, false);
+            activeOut = new BufferedOutputStream(new FileOutputStream(file, true), 8192);
+        }
+
+        void append(long timestamp, int[] values) throws IOException {
+            int length = active.encode(timestamp, values, scratch);
+            activeOut.write(scratch, 0, length);
+            if (active.dataLength >= SEGMENT_TARGET_BYTES || active.count >= SEGMENT_MAX_SAMPLES) {
+                roll();
+            }
+        }
+
+        void flush() throws IOException {
+            if (activeOut != null) {
+                activeOut.flush();
+            }
+        }
+
+        private void roll() throws IOException {
+            activeOut.close();
+            activeOut = null;
+            seal(active);
+            startActive();
+        }
+
+        private void seal(TimeSeriesSegment segment) throws IOException {
+            try (RandomAccessFile raf = new RandomAccessFile(segment.file, "rw")) {
+                segment.writeFooter(raf);
+            }
+            String name = segment.file.getName();
+            if (name.endsWith(TimeSeriesSegment.ACTIVE_SUFFIX)) {
+                File sealedFile = new File(directory,
+                    name.substring(0, name.length() - TimeSeriesSegment.ACTIVE_SUFFIX.length()) + TimeSeriesSegment.SEALED_SUFFIX);
+                if (segment.file.renameTo(sealedFile)) {
+                    segment.file = sealedFile;
+                }
+            }
+            sealed.add(segment);
+        }
+
+        List<TimeSeriesSegment> allSegments() {
+            List<TimeSeriesSegment> all = new ArrayList<>(sealed);
+            all.add(active);
+            return all;
+        }
+
+        int scan(long fromTimestamp, long toTimestamp, TimeSeriesSegment.SampleSink sink) throws IOException {
+            int[] values = new int[metric.channels];
+            int total = 0;
+            for (TimeSeriesSegment segment : sealed) {
+                if (segment.overlaps(fromTimestamp, toTimestamp)) {
+                    total += segment.scan(fromTimestamp, toTimestamp, sink, values);
+                }
+            }
+            if (active.overlaps(fromTimestamp, toTimestamp)) {
+                flush();
+                total += active.scan(fromTimestamp, toTimestamp, sink, values);
+            }
+            return total;
+        }
+
+        int applyRetention(long cutoff) {
+            int removed = 0;
+            for (int i = sealed.size() - 1; i >= 0; i--) {
+                TimeSeriesSegment segment = sealed.get(i);
+                if (segment.maxTimestamp < cutoff && segment.file.delete()) {
+                    sealed.remove(i);
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        int compact() throws IOException {
+            int merged = 0;
+            int i = 0;
+            while (i < sealed.size()) {
+                // Greedy run of adjacent segments that together fit in one target-sized segment
+                int j = i;
+                long bytes = 0;
+                int samples = 0;
+                while (j < sealed.size()
+                        && bytes + sealed.get(j).dataLength <= SEGMENT_TARGET_BYTES
+                        && samples + sealed.get(j).count <= SEGMENT_MAX_SAMPLES) {
+                    bytes += sealed.get(j).dataLength;
+                    samples += sealed.get(j).count;
+                    j++;
+                }
+                if (j - i >= 2) {
+                    mergeRun(i, j, samples);
+                    merged += j - i;
+                    i++;
+                } else {
+                    i = Math.max(j, i + 1);
+                }
+            }
+            return merged;
+        }
+
+        private void mergeRun(int from, int to, int samples) throws IOException {
+            int channels = metric.channels;
+            long[] timestamps = new long[samples];
+            int[] values = new int[samples * channels];
+            int[] position = {0};
+            int[] scratchValues = new int[channels];
+            for (int k = from; k < to; k++) {
+                sealed.get(k).scan(Long.MIN_VALUE, Long.MAX_VALUE, (timestamp, sample) -> {
+                    timestamps[position[0]] = timestamp;
+                    System.arraycopy(sample, 0, values, position[0] * channels, channels);
+                    position[0]++;
+                }, scratchValues);
+            }
+
+            Integer[] order = new Integer[samples];
+            for (int k = 0; k < samples; k++) order[k] = k;
+            Arrays.sort(order, (a, b) -> Long.compare(timestamps[a], timestamps[b]));
+
+            // Write the merged segment under a temporary name, then swap it in
+            long sequence = sequenceOf(sealed.get(from).file.getName());
+            File temp = new File(directory, sealed.get(from).file.getName() + ".tmp");
+            TimeSeriesSegment merged = new TimeSeriesSegment(temp, channels, false);
+            try (BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(temp), 8192)) {
+                int[] sample = new int[channels];
+                for (int k = 0; k < samples; k++) {
+                    int index = order[k];
+                    System.arraycopy(values, index * channels, sample, 0, channels);
+                    int length = merged.encode(timestamps[index], sample, scratch);
+                    out.write(scratch, 0, length);
+                }
+            }
+            try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+                merged.writeFooter(raf);
+            }
+
+            // Replace the first segment of the run atomically, then drop the rest;
+            // a crash in between can duplicate samples but never lose them
+            File target = segmentFile(sequence, TimeSeriesSegment.SEALED_SUFFIX);
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                throw new IOException("Cannot replace " + target);
+            }
+            merged.file = target;
+            for (int k = from + 1; k < to; k++) {
+                sealed.get(k).file.delete();
+            }
+            sealed.subList(from, to).clear();
+            sealed.add(from, merged);
+        }
+
+        void close() throws IOException {
+            if (activeOut != null) {
+                activeOut.close();
+                activeOut = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package com.xevoxmobileapp;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * BleTransport that plays back a recorded trace instead of using the radio
+ * A trace is text, one event per line, offsets in milliseconds from the start:
+ *
+ *   120 ADV C4:7C:8D:6A:1B:2E -61 HBand-Watch 0201060303e7fe
+ *   340 NOTIFY C4:7C:8D:6A:1B:2E f0080002-0451-4000-b000-000000000000 a50103...
+ *   900 DISCONNECT C4:7C:8D:6A:1B:2E
+ *
+ * ("-" for a missing name or payload, "#" starts a comment). Advertisements reach the
+ * scan listener only while a scan runs, notifications only links that are connected.
+ * speed scales the recorded timing (2.0 = twice as fast); 0 replays as fast as possible.
+ */
+public class TraceReplayTransport implements BleTransport {
+    private static final String TAG = "TraceReplayTransport";
+
+    public static final int REPLAY_MTU = 247;
+
+    private static final int KIND_ADVERTISEMENT = 0;
+    private static final int KIND_NOTIFICATION = 1;
+    private static final int KIND_DISCONNECT = 2;
+
+    private static final class TraceEvent {
+        final long offsetMs;
+        final int kind;
+        final String address;
+        final String name;
+        final int rssi;
+        final UUID characteristic;
+        final byte[] data;
+
+        TraceEvent(long offsetMs, int kind, String address, String name, int rssi, UUID characteristic, byte[] data) {
+            this.offsetMs = offsetMs;
+            this.kind = kind;
+            this.address = address;
+            this.name = name;
+            this.rssi = rssi;
+            this.characteristic = characteristic;
+            this.data = data;
+        }
+    }
+
+    private final List<TraceEvent> events;
+    private final double speed;
+    private final Map<String, ReplayLink> links = new ConcurrentHashMap<>();
+    // Link callbacks run here, off the caller's thread, like binder callbacks would
+    private final ExecutorService linkExecutor = Executors.newSingleThreadExecutor(
+        runnable -> new Thread(runnable, "HBandTraceLink"));
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile ScanListener scanListener;
+    private volatile Thread replayThread;
+    private volatile boolean stopped = false;
+
+    // Stats
+    private final AtomicLong advertisementsDelivered = new AtomicLong();
+    private final AtomicLong notificationsDelivered = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+
+    private TraceReplayTransport(List<TraceEvent> events, double speed) {
+        this.events = events;
+        this.speed = speed;
+    }
+
+    public static TraceReplayTransport fromFile(File trace, double speed) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(trace), StandardCharsets.UTF_8)) {
+            return fromReader(reader, speed);
+        }
+    }
+
+    public static TraceReplayTransport fromReader(Reader trace, double speed) throws IOException {
+        List<TraceEvent> events = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(trace);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                events.add(parse(line.split("\\s+")));
+            } catch (RuntimeException e) {
+                throw new IOException("Bad trace line " + lineNumber + ": " + line, e);
+            }
+        }
+        // Stable sort keeps the recorded order of events with equal offsets
+        Collections.sort(events, (a, b) -> Long.compare(a.offsetMs, b.offsetMs));
+        return new TraceReplayTransport(events, speed);
+    }
+
+    private static TraceEvent parse(String[] fields) {
+        long offsetMs = Long.parseLong(fields[0]);
+        String address = fields[2].toUpperCase(Locale.ROOT);
+        switch (fields[1]) {
+            case "ADV":
+                return new TraceEvent(offsetMs, KIND_ADVERTISEMENT, address,
+                    "-".equals(fields[4]) ? null : fields[4], Integer.parseInt(fields[3]), null,
+                    fields.length > 5 ? decodeHex(fields[5]) : null);
+            case "NOTIFY":
+                return new TraceEvent(offsetMs, KIND_NOTIFICATION, address, null, 0,
+                    UUID.fromString(fields[3]), decodeHex(fields[4]));
+            case "DISCONNECT":
+                return new TraceEvent(offsetMs, KIND_DISCONNECT, address, null, 0, null, null);
+            default:
+                throw new IllegalArgumentException("Unknown event " + fields[1]);
+        }
+    }
+
+    /**
+     * Trace line for one advertisement (for recording traces on a device)
+     */
+    public static String formatAdvertisement(long offsetMs, Advertisement advertisement) {
+        return offsetMs + " ADV " + advertisement.address + " " + advertisement.rssi + " "
+            + (advertisement.name != null ? advertisement.name.replaceAll("\\s+", "_") : "-") + " "
+            + encodeHex(advertisement.getRecord());
+    }
+
+    public static String formatNotification(long offsetMs, String address, UUID characteristic, byte[] value) {
+        return offsetMs + " NOTIFY " + address + " " + characteristic + " " + encodeHex(value);
+    }
+
+    /**
+     * Starts playback on its own thread; the trace is played once
+     */
+    public synchronized void play() {
+        if (replayThread != null) return;
+        Thread thread = new Thread(this::run, "HBandTraceReplay");
+        replayThread = thread;
+        thread.start();
+    }
+
+    public boolean awaitFinished(long timeoutMs) throws InterruptedException {
+        return finished.await(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        stopped = true;
+        Thread thread = replayThread;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        linkExecutor.shutdown();
+    }
+
+    private void run() {
+        HLog.d(TAG, "▶️ Replaying " + events.size() + " trace events at " + (speed > 0 ? speed + "x" : "full speed"));
+        long startNanos = System.nanoTime();
+        try {
+            for (TraceEvent event : events) {
+                if (stopped) break;
+                if (speed > 0) {
+                    long due = startNanos + (long) (event.offsetMs * 1_000_000L / speed);
+                    long wait;
+                    while ((wait = due - System.nanoTime()) > 0 && !stopped) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+                dispatch(event);
+            }
+        } finally {
+            finished.countDown();
+            HLog.d(TAG, "⏹️ Replay finished: " + advertisementsDelivered.get() + " advertisements, "
+                + notificationsDelivered.get() + " notifications");
+        }
+    }
+
+    private void dispatch(TraceEvent event) {
+        switch (event.kind) {
+            case KIND_ADVERTISEMENT: {
+                ScanListener listener = scanListener;
+                if (listener == null) {
+                    eventsDropped.incrementAndGet();
+                    return;
+                }
+                listener.onAdvertisement(new Advertisement(event.address, event.name, event.rssi,
+                    System.nanoTime(), event.data));
+                advertisementsDelivered.incrementAndGet();
+                return;
+            }
+            case KIND_NOTIFICATION: {
+                ReplayLink link = links.get(event.address);
+                if (link == null || !link.connected) {
+                    eventsDropped.incrementAndGet();
+                    return;
+                }
+                link.listener.onNotification(link, event.characteristic, event.data);
+                notificationsDelivered.incrementAndGet();
+                return;
+            }
+            default: {
+                ReplayLink link = links.get(event.address);
+                if (link != null && link.connected) {
+                    link.connected = false;
+                    link.listener.onConnectionStateChanged(link, false, 0);
+                }
+            }
+        }
+    }
+
+    // BleTransport implementation
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public boolean hasPermissions() {
+        return true;
+    }
+
+    @Override
+    public void invalidatePermissions() {}
+
+    @Override
+    public void setStateListener(StateListener listener) {}
+
+    @Override
+    public void release() {}
+
+    @Override
+    public boolean startScan(ScanProfile profile, ScanListener listener) {
+        scanListener = listener;
+        return true;
+    }
+
+    @Override
+    public void stopScan(boolean flushPending) {
+        scanListener = null;
+    }
+
+    @Override
+    public DeviceLink createLink(String address, DeviceLink.Listener listener, GattArbiter arbiter) {
+        ReplayLink link = new ReplayLink(address.toUpperCase(Locale.ROOT), listener);
+        links.put(link.address, link);
+        return link;
+    }
+
+    /**
+     * Link that connects instantly and accepts every command; notifications come from the trace
+     */
+    private final class ReplayLink implements DeviceLink {
+        final String address;
+        final DeviceLink.Listener listener;
+        volatile boolean connected = false;
+        final AtomicLong commandsWritten = new AtomicLong();
+
+        ReplayLink(String address, DeviceLink.Listener listener) {
+            this.address = address;
+            this.listener = listener;
+        }
+
+        @Override
+        public void connect() {
+            linkExecutor.execute(() -> {
+                connected = true;
+                listener.onConnectionStateChanged(this, true, 0);
+                listener.onReady(this, REPLAY_MTU);
+            });
+        }
+
+        @Override
+        public void disconnect() {
+            linkExecutor.execute(() -> {
+                if (!connected) return;
+                connected = false;
+                listener.onConnectionStateChanged(this, false, 0);
+            });
+        }
+
+        @Override
+        public void close() {
+            connected = false;
+            links.remove(address, this);
+        }
+
+        @Override
+        public void reconnect() {
+            connect();
+        }
+
+        @Override public void setMtuHint(int mtu) {}
+
+        @Override
+        public void writeCommand(byte[] command, boolean withResponse, GattOperation.Callback callback) {
+            commandsWritten.incrementAndGet();
+            if (callback != null) {
+                linkExecutor.execute(() -> callback.onComplete(null, GattOperationQueue.STATUS_SUCCESS, null, 0));
+            }
+        }
+
+        @Override public void beginBulkTransfer() {}
+        @Override public void endBulkTransfer() {}
+        @Override public String getAddress() { return address; }
+        @Override public boolean isConnected() { return connected; }
+        @Override public int getMtu() { return REPLAY_MTU; }
+        @Override public boolean isBonded() { return false; }
+
+        @Override
+        public Map<GattOperation.Type, GattOperationQueue.OperationStats> getOperationStats() {
+            return Collections.emptyMap();
+        }
+    }
+
+    private static byte[] decodeHex(String hex) {
+        if ("-".equals(hex)) return null;
+        if (hex.length() % 2 != 0) {
+            throw new IllegalArgumentException("Odd hex length");
+        }
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static String encodeHex(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return "-";
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+
+    // Stats
+    public int getEventCount() { return events.size(); }
+    public long getAdvertisementsDelivered() { return advertisementsDelivered.get(); }
+    public long getNotificationsDelivered() { return notificationsDelivered.get(); }
+    public long getEventsDropped() { return eventsDropped.get(); }
+}
@@ -0,0 +1,40 @@
+package com.xevoxmobileapp;
+
+/**
+ * Device-side framing of bulk uploads (firmware, watch faces) for one wearable protocol
+ * Adapts the vendor's OTA/dial commands to BulkTransferSession: a start command announces
+ * the image and the offset to continue from, data chunks carry their offset, and the band
+ * answers with notifications that accept the upload, acknowledge received bytes and
+ * confirm the finished image. The band must acknowledge at least once per window and
+ * acknowledge the final byte.
+ */
+public interface TransferProtocol {
+
+    /**
+     * Receives what the protocol decoded from one notification
+     */
+    interface Receiver {
+        // The band will take bytes from resumeOffset on, at most windowBytes beyond its last ack (0 = no limit)
+        void onAccepted(int resumeOffset, int windowBytes);
+        // Every byte before offset is stored on the band
+        void onAcknowledged(int offset);
+        void onCompleted();
+        void onRejected(String reason);
+    }
+
+    /**
+     * Bytes of framing per chunk; a chunk carries ATT payload (MTU - 3) minus this
+     */
+    int chunkOverhead();
+
+    byte[] buildStart(BulkTransferSession.Kind kind, int totalBytes, long crc32, int resumeOffset);
+
+    /**
+     * One data chunk: payload[offset, offset + length)
+     */
+    byte[] buildChunk(byte[] payload, int offset, int length);
+
+    byte[] buildFinish(long crc32);
+
+    void onNotification(byte[] value, Receiver receiver);
+}
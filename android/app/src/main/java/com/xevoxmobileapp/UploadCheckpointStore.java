@@ -0,0 +1,87 @@
+package com.xevoxmobileapp;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Durable per-metric upload checkpoints
+ * A checkpoint is the exclusive timestamp bound below which a metric has been acknowledged
+ * by the backend. History backfilled below it is tracked as a separate gap range, so the
+ * samples between the gap and the checkpoint are not sent twice. Backed by a DurableLongMap,
+ * so a crash never leaves a torn checkpoint.
+ */
+public class UploadCheckpointStore {
+    private final DurableLongMap checkpoints;
+
+    public UploadCheckpointStore(File file) {
+        this.checkpoints = new DurableLongMap(file);
+    }
+
+    /**
+     * Exclusive lower bound of samples still to upload (Long.MIN_VALUE when nothing was sent)
+     */
+    public long get(HealthMetric metric) {
+        return checkpoints.get(metric.jsName, Long.MIN_VALUE);
+    }
+
+    /**
+     * Moves the checkpoint forward and persists it before returning
+     */
+    public synchronized void advance(HealthMetric metric, long checkpoint) throws IOException {
+        if (checkpoint > get(metric)) {
+            checkpoints.put(metric.jsName, checkpoint);
+        }
+    }
+
+    /**
+     * Records that history was backfilled into [from, to) below the checkpoint, so only that
+     * range is uploaded again; merged with a gap still pending for the metric
+     */
+    public synchronized void addGap(HealthMetric metric, long from, long to) throws IOException {
+        to = Math.min(to, get(metric));
+        if (from >= to) return;
+        long pendingFrom = getGapStart(metric);
+        if (pendingFrom < Long.MAX_VALUE) {
+            from = Math.min(from, pendingFrom);
+            to = Math.max(to, getGapEnd(metric));
+        }
+        // End first: a start without an end is never read as a gap
+        checkpoints.put(gapEndKey(metric), to);
+        checkpoints.put(gapStartKey(metric), from);
+    }
+
+    /**
+     * Inclusive start of the pending backfill gap; Long.MAX_VALUE when there is none
+     */
+    public long getGapStart(HealthMetric metric) {
+        long from = checkpoints.get(gapStartKey(metric), Long.MAX_VALUE);
+        return from < getGapEnd(metric) ? from : Long.MAX_VALUE;
+    }
+
+    /**
+     * Exclusive end of the pending backfill gap
+     */
+    public long getGapEnd(HealthMetric metric) {
+        return checkpoints.get(gapEndKey(metric), Long.MIN_VALUE);
+    }
+
+    /**
+     * Marks the gap acknowledged up to the exclusive bound; clears it once it is all sent
+     */
+    public synchronized void advanceGap(HealthMetric metric, long through) throws IOException {
+        if (through >= getGapEnd(metric)) {
+            checkpoints.remove(gapStartKey(metric));
+            checkpoints.remove(gapEndKey(metric));
+        } else if (through > getGapStart(metric)) {
+            checkpoints.put(gapStartKey(metric), through);
+        }
+    }
+
+    private static String gapStartKey(HealthMetric metric) {
+        return metric.jsName + ".gapFrom";
+    }
+
+    private static String gapEndKey(HealthMetric metric) {
+        return metric.jsName + ".gapTo";
+    }
+}
@@ -0,0 +1,116 @@
+package com.xevoxmobileapp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Last upload configuration, so collection keeps uploading after a restart without JS
+ * Written by configureUpload/setUploadFormat and read back when the manager initializes.
+ * The file lives in app-private storage. Saved like DurableLongMap: write-to-temp + fsync
+ * + rename.
+ */
+public class UploadConfigStore {
+    private static final String BASE_URL = "baseUrl";
+    private static final String AUTH_TOKEN = "authToken";
+    private static final String USER_ID = "userId";
+    private static final String DEVICE_TYPE = "deviceType";
+    private static final String DEVICE_ID = "deviceId";
+    private static final String BATCH_SIZE = "batchSize";
+    private static final String MAX_AGE_MS = "maxAgeMs";
+    private static final String BINARY = "binary";
+
+    /**
+     * One saved configuration
+     */
+    public static final class Config {
+        public final String baseUrl;
+        public final String authToken;
+        public final String userId;
+        public final String deviceType;
+        public final String deviceId;
+        public final int batchSize;
+        public final long maxAgeMs;
+        public final boolean binary;
+
+        public Config(String baseUrl, String authToken, String userId, String deviceType, String deviceId,
+                      int batchSize, long maxAgeMs, boolean binary) {
+            this.baseUrl = baseUrl;
+            this.authToken = authToken;
+            this.userId = userId;
+            this.deviceType = deviceType;
+            this.deviceId = deviceId;
+            this.batchSize = batchSize;
+            this.maxAgeMs = maxAgeMs;
+            this.binary = binary;
+        }
+
+        public Config withBinary(boolean binary) {
+            return new Config(baseUrl, authToken, userId, deviceType, deviceId, batchSize, maxAgeMs, binary);
+        }
+    }
+
+    private final File file;
+
+    public UploadConfigStore(File file) {
+        this.file = file;
+    }
+
+    /**
+     * The saved configuration, or null if there is none (or it cannot be read)
+     */
+    public synchronized Config load() {
+        if (!file.isFile()) return null;
+        Properties properties = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            properties.load(in);
+        } catch (IOException e) {
+            return null;
+        }
+        String baseUrl = properties.getProperty(BASE_URL);
+        if (baseUrl == null) return null;
+        try {
+            return new Config(baseUrl, properties.getProperty(AUTH_TOKEN), properties.getProperty(USER_ID),
+                properties.getProperty(DEVICE_TYPE), properties.getProperty(DEVICE_ID),
+                Integer.parseInt(properties.getProperty(BATCH_SIZE, "0")),
+                Long.parseLong(properties.getProperty(MAX_AGE_MS, "0")),
+                Boolean.parseBoolean(properties.getProperty(BINARY)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public synchronized void save(Config config) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty(BASE_URL, config.baseUrl);
+        putIfSet(properties, AUTH_TOKEN, config.authToken);
+        putIfSet(properties, USER_ID, config.userId);
+        putIfSet(properties, DEVICE_TYPE, config.deviceType);
+        putIfSet(properties, DEVICE_ID, config.deviceId);
+        properties.setProperty(BATCH_SIZE, Integer.toString(config.batchSize));
+        properties.setProperty(MAX_AGE_MS, Long.toString(config.maxAgeMs));
+        properties.setProperty(BINARY, Boolean.toString(config.binary));
+        File parent = file.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            properties.store(out, null);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    private static void putIfSet(Properties properties, String key, String value) {
+        if (value != null) {
+            properties.setProperty(key, value);
+        }
+    }
+}
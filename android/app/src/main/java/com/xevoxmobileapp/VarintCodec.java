@@ -0,0 +1,55 @@
+package com.xevoxmobileapp;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 varint and zigzag helpers shared by the on-device store and the binary sync format
+ */
+public final class VarintCodec {
+    // Worst-case encoded size of one varint
+    public static final int MAX_VARLONG_BYTES = 10;
+
+    private VarintCodec() {}
+
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Writes value into buffer at offset; returns the new offset
+     */
+    public static int writeVarLong(byte[] buffer, int offset, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+        return offset;
+    }
+
+    public static int writeSignedVarLong(byte[] buffer, int offset, long value) {
+        return writeVarLong(buffer, offset, zigzag(value));
+    }
+
+    public static long readVarLong(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            byte b = buffer.get();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return result;
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+        }
+    }
+
+    public static long readSignedVarLong(ByteBuffer buffer) {
+        return unzigzag(readVarLong(buffer));
+    }
+}
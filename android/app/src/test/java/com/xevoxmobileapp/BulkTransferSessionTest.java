@@ -0,0 +1,153 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.CRC32;
+
+public class BulkTransferSessionTest {
+    private static final String ADDRESS = "C4:7C:8D:6A:1B:2E";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private final AtomicReference<String> error = new AtomicReference<>();
+    private final AtomicInteger pauses = new AtomicInteger();
+    private final AtomicInteger pausedAt = new AtomicInteger(-1);
+    private final AtomicReference<BulkTransferSession.Progress> lastProgress = new AtomicReference<>();
+    private BulkTransferSession session;
+    private SimulatedTransferPeripheral band;
+
+    private final BulkTransferSession.Listener sessionListener = new BulkTransferSession.Listener() {
+        @Override public void onProgress(BulkTransferSession.Progress progress) { lastProgress.set(progress); }
+        @Override public void onPaused(int acknowledgedBytes) {
+            pauses.incrementAndGet();
+            pausedAt.set(acknowledgedBytes);
+        }
+        @Override public void onFinished(boolean completed, String message) {
+            if (!completed) error.set(message);
+            finished.countDown();
+        }
+    };
+
+    // What the manager does: start on the first ready link, pause on a drop, resume when it is back
+    private final DeviceLink.Listener linkListener = new DeviceLink.Listener() {
+        private boolean started;
+
+        @Override
+        public void onConnectionStateChanged(DeviceLink link, boolean connected, int status) {
+            if (!connected) {
+                session.onLinkLost();
+                link.reconnect();
+            }
+        }
+
+        @Override
+        public void onReady(DeviceLink link, int mtu) {
+            if (started) {
+                session.resume(link);
+            } else {
+                started = true;
+                session.start(link);
+            }
+        }
+
+        @Override
+        public void onNotification(DeviceLink link, UUID characteristic, byte[] value) {
+            session.onNotification(value);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        if (session != null) session.shutdown();
+        if (band != null) band.close();
+    }
+
+    private static byte[] image(int length) {
+        byte[] image = new byte[length];
+        new Random(42).nextBytes(image);
+        return image;
+    }
+
+    private void upload(byte[] image, int mtu, DurableLongMap checkpoints) {
+        session = new BulkTransferSession(ADDRESS, BulkTransferSession.Kind.WATCH_FACE, image,
+            new ReferenceTransferProtocol(), checkpoints, sessionListener);
+        band = new SimulatedTransferPeripheral(ADDRESS, linkListener, mtu, 2_000_000, 8 * 1024, 1024, 1 << 20);
+    }
+
+    @Test
+    public void chunksAreSizedToTheNegotiatedMtu() throws InterruptedException {
+        int mtu = 185;
+        byte[] image = image(50_000);
+        upload(image, mtu, new DurableLongMap(new File(folder.getRoot(), "offsets")));
+        band.connect();
+
+        assertTrue(finished.await(20, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertTrue(band.isImageComplete());
+        // ATT payload (MTU - 3) minus the 5-byte DATA header
+        int chunk = mtu - 3 - 5;
+        assertEquals(chunk, lastProgress.get().chunkSize);
+        assertEquals((image.length + chunk - 1) / chunk, band.getChunksReceived());
+        assertEquals(0, band.getChunksDiscarded());
+    }
+
+    @Test
+    public void resumesFromTheAcknowledgedOffsetAfterALinkDrop() throws InterruptedException {
+        byte[] image = image(200_000);
+        upload(image, 247, new DurableLongMap(new File(folder.getRoot(), "offsets")));
+        band.dropLinkAt(80_000, 50);
+        band.connect();
+
+        assertTrue(finished.await(20, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertTrue(band.isImageComplete());
+        assertEquals(1, band.getDisconnects());
+        assertEquals(1, pauses.get());
+        assertEquals(1, lastProgress.get().resumes);
+        // Only what was in flight past the last acknowledgement is sent twice
+        int chunk = 247 - 3 - 5;
+        int resent = band.getChunksReceived() - (image.length + chunk - 1) / chunk;
+        assertTrue("pause at " + pausedAt.get(), pausedAt.get() >= 80_000 - 1024);
+        assertTrue("resent " + resent + " chunks", resent * chunk <= 1024 + chunk);
+    }
+
+    @Test
+    public void newSessionContinuesFromThePersistedCheckpoint() throws Exception {
+        byte[] image = image(300_000);
+        DurableLongMap checkpoints = new DurableLongMap(new File(folder.getRoot(), "offsets"));
+        long crc = crcOf(image);
+        checkpoints.put(BulkTransferSession.checkpointKey(ADDRESS, BulkTransferSession.Kind.WATCH_FACE, crc,
+            image.length), 128 * 1024);
+
+        upload(image, 247, checkpoints);
+        band.connect();
+        assertTrue(finished.await(20, TimeUnit.SECONDS));
+        // The band holds nothing yet, so it asks for the image from 0 and the phone complies
+        assertNull(error.get());
+        assertTrue(band.isImageComplete());
+        assertEquals(0, checkpoints.get(BulkTransferSession.checkpointKey(ADDRESS,
+            BulkTransferSession.Kind.WATCH_FACE, crc, image.length), 0));
+    }
+
+    private static long crcOf(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,40 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+public class DeviceRegistryTest {
+
+    @Test
+    public void strongestReturnsTheTopKStrongestFirst() {
+        DeviceRegistry registry = new DeviceRegistry();
+        for (int i = 0; i < 20; i++) {
+            registry.record("AA:00:00:00:00:" + String.format(Locale.ROOT, "%02X", i), null, -90 + i, i % 2 == 0, 1_000L);
+        }
+
+        List<DeviceRegistry.DeviceSnapshot> top = registry.strongest(3, false);
+        assertEquals(3, top.size());
+        assertEquals(-71f, top.get(0).smoothedRssi, 0f);
+        assertEquals(-72f, top.get(1).smoothedRssi, 0f);
+        assertEquals(-73f, top.get(2).smoothedRssi, 0f);
+        assertEquals(-72f, registry.strongest(1, true).get(0).smoothedRssi, 0f);
+    }
+
+    @Test
+    public void hugeKIsClampedToTheRegistry() {
+        DeviceRegistry registry = new DeviceRegistry();
+        assertTrue(registry.strongest(Integer.MAX_VALUE, false).isEmpty());
+        registry.record("AA:00:00:00:00:01", "HBand-W12", -60, true, 1_000L);
+        registry.record("AA:00:00:00:00:02", null, -70, false, 1_000L);
+
+        // JS Infinity arrives as Integer.MAX_VALUE; k + 1 used to overflow the heap's capacity
+        assertEquals(2, registry.strongest(Integer.MAX_VALUE, false).size());
+        assertEquals(1, registry.strongest(Integer.MAX_VALUE, true).size());
+        assertTrue(registry.strongest(0, false).isEmpty());
+    }
+}
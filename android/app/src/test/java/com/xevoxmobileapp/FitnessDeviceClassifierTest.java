@@ -0,0 +1,104 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+public class FitnessDeviceClassifierTest {
+
+    // The toLowerCase + contains chain the classifier replaced
+    private static boolean containsAnyKeyword(String name) {
+        if (name == null) return false;
+        String lower = name.toLowerCase(Locale.ROOT);
+        for (String keyword : FitnessDeviceClassifier.DEFAULT_KEYWORDS) {
+            if (lower.contains(keyword)) return true;
+        }
+        return false;
+    }
+
+    @Test
+    public void automatonAgreesWithTheContainsChain() {
+        FitnessDeviceClassifier classifier = new FitnessDeviceClassifier();
+        String[] names = {
+            "HBand-W12", "Veepoo V19", "Mi Smart Band 7", "AMAZFIT GTS 4", "Galaxy Watch5 (6F2A)",
+            "JBL Flip 5", "[TV] LG webOS 55", "Tile", "iPhone", "Echo Dot-4KJ", "hbanhband", "fitnes",
+            "xiaom", "Ümi Band", "", "m", "MI"
+        };
+        for (String name : names) {
+            assertEquals(name, containsAnyKeyword(name), classifier.matchesName(name));
+        }
+        // Random ASCII over a keyword-heavy alphabet, so overlapping partial matches are common
+        Random random = new Random(7);
+        char[] alphabet = "abdefghiklmnorstuvwxzABMH -".toCharArray();
+        for (int i = 0; i < 20_000; i++) {
+            char[] name = new char[1 + random.nextInt(16)];
+            for (int c = 0; c < name.length; c++) {
+                name[c] = alphabet[random.nextInt(alphabet.length)];
+            }
+            String value = new String(name);
+            assertEquals(value, containsAnyKeyword(value), classifier.matchesName(value));
+        }
+    }
+
+    @Test
+    public void namelessAdvertiserMatchesOnItsRecord() {
+        FitnessDeviceClassifier classifier = new FitnessDeviceClassifier();
+        // Flags, then Heart Rate service (0x180D) in the complete 16-bit UUID list
+        byte[] heartRate = {0x02, 0x01, 0x06, 0x03, 0x03, 0x0D, 0x18};
+        // Manufacturer data from Garmin (0x0087)
+        byte[] garmin = {0x05, (byte) 0xFF, (byte) 0x87, 0x00, 0x01, 0x02};
+
+        assertTrue(classifier.classify(new Advertisement("AA:00:00:00:00:01", null, -60, 0, heartRate)));
+        assertTrue(classifier.classify(new Advertisement("AA:00:00:00:00:02", null, -60, 0, garmin)));
+        assertFalse(classifier.classify(new Advertisement("AA:00:00:00:00:03", null, -60, 0, new byte[] {0x02, 0x01, 0x06})));
+    }
+
+    @Test
+    public void namelessMissWaitsForTheScanResponse() {
+        FitnessDeviceClassifier classifier = new FitnessDeviceClassifier();
+        String address = "AA:00:00:00:00:04";
+
+        assertFalse(classifier.classify(new Advertisement(address, null, -60, 0, null)));
+        assertEquals(0, classifier.getCachedVerdictCount());
+        assertTrue(classifier.classify(new Advertisement(address, "HBand-W12", -60, 1, null)));
+        // Cached: a later anonymous advertisement from the same band still passes
+        assertTrue(classifier.classify(new Advertisement(address, null, -60, 2, null)));
+        assertEquals(1, classifier.getCachedVerdictCount());
+    }
+
+    @Test
+    public void verdictCacheEvictsTheLeastRecentlySeen() {
+        FitnessDeviceClassifier classifier = new FitnessDeviceClassifier();
+        String band = "AA:00:00:00:00:05";
+        assertTrue(classifier.classify(new Advertisement(band, "HBand-W12", -60, 0, null)));
+
+        // A crowded venue: every other advertiser is seen once, the band keeps advertising
+        for (int i = 0; i < 4 * FitnessDeviceClassifier.MAX_CACHED_VERDICTS; i++) {
+            String address = String.format(Locale.ROOT, "BB:00:00:00:%02X:%02X", i >> 8 & 0xFF, i & 0xFF);
+            classifier.classify(new Advertisement(address, "Phone " + i, -80, i, null));
+            if (i % 100 == 0) {
+                assertTrue(classifier.classify(new Advertisement(band, null, -60, i, null)));
+            }
+        }
+
+        assertEquals(FitnessDeviceClassifier.MAX_CACHED_VERDICTS, classifier.getCachedVerdictCount());
+        // Still cached, so the nameless advertisement keeps passing
+        assertTrue(classifier.classify(new Advertisement(band, null, -60, 0, null)));
+    }
+
+    @Test
+    public void customKeywordsReplaceTheDefaults() {
+        FitnessDeviceClassifier classifier = new FitnessDeviceClassifier();
+        classifier.setKeywords(Arrays.asList("Ring", "", null, "ÖURA"));
+
+        assertTrue(classifier.matchesName("Smart RING 3"));
+        assertFalse(classifier.matchesName("HBand-W12"));
+        assertFalse(classifier.matchesName("ÖURA"));
+    }
+}
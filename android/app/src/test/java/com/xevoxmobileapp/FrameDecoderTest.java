@@ -0,0 +1,182 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Seeded fuzz corpus: random frames, random notification splits and random corruption,
+ * plus the hand-picked streams that once tripped the resync logic
+ */
+public class FrameDecoderTest {
+    private static final int SYNC = 0xA5;
+    private static final int SEEDS = 50;
+
+    private static final class Collector implements FrameDecoder.FrameSink {
+        final List<String> frames = new ArrayList<>();
+
+        @Override
+        public void onFrame(int command, byte[] buffer, int offset, int length) {
+            frames.add(describe(command, Arrays.copyOfRange(buffer, offset, offset + length)));
+        }
+    }
+
+    private static String describe(int command, byte[] payload) {
+        return command + ":" + Arrays.toString(payload);
+    }
+
+    private static FrameDecoder decoder(int lengthBytes, FrameDecoder.Checksum checksum, Collector sink) {
+        return new FrameDecoder(SYNC, lengthBytes, checksum, lengthBytes == 1 ? 64 : 300, sink);
+    }
+
+    private static byte[] randomPayload(Random random, int max) {
+        byte[] payload = new byte[random.nextInt(max + 1)];
+        random.nextBytes(payload);
+        return payload;
+    }
+
+    private static void feedSplit(FrameDecoder decoder, byte[] stream, Random random) {
+        int position = 0;
+        while (position < stream.length) {
+            int length = Math.min(stream.length - position, 1 + random.nextInt(40));
+            // Each notification is its own array, as the GATT callback delivers it
+            decoder.feed(Arrays.copyOfRange(stream, position, position + length));
+            position += length;
+        }
+    }
+
+    @Test
+    public void everyFormatRoundTripsAcrossRandomSplits() {
+        for (FrameDecoder.Checksum checksum : FrameDecoder.Checksum.values()) {
+            for (int lengthBytes = 1; lengthBytes <= 2; lengthBytes++) {
+                for (int seed = 0; seed < SEEDS; seed++) {
+                    Random random = new Random(seed);
+                    Collector collector = new Collector();
+                    FrameDecoder decoder = decoder(lengthBytes, checksum, collector);
+                    List<String> expected = new ArrayList<>();
+                    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    for (int i = 0; i < 40; i++) {
+                        int command = random.nextInt(256);
+                        byte[] payload = randomPayload(random, lengthBytes == 1 ? 64 : 300);
+                        expected.add(describe(command, payload));
+                        byte[] frame = decoder.encode(command, payload, 0, payload.length);
+                        stream.write(frame, 0, frame.length);
+                    }
+                    feedSplit(decoder, stream.toByteArray(), random);
+                    assertEquals(checksum + "/" + lengthBytes + " seed " + seed, expected, collector.frames);
+                    assertEquals(0, decoder.getChecksumErrors());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void corruptionLosesOnlyTheFramesItHits() {
+        for (int seed = 0; seed < SEEDS; seed++) {
+            Random random = new Random(seed);
+            Collector collector = new Collector();
+            FrameDecoder decoder = decoder(2, FrameDecoder.Checksum.CRC16_CCITT, collector);
+            List<String> expected = new ArrayList<>();
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            for (int i = 0; i < 60; i++) {
+                int command = random.nextInt(256);
+                byte[] payload = randomPayload(random, 120);
+                byte[] frame = decoder.encode(command, payload, 0, payload.length);
+                if (random.nextInt(5) == 0) {
+                    // Any byte, sync and length included
+                    frame[random.nextInt(frame.length)] ^= (byte) (1 + random.nextInt(255));
+                } else {
+                    expected.add(describe(command, payload));
+                }
+                if (random.nextInt(4) == 0) {
+                    // Noise between frames, false sync bytes included
+                    byte[] noise = randomPayload(random, 12);
+                    if (noise.length > 0) noise[0] = (byte) SYNC;
+                    stream.write(noise, 0, noise.length);
+                }
+                stream.write(frame, 0, frame.length);
+            }
+            feedSplit(decoder, stream.toByteArray(), random);
+            assertEquals("seed " + seed, expected, collector.frames);
+        }
+    }
+
+    @Test
+    public void falseSyncBeforeRealFrameIsRescanned() {
+        Collector collector = new Collector();
+        FrameDecoder decoder = decoder(1, FrameDecoder.Checksum.SUM8, collector);
+        byte[] frame = decoder.encode(0x81, new byte[] {1, 2, 3}, 0, 3);
+        byte[] stream = new byte[frame.length + 1];
+        stream[0] = (byte) SYNC;
+        System.arraycopy(frame, 0, stream, 1, frame.length);
+
+        decoder.feed(stream);
+
+        assertEquals(Arrays.asList(describe(0x81, new byte[] {1, 2, 3})), collector.frames);
+    }
+
+    @Test
+    public void oversizeLengthIsSkippedAndTheNextFrameDecodes() {
+        Collector collector = new Collector();
+        FrameDecoder decoder = decoder(1, FrameDecoder.Checksum.SUM8, collector);
+        byte[] frame = decoder.encode(0x02, new byte[] {9}, 0, 1);
+        byte[] stream = new byte[3 + frame.length];
+        stream[0] = (byte) SYNC;
+        stream[1] = 0x01;
+        stream[2] = (byte) 200;
+        System.arraycopy(frame, 0, stream, 3, frame.length);
+
+        decoder.feed(stream);
+
+        assertEquals(Arrays.asList(describe(0x02, new byte[] {9})), collector.frames);
+        assertEquals(1, decoder.getOversizeFrames());
+    }
+
+    @Test
+    public void emptyPayloadSplitAfterEveryByte() {
+        Collector collector = new Collector();
+        FrameDecoder decoder = decoder(2, FrameDecoder.Checksum.XOR8, collector);
+        byte[] frame = decoder.encode(0x20, new byte[0], 0, 0);
+        for (byte b : frame) {
+            decoder.feed(new byte[] {b});
+        }
+
+        assertEquals(Arrays.asList(describe(0x20, new byte[0])), collector.frames);
+    }
+
+    @Test
+    public void resetDropsPartialFrame() {
+        Collector collector = new Collector();
+        FrameDecoder decoder = decoder(1, FrameDecoder.Checksum.SUM8, collector);
+        byte[] first = decoder.encode(0x01, new byte[] {1, 2, 3, 4}, 0, 4);
+        byte[] second = decoder.encode(0x03, new byte[] {5}, 0, 1);
+
+        decoder.feed(first, 0, 4);
+        decoder.reset();
+        decoder.feed(second);
+
+        assertEquals(Arrays.asList(describe(0x03, new byte[] {5})), collector.frames);
+    }
+
+    @Test
+    public void veepooFramesUseTheDecoderFormat() {
+        Collector collector = new Collector();
+        FrameDecoder decoder = ReferenceFrames.newDecoder(collector);
+        byte[] payload = new byte[6];
+        ReferenceFrames.putU32(payload, 0, 1_700_000_000L);
+        ReferenceFrames.putU16(payload, 4, 72);
+
+        decoder.feed(ReferenceFrames.encode(ReferenceFrames.READING, HealthMetric.HEART_RATE, payload));
+
+        assertEquals(Arrays.asList(describe(ReferenceFrames.READING | 1, payload)), collector.frames);
+        assertEquals(HealthMetric.HEART_RATE, ReferenceFrames.metric(ReferenceFrames.READING | 1));
+        assertEquals(1_700_000_000L, ReferenceFrames.u32(payload, 0));
+        assertEquals(72, ReferenceFrames.u16(payload, 4));
+    }
+}
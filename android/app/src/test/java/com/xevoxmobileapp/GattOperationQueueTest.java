@@ -0,0 +1,242 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class GattOperationQueueTest {
+    private static final UUID SERVICE = FitnessDeviceClassifier.VEEPOO_SERVICE_UUID;
+    private static final UUID WRITE = UUID.fromString("f0080002-0451-4000-b000-000000000000");
+    private static final UUID NOTIFY = UUID.fromString("f0080003-0451-4000-b000-000000000000");
+
+    /**
+     * A GATT client that answers after a random delay, like the Android stack's binder thread
+     * Counts the rule Android enforces silently: a blocking operation submitted while another
+     * operation is outstanding is dropped on a real phone. Writes without response fill a
+     * stack buffer of bufferSlots and are rejected while it is full.
+     */
+    private static final class FakeGatt implements GattLink {
+        final ScheduledExecutorService stack = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HBandFakeGatt");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Random random = new Random(17);
+        final int bufferSlots;
+        volatile GattOperationQueue queue;
+        volatile boolean answering = true;
+
+        // Guarded by this
+        int blockingOutstanding;
+        int writesOutstanding;
+        int maxWritesOutstanding;
+        int violations;
+        int rejectedWrites;
+        final List<String> submitted = new ArrayList<>();
+
+        FakeGatt(int bufferSlots) {
+            this.bufferSlots = bufferSlots;
+        }
+
+        private synchronized boolean startBlocking(GattOperation.Type type, String label) {
+            if (blockingOutstanding > 0 || writesOutstanding > 0) {
+                violations++;
+            }
+            blockingOutstanding++;
+            submitted.add(label);
+            answer(type, () -> {
+                synchronized (this) {
+                    blockingOutstanding--;
+                }
+            });
+            return true;
+        }
+
+        private void answer(GattOperation.Type type, Runnable settle) {
+            if (!answering) return;
+            long delayMicros = 50 + random.nextInt(400);
+            stack.schedule(() -> {
+                settle.run();
+                queue.onCallback(type, GattOperationQueue.STATUS_SUCCESS, null, 0);
+            }, delayMicros, TimeUnit.MICROSECONDS);
+        }
+
+        @Override public boolean discoverServices() { return startBlocking(GattOperation.Type.DISCOVER_SERVICES, "discover"); }
+        @Override public boolean requestMtu(int mtu) { return startBlocking(GattOperation.Type.REQUEST_MTU, "mtu"); }
+        @Override public boolean requestConnectionPriority(int priority) { return true; }
+        @Override public boolean readCharacteristic(UUID service, UUID characteristic) {
+            return startBlocking(GattOperation.Type.READ, "read");
+        }
+        @Override public boolean setNotificationsEnabled(UUID service, UUID characteristic, boolean enabled) {
+            return startBlocking(GattOperation.Type.ENABLE_NOTIFICATIONS, "notify");
+        }
+
+        @Override
+        public boolean writeCharacteristic(UUID service, UUID characteristic, byte[] value, boolean withResponse) {
+            if (withResponse) {
+                return startBlocking(GattOperation.Type.WRITE, "write " + value[0]);
+            }
+            synchronized (this) {
+                if (blockingOutstanding > 0) {
+                    violations++;
+                }
+                if (writesOutstanding >= bufferSlots) {
+                    rejectedWrites++;
+                    return false;
+                }
+                writesOutstanding++;
+                maxWritesOutstanding = Math.max(maxWritesOutstanding, writesOutstanding);
+                submitted.add("stream " + value[0]);
+            }
+            answer(GattOperation.Type.WRITE, () -> {
+                synchronized (this) {
+                    writesOutstanding--;
+                }
+            });
+            return true;
+        }
+    }
+
+    private FakeGatt gatt;
+    private GattOperationQueue queue;
+
+    private void open(int bufferSlots) {
+        gatt = new FakeGatt(bufferSlots);
+        queue = new GattOperationQueue(gatt, "HBandGattTest");
+        gatt.queue = queue;
+    }
+
+    @After
+    public void tearDown() {
+        queue.close();
+        gatt.stack.shutdownNow();
+    }
+
+    @Test
+    public void operationsFromManyThreadsNeverOverlapOnTheStack() throws InterruptedException {
+        open(8);
+        int perThread = 150;
+        int threads = 4;
+        CountDownLatch done = new CountDownLatch(perThread * threads);
+        List<Integer> failures = Collections.synchronizedList(new ArrayList<>());
+        GattOperation.Callback callback = (operation, status, value, intValue) -> {
+            if (status != GattOperationQueue.STATUS_SUCCESS) failures.add(status);
+            done.countDown();
+        };
+        List<Thread> callers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int seed = t;
+            callers.add(new Thread(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < perThread; i++) {
+                    byte[] value = {(byte) i};
+                    switch (random.nextInt(4)) {
+                        case 0: queue.enqueue(GattOperation.read(SERVICE, NOTIFY, callback)); break;
+                        case 1: queue.enqueue(GattOperation.write(SERVICE, WRITE, value, callback)); break;
+                        case 2: queue.enqueue(GattOperation.enableNotifications(SERVICE, NOTIFY, true, callback)); break;
+                        default: queue.enqueue(GattOperation.writeNoResponse(SERVICE, WRITE, value, callback));
+                    }
+                }
+            }));
+        }
+        for (Thread caller : callers) caller.start();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(Collections.emptyList(), failures);
+        synchronized (gatt) {
+            assertEquals(0, gatt.violations);
+            assertTrue(gatt.maxWritesOutstanding <= GattOperationQueue.DEFAULT_WRITE_WINDOW);
+        }
+        assertEquals(0, queue.getUnexpectedCallbacks());
+    }
+
+    @Test
+    public void writesWithoutResponseArePipelinedInOrderAndRetriedWhenTheBufferIsFull() throws InterruptedException {
+        open(2);
+        queue.setWriteWindow(6);
+        int count = 200;
+        CountDownLatch done = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(GattOperation.writeNoResponse(SERVICE, WRITE, new byte[] {(byte) i},
+                (operation, status, value, intValue) -> {
+                    assertEquals(GattOperationQueue.STATUS_SUCCESS, status);
+                    done.countDown();
+                }));
+        }
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        synchronized (gatt) {
+            assertEquals(2, gatt.maxWritesOutstanding);
+            assertTrue("buffer never filled", gatt.rejectedWrites > 0);
+            assertEquals(count, gatt.submitted.size());
+            for (int i = 0; i < count; i++) {
+                assertEquals("stream " + (byte) i, gatt.submitted.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void linkLossFailsEverythingAndTheQueueKeepsWorking() throws InterruptedException {
+        open(4);
+        gatt.answering = false;
+        int count = 10;
+        CountDownLatch failed = new CountDownLatch(count);
+        List<Integer> statuses = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < count; i++) {
+            queue.enqueue(GattOperation.read(SERVICE, NOTIFY, (operation, status, value, intValue) -> {
+                statuses.add(status);
+                failed.countDown();
+            }));
+        }
+        queue.failAll(GattOperationQueue.STATUS_DISCONNECTED);
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(Collections.nCopies(count, GattOperationQueue.STATUS_DISCONNECTED), statuses);
+        synchronized (gatt) {
+            // Only the head reached the stack; the rest never left the queue
+            assertEquals(1, gatt.submitted.size());
+            gatt.blockingOutstanding = 0;
+        }
+
+        gatt.answering = true;
+        CountDownLatch reconnected = new CountDownLatch(1);
+        queue.enqueue(GattOperation.discoverServices((operation, status, value, intValue) -> {
+            assertEquals(GattOperationQueue.STATUS_SUCCESS, status);
+            reconnected.countDown();
+        }));
+        assertTrue(reconnected.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void enqueueAfterCloseFailsTheOperationAndKeepsTheDepthGauge() throws InterruptedException {
+        open(4);
+        queue.close();
+        // Wait for the queue thread to stop: from then on its executor rejects work
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queue.getUnexpectedCallbacks() != -1 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        long depth = HBandMetrics.GATT_QUEUE_DEPTH.get();
+
+        List<Integer> statuses = new ArrayList<>();
+        queue.enqueue(GattOperation.read(SERVICE, NOTIFY,
+            (operation, status, value, intValue) -> statuses.add(status)));
+        queue.onCallback(GattOperation.Type.READ, GattOperationQueue.STATUS_SUCCESS, null, 0);
+
+        // Failed on the caller's thread, before enqueue returned
+        assertEquals(Collections.singletonList(GattOperationQueue.STATUS_DISCONNECTED), statuses);
+        assertEquals(depth, HBandMetrics.GATT_QUEUE_DEPTH.get());
+    }
+}
@@ -0,0 +1,106 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+
+public class HealthAggregatorTest {
+    private static final ZoneId BERLIN = ZoneId.of("Europe/Berlin");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static long at(String localDateTime) {
+        return LocalDateTime.parse(localDateTime).atZone(BERLIN).toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void daysStartAtLocalMidnightAcrossDst() {
+        HealthAggregator aggregator = new HealthAggregator(TimeZone.getTimeZone(BERLIN));
+        // Clocks go forward on 2026-03-29; the last sample is 22:30 UTC, already the 30th in Berlin
+        aggregator.record(HealthMetric.HEART_RATE, at("2026-03-28T12:00"), new int[] {60});
+        aggregator.record(HealthMetric.HEART_RATE, at("2026-03-29T12:00"), new int[] {70});
+        aggregator.record(HealthMetric.HEART_RATE, at("2026-03-30T00:30"), new int[] {80});
+
+        HealthAggregator.Series days = aggregator.query(HealthMetric.HEART_RATE, HealthAggregator.Resolution.DAY,
+            at("2026-03-28T00:00"), at("2026-03-31T00:00"));
+        assertEquals(3, days.count);
+        assertArrayEquals(new long[] {at("2026-03-28T00:00"), at("2026-03-29T00:00"), at("2026-03-30T00:00")},
+            days.starts);
+        assertArrayEquals(new int[] {60, 70, 80}, days.min);
+    }
+
+    @Test
+    public void restingHeartRateIsKnownForEveryDayTheDayRingHolds() {
+        HealthAggregator aggregator = new HealthAggregator(TimeZone.getTimeZone(BERLIN));
+        LocalDateTime first = LocalDateTime.parse("2026-01-01T00:00");
+        int days = 60;
+        for (int d = 0; d < days; d++) {
+            for (int hour = 0; hour < 24; hour++) {
+                // Nights are calmer; each day's resting rate is 50 + d % 10
+                int rate = (hour < 6 ? 50 : 70) + d % 10;
+                for (int i = 0; i < HealthAggregator.MIN_RESTING_SAMPLES; i++) {
+                    long timestamp = first.plusDays(d).plusHours(hour).plusMinutes(5 * i)
+                        .atZone(BERLIN).toInstant().toEpochMilli();
+                    aggregator.record(HealthMetric.HEART_RATE, timestamp, new int[] {rate});
+                }
+            }
+        }
+
+        HealthAggregator.Series series = aggregator.query(HealthMetric.HEART_RATE, HealthAggregator.Resolution.DAY,
+            at("2026-01-01T00:00"), at("2026-03-02T00:00"));
+        assertEquals(days, series.count);
+        for (int d = 0; d < days; d++) {
+            assertEquals("day " + d, 50 + d % 10, series.restingHeartRate[d]);
+        }
+    }
+
+    @Test
+    public void rebuildDuringLiveWritesCountsEachSampleOnce() throws Exception {
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot());
+        HealthAggregator aggregator = new HealthAggregator(TimeZone.getTimeZone("UTC"));
+        long start = System.currentTimeMillis() - 3_600_000L;
+        int samples = 20_000;
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        Thread writer = new Thread(() -> {
+            int[] value = new int[1];
+            Lock storeLock = aggregator.storeLock(HealthMetric.HEART_RATE);
+            try {
+                for (int i = 0; i < samples; i++) {
+                    value[0] = 60 + i % 40;
+                    storeLock.lock();
+                    try {
+                        store.append(HealthMetric.HEART_RATE, start + i * 100L, value);
+                        aggregator.record(HealthMetric.HEART_RATE, start + i * 100L, value);
+                    } finally {
+                        storeLock.unlock();
+                    }
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                writing.set(false);
+            }
+        });
+        writer.start();
+        while (writing.get()) {
+            aggregator.rebuild(store, System.currentTimeMillis());
+        }
+        writer.join();
+
+        HealthAggregator.Summary summary = aggregator.summarize(HealthMetric.HEART_RATE,
+            start, start + samples * 100L);
+        assertEquals(samples, summary.count);
+        store.close();
+    }
+}
@@ -0,0 +1,144 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class HealthPayloadCodecTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    private static TimeSeriesStore.SampleBatch minuteBatch(HealthMetric metric, int count, Random random) {
+        TimeSeriesStore.SampleBatch batch = new TimeSeriesStore.SampleBatch(metric, count);
+        for (int i = 0; i < count; i++) {
+            batch.timestamps[i] = START_MS + i * 60_000L + random.nextInt(2000);
+            for (int c = 0; c < metric.channels; c++) {
+                batch.values[i * metric.channels + c] = 60 + c * 20 + random.nextInt(30);
+            }
+        }
+        batch.count = count;
+        return batch;
+    }
+
+    private static void assertSameBatches(List<TimeSeriesStore.SampleBatch> expected,
+                                          List<TimeSeriesStore.SampleBatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int b = 0; b < expected.size(); b++) {
+            TimeSeriesStore.SampleBatch want = expected.get(b);
+            TimeSeriesStore.SampleBatch got = actual.get(b);
+            assertEquals(want.metric, got.metric);
+            assertEquals(want.count, got.count);
+            assertArrayEquals(Arrays.copyOf(want.timestamps, want.count), Arrays.copyOf(got.timestamps, got.count));
+            int values = want.count * want.metric.channels;
+            assertArrayEquals(Arrays.copyOf(want.values, values), Arrays.copyOf(got.values, values));
+        }
+    }
+
+    @Test
+    public void binaryRoundTripsEveryMetric() {
+        Random random = new Random(3);
+        List<TimeSeriesStore.SampleBatch> batches = new ArrayList<>();
+        for (HealthMetric metric : HealthMetric.values()) {
+            batches.add(minuteBatch(metric, 1 + random.nextInt(1500), random));
+        }
+        HealthPayloadCodec.Header header = new HealthPayloadCodec.Header("user-42", "hband", "C4:7C:8D:6A:1B:2E", START_MS);
+
+        HealthPayloadCodec.Payload payload = HealthPayloadCodec.decodeBinary(HealthPayloadCodec.encodeBinary(header, batches));
+
+        assertEquals("user-42", payload.header.userId);
+        assertEquals("hband", payload.header.deviceType);
+        assertEquals("C4:7C:8D:6A:1B:2E", payload.header.deviceId);
+        assertEquals(START_MS, payload.header.createdAt);
+        assertSameBatches(batches, payload.batches);
+    }
+
+    @Test
+    public void extremeDeltasAndStringsRoundTrip() {
+        // Out-of-order and extreme timestamps and values overflow the deltas; the wrap must cancel out
+        TimeSeriesStore.SampleBatch batch = new TimeSeriesStore.SampleBatch(HealthMetric.BLOOD_PRESSURE, 5);
+        long[] timestamps = {Long.MAX_VALUE, Long.MIN_VALUE, 0, -1, START_MS};
+        int[] values = {Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0, -1, 1, 0, 120, 80};
+        System.arraycopy(timestamps, 0, batch.timestamps, 0, timestamps.length);
+        System.arraycopy(values, 0, batch.values, 0, values.length);
+        batch.count = timestamps.length;
+        TimeSeriesStore.SampleBatch empty = new TimeSeriesStore.SampleBatch(HealthMetric.STEPS, 0);
+        List<TimeSeriesStore.SampleBatch> batches = Arrays.asList(batch, empty);
+        HealthPayloadCodec.Header header = new HealthPayloadCodec.Header(null, "Bändchen \"Ω\"", "", -5);
+
+        HealthPayloadCodec.Payload payload = HealthPayloadCodec.decodeBinary(HealthPayloadCodec.encodeBinary(header, batches));
+
+        assertEquals(null, payload.header.userId);
+        assertEquals("Bändchen \"Ω\"", payload.header.deviceType);
+        assertEquals("", payload.header.deviceId);
+        assertEquals(-5, payload.header.createdAt);
+        assertSameBatches(batches, payload.batches);
+    }
+
+    @Test
+    public void everyTruncationIsRejected() {
+        Random random = new Random(5);
+        List<TimeSeriesStore.SampleBatch> batches = Arrays.asList(
+            minuteBatch(HealthMetric.HEART_RATE, 40, random), minuteBatch(HealthMetric.BLOOD_PRESSURE, 20, random));
+        byte[] bytes = HealthPayloadCodec.encodeBinary(new HealthPayloadCodec.Header("u", "t", "d", START_MS), batches);
+
+        for (int length = 0; length < bytes.length; length++) {
+            try {
+                HealthPayloadCodec.decodeBinary(Arrays.copyOf(bytes, length));
+                fail("Decoded a payload truncated to " + length + " of " + bytes.length + " bytes");
+            } catch (IllegalArgumentException expected) {
+                // Malformed input surfaces as one exception type
+            }
+        }
+    }
+
+    @Test
+    public void binaryIsMuchSmallerThanJsonForMinuteSamples() {
+        List<TimeSeriesStore.SampleBatch> batches = Collections.singletonList(
+            minuteBatch(HealthMetric.HEART_RATE, 1440, new Random(9)));
+        HealthPayloadCodec.Header header = new HealthPayloadCodec.Header("user-42", "hband", "C4:7C:8D:6A:1B:2E", START_MS);
+
+        int binary = HealthPayloadCodec.encodeBinary(header, batches).length;
+        int json = HealthPayloadCodec.encodeJson(header, batches).length;
+
+        assertTrue("binary " + binary + " bytes for 1440 samples", binary < 1440 * 5);
+        assertTrue("binary " + binary + " vs json " + json, binary * 4 < json);
+    }
+
+    @Test
+    public void jsonEscapesStringsAndKeepsTheEnvelope() {
+        TimeSeriesStore.SampleBatch batch = new TimeSeriesStore.SampleBatch(HealthMetric.BLOOD_PRESSURE, 2);
+        batch.timestamps[0] = 1000;
+        batch.timestamps[1] = 2000;
+        System.arraycopy(new int[] {120, 80, 118, 79}, 0, batch.values, 0, 4);
+        batch.count = 2;
+        HealthPayloadCodec.Header header = new HealthPayloadCodec.Header("a\"b\\c\n", null, "d", 7);
+
+        String json = new String(HealthPayloadCodec.encodeJson(header, Collections.singletonList(batch)),
+            StandardCharsets.UTF_8);
+
+        assertEquals("{\"user_id\":\"a\\\"b\\\\c\\u000a\",\"device_type\":null,\"device_id\":\"d\",\"timestamp\":7,"
+            + "\"isRealData\":true,\"metrics\":{\"bloodPressure\":{\"channels\":2,\"timestamps\":[1000,2000],"
+            + "\"values\":[120,80,118,79]}}}", json);
+    }
+
+    @Test
+    public void varintsRoundTripAtEveryWidth() {
+        byte[] buffer = new byte[VarintCodec.MAX_VARLONG_BYTES];
+        for (int bits = 0; bits < 64; bits++) {
+            for (long value : new long[] {1L << bits, (1L << bits) - 1, -(1L << bits), ~(1L << bits)}) {
+                int length = VarintCodec.writeSignedVarLong(buffer, 0, value);
+                assertEquals(value, VarintCodec.readSignedVarLong(ByteBuffer.wrap(buffer, 0, length)));
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class HealthUploadPipelineTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private final LinkedBlockingQueue<Integer> uploads = new LinkedBlockingQueue<>();
+    private TimeSeriesStore store;
+    private HealthUploadPipeline pipeline;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext(HealthUploadPipeline.DEFAULT_ENDPOINT, exchange -> {
+            try (InputStream body = exchange.getRequestBody()) {
+                while (body.read() != -1) { }
+            }
+            exchange.sendResponseHeaders(200, 2);
+            exchange.getResponseBody().write("{}".getBytes());
+            exchange.close();
+        });
+        server.start();
+
+        store = new TimeSeriesStore(new File(folder.getRoot(), "timeseries"));
+        pipeline = new HealthUploadPipeline(store, new File(folder.getRoot(), "checkpoints"));
+        pipeline.setListener(new HealthUploadPipeline.Listener() {
+            @Override public void onUploaded(int samples, int rawBytes, int sentBytes) { uploads.add(samples); }
+            @Override public void onUploadFailed(int httpStatus, String error, long retryInMs) { uploads.add(-1); }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        pipeline.shutdown();
+        server.stop(0);
+        store.close();
+    }
+
+    private void configure() {
+        pipeline.configure("http://127.0.0.1:" + server.getAddress().getPort(), "token", "user", "hband", "band-1");
+    }
+
+    @Test
+    public void backfillUploadsOnlyTheGap() throws Exception {
+        for (int i = 1; i <= 10; i++) {
+            store.append(HealthMetric.HEART_RATE, i * 1_000L, 60 + i);
+        }
+        configure();
+        assertEquals(Integer.valueOf(10), uploads.poll(10, TimeUnit.SECONDS));
+        assertEquals(10_001L, pipeline.getCheckpoint(HealthMetric.HEART_RATE));
+
+        // History from before the first upload arrives later
+        store.append(HealthMetric.HEART_RATE, 500L, 55);
+        store.append(HealthMetric.HEART_RATE, 600L, 56);
+        pipeline.backfill(HealthMetric.HEART_RATE, 500L, 601L);
+
+        assertEquals(Integer.valueOf(2), uploads.poll(10, TimeUnit.SECONDS));
+        pipeline.uploadNow();
+        assertEquals(null, uploads.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals(10_001L, pipeline.getCheckpoint(HealthMetric.HEART_RATE));
+        assertEquals(12, pipeline.getSamplesSent());
+    }
+}
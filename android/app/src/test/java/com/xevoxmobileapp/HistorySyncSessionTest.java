@@ -0,0 +1,282 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class HistorySyncSessionTest {
+    private static final String ADDRESS = "C4:7C:8D:6A:1B:2E";
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final class StoringSink implements HistorySyncSession.RecordSink {
+        final List<Long> stored = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public void onRecord(HealthMetric metric, long timestamp, int[] values) {
+            stored.add(timestamp);
+        }
+
+        @Override
+        public void flush() {}
+    }
+
+    private static final class Finish implements HistorySyncSession.Listener {
+        final CountDownLatch finished = new CountDownLatch(1);
+        volatile boolean completed;
+        volatile String failedMetric;
+
+        @Override public void onProgress(HistorySyncSession.Progress progress) {}
+        @Override public void onMetricComplete(HealthMetric metric, int records, long oldest, long newest) {}
+        @Override public void onMetricFailed(HealthMetric metric, String error) { failedMetric = metric.jsName; }
+
+        @Override
+        public void onFinished(boolean completed, String error) {
+            this.completed = completed;
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Heart-rate history one second apart, in the given delivery order
+     */
+    private static long[] history(int count, long seed, int disorder) {
+        long[] timestamps = new long[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = START_MS + i * 1000L;
+        }
+        // Neighbours within disorder positions swap, across commit boundaries too
+        Random random = new Random(seed);
+        for (int i = 0; i + 1 < count; i++) {
+            int j = Math.min(count - 1, i + 1 + random.nextInt(disorder));
+            if (random.nextInt(3) == 0) {
+                long swap = timestamps[i];
+                timestamps[i] = timestamps[j];
+                timestamps[j] = swap;
+            }
+        }
+        return timestamps;
+    }
+
+    /**
+     * The band's answer to a request for records after afterMs, as 20-byte notifications;
+     * stopAfter < 0 sends everything and the end frame
+     */
+    private static List<byte[]> answer(long[] delivery, long afterMs, int stopAfter) {
+        return split(frames(delivery, afterMs, stopAfter, ReferenceHistoryProtocol.recordsPerFrame(HealthMetric.HEART_RATE)), 20);
+    }
+
+    private static byte[] frames(long[] delivery, long afterMs, int stopAfter, int recordsPerFrame) {
+        List<long[]> frames = new ArrayList<>();
+        long[] batch = new long[recordsPerFrame];
+        int inBatch = 0;
+        int sent = 0;
+        for (long timestamp : delivery) {
+            if (timestamp <= afterMs) continue;
+            if (stopAfter >= 0 && sent == stopAfter) break;
+            batch[inBatch++] = timestamp;
+            sent++;
+            if (inBatch == batch.length) {
+                frames.add(Arrays.copyOf(batch, inBatch));
+                inBatch = 0;
+            }
+        }
+        if (inBatch > 0) {
+            frames.add(Arrays.copyOf(batch, inBatch));
+        }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (long[] frame : frames) {
+            byte[] bytes = ReferenceHistoryProtocol.encodeRecords(HealthMetric.HEART_RATE, frame,
+                new int[frame.length], 0, frame.length);
+            stream.write(bytes, 0, bytes.length);
+        }
+        if (stopAfter < 0) {
+            byte[] end = ReferenceFrames.encode(ReferenceFrames.HISTORY_END, HealthMetric.HEART_RATE, new byte[0]);
+            stream.write(end, 0, end.length);
+        }
+        return stream.toByteArray();
+    }
+
+    private static List<byte[]> split(byte[] bytes, int size) {
+        List<byte[]> notifications = new ArrayList<>();
+        for (int position = 0; position < bytes.length; position += size) {
+            notifications.add(Arrays.copyOfRange(bytes, position, Math.min(bytes.length, position + size)));
+        }
+        return notifications;
+    }
+
+    /**
+     * One notification per frame, as a band with a large MTU sends them
+     */
+    private static List<byte[]> framePerNotification(byte[] bytes) {
+        List<byte[]> notifications = new ArrayList<>();
+        for (int position = 0; position < bytes.length; ) {
+            int length = 4 + (bytes[position + 2] & 0xFF);
+            notifications.add(Arrays.copyOfRange(bytes, position, position + length));
+            position += length;
+        }
+        return notifications;
+    }
+
+    private void sync(DurableLongMap watermarks, StoringSink sink, long[] delivery, int stopAfter)
+            throws InterruptedException {
+        long after = watermarks.get(HistorySyncSession.watermarkKey(ADDRESS, HealthMetric.HEART_RATE), Long.MIN_VALUE);
+        List<byte[]> notifications = answer(delivery, after, stopAfter);
+        Finish finish = run(new ReferenceHistoryProtocol(), null, watermarks, sink, notifications, stopAfter >= 0);
+        assertEquals(stopAfter < 0, finish.completed);
+    }
+
+    private static Finish run(HistoryProtocol protocol, HistoryBacklogIngestor ingestor, DurableLongMap watermarks,
+                              StoringSink sink, List<byte[]> notifications, boolean dropLink)
+            throws InterruptedException {
+        Finish finish = new Finish();
+        HistorySyncSession session = new HistorySyncSession(ADDRESS, protocol, command -> true, sink,
+            watermarks, finish, ingestor);
+        session.start(Collections.singletonList(HealthMetric.HEART_RATE));
+        for (byte[] notification : notifications) {
+            session.onNotification(notification);
+        }
+        if (dropLink) {
+            session.onLinkLost();
+        }
+        assertTrue(finish.finished.await(10, TimeUnit.SECONDS));
+        session.shutdown();
+        return finish;
+    }
+
+    @Test
+    public void lateRecordsAcrossCommitsAreStoredInOrder() throws Exception {
+        long[] delivery = history(2000, 3, 40);
+        StoringSink sink = new StoringSink();
+        DurableLongMap watermarks = new DurableLongMap(folder.newFile("watermarks"));
+
+        sync(watermarks, sink, delivery, -1);
+
+        List<Long> sorted = new ArrayList<>(sink.stored);
+        Collections.sort(sorted);
+        assertEquals(2000, sink.stored.size());
+        assertEquals(sorted, sink.stored);
+        assertEquals(START_MS + 1999 * 1000L,
+            watermarks.get(HistorySyncSession.watermarkKey(ADDRESS, HealthMetric.HEART_RATE), 0));
+    }
+
+    @Test
+    public void linkDropResumesWithoutLosingOrRepeatingRecords() throws Exception {
+        long[] delivery = history(2000, 5, 40);
+        StoringSink sink = new StoringSink();
+        DurableLongMap watermarks = new DurableLongMap(folder.newFile("watermarks"));
+
+        sync(watermarks, sink, delivery, 1100);
+        long mark = watermarks.get(HistorySyncSession.watermarkKey(ADDRESS, HealthMetric.HEART_RATE), 0);
+        assertTrue("watermark moved", mark > 0);
+        sync(watermarks, sink, delivery, -1);
+
+        assertEquals(2000, sink.stored.size());
+        TreeSet<Long> distinct = new TreeSet<>(sink.stored);
+        assertEquals(2000, distinct.size());
+        assertEquals(START_MS, (long) distinct.first());
+        assertEquals(START_MS + 1999 * 1000L, (long) distinct.last());
+    }
+
+    @Test
+    public void parallelDecodeMergesLateRecordsAcrossTheBacklog() throws Exception {
+        long[] delivery = history(5000, 7, 60);
+        StoringSink sink = new StoringSink();
+        DurableLongMap watermarks = new DurableLongMap(folder.newFile("watermarks"));
+        HistoryBacklogIngestor ingestor = new HistoryBacklogIngestor(4);
+        try {
+            Finish finish = run(new ReferenceHistoryProtocol(true), ingestor, watermarks, sink,
+                framePerNotification(frames(delivery, 0, -1, 40)), false);
+
+            assertTrue(finish.completed);
+            List<Long> sorted = new ArrayList<>(sink.stored);
+            Collections.sort(sorted);
+            assertEquals(5000, sink.stored.size());
+            assertEquals(sorted, sink.stored);
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+
+    @Test
+    public void undecodableBlockFailsTheMetricWithoutAdvancingPastIt() throws Exception {
+        long[] delivery = history(2000, 11, 40);
+        StoringSink sink = new StoringSink();
+        DurableLongMap watermarks = new DurableLongMap(folder.newFile("watermarks"));
+        HistoryBacklogIngestor ingestor = new HistoryBacklogIngestor(2);
+        try {
+            List<byte[]> notifications = framePerNotification(frames(delivery, 0, -1, 40));
+            // Notification 30 holds records 1160..1199; a record it cannot split is not decodable
+            byte[] bad = ReferenceFrames.encode(ReferenceFrames.HISTORY_RECORDS, HealthMetric.HEART_RATE, new byte[7]);
+            long lost = Long.MAX_VALUE;
+            for (int i = 1160; i < 1200; i++) {
+                lost = Math.min(lost, delivery[i]);
+            }
+            notifications.set(29, bad);
+            Finish finish = run(new ReferenceHistoryProtocol(true), ingestor, watermarks, sink, notifications, false);
+
+            assertFalse(finish.completed);
+            assertEquals("heartRate", finish.failedMetric);
+            long mark = watermarks.get(HistorySyncSession.watermarkKey(ADDRESS, HealthMetric.HEART_RATE), 0);
+            assertTrue("watermark " + mark + " passed lost record " + lost, mark < lost);
+
+            // The next sync fills the gap without storing anything twice
+            run(new ReferenceHistoryProtocol(true), ingestor, watermarks, sink,
+                framePerNotification(frames(delivery, mark, -1, 40)), false);
+            assertEquals(2000, new TreeSet<>(sink.stored).size());
+            assertEquals(2000, sink.stored.size());
+        } finally {
+            ingestor.shutdown();
+        }
+    }
+
+    @Test
+    public void stalledBandFailsTheMetricWithoutPassingUndeliveredRecords() throws Exception {
+        long[] delivery = history(2000, 13, 40);
+        StoringSink sink = new StoringSink();
+        DurableLongMap watermarks = new DurableLongMap(folder.newFile("watermarks"));
+        long lost = Long.MAX_VALUE;
+        for (int i = 1100; i < delivery.length; i++) {
+            lost = Math.min(lost, delivery[i]);
+        }
+
+        // The band answers 1100 records, then goes silent with the link still up
+        Finish finish = new Finish();
+        HistorySyncSession session = new HistorySyncSession(ADDRESS, new ReferenceHistoryProtocol(),
+            command -> true, sink, watermarks, finish);
+        session.setFrameTimeoutMs(200);
+        session.start(Collections.singletonList(HealthMetric.HEART_RATE));
+        for (byte[] notification : answer(delivery, Long.MIN_VALUE, 1100)) {
+            session.onNotification(notification);
+        }
+        assertTrue(finish.finished.await(10, TimeUnit.SECONDS));
+        session.shutdown();
+
+        assertFalse(finish.completed);
+        assertEquals("heartRate", finish.failedMetric);
+        long mark = watermarks.get(HistorySyncSession.watermarkKey(ADDRESS, HealthMetric.HEART_RATE), 0);
+        assertTrue("watermark moved", mark > 0);
+        assertTrue("watermark " + mark + " passed undelivered record " + lost, mark < lost);
+
+        // The next sync fills the gap without storing anything twice
+        sync(watermarks, sink, delivery, -1);
+        assertEquals(2000, new TreeSet<>(sink.stored).size());
+        assertEquals(2000, sink.stored.size());
+    }
+}
@@ -0,0 +1,54 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+public class KnownDeviceCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveReload() throws IOException {
+        File file = new File(folder.getRoot(), "known.properties");
+        KnownDeviceCache cache = new KnownDeviceCache(file);
+        cache.put(new KnownDeviceCache.Entry("c4:7c:8d:6a:1b:2e", true, 185, 1_000L));
+
+        KnownDeviceCache.Entry entry = new KnownDeviceCache(file).get("C4:7C:8D:6A:1B:2E");
+        assertTrue(entry.bonded);
+        assertEquals(185, entry.mtu);
+        assertEquals(1_000L, entry.lastConnectedAt);
+    }
+
+    @Test
+    public void readsEntriesWithLegacyLayoutSignature() throws IOException {
+        File file = new File(folder.getRoot(), "known.properties");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write("C4\\:7C\\:8D\\:6A\\:1B\\:2E=0,247,9e3779b97f4a7c15,2000\n".getBytes(StandardCharsets.ISO_8859_1));
+        }
+
+        KnownDeviceCache.Entry entry = new KnownDeviceCache(file).get("C4:7C:8D:6A:1B:2E");
+        assertEquals(247, entry.mtu);
+        assertEquals(2_000L, entry.lastConnectedAt);
+    }
+
+    @Test
+    public void evictsLeastRecentlyConnected() throws IOException {
+        KnownDeviceCache cache = new KnownDeviceCache(new File(folder.getRoot(), "known.properties"), 2);
+        cache.put(new KnownDeviceCache.Entry("AA:00:00:00:00:01", false, 23, 1_000L));
+        cache.put(new KnownDeviceCache.Entry("AA:00:00:00:00:02", false, 23, 2_000L));
+        cache.put(new KnownDeviceCache.Entry("AA:00:00:00:00:03", false, 23, 3_000L));
+
+        assertEquals(2, cache.all().size());
+        assertEquals(null, cache.get("AA:00:00:00:00:01"));
+        assertEquals("AA:00:00:00:00:03", cache.all().get(0).address);
+    }
+}
@@ -0,0 +1,73 @@
+package com.xevoxmobileapp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MainScheduler driven by the test: time only moves in advance(), which runs what fell due
+ */
+class ManualMainScheduler implements MainScheduler {
+    private static final class Task {
+        final Runnable runnable;
+        final long dueAt;
+
+        Task(Runnable runnable, long dueAt) {
+            this.runnable = runnable;
+            this.dueAt = dueAt;
+        }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long now = 1_000;
+
+    @Override
+    public synchronized long elapsedRealtime() {
+        return now;
+    }
+
+    @Override
+    public synchronized void post(Runnable runnable) {
+        tasks.add(new Task(runnable, now));
+    }
+
+    @Override
+    public synchronized void postDelayed(Runnable runnable, long delayMs) {
+        tasks.add(new Task(runnable, now + delayMs));
+    }
+
+    @Override
+    public synchronized void cancel(Runnable runnable) {
+        tasks.removeIf(task -> task.runnable == runnable);
+    }
+
+    /**
+     * Moves the clock forward by ms, running due tasks in time order
+     */
+    void advance(long ms) {
+        long target;
+        synchronized (this) {
+            target = now + ms;
+        }
+        while (true) {
+            Task next = null;
+            synchronized (this) {
+                for (Task task : tasks) {
+                    if (task.dueAt <= target && (next == null || task.dueAt < next.dueAt)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    now = target;
+                    return;
+                }
+                tasks.remove(next);
+                now = Math.max(now, next.dueAt);
+            }
+            next.runnable.run();
+        }
+    }
+
+    synchronized int pending() {
+        return tasks.size();
+    }
+}
@@ -0,0 +1,86 @@
+package com.xevoxmobileapp;
+
+/**
+ * Synthetic frame format shared by ReferenceLiveProtocol and ReferenceHistoryProtocol
+ * Stands in for the vendor's vpprotocol commands, which are not in this tree, so the live
+ * and history paths run end to end on the JVM; no band speaks it. Frames are FrameDecoder
+ * frames (sync 0xA5, 1-byte length, 8-bit sum). The command byte carries a class in its
+ * top three bits and a metric code in the low five (HR 1, SpO2 2, steps 3, BP 4, sleep 5);
+ * payloads are little-endian.
+ */
+public final class ReferenceFrames {
+    public static final int SYNC = 0xA5;
+    public static final int LENGTH_BYTES = 1;
+    public static final FrameDecoder.Checksum CHECKSUM = FrameDecoder.Checksum.SUM8;
+    public static final int MAX_PAYLOAD = 0xFF;
+
+    // Command classes (command & CLASS_MASK)
+    public static final int CLASS_MASK = 0xE0;
+    public static final int READ = 0x20;
+    public static final int SUBSCRIBE = 0x40;
+    public static final int HISTORY_READ = 0x60;
+    public static final int READING = 0x80;
+    public static final int HISTORY_HEADER = 0xA0;
+    public static final int HISTORY_RECORDS = 0xC0;
+    public static final int HISTORY_END = 0xE0;
+
+    private static final HealthMetric[] METRICS = {
+        null, HealthMetric.HEART_RATE, HealthMetric.SPO2, HealthMetric.STEPS, HealthMetric.BLOOD_PRESSURE,
+        HealthMetric.SLEEP
+    };
+
+    private ReferenceFrames() {}
+
+    /**
+     * Decoder for one link's notification stream; not thread-safe
+     */
+    public static FrameDecoder newDecoder(FrameDecoder.FrameSink sink) {
+        return new FrameDecoder(SYNC, LENGTH_BYTES, CHECKSUM, MAX_PAYLOAD, sink);
+    }
+
+    public static byte[] encode(int command, byte[] payload) {
+        return newDecoder(null).encode(command, payload, 0, payload.length);
+    }
+
+    public static byte[] encode(int commandClass, HealthMetric metric, byte[] payload) {
+        return encode(commandClass | code(metric), payload);
+    }
+
+    /**
+     * Metric code of metric, or -1 if the band has none
+     */
+    public static int code(HealthMetric metric) {
+        for (int code = 1; code < METRICS.length; code++) {
+            if (METRICS[code] == metric) return code;
+        }
+        return -1;
+    }
+
+    /**
+     * Metric of a command byte, or null for an unknown code
+     */
+    public static HealthMetric metric(int command) {
+        int code = command & ~CLASS_MASK;
+        return code > 0 && code < METRICS.length ? METRICS[code] : null;
+    }
+
+    public static int u16(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+    }
+
+    public static long u32(byte[] buffer, int offset) {
+        return (buffer[offset] & 0xFFL) | (buffer[offset + 1] & 0xFFL) << 8
+            | (buffer[offset + 2] & 0xFFL) << 16 | (buffer[offset + 3] & 0xFFL) << 24;
+    }
+
+    public static void putU16(byte[] buffer, int offset, int value) {
+        buffer[offset] = (byte) value;
+        buffer[offset + 1] = (byte) (value >>> 8);
+    }
+
+    public static void putU32(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
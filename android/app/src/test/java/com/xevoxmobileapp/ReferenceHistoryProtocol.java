@@ -0,0 +1,146 @@
+package com.xevoxmobileapp;
+
+/**
+ * Minimal HistoryProtocol over ReferenceFrames, for tests and benchmarks
+ * HISTORY_READ | code [u32 LE seconds] asks for records newer than that second. The band
+ * answers with ReferenceFrames frames: HISTORY_HEADER | code [u16 LE count], any number of
+ * HISTORY_RECORDS | code frames packing [u32 LE seconds][u16 LE per channel] records, and
+ * HISTORY_END | code. If the band keeps every frame inside one notification
+ * (framesFitNotifications), HistoryBacklogIngestor decodes notifications in parallel;
+ * otherwise frames are reassembled across notifications on the sync thread.
+ */
+public class ReferenceHistoryProtocol implements HistoryProtocol {
+
+    // Decoding state of one stream (or of one worker thread, for independent notifications)
+    private static final class Decoding implements FrameDecoder.FrameSink {
+        final FrameDecoder decoder = ReferenceFrames.newDecoder(this);
+        final int[][] values = new int[HealthMetric.values().length][];
+        HealthMetric metric;
+        Receiver receiver;
+
+        Decoding() {
+            for (HealthMetric metric : HealthMetric.values()) {
+                values[metric.ordinal()] = new int[metric.channels];
+            }
+        }
+
+        void feed(HealthMetric metric, byte[] value, Receiver receiver) {
+            this.metric = metric;
+            this.receiver = receiver;
+            try {
+                decoder.feed(value);
+            } finally {
+                this.receiver = null;
+            }
+        }
+
+        @Override
+        public void onFrame(int command, byte[] buffer, int offset, int length) {
+            // Answers to another metric's request are stale; the session asked for this one
+            if (ReferenceFrames.metric(command) != metric) return;
+            switch (command & ReferenceFrames.CLASS_MASK) {
+                case ReferenceFrames.HISTORY_HEADER:
+                    if (length >= 2) {
+                        receiver.onExpectedRecords(ReferenceFrames.u16(buffer, offset));
+                    }
+                    return;
+                case ReferenceFrames.HISTORY_RECORDS:
+                    int size = recordSize(metric);
+                    if (length % size != 0) {
+                        throw new IllegalStateException("History frame of " + length + " bytes for "
+                            + metric.jsName + " records of " + size);
+                    }
+                    int[] record = values[metric.ordinal()];
+                    for (int position = offset; position < offset + length; position += size) {
+                        long seconds = ReferenceFrames.u32(buffer, position);
+                        for (int c = 0; c < metric.channels; c++) {
+                            record[c] = ReferenceFrames.u16(buffer, position + 4 + 2 * c);
+                        }
+                        receiver.onRecord(seconds * 1000, record);
+                    }
+                    return;
+                case ReferenceFrames.HISTORY_END:
+                    receiver.onComplete();
+                    return;
+                default:
+                    // Live readings interleaved with the history answer belong to LiveProtocol
+            }
+        }
+    }
+
+    private final boolean framesFitNotifications;
+    private final Decoding stream = new Decoding();
+    // ThreadLocal.withInitial needs API 26
+    private final ThreadLocal<Decoding> perThread = new ThreadLocal<Decoding>() {
+        @Override
+        protected Decoding initialValue() {
+            return new Decoding();
+        }
+    };
+
+    public ReferenceHistoryProtocol() {
+        this(false);
+    }
+
+    /**
+     * framesFitNotifications: the band never splits a frame across notifications
+     */
+    public ReferenceHistoryProtocol(boolean framesFitNotifications) {
+        this.framesFitNotifications = framesFitNotifications;
+    }
+
+    static int recordSize(HealthMetric metric) {
+        return 4 + 2 * metric.channels;
+    }
+
+    /**
+     * The band's answer frames for records (for traces and tests); values row-major by channel
+     */
+    public static byte[] encodeRecords(HealthMetric metric, long[] timestampsMs, int[] values, int from, int count) {
+        int size = recordSize(metric);
+        byte[] payload = new byte[count * size];
+        for (int i = 0; i < count; i++) {
+            ReferenceFrames.putU32(payload, i * size, timestampsMs[from + i] / 1000);
+            for (int c = 0; c < metric.channels; c++) {
+                ReferenceFrames.putU16(payload, i * size + 4 + 2 * c, values[(from + i) * metric.channels + c]);
+            }
+        }
+        return ReferenceFrames.encode(ReferenceFrames.HISTORY_RECORDS, metric, payload);
+    }
+
+    /**
+     * Most records of metric that fit one frame
+     */
+    public static int recordsPerFrame(HealthMetric metric) {
+        return ReferenceFrames.MAX_PAYLOAD / recordSize(metric);
+    }
+
+    @Override
+    public boolean supports(HealthMetric metric) {
+        return ReferenceFrames.code(metric) > 0;
+    }
+
+    @Override
+    public byte[] buildReadRequest(HealthMetric metric, long afterTimestamp) {
+        stream.decoder.reset();
+        byte[] payload = new byte[4];
+        ReferenceFrames.putU32(payload, 0, Math.max(0, afterTimestamp / 1000));
+        return ReferenceFrames.encode(ReferenceFrames.HISTORY_READ, metric, payload);
+    }
+
+    @Override
+    public void onNotification(HealthMetric metric, byte[] value, Receiver receiver) {
+        if (framesFitNotifications) {
+            Decoding decoding = perThread.get();
+            decoding.decoder.reset();
+            decoding.feed(metric, value, receiver);
+        } else {
+            stream.feed(metric, value, receiver);
+        }
+    }
+
+    @Override
+    public boolean decodesIndependently(HealthMetric metric) {
+        return framesFitNotifications;
+    }
+}
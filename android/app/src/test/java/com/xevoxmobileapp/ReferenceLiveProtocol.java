@@ -0,0 +1,80 @@
+package com.xevoxmobileapp;
+
+/**
+ * Minimal LiveProtocol over ReferenceFrames, for tests and benchmarks
+ * Readings are ReferenceFrames frames READING | code with payload [u32 LE seconds][u16 LE per
+ * channel]; SUBSCRIBE | code [0|1] turns the band's own updates on or off and READ | code
+ * asks for one reading. Frames may span notifications, so one instance serves one link.
+ * Decoding reuses one values array per metric, so steady-state decoding does not allocate.
+ */
+public class ReferenceLiveProtocol implements LiveProtocol {
+    private final FrameDecoder decoder = ReferenceFrames.newDecoder(this::onFrame);
+    private final int[][] values = new int[HealthMetric.values().length][];
+    private Receiver receiver;
+
+    public ReferenceLiveProtocol() {
+        for (HealthMetric metric : HealthMetric.values()) {
+            values[metric.ordinal()] = new int[metric.channels];
+        }
+    }
+
+    /**
+     * One reading frame as the band notifies it (for traces and tests)
+     */
+    public static byte[] encodeReading(HealthMetric metric, long timestampMs, int... channelValues) {
+        byte[] payload = new byte[4 + 2 * metric.channels];
+        ReferenceFrames.putU32(payload, 0, timestampMs / 1000);
+        for (int c = 0; c < metric.channels; c++) {
+            ReferenceFrames.putU16(payload, 4 + 2 * c, channelValues[c]);
+        }
+        return ReferenceFrames.encode(ReferenceFrames.READING, metric, payload);
+    }
+
+    @Override
+    public boolean supports(HealthMetric metric) {
+        return ReferenceFrames.code(metric) > 0;
+    }
+
+    @Override
+    public boolean supportsNotifications(HealthMetric metric) {
+        return supports(metric);
+    }
+
+    @Override
+    public byte[] buildSubscribeRequest(HealthMetric metric, boolean enabled) {
+        return ReferenceFrames.encode(ReferenceFrames.SUBSCRIBE, metric, new byte[] {(byte) (enabled ? 1 : 0)});
+    }
+
+    @Override
+    public byte[] buildReadRequest(HealthMetric metric) {
+        return ReferenceFrames.encode(ReferenceFrames.READ, metric, new byte[0]);
+    }
+
+    // Notifications of one link arrive on one thread at a time
+    @Override
+    public void onNotification(byte[] value, Receiver receiver) {
+        this.receiver = receiver;
+        decoder.feed(value);
+        this.receiver = null;
+    }
+
+    /**
+     * Drops a frame left half-assembled by a previous link
+     */
+    @Override
+    public void reset() {
+        decoder.reset();
+    }
+
+    private void onFrame(int command, byte[] buffer, int offset, int length) {
+        HealthMetric metric = ReferenceFrames.metric(command);
+        if ((command & ReferenceFrames.CLASS_MASK) != ReferenceFrames.READING || metric == null) return;
+        if (length < 4 + 2 * metric.channels) return;
+        long seconds = ReferenceFrames.u32(buffer, offset);
+        int[] reading = values[metric.ordinal()];
+        for (int c = 0; c < metric.channels; c++) {
+            reading[c] = ReferenceFrames.u16(buffer, offset + 4 + 2 * c);
+        }
+        receiver.onReading(metric, seconds * 1000, reading);
+    }
+}
@@ -0,0 +1,45 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ReferenceLiveProtocolTest {
+
+    @Test
+    public void readingsSpanningNotificationsAreDecoded() {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        byte[] heartRate = ReferenceLiveProtocol.encodeReading(HealthMetric.HEART_RATE, 1_700_000_000_000L, 72);
+        byte[] pressure = ReferenceLiveProtocol.encodeReading(HealthMetric.BLOOD_PRESSURE, 1_700_000_001_000L, 121, 79);
+        stream.write(heartRate, 0, heartRate.length);
+        stream.write(pressure, 0, pressure.length);
+        byte[] bytes = stream.toByteArray();
+
+        ReferenceLiveProtocol protocol = new ReferenceLiveProtocol();
+        List<String> readings = new ArrayList<>();
+        LiveProtocol.Receiver receiver = (metric, timestamp, values) ->
+            readings.add(metric + "@" + timestamp + Arrays.toString(values));
+        // 20-byte ATT payloads cut the second frame
+        for (int position = 0; position < bytes.length; position += 7) {
+            protocol.onNotification(Arrays.copyOfRange(bytes, position, Math.min(bytes.length, position + 7)), receiver);
+        }
+
+        assertEquals(Arrays.asList("HEART_RATE@1700000000000[72]", "BLOOD_PRESSURE@1700000001000[121, 79]"), readings);
+    }
+
+    @Test
+    public void requestsUseTheCommandTable() {
+        ReferenceLiveProtocol protocol = new ReferenceLiveProtocol();
+
+        assertArrayEquals(ReferenceFrames.encode(ReferenceFrames.SUBSCRIBE | 2, new byte[] {1}),
+            protocol.buildSubscribeRequest(HealthMetric.SPO2, true));
+        assertArrayEquals(ReferenceFrames.encode(ReferenceFrames.READ | 4, new byte[0]),
+            protocol.buildReadRequest(HealthMetric.BLOOD_PRESSURE));
+    }
+}
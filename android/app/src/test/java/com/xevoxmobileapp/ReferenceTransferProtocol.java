@@ -0,0 +1,77 @@
+package com.xevoxmobileapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Minimal offset-addressed upload framing, spoken by SimulatedTransferPeripheral
+ * Stands in for a vendor OTA protocol so BulkTransferSession runs end to end on the JVM.
+ * Little-endian:
+ *
+ *   phone -> band  START  b0 | kind u8 | total u32 | crc32 u32 | offset u32
+ *                  DATA   b1 | offset u32 | bytes
+ *                  FINISH b2 | crc32 u32
+ *   band -> phone  ACCEPT c0 | resumeOffset u32 | windowBytes u32
+ *                  ACK    c1 | offset u32
+ *                  DONE   c2
+ *                  REJECT c3 | reason u8   (1 = bad CRC, 2 = too large, 3 = busy)
+ */
+public class ReferenceTransferProtocol implements TransferProtocol {
+    static final byte START = (byte) 0xB0;
+    static final byte DATA = (byte) 0xB1;
+    static final byte FINISH = (byte) 0xB2;
+    static final byte ACCEPT = (byte) 0xC0;
+    static final byte ACK = (byte) 0xC1;
+    static final byte DONE = (byte) 0xC2;
+    static final byte REJECT = (byte) 0xC3;
+
+    static final int REJECT_BAD_CRC = 1;
+    static final int REJECT_TOO_LARGE = 2;
+    static final int REJECT_BUSY = 3;
+
+    private static final int DATA_HEADER_BYTES = 5;
+
+    private static ByteBuffer frame(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public int chunkOverhead() {
+        return DATA_HEADER_BYTES;
+    }
+
+    @Override
+    public byte[] buildStart(BulkTransferSession.Kind kind, int totalBytes, long crc32, int resumeOffset) {
+        return frame(14).put(START).put((byte) kind.ordinal()).putInt(totalBytes)
+            .putInt((int) crc32).putInt(resumeOffset).array();
+    }
+
+    @Override
+    public byte[] buildChunk(byte[] payload, int offset, int length) {
+        return frame(DATA_HEADER_BYTES + length).put(DATA).putInt(offset).put(payload, offset, length).array();
+    }
+
+    @Override
+    public byte[] buildFinish(long crc32) {
+        return frame(5).put(FINISH).putInt((int) crc32).array();
+    }
+
+    @Override
+    public void onNotification(byte[] value, Receiver receiver) {
+        if (value == null || value.length == 0) return;
+        ByteBuffer in = ByteBuffer.wrap(value).order(ByteOrder.LITTLE_ENDIAN);
+        byte type = in.get();
+        if (type == ACCEPT && value.length >= 9) {
+            receiver.onAccepted(in.getInt(), in.getInt());
+        } else if (type == ACK && value.length >= 5) {
+            receiver.onAcknowledged(in.getInt());
+        } else if (type == DONE) {
+            receiver.onCompleted();
+        } else if (type == REJECT) {
+            int reason = value.length >= 2 ? in.get() & 0xFF : 0;
+            receiver.onRejected(reason == REJECT_BAD_CRC ? "bad CRC"
+                : reason == REJECT_TOO_LARGE ? "image too large"
+                : reason == REJECT_BUSY ? "busy" : "code " + reason);
+        }
+    }
+}
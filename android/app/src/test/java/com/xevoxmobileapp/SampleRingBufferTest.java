@@ -0,0 +1,41 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SampleRingBufferTest {
+
+    @Test
+    public void keepsOneSlotForTheWriter() {
+        SampleRingBuffer ring = new SampleRingBuffer(8, 1, false);
+        assertEquals(7, ring.getCapacity());
+
+        for (int i = 0; i < 20; i++) {
+            ring.append(i * 1000L, i);
+        }
+        assertEquals(7, ring.size());
+
+        long[] timestamps = new long[8];
+        int[] values = new int[8];
+        assertEquals(7, ring.copyLatest(8, timestamps, values));
+        assertArrayEquals(new int[] {13, 14, 15, 16, 17, 18, 19, 0}, values);
+        assertEquals(13_000L, timestamps[0]);
+    }
+
+    @Test
+    public void copyRangeStaysInsideTheReadableWindow() {
+        SampleRingBuffer ring = new SampleRingBuffer(4, 2, true);
+        for (int i = 0; i < 10; i++) {
+            ring.append(i, 100 + i, 60 + i);
+        }
+
+        long[] timestamps = new long[4];
+        int[] values = new int[8];
+        int count = ring.copyRange(0, Long.MAX_VALUE, timestamps, values);
+        assertEquals(3, count);
+        assertArrayEquals(new long[] {7, 8, 9, 0}, timestamps);
+        assertArrayEquals(new int[] {107, 67, 108, 68, 109, 69, 0, 0}, values);
+    }
+}
@@ -0,0 +1,84 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class SamplingSchedulerTest {
+
+    // A clock that only moves when told to, like the executor's timer in deep sleep
+    private static final class ManualWaker implements SamplingScheduler.Waker {
+        volatile long now = 1_000;
+        volatile long wakeAt = -1;
+        volatile Runnable onWake;
+
+        @Override public long now() { return now; }
+        @Override public void wakeAt(long at, Runnable onWake) { this.wakeAt = at; this.onWake = onWake; }
+        @Override public void cancel() { wakeAt = -1; onWake = null; }
+    }
+
+    // Heart rate is read on demand only
+    private static final LiveProtocol POLLED = new LiveProtocol() {
+        @Override public boolean supports(HealthMetric metric) { return metric == HealthMetric.HEART_RATE; }
+        @Override public boolean supportsNotifications(HealthMetric metric) { return false; }
+        @Override public byte[] buildSubscribeRequest(HealthMetric metric, boolean enabled) { return new byte[0]; }
+        @Override public byte[] buildReadRequest(HealthMetric metric) { return new byte[] {1}; }
+        @Override public void onNotification(byte[] value, Receiver receiver) {}
+    };
+
+    @Test
+    public void alarmRunsPollTheExecutorTimerSleptThrough() throws InterruptedException {
+        BlockingQueue<byte[]> sent = new LinkedBlockingQueue<>();
+        ManualWaker waker = new ManualWaker();
+        SamplingScheduler scheduler = new SamplingScheduler(POLLED, sent::add, null, waker);
+        try {
+            scheduler.start(Collections.singletonList(HealthMetric.HEART_RATE));
+            assertArrayEquals(new byte[] {1}, sent.poll(5, TimeUnit.SECONDS));
+            waitForWakeAt(waker, 1_000 + SamplingScheduler.DEFAULT_REST_INTERVAL_MS);
+
+            // Five minutes pass while the CPU sleeps; only the alarm fires
+            waker.now += SamplingScheduler.DEFAULT_REST_INTERVAL_MS;
+            waker.onWake.run();
+
+            assertNotNull(sent.poll(5, TimeUnit.SECONDS));
+            waitForWakeAt(waker, 1_000 + 2 * SamplingScheduler.DEFAULT_REST_INTERVAL_MS);
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    @Test
+    public void earlyAlarmPollsNothing() throws InterruptedException {
+        BlockingQueue<byte[]> sent = new LinkedBlockingQueue<>();
+        ManualWaker waker = new ManualWaker();
+        SamplingScheduler scheduler = new SamplingScheduler(POLLED, sent::add, null, waker);
+        try {
+            scheduler.start(Collections.singletonList(HealthMetric.HEART_RATE));
+            assertNotNull(sent.poll(5, TimeUnit.SECONDS));
+            waitForWakeAt(waker, 1_000 + SamplingScheduler.DEFAULT_REST_INTERVAL_MS);
+
+            waker.now += 1_000;
+            waker.onWake.run();
+
+            assertNull(sent.poll(200, TimeUnit.MILLISECONDS));
+        } finally {
+            scheduler.stop();
+        }
+    }
+
+    private static void waitForWakeAt(ManualWaker waker, long expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (waker.wakeAt != expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, waker.wakeAt);
+    }
+}
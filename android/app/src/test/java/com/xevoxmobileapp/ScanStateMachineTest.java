@@ -0,0 +1,75 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ScanStateMachineTest {
+
+    private static final class CountingActions implements ScanStateMachine.Actions {
+        int starts;
+        int stops;
+
+        @Override public boolean startHardwareScan() { starts++; return true; }
+        @Override public void stopHardwareScan() { stops++; }
+        @Override public void onScanStarted(int retries) {}
+        @Override public void onScanGaveUp(String reason) {}
+    }
+
+    private final ManualMainScheduler scheduler = new ManualMainScheduler();
+    private final CountingActions actions = new CountingActions();
+    private final ScanStateMachine machine = new ScanStateMachine(scheduler, actions);
+
+    @Test
+    public void retriesBackOff() {
+        machine.requestStart(null);
+        assertEquals(1, actions.starts);
+
+        assertTrue(machine.onScanFailed(2, true));
+        assertEquals(ScanStateMachine.State.COOLING_DOWN, machine.getState());
+        scheduler.advance(249);
+        assertEquals(1, actions.starts);
+        scheduler.advance(1);
+        assertEquals(2, actions.starts);
+
+        assertTrue(machine.onScanFailed(2, true));
+        scheduler.advance(499);
+        assertEquals(2, actions.starts);
+        scheduler.advance(1);
+        assertEquals(3, actions.starts);
+        assertEquals(2, machine.getTotalRetries());
+    }
+
+    @Test
+    public void freshStartAfterFailedOneIsImmediate() {
+        machine.requestStart(null);
+        for (int i = 0; i < 3; i++) {
+            machine.onScanFailed(2, true);
+            scheduler.advance(4_000);
+        }
+        machine.requestStop();
+        scheduler.advance(30_000);
+
+        int before = actions.starts;
+        machine.requestStart(null);
+        assertEquals(before + 1, actions.starts);
+        assertEquals(ScanStateMachine.State.SCANNING, machine.getState());
+    }
+
+    @Test
+    public void sixthStartWithinWindowIsDeferred() {
+        for (int i = 0; i < 5; i++) {
+            machine.requestStart(null);
+            scheduler.advance(1_000);
+        }
+        assertEquals(5, actions.starts);
+
+        machine.requestStart(null);
+        assertEquals(5, actions.starts);
+        assertEquals(ScanStateMachine.State.COOLING_DOWN, machine.getState());
+        scheduler.advance(30_000);
+        assertEquals(6, actions.starts);
+        assertEquals(1, machine.getThrottleDeferrals());
+    }
+}
@@ -0,0 +1,90 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class SensorSampleHubTest {
+
+    private static final class Recorder implements SensorSampleHub.Listener {
+        final List<long[]> updates = new ArrayList<>();
+
+        @Override
+        public void onDecimatedSample(HealthMetric metric, long timestamp, int[] values, int samplesInWindow) {
+            updates.add(new long[] {timestamp, values[0], samplesInWindow});
+        }
+    }
+
+    @Test
+    public void lastWindowIsFlushedWhenTheStreamStops() {
+        ManualMainScheduler scheduler = new ManualMainScheduler();
+        SensorSampleHub hub = new SensorSampleHub(64, 1);
+        hub.setFlushScheduler(scheduler);
+        Recorder recorder = new Recorder();
+        hub.setListener(recorder);
+
+        // 4 Hz heart rate for 1.5 s, then silence
+        for (int i = 0; i < 6; i++) {
+            hub.append(HealthMetric.HEART_RATE, 250L * i, 70 + i);
+        }
+        assertEquals(2, recorder.updates.size());
+        scheduler.advance(1000);
+
+        assertEquals(3, recorder.updates.size());
+        long[] trailing = recorder.updates.get(2);
+        assertEquals(1250, trailing[0]);
+        assertEquals(75, trailing[1]);
+        assertEquals(1, trailing[2]);
+        assertEquals(0, scheduler.pending());
+    }
+
+    @Test
+    public void aSampleClosingTheWindowCancelsItsFlush() {
+        ManualMainScheduler scheduler = new ManualMainScheduler();
+        SensorSampleHub hub = new SensorSampleHub(64, 1);
+        hub.setFlushScheduler(scheduler);
+        hub.configure(HealthMetric.HEART_RATE, 1, SensorSampleHub.DecimationMode.MEAN);
+        Recorder recorder = new Recorder();
+        hub.setListener(recorder);
+
+        hub.append(HealthMetric.HEART_RATE, 0, 60);
+        hub.append(HealthMetric.HEART_RATE, 500, 70);
+        hub.append(HealthMetric.HEART_RATE, 1000, 80);
+        hub.append(HealthMetric.HEART_RATE, 1200, 90);
+        scheduler.advance(900);
+
+        // Leading edge at 0, the window closed by the sample at 1000, then 1200's window
+        assertEquals(3, recorder.updates.size());
+        assertEquals(75, recorder.updates.get(1)[1]);
+        assertEquals(2, recorder.updates.get(1)[2]);
+        assertEquals(1200, recorder.updates.get(2)[0]);
+        assertEquals(90, recorder.updates.get(2)[1]);
+    }
+
+    @Test
+    public void listenerRunsOutsideTheMetricLock() throws InterruptedException {
+        SensorSampleHub hub = new SensorSampleHub(64, 1);
+        boolean[] blocked = {false};
+        hub.setListener((metric, timestamp, values, samplesInWindow) -> {
+            if (timestamp != 0) return;
+            // Another link thread appending the same metric must not wait for this callback
+            Thread other = new Thread(() -> hub.append(HealthMetric.HEART_RATE, 100, 72));
+            other.start();
+            try {
+                other.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            blocked[0] = other.isAlive();
+        });
+
+        hub.append(HealthMetric.HEART_RATE, 0, 70);
+
+        assertFalse("append blocked behind the listener", blocked[0]);
+        assertEquals(2, hub.getReceived(HealthMetric.HEART_RATE));
+    }
+}
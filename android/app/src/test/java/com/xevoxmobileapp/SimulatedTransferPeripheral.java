@@ -0,0 +1,253 @@
+package com.xevoxmobileapp;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * In-process band that receives bulk uploads over ReferenceTransferProtocol
+ * Models the link as a pipe of bytesPerSecond: every write occupies the air for its
+ * length and completes when it has been "sent", so the write-without-response window
+ * behaves as on a real stack. The band accepts only in-order chunks, acknowledges every
+ * ackEveryBytes and keeps the partial image across link drops, like flash would.
+ * dropLinkAt() cuts the link once the band holds that many bytes; reconnect() restores it.
+ */
+public class SimulatedTransferPeripheral implements DeviceLink {
+    private static final int ATT_HEADER_BYTES = 3;
+    private static final int STATUS_LINK_TIMEOUT = 8;
+
+    private static final class Write {
+        final byte[] command;
+        final GattOperation.Callback callback;
+
+        Write(byte[] command, GattOperation.Callback callback) {
+            this.command = command;
+            this.callback = callback;
+        }
+    }
+
+    private final String address;
+    private final DeviceLink.Listener listener;
+    private final int mtu;
+    private final int bytesPerSecond;
+    private final int windowBytes;
+    private final int ackEveryBytes;
+    private final int maxImageBytes;
+    // Air time, band state and callbacks all run here, off the caller's thread
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "HBandSimPeripheral");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only touched on the peripheral thread
+    private byte[] image;
+    private int imageCrc;
+    private int received;
+    private int lastAcked;
+    private long airFreeAt;
+    private final ArrayDeque<Write> onAir = new ArrayDeque<>();
+    private int epoch;
+    private int dropAtBytes = -1;
+    private long reconnectDelayMs;
+    private volatile boolean connected = false;
+    private volatile boolean completed = false;
+    private volatile int chunksReceived;
+    private volatile int chunksDiscarded;
+    private volatile int disconnects;
+    private final AtomicInteger bulkHolders = new AtomicInteger();
+
+    /**
+     * windowBytes 0 lets the phone send without limit; maxImageBytes bounds an accepted image
+     */
+    public SimulatedTransferPeripheral(String address, DeviceLink.Listener listener, int mtu, int bytesPerSecond,
+                                       int windowBytes, int ackEveryBytes, int maxImageBytes) {
+        this.address = address;
+        this.listener = listener;
+        this.mtu = mtu;
+        this.bytesPerSecond = bytesPerSecond;
+        this.windowBytes = windowBytes;
+        this.ackEveryBytes = Math.max(1, ackEveryBytes);
+        this.maxImageBytes = maxImageBytes;
+    }
+
+    /**
+     * Drops the link once receivedBytes are stored; reconnect() comes back after reconnectDelayMs
+     */
+    public void dropLinkAt(int receivedBytes, long reconnectDelayMs) {
+        executor.execute(() -> {
+            dropAtBytes = receivedBytes;
+            this.reconnectDelayMs = reconnectDelayMs;
+        });
+    }
+
+    @Override
+    public void connect() {
+        executor.execute(this::linkUp);
+    }
+
+    @Override
+    public void reconnect() {
+        executor.schedule(this::linkUp, reconnectDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void disconnect() {
+        executor.execute(this::linkDown);
+    }
+
+    @Override
+    public void close() {
+        connected = false;
+        executor.shutdownNow();
+    }
+
+    @Override public void setMtuHint(int mtu) {}
+
+    @Override
+    public void writeCommand(byte[] command, boolean withResponse, GattOperation.Callback callback) {
+        executor.execute(() -> {
+            if (!connected) {
+                complete(callback, GattOperationQueue.STATUS_DISCONNECTED);
+                return;
+            }
+            long now = System.nanoTime();
+            airFreeAt = Math.max(now, airFreeAt)
+                + (command.length + ATT_HEADER_BYTES) * 1_000_000_000L / bytesPerSecond;
+            onAir.add(new Write(command, callback));
+            // Each tick lands the oldest write, so timer jitter can never reorder the link
+            int sentIn = epoch;
+            executor.schedule(() -> {
+                if (sentIn == epoch) landNext();
+            }, airFreeAt - now, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private void landNext() {
+        Write write = onAir.poll();
+        if (write == null) return;
+        complete(write.callback, GattOperationQueue.STATUS_SUCCESS);
+        receive(write.command);
+    }
+
+    private static void complete(GattOperation.Callback callback, int status) {
+        if (callback != null) {
+            callback.onComplete(null, status, null, 0);
+        }
+    }
+
+    private void linkUp() {
+        if (connected || executor.isShutdown()) return;
+        connected = true;
+        airFreeAt = 0;
+        listener.onConnectionStateChanged(this, true, 0);
+        listener.onReady(this, mtu);
+    }
+
+    private void linkDown() {
+        if (!connected) return;
+        connected = false;
+        epoch++;
+        disconnects++;
+        for (Write write; (write = onAir.poll()) != null; ) {
+            complete(write.callback, GattOperationQueue.STATUS_DISCONNECTED);
+        }
+        listener.onConnectionStateChanged(this, false, STATUS_LINK_TIMEOUT);
+    }
+
+    private void receive(byte[] command) {
+        if (command.length == 0) return;
+        ByteBuffer in = ByteBuffer.wrap(command).order(ByteOrder.LITTLE_ENDIAN);
+        byte type = in.get();
+        if (type == ReferenceTransferProtocol.START && command.length >= 14) {
+            in.get();
+            int total = in.getInt();
+            int crc = in.getInt();
+            int offset = in.getInt();
+            if (total < 0 || total > maxImageBytes) {
+                notify(reply(2).put(ReferenceTransferProtocol.REJECT).put((byte) ReferenceTransferProtocol.REJECT_TOO_LARGE));
+                return;
+            }
+            if (image == null || image.length != total || imageCrc != crc) {
+                // A different image: the partial one is discarded
+                image = new byte[total];
+                imageCrc = crc;
+                received = 0;
+            }
+            completed = false;
+            received = Math.max(0, Math.min(received, offset));
+            lastAcked = received;
+            notify(reply(9).put(ReferenceTransferProtocol.ACCEPT).putInt(received).putInt(windowBytes));
+        } else if (type == ReferenceTransferProtocol.DATA && command.length >= 5) {
+            int offset = in.getInt();
+            int length = command.length - 5;
+            if (image == null || offset != received || received + length > image.length) {
+                // Out of order (a rewind is in progress): dropped, the phone resends from the ack
+                chunksDiscarded++;
+                return;
+            }
+            in.get(image, offset, length);
+            received += length;
+            chunksReceived++;
+            if (received - lastAcked >= ackEveryBytes || received == image.length) {
+                lastAcked = received;
+                notify(reply(5).put(ReferenceTransferProtocol.ACK).putInt(received));
+            }
+            if (dropAtBytes >= 0 && received >= dropAtBytes) {
+                dropAtBytes = -1;
+                linkDown();
+            }
+        } else if (type == ReferenceTransferProtocol.FINISH && command.length >= 5) {
+            int crc = in.getInt();
+            boolean valid = image != null && received == image.length && crc == imageCrc && crc == crcOf(image);
+            if (valid) {
+                completed = true;
+                notify(reply(1).put(ReferenceTransferProtocol.DONE));
+            } else {
+                image = null;
+                received = 0;
+                notify(reply(2).put(ReferenceTransferProtocol.REJECT).put((byte) ReferenceTransferProtocol.REJECT_BAD_CRC));
+            }
+        }
+    }
+
+    private static ByteBuffer reply(int length) {
+        return ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void notify(ByteBuffer value) {
+        if (!connected) return;
+        listener.onNotification(this, GattConnection.NOTIFY_CHARACTERISTIC_UUID, value.array());
+    }
+
+    private static int crcOf(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, data.length);
+        return (int) crc.getValue();
+    }
+
+    @Override public void beginBulkTransfer() { bulkHolders.incrementAndGet(); }
+    @Override public void endBulkTransfer() { bulkHolders.decrementAndGet(); }
+    @Override public String getAddress() { return address; }
+    @Override public boolean isConnected() { return connected; }
+    @Override public int getMtu() { return mtu; }
+    @Override public boolean isBonded() { return false; }
+
+    @Override
+    public Map<GattOperation.Type, GattOperationQueue.OperationStats> getOperationStats() {
+        return Collections.emptyMap();
+    }
+
+    public boolean isImageComplete() { return completed; }
+    public int getChunksReceived() { return chunksReceived; }
+    public int getChunksDiscarded() { return chunksDiscarded; }
+    public int getDisconnects() { return disconnects; }
+    public int getBulkHolders() { return bulkHolders.get(); }
+}
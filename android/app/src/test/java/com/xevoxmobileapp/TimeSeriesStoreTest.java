@@ -0,0 +1,76 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+
+public class TimeSeriesStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void queryKeepsNewestSamples() throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot());
+        for (int i = 0; i < 10; i++) {
+            store.append(HealthMetric.HEART_RATE, 1_000L * i, 60 + i);
+        }
+
+        TimeSeriesStore.SampleBatch batch = store.query(HealthMetric.HEART_RATE, 0, Long.MAX_VALUE, 3);
+        assertEquals(3, batch.count);
+        assertArrayEquals(new long[] {7_000, 8_000, 9_000}, batch.timestamps);
+        assertArrayEquals(new int[] {67, 68, 69}, batch.values);
+        store.close();
+    }
+
+    @Test
+    public void queryKeepsNewestByTimestampWhenAppendedOutOfOrder() throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot());
+        // Live samples first, then a history backlog for the hours before them
+        for (int i = 0; i < 3000; i++) {
+            store.append(HealthMetric.HEART_RATE, 10_000_000L + 1_000L * i, i % 100);
+        }
+        for (int i = 2999; i >= 0; i--) {
+            store.append(HealthMetric.HEART_RATE, 1_000L * i, 100 + i % 100);
+        }
+
+        TimeSeriesStore.SampleBatch newest = store.query(HealthMetric.HEART_RATE, 0, Long.MAX_VALUE, 1500);
+        assertEquals(1500, newest.count);
+        for (int i = 0; i < newest.count; i++) {
+            assertEquals(10_000_000L + 1_000L * (1500 + i), newest.timestamps[i]);
+            assertEquals((1500 + i) % 100, newest.values[i]);
+        }
+
+        TimeSeriesStore.SampleBatch backlog = store.query(HealthMetric.HEART_RATE, 0, 10_000_000L, 5);
+        assertArrayEquals(new long[] {2_995_000, 2_996_000, 2_997_000, 2_998_000, 2_999_000}, backlog.timestamps);
+        store.close();
+    }
+
+    @Test
+    public void queryDoesNotPreallocateMaxSamples() throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot());
+        store.append(HealthMetric.BLOOD_PRESSURE, 1_000L, new int[] {120, 80});
+
+        TimeSeriesStore.SampleBatch batch = store.query(HealthMetric.BLOOD_PRESSURE, 0, Long.MAX_VALUE,
+            Integer.MAX_VALUE);
+        assertEquals(1, batch.count);
+        assertArrayEquals(new int[] {120, 80}, batch.values);
+        store.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queryRejectsZeroMaxSamples() throws IOException {
+        TimeSeriesStore store = new TimeSeriesStore(folder.getRoot());
+        store.append(HealthMetric.HEART_RATE, 1_000L, 60);
+        store.query(HealthMetric.HEART_RATE, 0, Long.MAX_VALUE, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void queryOldestRejectsNegativeMaxSamples() throws IOException {
+        new TimeSeriesStore(folder.getRoot()).queryOldest(HealthMetric.HEART_RATE, 0, Long.MAX_VALUE, -1);
+    }
+}
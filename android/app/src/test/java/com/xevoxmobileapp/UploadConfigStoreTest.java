@@ -0,0 +1,38 @@
+package com.xevoxmobileapp;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class UploadConfigStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void configSurvivesReload() throws IOException {
+        File file = new File(folder.getRoot(), "upload-config.properties");
+        new UploadConfigStore(file).save(new UploadConfigStore.Config("https://api.example.com", "token",
+            "user-1", "hband", null, 500, 60_000L, true));
+
+        UploadConfigStore.Config config = new UploadConfigStore(file).load();
+        assertEquals("https://api.example.com", config.baseUrl);
+        assertEquals("token", config.authToken);
+        assertEquals("user-1", config.userId);
+        assertNull(config.deviceId);
+        assertEquals(500, config.batchSize);
+        assertEquals(60_000L, config.maxAgeMs);
+        assertTrue(config.binary);
+    }
+
+    @Test
+    public void missingFileLoadsNothing() {
+        assertNull(new UploadConfigStore(new File(folder.getRoot(), "absent.properties")).load());
+    }
+}
@@ -0,0 +1,97 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.Advertisement;
+import com.xevoxmobileapp.FitnessDeviceClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scan-result classification: the old per-result toLowerCase + contains chain against
+ * FitnessDeviceClassifier's automaton, and against classify() with its per-address cache
+ * One operation classifies the whole stream of advertisements (a crowded scan repeats
+ * the same devices advertisers); divide by advertisements for per-result cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FitnessClassifierBenchmark {
+    @Param({"64", "1024"})
+    public int devices;
+
+    @Param({"4096"})
+    public int advertisements;
+
+    private Advertisement[] stream;
+    private FitnessDeviceClassifier classifier;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        stream = new Advertisement[advertisements];
+        for (int i = 0; i < advertisements; i++) {
+            int device = random.nextInt(devices);
+            stream[i] = new Advertisement(SyntheticTraces.address(device), SyntheticTraces.name(device),
+                -60 - random.nextInt(30), i * 1_000_000L, null);
+        }
+        classifier = new FitnessDeviceClassifier();
+    }
+
+    // The matcher the scan callback ran before the classifier (one lowercase copy, 15 scans)
+    static boolean legacyContainsChain(String deviceName) {
+        if (deviceName == null) return false;
+        String lowerName = deviceName.toLowerCase();
+        return lowerName.contains("veepoo") ||
+            lowerName.contains("hband") ||
+            lowerName.contains("watch") ||
+            lowerName.contains("fitness") ||
+            lowerName.contains("band") ||
+            lowerName.contains("smart") ||
+            lowerName.contains("tracker") ||
+            lowerName.contains("health") ||
+            lowerName.contains("mi") ||
+            lowerName.contains("xiaomi") ||
+            lowerName.contains("amazfit") ||
+            lowerName.contains("huawei") ||
+            lowerName.contains("samsung") ||
+            lowerName.contains("garmin") ||
+            lowerName.contains("fitbit");
+    }
+
+    @Benchmark
+    public int containsChain() {
+        int matches = 0;
+        for (Advertisement advertisement : stream) {
+            if (legacyContainsChain(advertisement.name)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int automaton() {
+        int matches = 0;
+        for (Advertisement advertisement : stream) {
+            if (classifier.matchesName(advertisement.name)) matches++;
+        }
+        return matches;
+    }
+
+    @Benchmark
+    public int classifyPerScanSession() {
+        classifier.resetSession();
+        int matches = 0;
+        for (Advertisement advertisement : stream) {
+            if (classifier.classify(advertisement)) matches++;
+        }
+        return matches;
+    }
+}
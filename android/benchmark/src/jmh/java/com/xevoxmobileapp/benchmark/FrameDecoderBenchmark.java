@@ -0,0 +1,81 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.FrameDecoder;
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.ReferenceFrames;
+import com.xevoxmobileapp.ReferenceLiveProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FrameDecoder throughput on a stream of ReferenceFrames reading frames
+ * notificationBytes is the ATT payload per notification: 20 at the default MTU, 244 after
+ * the MTU exchange. corruptEvery > 0 flips one byte in every n-th frame to exercise resync.
+ * One operation decodes the whole stream; divide by frames for per-frame cost.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class FrameDecoderBenchmark {
+    @Param({"20", "244"})
+    public int notificationBytes;
+
+    @Param({"0", "50"})
+    public int corruptEvery;
+
+    @Param({"4096"})
+    public int frames;
+
+    private List<byte[]> notifications;
+    private FrameDecoder decoder;
+    private long checksum;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        HealthMetric[] metrics = {
+            HealthMetric.HEART_RATE, HealthMetric.SPO2, HealthMetric.STEPS, HealthMetric.BLOOD_PRESSURE
+        };
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        for (int i = 0; i < frames; i++) {
+            HealthMetric metric = metrics[i % metrics.length];
+            int[] values = SyntheticTraces.values(metric, i);
+            byte[] frame = ReferenceLiveProtocol.encodeReading(metric, 1_700_000_000_000L + i * 1000L, values);
+            if (corruptEvery > 0 && i % corruptEvery == corruptEvery - 1) {
+                frame[1 + random.nextInt(frame.length - 1)] ^= 0x5A;
+            }
+            stream.write(frame, 0, frame.length);
+        }
+        byte[] bytes = stream.toByteArray();
+        notifications = new ArrayList<>();
+        for (int position = 0; position < bytes.length; position += notificationBytes) {
+            byte[] notification = new byte[Math.min(notificationBytes, bytes.length - position)];
+            System.arraycopy(bytes, position, notification, 0, notification.length);
+            notifications.add(notification);
+        }
+        decoder = ReferenceFrames.newDecoder((command, buffer, offset, length) -> checksum += command + length);
+    }
+
+    @Benchmark
+    public long decodeStream() {
+        decoder.reset();
+        checksum = 0;
+        for (byte[] notification : notifications) {
+            decoder.feed(notification);
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,118 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.HealthPayloadCodec;
+import com.xevoxmobileapp.TimeSeriesStore;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Upload payload cost: JSON against the columnar binary format, before and after gzip
+ * One operation encodes one upload batch of heart rate, SpO2 and blood pressure, samples
+ * each at one-minute spacing (1440 is a day), read back from a TimeSeriesStore as the
+ * pipeline does. The *Gzip variants produce the body that is actually POSTed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class HealthPayloadBenchmark {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Param({"1440", "10080"})
+    public int samples;
+
+    private File directory;
+    private List<TimeSeriesStore.SampleBatch> batches;
+    private HealthPayloadCodec.Header header;
+    private byte[] binary;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("hband-payload").toFile();
+        TimeSeriesStore store = new TimeSeriesStore(directory);
+        HealthMetric[] metrics = {HealthMetric.HEART_RATE, HealthMetric.SPO2, HealthMetric.BLOOD_PRESSURE};
+        batches = new ArrayList<>();
+        for (HealthMetric metric : metrics) {
+            for (int i = 0; i < samples; i++) {
+                store.append(metric, START_MS + i * 60_000L + (i * 7919) % 3000, SyntheticTraces.values(metric, i));
+            }
+            store.flush();
+            batches.add(store.query(metric, START_MS, Long.MAX_VALUE, samples));
+        }
+        store.close();
+        header = new HealthPayloadCodec.Header("user-42", "hband", SyntheticTraces.BAND_ADDRESS, START_MS);
+        binary = HealthPayloadCodec.encodeBinary(header, batches);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                deleteTree(file);
+            }
+        }
+        directory.delete();
+    }
+
+    private static void deleteTree(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteTree(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(body);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return HealthPayloadCodec.encodeJson(header, batches);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return HealthPayloadCodec.encodeBinary(header, batches);
+    }
+
+    @Benchmark
+    public byte[] encodeJsonGzip() throws IOException {
+        return gzip(HealthPayloadCodec.encodeJson(header, batches));
+    }
+
+    @Benchmark
+    public byte[] encodeBinaryGzip() throws IOException {
+        return gzip(HealthPayloadCodec.encodeBinary(header, batches));
+    }
+
+    @Benchmark
+    public HealthPayloadCodec.Payload decodeBinary() {
+        return HealthPayloadCodec.decodeBinary(binary);
+    }
+}
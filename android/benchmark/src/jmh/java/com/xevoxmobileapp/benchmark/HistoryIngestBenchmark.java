@@ -0,0 +1,121 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.DurableLongMap;
+import com.xevoxmobileapp.HLog;
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.HistoryBacklogIngestor;
+import com.xevoxmobileapp.HistorySyncSession;
+import com.xevoxmobileapp.ReferenceHistoryProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Backlog sync of one metric: notifications → decode → merge → sink, by decode workers
+ *   workers 0   decoded on the sync thread (no HistoryBacklogIngestor)
+ *   workers n   HistoryBacklogIngestor with n workers
+ * One iteration syncs the whole backlog once from an empty watermark.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+@State(Scope.Thread)
+public class HistoryIngestBenchmark {
+    private static final String ADDRESS = "C4:7C:8D:6A:1B:2E";
+
+    @Param({"0", "1", "2", "4"})
+    public int workers;
+
+    @Param({"100000"})
+    public int records;
+
+    private List<byte[]> notifications;
+    private HistoryBacklogIngestor ingestor;
+    private File watermarkFile;
+    private HistorySyncSession session;
+    private CountDownLatch finished;
+    private final AtomicLong stored = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        HLog.setPrinter((priority, tag, message, error) -> {});
+        // 30 blood-pressure records of 8 bytes fill a 244-byte notification
+        notifications = SyntheticTraces.historyNotifications(HealthMetric.BLOOD_PRESSURE, records,
+            1_600_000_000_000L, 30);
+        ingestor = workers > 0 ? new HistoryBacklogIngestor(workers) : null;
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        watermarkFile = Files.createTempFile("hband-watermarks", ".properties").toFile();
+        finished = new CountDownLatch(1);
+        stored.set(0);
+        session = new HistorySyncSession(ADDRESS, new ReferenceHistoryProtocol(true), command -> true,
+            new HistorySyncSession.RecordSink() {
+                @Override
+                public void onRecord(HealthMetric metric, long timestamp, int[] values) {
+                    stored.incrementAndGet();
+                }
+
+                @Override
+                public void onRecords(HealthMetric metric, long[] timestamps, int[] values, int count) {
+                    stored.addAndGet(count);
+                }
+
+                @Override
+                public void flush() {}
+            },
+            new DurableLongMap(watermarkFile),
+            new HistorySyncSession.Listener() {
+                @Override public void onProgress(HistorySyncSession.Progress progress) {}
+                @Override public void onMetricComplete(HealthMetric metric, int count, long oldest, long newest) {}
+                @Override public void onFinished(boolean completed, String error) { finished.countDown(); }
+            },
+            ingestor);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        session.shutdown();
+        watermarkFile.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() {
+        if (ingestor != null) {
+            ingestor.shutdown();
+        }
+    }
+
+    @Benchmark
+    public long syncBacklog() throws InterruptedException {
+        session.start(Collections.singletonList(HealthMetric.BLOOD_PRESSURE));
+        for (byte[] notification : notifications) {
+            session.onNotification(notification);
+        }
+        if (!finished.await(60, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("Backlog sync did not finish");
+        }
+        return stored.get();
+    }
+}
@@ -0,0 +1,90 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.GattArbiter;
+import com.xevoxmobileapp.GattOperation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read latency on one band while another band streams writes without response
+ * Both share a SimulatedController that services one operation per serviceMicros. The
+ * bulk device keeps its 32-deep write window full for the whole trial; every operation
+ * is one read on the other device, start to callback. permits 0 runs without a
+ * GattArbiter. The bulk device's completed writes are printed at the end of each trial.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class MultiDeviceBenchmark {
+    private static final UUID SERVICE = UUID.fromString("f0080001-0451-4000-b000-000000000000");
+    private static final UUID CHARACTERISTIC = UUID.fromString("f0080002-0451-4000-b000-000000000000");
+    private static final int WRITE_WINDOW = 32;
+
+    @Param({"0", "4"})
+    public int permits;
+
+    @Param({"250"})
+    public long serviceMicros;
+
+    private SimulatedController controller;
+    private SimulatedController.Device bulk;
+    private SimulatedController.Device reader;
+    private volatile boolean streaming;
+    private final AtomicLong bulkWrites = new AtomicLong();
+
+    // Each completed write queues the next, so the stream never drains
+    private final GattOperation.Callback refill = (operation, status, value, intValue) -> {
+        bulkWrites.incrementAndGet();
+        if (streaming) {
+            sendBulk();
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        controller = new SimulatedController(serviceMicros);
+        GattArbiter arbiter = permits > 0 ? new GattArbiter(permits) : null;
+        bulk = controller.connect("bulk", arbiter);
+        reader = controller.connect("reader", arbiter);
+        bulk.queue.setWriteWindow(WRITE_WINDOW);
+        streaming = true;
+        for (int i = 0; i < 2 * WRITE_WINDOW; i++) {
+            sendBulk();
+        }
+    }
+
+    private void sendBulk() {
+        bulk.queue.enqueue(GattOperation.writeNoResponse(SERVICE, CHARACTERISTIC, new byte[20], refill));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        streaming = false;
+        bulk.queue.close();
+        reader.queue.close();
+        controller.close();
+        System.out.println("bulkWrites: " + bulkWrites.get());
+    }
+
+    @Benchmark
+    public boolean readBesideBulkStream() throws InterruptedException {
+        CountDownLatch read = new CountDownLatch(1);
+        reader.queue.enqueue(GattOperation.read(SERVICE, CHARACTERISTIC,
+            (operation, status, value, intValue) -> read.countDown()));
+        return read.await(10, TimeUnit.SECONDS);
+    }
+}
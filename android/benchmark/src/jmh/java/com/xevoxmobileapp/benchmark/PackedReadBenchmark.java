@@ -0,0 +1,99 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.PackedColumns;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Native side of a bulk history read: per-sample maps versus one PackedColumns buffer
+ * boxedMaps builds the Map of boxed lists that queryHealthHistory returns and then walks
+ * every element the way Arguments.makeNativeMap does (the JNI push itself cannot run on
+ * the JVM, so this is a lower bound for the map path). packedBase64 is what the *Packed
+ * calls send: PackedColumns.samples plus the NO_WRAP base64 string.
+ * 1440 samples is a day of minute heart rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class PackedReadBenchmark {
+    @Param({"1440", "10000", "100000"})
+    public int samples;
+
+    @Param({"HEART_RATE", "BLOOD_PRESSURE"})
+    public HealthMetric metric;
+
+    private long[] timestamps;
+    private int[] values;
+
+    @Setup
+    public void setUp() {
+        timestamps = new long[samples];
+        values = new int[samples * metric.channels];
+        for (int i = 0; i < samples; i++) {
+            timestamps[i] = 1_700_000_000_000L + i * 60_000L;
+            System.arraycopy(SyntheticTraces.values(metric, i), 0, values, i * metric.channels, metric.channels);
+        }
+    }
+
+    @Benchmark
+    public double boxedMaps() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        List<Object> timestampArray = new ArrayList<>();
+        List<Object> valueArray = new ArrayList<>();
+        for (int i = 0; i < samples; i++) {
+            timestampArray.add(timestamps[i]);
+        }
+        for (int i = 0; i < samples * metric.channels; i++) {
+            valueArray.add(values[i]);
+        }
+        result.put("metric", metric.jsName);
+        result.put("channels", metric.channels);
+        result.put("count", samples);
+        result.put("timestamps", timestampArray);
+        result.put("values", valueArray);
+        return walk(result);
+    }
+
+    @Benchmark
+    public String packedBase64() {
+        byte[] packed = PackedColumns.samples(timestamps, values, samples, metric.channels);
+        return Base64.getEncoder().encodeToString(packed);
+    }
+
+    // Each element is type-checked and unboxed to a double, as makeNativeArray does per push
+    private static double walk(Object value) {
+        if (value instanceof Map) {
+            double sum = 0;
+            for (Object entry : ((Map<?, ?>) value).values()) {
+                sum += walk(entry);
+            }
+            return sum;
+        }
+        if (value instanceof List) {
+            double sum = 0;
+            for (Object element : (List<?>) value) {
+                sum += walk(element);
+            }
+            return sum;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        return value != null ? value.hashCode() : 0;
+    }
+}
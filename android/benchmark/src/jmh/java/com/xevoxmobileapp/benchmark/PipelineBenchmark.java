@@ -0,0 +1,88 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.ReferenceLiveProtocol;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end cost of the manager's two hot paths, replayed at full speed
+ *   scanClassifyEmit   advertisements → classifier → registry → batcher → devicesFound
+ *   notifyDecodeStore  notifications → frame decoder → sample hub → time-series store
+ * One iteration replays the whole trace once; divide by the trace size for per-item cost.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 1)
+@Measurement(iterations = 10, batchSize = 1)
+public class PipelineBenchmark {
+
+    @State(Scope.Thread)
+    public static class ScanState {
+        @Param({"20000"})
+        public int advertisements;
+
+        @Param({"500"})
+        public int devices;
+
+        PipelineHarness harness;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException {
+            harness = new PipelineHarness(SyntheticTraces.scan(advertisements, devices, 42, 0), false);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            harness.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class NotifyState {
+        @Param({"20000"})
+        public int samples;
+
+        @Param({"4"})
+        public int samplesPerNotification;
+
+        PipelineHarness harness;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws IOException, InterruptedException {
+            harness = new PipelineHarness(SyntheticTraces.notifications(samples, 1_700_000_000_000L,
+                samplesPerNotification, 0), false);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            harness.close();
+        }
+    }
+
+    @Benchmark
+    public long scanClassifyEmit(ScanState state) throws InterruptedException {
+        state.harness.runScan();
+        return state.harness.events().count("devicesFound");
+    }
+
+    @Benchmark
+    public long notifyDecodeStore(NotifyState state) throws InterruptedException {
+        state.harness.runMonitoring(SyntheticTraces.BAND_ADDRESS, new ReferenceLiveProtocol(),
+            PipelineHarness.liveMetrics());
+        return state.harness.transport().getNotificationsDelivered();
+    }
+}
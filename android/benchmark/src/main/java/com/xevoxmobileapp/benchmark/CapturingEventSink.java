@@ -0,0 +1,80 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.EventSink;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EventSink that records every event in order, for assertions and for waiting on one
+ * keepPayloads false only counts, so a benchmark does not measure its own bookkeeping.
+ */
+public class CapturingEventSink implements EventSink {
+
+    public static final class Event {
+        public final String name;
+        public final Map<String, Object> data;
+
+        Event(String name, Map<String, Object> data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private final boolean keepPayloads;
+    private final List<Event> events = new ArrayList<>();
+    private final Map<String, int[]> counts = new HashMap<>();
+
+    public CapturingEventSink(boolean keepPayloads) {
+        this.keepPayloads = keepPayloads;
+    }
+
+    @Override
+    public synchronized void emit(String eventName, Map<String, Object> data) {
+        counts.computeIfAbsent(eventName, key -> new int[1])[0]++;
+        if (keepPayloads) {
+            events.add(new Event(eventName, data));
+        }
+        notifyAll();
+    }
+
+    public synchronized int count(String eventName) {
+        int[] count = counts.get(eventName);
+        return count != null ? count[0] : 0;
+    }
+
+    public synchronized List<Event> events() {
+        return new ArrayList<>(events);
+    }
+
+    public synchronized List<Map<String, Object>> payloads(String eventName) {
+        List<Map<String, Object>> payloads = new ArrayList<>();
+        for (Event event : events) {
+            if (event.name.equals(eventName)) {
+                payloads.add(event.data);
+            }
+        }
+        return payloads;
+    }
+
+    /**
+     * Waits until eventName was emitted at least count times in total; false on timeout
+     */
+    public synchronized boolean await(String eventName, int count, long timeoutMs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (count(eventName) < count) {
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) return false;
+            wait(remaining);
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        events.clear();
+        counts.clear();
+    }
+}
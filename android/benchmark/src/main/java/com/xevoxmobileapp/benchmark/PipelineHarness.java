@@ -0,0 +1,107 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.ExecutorMainScheduler;
+import com.xevoxmobileapp.HBandAndroidManager;
+import com.xevoxmobileapp.HLog;
+import com.xevoxmobileapp.LiveProtocol;
+import com.xevoxmobileapp.TraceReplayTransport;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * One HBandAndroidManager on a plain JVM, fed by a TraceReplayTransport
+ * Runs the manager's real scan → classify → batch → emit and notify → decode → store
+ * paths against a temporary files dir; only the radio and the JS bridge are replaced.
+ */
+public class PipelineHarness implements AutoCloseable {
+    public static final long TIMEOUT_MS = 30_000;
+
+    private final TraceReplayTransport transport;
+    private final CapturingEventSink events;
+    private final ExecutorMainScheduler scheduler = new ExecutorMainScheduler();
+    private final File filesDir;
+    private final HBandAndroidManager manager;
+
+    public PipelineHarness(TraceReplayTransport transport, boolean keepPayloads) throws IOException {
+        // Benchmarks measure the pipeline, not the console
+        HLog.setPrinter((priority, tag, message, error) -> {});
+        this.transport = transport;
+        this.events = new CapturingEventSink(keepPayloads);
+        this.filesDir = Files.createTempDirectory("hband-pipeline").toFile();
+        this.manager = new HBandAndroidManager(filesDir, transport, events, scheduler);
+    }
+
+    public HBandAndroidManager manager() {
+        return manager;
+    }
+
+    public CapturingEventSink events() {
+        return events;
+    }
+
+    public TraceReplayTransport transport() {
+        return transport;
+    }
+
+    /**
+     * Scans while the whole trace plays, then stops; returns once scanStopped was emitted
+     */
+    public void runScan() throws InterruptedException {
+        int stopped = events.count("scanStopped");
+        if (!manager.startScan()) {
+            throw new IllegalStateException("Scan did not start");
+        }
+        transport.play();
+        if (!transport.awaitFinished(TIMEOUT_MS)) {
+            throw new IllegalStateException("Trace did not finish");
+        }
+        manager.stopScan();
+        if (!events.await("scanStopped", stopped + 1, TIMEOUT_MS)) {
+            throw new IllegalStateException("No scanStopped event");
+        }
+    }
+
+    /**
+     * Connects address, starts monitoring metrics with protocol and plays the trace;
+     * returns once every notification was decoded and stored
+     */
+    public void runMonitoring(String address, LiveProtocol protocol, List<String> metrics) throws InterruptedException {
+        int ready = events.count("connectionReady");
+        if (!manager.connectDevice(address) || !events.await("connectionReady", ready + 1, TIMEOUT_MS)) {
+            throw new IllegalStateException("Link to " + address + " not ready");
+        }
+        manager.setLiveProtocol(protocol);
+        if (!manager.startMonitoring(address, metrics)) {
+            throw new IllegalStateException("Monitoring did not start");
+        }
+        transport.play();
+        if (!transport.awaitFinished(TIMEOUT_MS)) {
+            throw new IllegalStateException("Trace did not finish");
+        }
+        // Decoded samples reach the store on the manager's storage thread
+        if (!manager.syncStorage(TIMEOUT_MS)) {
+            throw new IllegalStateException("Storage did not catch up");
+        }
+    }
+
+    public static List<String> liveMetrics() {
+        return Arrays.asList("heartRate", "spo2", "steps", "bloodPressure");
+    }
+
+    @Override
+    public void close() throws IOException {
+        manager.shutdown();
+        transport.stop();
+        scheduler.shutdown();
+        try (Stream<Path> paths = Files.walk(filesDir.toPath())) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+}
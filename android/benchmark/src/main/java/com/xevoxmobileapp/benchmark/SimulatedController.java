@@ -0,0 +1,115 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.GattArbiter;
+import com.xevoxmobileapp.GattLink;
+import com.xevoxmobileapp.GattOperation;
+import com.xevoxmobileapp.GattOperationQueue;
+
+import java.util.UUID;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One phone's BLE controller shared by several device links
+ * Every operation any link hands to the stack joins a single FIFO and takes serviceMicros
+ * of air time, like the connection events of links sharing one radio. Writes without
+ * response are buffered without limit, so a device streaming them can queue ahead of
+ * everybody else unless a GattArbiter keeps the stack's share bounded.
+ */
+public final class SimulatedController implements AutoCloseable {
+
+    private static final class Pending {
+        final Device device;
+        final GattOperation.Type callbackType;
+
+        Pending(Device device, GattOperation.Type callbackType) {
+            this.device = device;
+            this.callbackType = callbackType;
+        }
+    }
+
+    /**
+     * One connected device: a GattLink into the controller with its own operation queue
+     */
+    public final class Device implements GattLink {
+        public final GattOperationQueue queue;
+
+        Device(String name, GattArbiter arbiter) {
+            queue = new GattOperationQueue(this, "HBandSim-" + name, arbiter);
+        }
+
+        private boolean submit(GattOperation.Type callbackType) {
+            int now = outstanding.incrementAndGet();
+            maxOutstanding.accumulateAndGet(now, Math::max);
+            air.add(new Pending(this, callbackType));
+            return true;
+        }
+
+        @Override public boolean discoverServices() { return submit(GattOperation.Type.DISCOVER_SERVICES); }
+        @Override public boolean requestMtu(int mtu) { return submit(GattOperation.Type.REQUEST_MTU); }
+        @Override public boolean requestConnectionPriority(int priority) { return true; }
+        @Override public boolean readCharacteristic(UUID service, UUID characteristic) {
+            return submit(GattOperation.Type.READ);
+        }
+        @Override public boolean writeCharacteristic(UUID service, UUID characteristic, byte[] value, boolean withResponse) {
+            return submit(GattOperation.Type.WRITE);
+        }
+        @Override public boolean setNotificationsEnabled(UUID service, UUID characteristic, boolean enabled) {
+            return submit(GattOperation.Type.ENABLE_NOTIFICATIONS);
+        }
+    }
+
+    private final long serviceNanos;
+    private final LinkedBlockingQueue<Pending> air = new LinkedBlockingQueue<>();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger maxOutstanding = new AtomicInteger();
+    private final Thread radio;
+    private volatile boolean running = true;
+
+    public SimulatedController(long serviceMicros) {
+        this.serviceNanos = TimeUnit.MICROSECONDS.toNanos(serviceMicros);
+        radio = new Thread(this::serve, "HBandSimController");
+        radio.setDaemon(true);
+        radio.start();
+    }
+
+    /**
+     * Connects a device; arbiter null gives it an unarbitrated queue
+     */
+    public Device connect(String name, GattArbiter arbiter) {
+        return new Device(name, arbiter);
+    }
+
+    /**
+     * Most operations the controller ever held at once, across all devices
+     */
+    public int getMaxOutstanding() {
+        return maxOutstanding.get();
+    }
+
+    private void serve() {
+        while (running) {
+            Pending pending;
+            try {
+                pending = air.poll(50, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (pending == null) continue;
+            long until = System.nanoTime() + serviceNanos;
+            while (System.nanoTime() < until) {
+                LockSupport.parkNanos(until - System.nanoTime());
+            }
+            outstanding.decrementAndGet();
+            pending.device.queue.onCallback(pending.callbackType, GattOperationQueue.STATUS_SUCCESS, null, 0);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        radio.interrupt();
+    }
+}
@@ -0,0 +1,138 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.GattConnection;
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.TraceReplayTransport;
+import com.xevoxmobileapp.ReferenceFrames;
+import com.xevoxmobileapp.ReferenceHistoryProtocol;
+import com.xevoxmobileapp.ReferenceLiveProtocol;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Deterministic TraceReplayTransport traces: a crowded scan and a live notification stream,
+ * plus a history backlog as raw notifications
+ */
+public final class SyntheticTraces {
+    public static final String BAND_ADDRESS = "C4:7C:8D:6A:1B:2E";
+
+    // What a scan in a flat or an office picks up; the wearables match the default keywords
+    static final String[] FITNESS_NAMES = {
+        "HBand-W12", "Veepoo V19", "ID115 Smart", "Mi Smart Band 7", "Amazfit GTS 4", "Fitbit Charge 5",
+        "Galaxy Watch5 (6F2A)", "HUAWEI Band 8-2C1", "Fitness Tracker F1", "Garmin Forerunner 255"
+    };
+    static final String[] OTHER_NAMES = {
+        "JBL Flip 5", "[TV] LG webOS 55", "LE-Bose QC35 II", "Tile", "iPhone", "MX Master 3",
+        "Philips Hue", "ELK-BLEDOM", "Echo Dot-4KJ", "Pixel Buds Pro", null, null, null
+    };
+
+    private SyntheticTraces() {}
+
+    static String address(int device) {
+        return String.format(Locale.ROOT, "D0:%02X:%02X:%02X:%02X:%02X", (device >> 24) & 0xFF,
+            (device >> 16) & 0xFF, (device >> 8) & 0xFF, device & 0xFF, (device * 31) & 0xFF);
+    }
+
+    /**
+     * Name the scan trace gives device (null for an anonymous advertiser)
+     */
+    public static String name(int device) {
+        // Every fourth advertiser is a wearable
+        return device % 4 == 0
+            ? FITNESS_NAMES[(device / 4) % FITNESS_NAMES.length]
+            : OTHER_NAMES[device % OTHER_NAMES.length];
+    }
+
+    public static boolean isFitness(int device) {
+        return device % 4 == 0;
+    }
+
+    /**
+     * advertisements spread over devices advertisers, one per millisecond
+     */
+    public static TraceReplayTransport scan(int advertisements, int devices, long seed, double speed) {
+        Random random = new Random(seed);
+        StringBuilder trace = new StringBuilder(advertisements * 64);
+        for (int i = 0; i < advertisements; i++) {
+            int device = random.nextInt(devices);
+            String name = name(device);
+            trace.append(i).append(" ADV ").append(address(device)).append(' ')
+                .append(-40 - random.nextInt(55)).append(' ')
+                .append(name != null ? name.replaceAll("\\s+", "_") : "-")
+                // Flags only: the classifier has to go by name for these
+                .append(" 020106\n");
+        }
+        return parse(trace.toString(), speed);
+    }
+
+    /**
+     * samples readings from BAND_ADDRESS, cycling heart rate, SpO2, steps and blood pressure,
+     * one second apart from startMs (several small readings share a notification like on a band)
+     */
+    public static TraceReplayTransport notifications(int samples, long startMs, int perNotification, double speed) {
+        HealthMetric[] metrics = {
+            HealthMetric.HEART_RATE, HealthMetric.SPO2, HealthMetric.STEPS, HealthMetric.BLOOD_PRESSURE
+        };
+        StringBuilder trace = new StringBuilder(samples * 40);
+        byte[] packet = new byte[0];
+        int inPacket = 0;
+        for (int i = 0; i < samples; i++) {
+            HealthMetric metric = metrics[i % metrics.length];
+            long timestamp = startMs + (i / metrics.length) * 1000L;
+            byte[] frame = ReferenceLiveProtocol.encodeReading(metric, timestamp, values(metric, i));
+            byte[] joined = new byte[packet.length + frame.length];
+            System.arraycopy(packet, 0, joined, 0, packet.length);
+            System.arraycopy(frame, 0, joined, packet.length, frame.length);
+            packet = joined;
+            if (++inPacket == perNotification || i == samples - 1) {
+                trace.append(TraceReplayTransport.formatNotification(i, BAND_ADDRESS,
+                    GattConnection.NOTIFY_CHARACTERISTIC_UUID, packet)).append('\n');
+                packet = new byte[0];
+                inPacket = 0;
+            }
+        }
+        return parse(trace.toString(), speed);
+    }
+
+    /**
+     * A band's answer to a full history read of metric: records one minute apart from startMs,
+     * recordsPerFrame to a notification, then the end frame
+     */
+    public static List<byte[]> historyNotifications(HealthMetric metric, int records, long startMs, int recordsPerFrame) {
+        List<byte[]> notifications = new ArrayList<>();
+        long[] timestamps = new long[records];
+        int[] values = new int[records * metric.channels];
+        for (int i = 0; i < records; i++) {
+            timestamps[i] = startMs + i * 60_000L;
+            System.arraycopy(values(metric, i), 0, values, i * metric.channels, metric.channels);
+        }
+        for (int from = 0; from < records; from += recordsPerFrame) {
+            int count = Math.min(recordsPerFrame, records - from);
+            notifications.add(ReferenceHistoryProtocol.encodeRecords(metric, timestamps, values, from, count));
+        }
+        notifications.add(ReferenceFrames.encode(ReferenceFrames.HISTORY_END, metric, new byte[0]));
+        return notifications;
+    }
+
+    static int[] values(HealthMetric metric, int i) {
+        switch (metric) {
+            case HEART_RATE: return new int[] {60 + i % 40};
+            case SPO2: return new int[] {94 + i % 5};
+            case STEPS: return new int[] {i * 3};
+            default: return new int[] {110 + i % 20, 70 + i % 10};
+        }
+    }
+
+    private static TraceReplayTransport parse(String trace, double speed) {
+        try {
+            return TraceReplayTransport.fromReader(new StringReader(trace), speed);
+        } catch (IOException e) {
+            throw new IllegalStateException("Generated trace does not parse", e);
+        }
+    }
+}
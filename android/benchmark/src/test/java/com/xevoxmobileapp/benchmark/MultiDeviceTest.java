@@ -0,0 +1,109 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.GattArbiter;
+import com.xevoxmobileapp.GattOperation;
+import com.xevoxmobileapp.GattOperationQueue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MultiDeviceTest {
+    private static final UUID SERVICE = UUID.fromString("f0080001-0451-4000-b000-000000000000");
+    private static final UUID CHARACTERISTIC = UUID.fromString("f0080002-0451-4000-b000-000000000000");
+    private static final long SERVICE_MICROS = 500;
+
+    /**
+     * Median latency of sequential reads on one device while another streams writes with a deep window
+     */
+    private static long readerMedianMicros(GattArbiter arbiter) throws InterruptedException {
+        try (SimulatedController controller = new SimulatedController(SERVICE_MICROS)) {
+            SimulatedController.Device bulk = controller.connect("bulk", arbiter);
+            SimulatedController.Device reader = controller.connect("reader", arbiter);
+            bulk.queue.setWriteWindow(32);
+            int writes = 600;
+            CountDownLatch streamed = new CountDownLatch(writes);
+            for (int i = 0; i < writes; i++) {
+                bulk.queue.enqueue(GattOperation.writeNoResponse(SERVICE, CHARACTERISTIC, new byte[20],
+                    (operation, status, value, intValue) -> streamed.countDown()));
+            }
+
+            long[] latencies = new long[15];
+            for (int i = 0; i < latencies.length; i++) {
+                Thread.sleep(3);
+                CountDownLatch read = new CountDownLatch(1);
+                long started = System.nanoTime();
+                reader.queue.enqueue(GattOperation.read(SERVICE, CHARACTERISTIC,
+                    (operation, status, value, intValue) -> read.countDown()));
+                assertTrue(read.await(5, TimeUnit.SECONDS));
+                latencies[i] = (System.nanoTime() - started) / 1000;
+            }
+            // The stream still finishes: fairness must not starve the bulk device either
+            assertTrue(streamed.await(30, TimeUnit.SECONDS));
+            if (arbiter != null) {
+                assertTrue("controller held " + controller.getMaxOutstanding(),
+                    controller.getMaxOutstanding() <= GattArbiter.DEFAULT_MAX_IN_FLIGHT);
+            }
+            bulk.queue.close();
+            reader.queue.close();
+            Arrays.sort(latencies);
+            return latencies[latencies.length / 2];
+        }
+    }
+
+    @Test
+    public void arbiterKeepsAReaderResponsiveBesideABulkWriter() throws InterruptedException {
+        long unarbitrated = readerMedianMicros(null);
+        long arbitrated = readerMedianMicros(new GattArbiter());
+
+        // Unarbitrated, each read waits behind up to 32 writes; arbitrated, behind about 4
+        assertTrue("arbitrated " + arbitrated + " us vs unarbitrated " + unarbitrated + " us",
+            arbitrated * 3 < unarbitrated);
+    }
+
+    @Test
+    public void permitsComeBackWhenADeviceDisconnectsMidStream() throws InterruptedException {
+        GattArbiter arbiter = new GattArbiter(2);
+        try (SimulatedController controller = new SimulatedController(200)) {
+            SimulatedController.Device leaving = controller.connect("leaving", arbiter);
+            SimulatedController.Device staying = controller.connect("staying", arbiter);
+            for (int i = 0; i < 200; i++) {
+                leaving.queue.enqueue(GattOperation.writeNoResponse(SERVICE, CHARACTERISTIC, new byte[20], null));
+            }
+            int operations = 100;
+            CountDownLatch done = new CountDownLatch(operations);
+            AtomicInteger failures = new AtomicInteger();
+            for (int i = 0; i < operations; i++) {
+                GattOperation.Callback callback = (operation, status, value, intValue) -> {
+                    if (status != GattOperationQueue.STATUS_SUCCESS) failures.incrementAndGet();
+                    done.countDown();
+                };
+                staying.queue.enqueue(i % 2 == 0
+                    ? GattOperation.read(SERVICE, CHARACTERISTIC, callback)
+                    : GattOperation.write(SERVICE, CHARACTERISTIC, new byte[] {(byte) i}, callback));
+            }
+            Thread.sleep(5);
+            assertTrue(controller.getMaxOutstanding() <= 2);
+            // Closing returns the leaving device's permits even for operations still on air
+            leaving.queue.close();
+
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            assertEquals(0, failures.get());
+            staying.queue.close();
+            // Queue threads hand permits back asynchronously
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (arbiter.getInFlight() > 0 && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(0, arbiter.getInFlight());
+            assertEquals(0, arbiter.getWaitingQueues());
+        }
+    }
+}
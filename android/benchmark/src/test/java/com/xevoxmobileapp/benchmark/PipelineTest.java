@@ -0,0 +1,92 @@
+package com.xevoxmobileapp.benchmark;
+
+import com.xevoxmobileapp.HealthMetric;
+import com.xevoxmobileapp.ReferenceLiveProtocol;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class PipelineTest {
+    private static final long START_MS = 1_700_000_000_000L;
+
+    @Test
+    public void scanClassifiesAndEmitsEveryAdvertiserBeforeScanStopped() throws Exception {
+        int advertisements = 5000;
+        int devices = 300;
+        Map<String, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < advertisements; i++) {
+            int device = random.nextInt(devices);
+            random.nextInt(55);
+            expected.put(SyntheticTraces.address(device), device);
+        }
+
+        try (PipelineHarness harness = new PipelineHarness(SyntheticTraces.scan(advertisements, devices, 7, 0), true)) {
+            harness.runScan();
+
+            Set<String> seen = new HashSet<>();
+            int emitted = 0;
+            String lastScanEvent = null;
+            for (CapturingEventSink.Event event : harness.events().events()) {
+                if (event.name.equals("devicesFound")) {
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, Object>> batch = (List<Map<String, Object>>) event.data.get("devices");
+                    assertEquals(batch.size(), event.data.get("count"));
+                    for (Map<String, Object> device : batch) {
+                        String address = (String) device.get("address");
+                        Integer index = expected.get(address);
+                        assertTrue("unexpected " + address, index != null);
+                        assertEquals(address, SyntheticTraces.isFitness(index), device.get("isFitnessDevice"));
+                        seen.add(address);
+                    }
+                    emitted += batch.size();
+                }
+                if (event.name.equals("devicesFound") || event.name.equals("scanStopped")) {
+                    lastScanEvent = event.name;
+                }
+            }
+            assertEquals(expected.keySet(), seen);
+            assertEquals("scanStopped", lastScanEvent);
+
+            Map<String, Object> stats = harness.events().payloads("scanStopped").get(0);
+            assertEquals((long) advertisements, stats.get("resultsReceived"));
+            assertEquals((long) emitted, stats.get("devicesEmitted"));
+            assertEquals(expected.size(), stats.get("uniqueDevices"));
+        }
+    }
+
+    @Test
+    public void notificationsAreDecodedAndStored() throws Exception {
+        int samples = 4000;
+        try (PipelineHarness harness = new PipelineHarness(
+                SyntheticTraces.notifications(samples, START_MS, 4, 0), true)) {
+            harness.runMonitoring(SyntheticTraces.BAND_ADDRESS, new ReferenceLiveProtocol(),
+                PipelineHarness.liveMetrics());
+
+            Map<String, Object> heartRate = harness.manager().queryHealthHistory("heartRate",
+                START_MS, START_MS + samples * 1000L, samples);
+            assertEquals(samples / 4, heartRate.get("count"));
+            @SuppressWarnings("unchecked")
+            List<Object> values = (List<Object>) heartRate.get("values");
+            for (int i = 0; i < samples / 4; i++) {
+                assertEquals(SyntheticTraces.values(HealthMetric.HEART_RATE, i * 4)[0],
+                    values.get(i));
+            }
+
+            Map<String, Object> pressure = harness.manager().queryHealthHistory("bloodPressure",
+                START_MS, START_MS + samples * 1000L, samples);
+            assertEquals(samples / 4, pressure.get("count"));
+            assertEquals(2, pressure.get("channels"));
+            assertTrue(harness.events().count("healthSample") > 0);
+        }
+    }
+}
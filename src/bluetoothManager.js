@@ -1,6 +1,11 @@
-import { Platform, Alert, PermissionsAndroid } from 'react-native';
+import { Platform, Alert, PermissionsAndroid, NativeEventEmitter } from 'react-native';
 import AsyncStorage from '@react-native-async-storage/async-storage';
 import { api } from './api_service';
+import NativeHBandSDK from './specs/NativeHBandSDK';
+
+// Backend sync cadence for live samples (the old polling interval)
+const HEALTH_SYNC_INTERVAL_MS = 45000;
+const NATIVE_CONNECT_TIMEOUT_MS = 15000;
 
 // Import BLE Manager with better error handling
 let BleManager;
@@ -29,6 +34,7 @@ class RealBluetoothManager {
     this.isConnected = false;
     this.scanTimeout = null;
     this.healthDataInterval = null;
+    this.nativeSubscriptions = [];
     this.isInitialized = false;
     this.initializationPromise = null;
     
@@ -612,6 +618,18 @@ class RealBluetoothManager {
         throw new Error('No real device connected');
       }
 
+      // The native module subscribes to or adaptively polls the band and stores every
+      // sample; the JS timer below is the fallback where the module is not built in or has
+      // no verified live protocol for the band
+      const nativeLive = Boolean(NativeHBandSDK) && NativeHBandSDK.hasLiveProtocol();
+      if (nativeLive) {
+        await this.configureNativeUpload();
+      }
+      if (nativeLive && await this.startNativeMonitoring()) {
+        console.log('✅ Native health data monitoring started');
+        return { success: true, native: true };
+      }
+
       // Generate realistic data based on connected device
       this.healthDataInterval = setInterval(async () => {
         if (this.isConnected && this.connectedDevice) {
@@ -628,7 +646,7 @@ class RealBluetoothManager {
             this.notifyListeners('healthDataError', { error: error.message });
           }
         }
-      }, 45000); // Read every 45 seconds
+      }, HEALTH_SYNC_INTERVAL_MS);
 
       console.log('✅ Real health data monitoring started');
       return { success: true };
@@ -638,6 +656,105 @@ class RealBluetoothManager {
     }
   }
 
+  // Points the native upload pipeline at the backend with the logged-in user's token; it
+  // batches stored samples to /api/sync-health-data/batch and keeps the configuration
+  // across restarts of the collection service
+  async configureNativeUpload() {
+    const user = await this.getCurrentUser();
+    const deviceInfo = this.connectedDevice;
+    if (!user || !api.authToken || !deviceInfo) {
+      console.warn('⚠️ Native upload not configured: no logged-in user');
+      return false;
+    }
+    NativeHBandSDK.configureUpload(api.baseURL, api.authToken, String(user.id),
+      deviceInfo.deviceType, deviceInfo.address, 0, 0);
+    return true;
+  }
+
+  // Connects the native manager to the band (if needed) and starts its monitoring;
+  // resolves false when the native side cannot take over
+  startNativeMonitoring() {
+    const address = this.connectedDevice.address;
+    const emitter = new NativeEventEmitter(NativeHBandSDK);
+    this.removeNativeSubscriptions();
+    this.nativeSubscriptions = [
+      emitter.addListener('healthSample', (sample) => this.onNativeHealthSample(sample)),
+      emitter.addListener('monitoringError', (error) => {
+        this.notifyListeners('healthDataError', { error: error.message });
+      }),
+    ];
+    const start = () => NativeHBandSDK.startMonitoring(address, null)
+      .catch(() => false)
+      .then((started) => {
+        if (!started) this.removeNativeSubscriptions();
+        return started;
+      });
+
+    if (NativeHBandSDK.isDeviceConnected(address)) {
+      return start();
+    }
+    return new Promise((resolve) => {
+      let timer = null;
+      const ready = emitter.addListener('connectionReady', (event) => {
+        if (event.address && event.address.toUpperCase() !== address.toUpperCase()) return;
+        ready.remove();
+        clearTimeout(timer);
+        start().then(resolve);
+      });
+      const giveUp = () => {
+        ready.remove();
+        clearTimeout(timer);
+        this.removeNativeSubscriptions();
+        resolve(false);
+      };
+      timer = setTimeout(giveUp, NATIVE_CONNECT_TIMEOUT_MS);
+      NativeHBandSDK.connectDevice(address).then((ok) => { if (!ok) giveUp(); }, giveUp);
+    });
+  }
+
+  // One decoded reading from the native manager, rate-limited there per metric. Only the UI
+  // is notified: the native pipeline uploads every stored sample in batches
+  onNativeHealthSample(sample) {
+    const deviceInfo = this.connectedDevice;
+    if (!deviceInfo) return;
+    const healthData = {
+      timestamp: new Date(sample.timestamp).toISOString(),
+      deviceInfo: {
+        name: deviceInfo.name,
+        address: deviceInfo.address,
+        type: deviceInfo.deviceType,
+        manufacturer: deviceInfo.manufacturer,
+        isReal: true,
+        rssi: deviceInfo.rssi
+      }
+    };
+    switch (sample.metric) {
+      case 'heartRate':
+        healthData.heartRate = sample.value;
+        break;
+      case 'spo2':
+        healthData.oxygenSaturation = sample.value;
+        break;
+      case 'steps':
+        healthData.steps = sample.value;
+        break;
+      case 'bloodPressure':
+        healthData.bloodPressure = { systolic: sample.values[0], diastolic: sample.values[1] };
+        break;
+      case 'sleep':
+        healthData.sleep = sample.value;
+        break;
+      default:
+        return;
+    }
+    this.notifyListeners('healthDataReceived', healthData);
+  }
+
+  removeNativeSubscriptions() {
+    this.nativeSubscriptions.forEach((subscription) => subscription.remove());
+    this.nativeSubscriptions = [];
+  }
+
   // Read real health data from connected device
   async readRealHealthData() {
     if (!this.connectedDevice) {
@@ -775,6 +892,10 @@ class RealBluetoothManager {
       clearInterval(this.healthDataInterval);
       this.healthDataInterval = null;
     }
+    if (this.nativeSubscriptions.length > 0) {
+      this.removeNativeSubscriptions();
+      NativeHBandSDK.stopMonitoring();
+    }
   }
 
   // Register device with backend
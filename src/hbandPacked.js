@@ -0,0 +1,72 @@
+// Decoder for "HBP1" packed buffers returned by the HBandSDK *Packed methods.
+// The buffer crosses the bridge once as base64; columns are then typed-array views
+// over it, so no per-sample objects are created.
+
+const MAGIC = 0x31504248; // "HBP1", little-endian
+const TYPE_FLOAT64 = 1;
+const TYPE_INT32 = 2;
+
+const BASE64 = 'ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/';
+const LOOKUP = new Uint8Array(128);
+for (let i = 0; i < BASE64.length; i++) {
+  LOOKUP[BASE64.charCodeAt(i)] = i;
+}
+
+function base64ToBuffer(base64) {
+  const padding = base64.endsWith('==') ? 2 : base64.endsWith('=') ? 1 : 0;
+  const length = (base64.length * 3) / 4 - padding;
+  const bytes = new Uint8Array(length);
+  let p = 0;
+  for (let i = 0; i < base64.length; i += 4) {
+    const a = LOOKUP[base64.charCodeAt(i)];
+    const b = LOOKUP[base64.charCodeAt(i + 1)];
+    const c = LOOKUP[base64.charCodeAt(i + 2)];
+    const d = LOOKUP[base64.charCodeAt(i + 3)];
+    bytes[p++] = (a << 2) | (b >> 4);
+    if (p < length) bytes[p++] = ((b & 15) << 4) | (c >> 2);
+    if (p < length) bytes[p++] = ((c & 3) << 6) | d;
+  }
+  return bytes.buffer;
+}
+
+// Returns { rows, columns: [Float64Array | Int32Array, ...] } in the order documented
+// for each call (PackedColumns.java), or null for an empty result.
+export function decodePacked(base64) {
+  if (!base64) return null;
+  const buffer = base64ToBuffer(base64);
+  const header = new DataView(buffer);
+  if (header.getUint32(0, true) !== MAGIC) {
+    throw new Error('Not an HBP1 buffer');
+  }
+  const rows = header.getUint32(4, true);
+  const columnCount = header.getUint32(8, true);
+  const columns = [];
+  for (let c = 0; c < columnCount; c++) {
+    const type = header.getUint32(16 + c * 16, true);
+    const offset = header.getUint32(20 + c * 16, true);
+    const length = header.getUint32(24 + c * 16, true);
+    columns.push(type === TYPE_FLOAT64
+      ? new Float64Array(buffer, offset, length)
+      : new Int32Array(buffer, offset, length));
+  }
+  return { rows, columns };
+}
+
+// Samples: { timestamps: Float64Array, values: Int32Array } (values are row-major by channel)
+export function decodeSamples(base64) {
+  const packed = decodePacked(base64);
+  if (!packed) return { timestamps: new Float64Array(0), values: new Int32Array(0) };
+  const [timestamps, values] = packed.columns;
+  return { timestamps, values };
+}
+
+// Aggregates: { starts, counts, min, max, mean, steps?, restingHeartRate? }
+export function decodeAggregates(base64, metric) {
+  const packed = decodePacked(base64);
+  if (!packed) return null;
+  const [starts, counts, min, max, mean, ...extra] = packed.columns;
+  const series = { rows: packed.rows, starts, counts, min, max, mean };
+  if (metric === 'steps') series.steps = extra[0];
+  if (metric === 'heartRate' && extra.length > 0) series.restingHeartRate = extra[0];
+  return series;
+}
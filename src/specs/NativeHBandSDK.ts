@@ -0,0 +1,93 @@
+import type { TurboModule } from 'react-native';
+import { TurboModuleRegistry } from 'react-native';
+
+// Codegen spec for the native HBand module (android/.../HBandSDKModule.java).
+// Methods returning a plain value are synchronous and only read native state;
+// everything that touches the radio or disk returns a Promise.
+// *Packed methods return a base64 "HBP1" buffer; decode with src/hbandPacked.js.
+export interface Spec extends TurboModule {
+  // Startup
+  initializeSdk(): Promise<boolean>;
+  isInitialized(): boolean;
+  setLogLevel(level: string): void;
+
+  // Scanning
+  startScan(targetAddress: string | null): Promise<boolean>;
+  stopScan(): void;
+  setScanProfile(profile: string, durationMs: number): boolean;
+  configureDeviceRegistry(maxDevices: number, maxAgeMs: number, rssiAlpha: number): void;
+  configureScanBatching(flushIntervalMs: number, maxBatchSize: number): void;
+  setFitnessKeywords(keywords: Array<string>): void;
+  isScanning(): boolean;
+  getScanState(): string;
+  getScanProfile(): string;
+  getNearestDevices(count: number, fitnessOnly: boolean): Array<Object>;
+  getScanStats(): Object;
+
+  // Connections
+  connectDevice(address: string): Promise<boolean>;
+  disconnect(): void;
+  disconnectDevice(address: string): void;
+  setMaxConnectedDevices(maxDevices: number): void;
+  setAutoReconnect(enabled: boolean): void;
+  connectKnownDevices(maxDevices: number): Promise<number>;
+  forgetDevice(address: string): void;
+  isBluetoothAvailable(): boolean;
+  isConnected(): boolean;
+  isDeviceConnected(address: string): boolean;
+  getConnectedDeviceAddress(): string | null;
+  getConnectedDevices(): Array<Object>;
+  getKnownDevices(): Array<Object>;
+  getReconnectStats(): Object;
+
+  // Live samples
+  configureSampleRate(metric: string, maxUpdatesPerSecond: number, mode: string): boolean;
+  configureChangeThreshold(metric: string, threshold: number, maxSilenceMs: number): boolean;
+  // False until a verified live protocol is installed natively; JS polls the band itself then
+  hasLiveProtocol(): boolean;
+  startMonitoring(address: string | null, metrics: Array<string> | null): Promise<boolean>;
+  stopMonitoring(): void;
+  isMonitoring(): boolean;
+  getMonitoringStats(): Promise<Object>;
+  getRecentSamples(metric: string, maxCount: number): Object;
+  getRecentSamplesPacked(metric: string, maxCount: number): string | null;
+
+  // Stored history and aggregates
+  queryHealthHistory(metric: string, fromMs: number, toMs: number, maxSamples: number): Promise<Object>;
+  queryHealthHistoryPacked(metric: string, fromMs: number, toMs: number, maxSamples: number): Promise<string>;
+  getAggregates(metric: string, resolution: string, fromMs: number, toMs: number): Promise<Object>;
+  getAggregatesPacked(metric: string, resolution: string, fromMs: number, toMs: number): Promise<string>;
+  getWindowSummary(metric: string, windowMs: number): Object;
+  getStorageStats(): Promise<Object>;
+  syncHistory(address: string | null, metrics: Array<string> | null): Promise<boolean>;
+
+  // Upload
+  configureUpload(
+    baseUrl: string,
+    authToken: string,
+    userId: string,
+    deviceType: string,
+    deviceId: string,
+    batchSize: number,
+    maxAgeMs: number,
+  ): void;
+  setUploadFormat(format: string): void;
+  uploadNow(): void;
+  getUploadStats(): Object;
+
+  // Background collection (foreground service, runs without JS)
+  startCollection(address: string, metrics: Array<string> | null): void;
+  stopCollection(): void;
+  isCollectionRunning(): boolean;
+  getCollectionStats(): Object;
+
+  // Diagnostics
+  getGattStats(): Object;
+  getMetrics(): Object;
+
+  // NativeEventEmitter
+  addListener(eventName: string): void;
+  removeListeners(count: number): void;
+}
+
+export default TurboModuleRegistry.get<Spec>('HBandSDK');